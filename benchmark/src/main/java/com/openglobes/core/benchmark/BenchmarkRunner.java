@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2020 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Run benchmarks and write results in JSON.
+ * <p>
+ * Arguments are JMH command line options. Results go to
+ * {@code jmh-result.json} in working directory unless {@code -rff} is
+ * given, so results of releases can be compared.
+ *
+ * @author Hongbao Chen
+ * @since 1.0
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        var cmd = new CommandLineOptions(args);
+        var opts = new OptionsBuilder().parent(cmd)
+                                       .resultFormat(ResultFormatType.JSON);
+        if (cmd.getResult().hasValue()) {
+            opts.result(cmd.getResult().get());
+        } else {
+            opts.result("jmh-result.json");
+        }
+        if (cmd.getIncludes().isEmpty()) {
+            opts.include(OrderPathBenchmark.class.getSimpleName());
+        }
+        new Runner(opts.build()).run();
+    }
+}
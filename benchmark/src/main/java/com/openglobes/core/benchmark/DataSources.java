@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2021 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.benchmark;
+
+import com.openglobes.core.data.DataChangeType;
+import com.openglobes.core.data.DefaultTraderDataSource;
+import com.openglobes.core.data.ITraderDataSource;
+import com.openglobes.core.data.UnknownDataChangeException;
+import com.openglobes.core.event.InvalidSubscriptionException;
+import com.openglobes.core.trader.*;
+
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Open H2 data source for benchmarks.
+ *
+ * @author Hongbao Chen
+ * @since 1.0
+ */
+public class DataSources {
+
+    /**
+     * Classes the trader engine writes to data source.
+     */
+    public static final List<Class<?>> CLASSES = List.of(Account.class, Commission.class, Contract.class,
+                                                         Deposit.class, Instrument.class, Margin.class,
+                                                         Request.class, Response.class, SettlementPrice.class,
+                                                         Trade.class, TradingDay.class, Withdraw.class);
+
+    private DataSources() {
+    }
+
+    /**
+     * Open H2 data source at the specified JDBC URL without subscriber.
+     *
+     * @param url JDBC URL.
+     *
+     * @return data source.
+     */
+    public static DefaultTraderDataSource open(String url) {
+        var props = new Properties();
+        props.put("DataSource.URL", url);
+        props.put("DataSource.DriverClass", "org.h2.Driver");
+        props.put("USER", "sa");
+        props.put("PASSWORD", "");
+        var ds = new DefaultTraderDataSource();
+        ds.open(props);
+        return ds;
+    }
+
+    /**
+     * Get URL of named in-memory database that lives until JVM exits.
+     *
+     * @param name database name.
+     *
+     * @return JDBC URL.
+     */
+    public static String memory(String name) {
+        return "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1";
+    }
+
+    /**
+     * Subscribe all changes of data source and ignore them. Data source
+     * publishes every change and fails without subscriber.
+     *
+     * @param ds data source.
+     */
+    public static void ignoreChanges(ITraderDataSource ds) throws UnknownDataChangeException,
+                                                                  InvalidSubscriptionException {
+        for (var t : DataChangeType.values()) {
+            for (var c : CLASSES) {
+                ds.addListener(c, event -> {
+                }, t);
+            }
+        }
+    }
+}
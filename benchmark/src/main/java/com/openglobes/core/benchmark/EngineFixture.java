@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2020 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.benchmark;
+
+import com.openglobes.core.data.DefaultTraderDataSource;
+import com.openglobes.core.data.ITraderDataSource;
+import com.openglobes.core.trader.*;
+import com.openglobes.core.utils.Utils;
+
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.Properties;
+
+/**
+ * Trader engine with a simulated gateway, the default algorithm and an
+ * in-memory H2 data source.
+ * <p>
+ * Liquidity is put onto gateway directly with orders of null ID, so their
+ * trades and responses don't go to engine.
+ *
+ * @author Hongbao Chen
+ * @since 1.0
+ */
+class EngineFixture {
+
+    static final String INSTRUMENT_ID = "c2109";
+    private static final long TIMEOUT = 30L;
+    private static final int TRADER_ID = 1;
+
+    private final DefaultTraderDataSource ds;
+    private final TraderEngine engine;
+    private final TrackingGateway gateway;
+    private final Instrument instrument;
+
+    EngineFixture() throws Exception {
+        instrument = instrument();
+        ds = DataSources.open(DataSources.memory("bench-" + Utils.nextId()));
+        DataSources.ignoreChanges(ds);
+        setupData(ds, instrument);
+        gateway = new TrackingGateway();
+        engine = new TraderEngine();
+        engine.setDataSource(ds);
+        engine.setAlgorithm(new DefaultTraderEngineAlgorithm());
+        engine.registerTrader(TRADER_ID, gateway);
+        engine.enableTrader(TRADER_ID, true);
+        engine.renew();
+        /*
+         * Renewing engine clears deposits of the last day.
+         */
+        deposit(ds);
+    }
+
+    private static void deposit(ITraderDataSource ds) throws Exception {
+        try (var conn = ds.getConnection()) {
+            var d = new Deposit();
+            d.setDepositId(Utils.nextId());
+            d.setAmount(1.0E12D);
+            d.setTradingDay(LocalDate.now());
+            d.setTimestamp(ZonedDateTime.now());
+            conn.addDeposit(d);
+        }
+    }
+
+    private static Instrument instrument() {
+        var i = new Instrument();
+        i.setInstrumentId(INSTRUMENT_ID);
+        i.setExchangeId("DCE");
+        i.setCommissionType(RatioType.BY_VOLUMN);
+        i.setCommissionOpenRatio(1.2D);
+        i.setCommissionCloseTodayRatio(1.2D);
+        i.setCommissionCloseYdRatio(0.0D);
+        i.setMarginType(RatioType.BY_MONEY);
+        i.setMarginRatio(0.09D);
+        i.setMultiple(10L);
+        i.setPriceTick(1.0D);
+        i.setStartDate(LocalDate.now().minusMonths(6));
+        i.setEndDate(LocalDate.now().plusMonths(6));
+        i.setTimestamp(ZonedDateTime.now());
+        return i;
+    }
+
+    private static void setupData(ITraderDataSource ds, Instrument instrument) throws Exception {
+        var day = LocalDate.now();
+        try (var conn = ds.getConnection()) {
+            var a = new Account();
+            a.setAccountId(1L);
+            a.setBalance(0.0D);
+            a.setPreBalance(0.0D);
+            a.setDeposit(0.0D);
+            a.setPreDeposit(0.0D);
+            a.setWithdraw(0.0D);
+            a.setPreWithdraw(0.0D);
+            a.setMargin(0.0D);
+            a.setPreMargin(0.0D);
+            a.setCloseProfit(0.0D);
+            a.setCommission(0.0D);
+            a.setFrozenCommission(0.0D);
+            a.setFrozenMargin(0.0D);
+            a.setPositionProfit(0.0D);
+            a.setTradingDay(day);
+            a.setTimestamp(ZonedDateTime.now());
+            conn.addAccount(a);
+
+            conn.addInstrument(instrument);
+
+            var p = new SettlementPrice();
+            p.setSettlementPriceId(Utils.nextId());
+            p.setInstrumentId(instrument.getInstrumentId());
+            p.setSettlementPrice(100.0D);
+            p.setTradingDay(day);
+            p.setTimestamp(ZonedDateTime.now());
+            conn.addSettlementPrice(p);
+        }
+    }
+
+    /**
+     * Cancel order and wait until it is deleted.
+     *
+     * @param orderId order ID.
+     * @param direction direction of the order.
+     * @param traded quantity traded before cancel.
+     */
+    void cancel(long orderId, int direction, long traded) throws Exception {
+        var r = request(direction, Offset.OPEN, 100.0D, 0L);
+        r.setOrderId(orderId);
+        r.setAction(ActionType.DELETE);
+        gateway.expect(orderId, traded, true);
+        engine.request(r, instrument, new Properties());
+        gateway.await(orderId, TIMEOUT);
+    }
+
+    void close() {
+        ds.close();
+    }
+
+    /**
+     * Insert order and wait until the quantity is traded.
+     *
+     * @param direction direction.
+     * @param offset    offset.
+     * @param price     price.
+     * @param quantity  quantity of order.
+     * @param traded    quantity to wait for.
+     *
+     * @return order ID.
+     */
+    long insert(int direction, int offset, double price, long quantity, long traded) throws Exception {
+        var r = request(direction, offset, price, quantity);
+        gateway.expect(r.getOrderId(), traded, false);
+        engine.request(r, instrument, new Properties());
+        gateway.await(r.getOrderId(), TIMEOUT);
+        return r.getOrderId();
+    }
+
+    /**
+     * Put resting order onto gateway that doesn't belong to engine.
+     *
+     * @param direction direction.
+     * @param price     price.
+     * @param quantity  quantity.
+     */
+    void provide(int direction, double price, long quantity) {
+        var r = request(direction, Offset.OPEN, price, quantity);
+        r.setOrderId(null);
+        gateway.insert(r);
+    }
+
+    private Request request(int direction, int offset, double price, long quantity) {
+        var r = new Request();
+        r.setAction(ActionType.NEW);
+        r.setDirection(direction);
+        r.setExchangeId(instrument.getExchangeId());
+        r.setInstrumentId(INSTRUMENT_ID);
+        r.setOffset(offset);
+        r.setOrderId(Utils.nextId());
+        r.setPrice(price);
+        r.setQuantity(quantity);
+        r.setRequestId(Utils.nextId());
+        r.setTraderId(TRADER_ID);
+        return r;
+    }
+}
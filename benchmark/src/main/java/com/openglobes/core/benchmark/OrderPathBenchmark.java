@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2020 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.benchmark;
+
+import com.openglobes.core.trader.Direction;
+import com.openglobes.core.trader.Offset;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order path from engine request to the handled gateway callbacks, with
+ * the specified number of open positions held before measurement.
+ * <p>
+ * Each scenario has its own engine and liquidity on the simulated gateway:
+ * <ul>
+ * <li>open: buy-open 1 lot, fully traded. The lot is closed after each
+ * invocation.</li>
+ * <li>close: sell-close 1 lot, fully traded. Position is reopened before
+ * each invocation.</li>
+ * <li>cancel: buy-open 1 lot without counter party, then cancel it.</li>
+ * <li>partialFill: buy-open 3 lots with 1 lot on the other side, then
+ * cancel the rest. The traded lot is closed after each invocation.</li>
+ * </ul>
+ *
+ * @author Hongbao Chen
+ * @since 1.0
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class OrderPathBenchmark {
+
+    private static final long LIQUIDITY = 1L << 40;
+
+    @Benchmark
+    public long open(OpenState s) throws Exception {
+        return s.fixture.insert(Direction.BUY, Offset.OPEN, 100.0D, 1L, 1L);
+    }
+
+    @Benchmark
+    public long close(CloseState s) throws Exception {
+        return s.fixture.insert(Direction.SELL, Offset.CLOSE_AUTO, 99.0D, 1L, 1L);
+    }
+
+    @Benchmark
+    public long cancel(CancelState s) throws Exception {
+        var id = s.fixture.insert(Direction.BUY, Offset.OPEN, 90.0D, 1L, 0L);
+        s.fixture.cancel(id, Direction.BUY, 0L);
+        return id;
+    }
+
+    @Benchmark
+    public long partialFill(PartialFillState s) throws Exception {
+        s.fixture.provide(Direction.SELL, 100.0D, 1L);
+        var id = s.fixture.insert(Direction.BUY, Offset.OPEN, 100.0D, 3L, 1L);
+        s.fixture.cancel(id, Direction.BUY, 0L);
+        return id;
+    }
+
+    @State(Scope.Benchmark)
+    public static class FixtureState {
+
+        @Param({"10", "100", "1000"})
+        public int positions;
+
+        EngineFixture fixture;
+
+        /**
+         * Open positions through engine against temporary liquidity.
+         *
+         * @throws Exception if engine fails to open positions.
+         */
+        @Setup(Level.Trial)
+        public void setupFixture() throws Exception {
+            fixture = new EngineFixture();
+            fixture.provide(Direction.SELL, 98.0D, positions);
+            fixture.insert(Direction.BUY, Offset.OPEN, 98.0D, positions, positions);
+            prepare();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDownFixture() {
+            fixture.close();
+        }
+
+        /**
+         * Put liquidity of the scenario onto gateway.
+         */
+        void prepare() {
+        }
+
+        /**
+         * Close the lot opened by the invocation against temporary
+         * liquidity, so positions held stay the same.
+         *
+         * @throws Exception if engine fails to close the lot.
+         */
+        void closeLot() throws Exception {
+            fixture.provide(Direction.BUY, 97.0D, 1L);
+            fixture.insert(Direction.SELL, Offset.CLOSE_AUTO, 97.0D, 1L, 1L);
+        }
+    }
+
+    public static class OpenState extends FixtureState {
+
+        @Override
+        void prepare() {
+            fixture.provide(Direction.SELL, 100.0D, LIQUIDITY);
+        }
+
+        @TearDown(Level.Invocation)
+        public void close() throws Exception {
+            closeLot();
+        }
+    }
+
+    public static class CloseState extends FixtureState {
+
+        @Override
+        void prepare() {
+            fixture.provide(Direction.BUY, 99.0D, LIQUIDITY);
+        }
+
+        @Setup(Level.Invocation)
+        public void reopen() throws Exception {
+            fixture.provide(Direction.SELL, 101.0D, 1L);
+            fixture.insert(Direction.BUY, Offset.OPEN, 101.0D, 1L, 1L);
+        }
+    }
+
+    public static class CancelState extends FixtureState {
+    }
+
+    public static class PartialFillState extends FixtureState {
+
+        @TearDown(Level.Invocation)
+        public void close() throws Exception {
+            closeLot();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2020 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.benchmark;
+
+import com.openglobes.core.GatewayRuntimeException;
+import com.openglobes.core.ServiceRuntimeStatus;
+import com.openglobes.core.trader.*;
+import com.openglobes.core.trader.simulation.SimulatedTraderGateway;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulated gateway that lets benchmark wait until engine has handled the
+ * trades and responses of an order.
+ *
+ * @author Hongbao Chen
+ * @since 1.0
+ */
+class TrackingGateway extends SimulatedTraderGateway {
+
+    private final Map<Long, Pending> pendings = new ConcurrentHashMap<>(1024);
+
+    /**
+     * Expect the order to be traded and optionally deleted.
+     *
+     * @param orderId  engine order ID.
+     * @param traded   quantity to be traded.
+     * @param deleted  {@code true} if the order is to be deleted.
+     */
+    void expect(long orderId, long traded, boolean deleted) {
+        pendings.put(orderId, new Pending(traded, deleted));
+    }
+
+    /**
+     * Wait for the expected trades and responses of the order.
+     *
+     * @param orderId engine order ID.
+     * @param timeout timeout in seconds.
+     */
+    void await(long orderId, long timeout) {
+        var p = pendings.get(orderId);
+        if (p == null) {
+            throw new IllegalStateException("Order not expected: " + orderId + ".");
+        }
+        try {
+            if (!p.latch.await(timeout, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Order timeout: " + orderId + ".");
+            }
+        } catch (InterruptedException ex) {
+            throw new IllegalStateException(ex.getMessage(), ex);
+        } finally {
+            pendings.remove(orderId);
+        }
+        if (p.rejected) {
+            throw new IllegalStateException("Order rejected: " + orderId + ".");
+        }
+    }
+
+    @Override
+    public void setHandler(ITraderGatewayHandler handler) {
+        super.setHandler(new TrackingHandler(handler));
+    }
+
+    private static class Pending {
+
+        private final boolean deleteExpected;
+        private final CountDownLatch latch;
+        private final long tradeExpected;
+        private boolean deleted;
+        private boolean rejected;
+        private long traded;
+
+        Pending(long traded, boolean deleted) {
+            this.tradeExpected = traded;
+            this.deleteExpected = deleted;
+            this.latch = new CountDownLatch(1);
+        }
+
+        synchronized void onResponse(Response response) {
+            var status = response.getStatus();
+            if (status != null && status == OrderStatus.REJECTED) {
+                rejected = true;
+            } else if (status != null && status == OrderStatus.DELETED) {
+                deleted = true;
+            }
+            check();
+        }
+
+        synchronized void onTrade(Trade trade) {
+            traded += trade.getQuantity();
+            check();
+        }
+
+        private void check() {
+            if (rejected || (traded >= tradeExpected && (deleted || !deleteExpected))) {
+                latch.countDown();
+            }
+        }
+    }
+
+    private class TrackingHandler implements ITraderGatewayHandler {
+
+        private final ITraderGatewayHandler h;
+
+        TrackingHandler(ITraderGatewayHandler handler) {
+            h = handler;
+        }
+
+        @Override
+        public void onTrade(Trade trade) {
+            h.onTrade(trade);
+            /*
+             * Engine has translated order ID to its own.
+             */
+            var p = pendings.get(trade.getOrderId());
+            if (p != null) {
+                p.onTrade(trade);
+            }
+        }
+
+        @Override
+        public void onResponse(Response response) {
+            h.onResponse(response);
+            var p = pendings.get(response.getOrderId());
+            if (p != null) {
+                p.onResponse(response);
+            }
+        }
+
+        @Override
+        public void onError(GatewayRuntimeException exception) {
+            h.onError(exception);
+        }
+
+        @Override
+        public void onStatusChange(ServiceRuntimeStatus status) {
+            h.onStatusChange(status);
+        }
+    }
+}
@@ -0,0 +1,373 @@
+/*
+ * Copyright (C) 2020 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.benchmark.replay;
+
+import com.openglobes.core.Core;
+import com.openglobes.core.ICore;
+import com.openglobes.core.benchmark.DataSources;
+import com.openglobes.core.data.ITraderDataSource;
+import com.openglobes.core.session.ISession;
+import com.openglobes.core.trader.*;
+import com.openglobes.core.trader.simulation.SimulatedTraderGateway;
+import com.openglobes.core.utils.Utils;
+
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replay recorded order flow through sessions of a local core, with
+ * {@link SimulatedTraderGateway} as counter party.
+ * <p>
+ * Orders are split by instrument onto concurrent sessions, so requests of an
+ * order keep their order. Each session sends requests at recorded times
+ * scaled by speed, or as fast as it can if speed is zero. Before a recorded
+ * order is replayed, its traded quantity is put on the other side of the
+ * simulated market so it trades as it did in production.
+ * <p>
+ * Usage:
+ * <pre>
+ * LoadGenerator (--db=JDBC_URL | --file=PATH) [--export=PATH] [--speed=1]
+ *               [--concurrency=4] [--idle=2]
+ * </pre>
+ * {@code --export} writes flow read from database to file and exits.
+ * {@code --idle} is seconds without any write to session after the last
+ * request, when replay is considered complete.
+ *
+ * @author Hongbao Chen
+ * @since 1.0
+ */
+public class LoadGenerator {
+
+    private static final int TRADER_ID = 1;
+
+    private final int concurrency;
+    private final Duration idle;
+    private final double speed;
+    private final AtomicLong failed = new AtomicLong(0);
+    private final AtomicLong lastWrite = new AtomicLong(0);
+    private final AtomicLong responses = new AtomicLong(0);
+    private final AtomicLong sent = new AtomicLong(0);
+    private final AtomicLong trades = new AtomicLong(0);
+    private final WriteCounter writes = new WriteCounter();
+    private SimulatedTraderGateway gateway;
+
+    /**
+     * Create load generator.
+     *
+     * @param speed       replay speed relative to recorded times, or zero to
+     *                    send as fast as possible.
+     * @param concurrency number of concurrent sessions.
+     * @param idle        time without writes to session when replay is
+     *                    complete.
+     */
+    public LoadGenerator(double speed, int concurrency, Duration idle) {
+        if (speed < 0) {
+            throw new IllegalArgumentException("Negative speed.");
+        }
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("Non-positive concurrency.");
+        }
+        this.speed = speed;
+        this.concurrency = concurrency;
+        this.idle = Objects.requireNonNull(idle);
+    }
+
+    public static void main(String[] args) throws Exception {
+        var opts = new HashMap<String, String>();
+        for (var a : args) {
+            if (!a.startsWith("--") || !a.contains("=")) {
+                throw new IllegalArgumentException("Bad argument: " + a + ".");
+            }
+            opts.put(a.substring(2, a.indexOf('=')), a.substring(a.indexOf('=') + 1));
+        }
+        List<RecordedRequest> flow;
+        List<Instrument> instruments = new ArrayList<>();
+        if (opts.containsKey("db")) {
+            var src = DataSources.open(opts.get("db"));
+            flow = RecordedFlow.read(src);
+            for (var id : instrumentIds(flow)) {
+                try (var conn = src.getConnection()) {
+                    var i = conn.getInstrumentById(id);
+                    if (i != null) {
+                        instruments.add(i);
+                    }
+                }
+            }
+            src.close();
+        } else if (opts.containsKey("file")) {
+            flow = RecordedFlow.read(Path.of(opts.get("file")));
+        } else {
+            throw new IllegalArgumentException("Need --db or --file.");
+        }
+        if (opts.containsKey("export")) {
+            RecordedFlow.write(Path.of(opts.get("export")), flow);
+            return;
+        }
+        var g = new LoadGenerator(Double.parseDouble(opts.getOrDefault("speed", "1")),
+                                  Integer.parseInt(opts.getOrDefault("concurrency", "4")),
+                                  Duration.ofSeconds(Long.parseLong(opts.getOrDefault("idle", "2"))));
+        g.run(flow, instruments, System.out);
+        System.exit(0);
+    }
+
+    private static Set<String> instrumentIds(List<RecordedRequest> flow) {
+        var r = new TreeSet<String>();
+        flow.forEach(f -> r.add(f.getRequest().getInstrumentId()));
+        return r;
+    }
+
+    /**
+     * Instrument used when recorded flow has no instrument information.
+     *
+     * @param instrumentId instrument ID.
+     * @param exchangeId   exchange ID.
+     *
+     * @return instrument.
+     */
+    private static Instrument defaultInstrument(String instrumentId, String exchangeId) {
+        var i = new Instrument();
+        i.setInstrumentId(instrumentId);
+        i.setExchangeId(exchangeId);
+        i.setCommissionType(RatioType.BY_VOLUMN);
+        i.setCommissionOpenRatio(1.0D);
+        i.setCommissionCloseTodayRatio(1.0D);
+        i.setCommissionCloseYdRatio(1.0D);
+        i.setMarginType(RatioType.BY_MONEY);
+        i.setMarginRatio(0.1D);
+        i.setMultiple(10L);
+        i.setPriceTick(1.0D);
+        i.setStartDate(LocalDate.now().minusYears(1));
+        i.setEndDate(LocalDate.now().plusYears(1));
+        i.setTimestamp(ZonedDateTime.now());
+        return i;
+    }
+
+    /**
+     * Replay flow and print report.
+     *
+     * @param flow        recorded flow in time order.
+     * @param instruments instruments of the flow, and default instrument is
+     *                    used for the missing ones.
+     * @param out         report output.
+     *
+     * @throws Exception if core fails to start.
+     */
+    public void run(List<RecordedRequest> flow, Collection<Instrument> instruments, PrintStream out)
+            throws Exception {
+        var core = startCore(flow, instruments);
+        var lanes = split(flow);
+        var workers = new ArrayList<Thread>(lanes.size());
+        var t0 = firstTimestamp(flow);
+        var start = System.nanoTime();
+        for (int i = 0; i < lanes.size(); ++i) {
+            var session = core.getConnectorContext(new ReplayConnector(responses, trades, lastWrite))
+                              .getSession();
+            var lane = lanes.get(i);
+            var w = new Thread(() -> replay(session, lane, t0, start), "replay-" + i);
+            w.start();
+            workers.add(w);
+        }
+        for (var w : workers) {
+            w.join();
+        }
+        var sendEnd = System.nanoTime();
+        awaitIdle(sendEnd);
+        report(core, start, sendEnd, out);
+        core.dispose();
+    }
+
+    private void awaitIdle(long since) throws InterruptedException {
+        var idleNanos = idle.toNanos();
+        while (true) {
+            var last = Math.max(since, lastWrite.get());
+            var left = last + idleNanos - System.nanoTime();
+            if (left <= 0) {
+                return;
+            }
+            TimeUnit.NANOSECONDS.sleep(left);
+        }
+    }
+
+    private ZonedDateTime firstTimestamp(List<RecordedRequest> flow) {
+        for (var f : flow) {
+            if (f.getRequest().getUpdateTimestamp() != null) {
+                return f.getRequest().getUpdateTimestamp();
+            }
+        }
+        return null;
+    }
+
+    private void pace(Request request, ZonedDateTime t0, long start) {
+        if (speed == 0 || t0 == null || request.getUpdateTimestamp() == null) {
+            return;
+        }
+        var offset = Duration.between(t0, request.getUpdateTimestamp()).toNanos();
+        var due = start + (long) (offset / speed);
+        long wait;
+        while ((wait = due - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(wait);
+        }
+    }
+
+    private void provide(Request request, long quantity) {
+        var r = new Request();
+        r.setAction(ActionType.NEW);
+        r.setDirection(request.getDirection() == Direction.BUY ? Direction.SELL : Direction.BUY);
+        r.setInstrumentId(request.getInstrumentId());
+        r.setExchangeId(request.getExchangeId());
+        r.setOffset(Offset.OPEN);
+        r.setPrice(request.getPrice());
+        r.setQuantity(quantity);
+        /*
+         * Order of null ID isn't reported to engine.
+         */
+        r.setOrderId(null);
+        gateway.insert(r);
+    }
+
+    private void replay(ISession session, List<RecordedRequest> lane, ZonedDateTime t0, long start) {
+        for (var f : lane) {
+            var r = f.getRequest().copy();
+            pace(r, t0, start);
+            r.setTraderId(TRADER_ID);
+            r.setRequestId(Utils.nextId());
+            try {
+                if (r.getAction() == ActionType.NEW && f.getTraded() > 0) {
+                    provide(r, f.getTraded());
+                }
+                session.request(Request.class, r, new Properties());
+                sent.incrementAndGet();
+            } catch (Throwable th) {
+                failed.incrementAndGet();
+            }
+        }
+    }
+
+    private void report(ICore core, long start, long sendEnd, PrintStream out) {
+        var sendSeconds = (sendEnd - start) / 1.0E9D;
+        var totalSeconds = (Math.max(sendEnd, lastWrite.get()) - start) / 1.0E9D;
+        out.printf("requests sent: %d, failed: %d, in %.3f s, %.1f req/s%n",
+                   sent.get(), failed.get(), sendSeconds, sent.get() / sendSeconds);
+        out.printf("responses: %d, trades: %d, in %.3f s, %.1f msg/s%n",
+                   responses.get(), trades.get(), totalSeconds,
+                   (responses.get() + trades.get()) / totalSeconds);
+        out.println("latency (ns):");
+        for (var s : core.getLatencyMonitor().getSnapshots()) {
+            out.println("  " + s);
+        }
+        out.printf("db writes: %d, %.1f rows/s%n", writes.total(), writes.total() / totalSeconds);
+        writes.snapshot().forEach((k, v) -> out.printf("  %s: %d%n", k, v));
+    }
+
+    private List<List<RecordedRequest>> split(List<RecordedRequest> flow) {
+        var lanes = new ArrayList<List<RecordedRequest>>(concurrency);
+        for (int i = 0; i < concurrency; ++i) {
+            lanes.add(new ArrayList<>(flow.size() / concurrency + 1));
+        }
+        for (var f : flow) {
+            var h = f.getRequest().getInstrumentId().hashCode() & 0x7FFFFFFF;
+            lanes.get(h % concurrency).add(f);
+        }
+        lanes.removeIf(List::isEmpty);
+        return lanes;
+    }
+
+    private ICore startCore(List<RecordedRequest> flow, Collection<Instrument> instruments) throws Exception {
+        var ds = DataSources.open(DataSources.memory("replay-" + Utils.nextId()));
+        writes.subscribe(ds);
+        var known = new HashMap<String, Instrument>();
+        instruments.forEach(i -> known.put(i.getInstrumentId(), i));
+        var prices = new HashMap<String, Double>();
+        for (var f : flow) {
+            var q = f.getRequest();
+            known.computeIfAbsent(q.getInstrumentId(), id -> defaultInstrument(id, q.getExchangeId()));
+            if (q.getPrice() != null) {
+                prices.putIfAbsent(q.getInstrumentId(), q.getPrice());
+            }
+        }
+        setupData(ds, known.values(), prices);
+
+        var core = Core.create();
+        core.installDataSource(ds);
+        gateway = new SimulatedTraderGateway(concurrency);
+        core.installGateway(gateway);
+        core.start();
+        var engine = core.getTraderEngine();
+        engine.enableTrader(TRADER_ID, true);
+        engine.renew();
+        /*
+         * Renewing engine clears deposits of the last day.
+         */
+        try (var conn = ds.getConnection()) {
+            var d = new Deposit();
+            d.setDepositId(Utils.nextId());
+            d.setAmount(1.0E15D);
+            d.setTradingDay(LocalDate.now());
+            d.setTimestamp(ZonedDateTime.now());
+            conn.addDeposit(d);
+        }
+        core.getLatencyMonitor().setEnabled(true);
+        /*
+         * Count writes of replay only.
+         */
+        TimeUnit.MILLISECONDS.sleep(100);
+        writes.reset();
+        return core;
+    }
+
+    private void setupData(ITraderDataSource ds, Collection<Instrument> instruments, Map<String, Double> prices)
+            throws Exception {
+        var day = LocalDate.now();
+        try (var conn = ds.getConnection()) {
+            var a = new Account();
+            a.setAccountId(1L);
+            a.setBalance(0.0D);
+            a.setPreBalance(0.0D);
+            a.setDeposit(0.0D);
+            a.setPreDeposit(0.0D);
+            a.setWithdraw(0.0D);
+            a.setPreWithdraw(0.0D);
+            a.setMargin(0.0D);
+            a.setPreMargin(0.0D);
+            a.setCloseProfit(0.0D);
+            a.setCommission(0.0D);
+            a.setFrozenCommission(0.0D);
+            a.setFrozenMargin(0.0D);
+            a.setPositionProfit(0.0D);
+            a.setTradingDay(day);
+            a.setTimestamp(ZonedDateTime.now());
+            conn.addAccount(a);
+            for (var i : instruments) {
+                conn.addInstrument(i);
+                var p = new SettlementPrice();
+                p.setSettlementPriceId(Utils.nextId());
+                p.setInstrumentId(i.getInstrumentId());
+                p.setSettlementPrice(prices.getOrDefault(i.getInstrumentId(), 0.0D));
+                p.setTradingDay(day);
+                p.setTimestamp(ZonedDateTime.now());
+                conn.addSettlementPrice(p);
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2020 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.benchmark.replay;
+
+import com.openglobes.core.data.DataQueryException;
+import com.openglobes.core.data.ITraderDataSource;
+import com.openglobes.core.trader.ActionType;
+import com.openglobes.core.trader.Request;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.ZonedDateTime;
+import java.util.*;
+
+/**
+ * Recorded order flow in time order.
+ * <p>
+ * Flow is read from the request and trade tables of a data source, or from
+ * a file exported by {@link #write(Path, List)}. File has a header line and
+ * one request per line:
+ * <pre>
+ * timestamp,action,orderId,instrumentId,exchangeId,direction,offset,price,quantity,traded
+ * </pre>
+ * where timestamp is ISO zoned date time, and action, direction and offset
+ * are the integer constants.
+ *
+ * @author Hongbao Chen
+ * @since 1.0
+ */
+public class RecordedFlow {
+
+    private static final String HEADER = "timestamp,action,orderId,instrumentId,exchangeId,"
+                                         + "direction,offset,price,quantity,traded";
+
+    private RecordedFlow() {
+    }
+
+    public static List<RecordedRequest> read(ITraderDataSource ds)
+            throws SQLException, ClassNotFoundException, DataQueryException {
+        try (var conn = ds.getConnection()) {
+            var traded = new HashMap<Long, Long>(1024);
+            for (var t : conn.getTrades()) {
+                traded.merge(t.getOrderId(), t.getQuantity(), Long::sum);
+            }
+            var r = new ArrayList<RecordedRequest>(1024);
+            for (var q : conn.getRequests()) {
+                var n = q.getAction() == ActionType.NEW ? traded.getOrDefault(q.getOrderId(), 0L) : 0L;
+                r.add(new RecordedRequest(q, n));
+            }
+            sort(r);
+            return r;
+        }
+    }
+
+    public static List<RecordedRequest> read(Path file) throws IOException {
+        var lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        var r = new ArrayList<RecordedRequest>(lines.size());
+        for (int i = 0; i < lines.size(); ++i) {
+            var line = lines.get(i).trim();
+            if (line.isEmpty() || line.equals(HEADER)) {
+                continue;
+            }
+            var s = line.split(",", -1);
+            if (s.length != 10) {
+                throw new IOException("Wrong column count at line " + (i + 1) + ".");
+            }
+            try {
+                var q = new Request();
+                q.setUpdateTimestamp(s[0].isEmpty() ? null : ZonedDateTime.parse(s[0]));
+                q.setAction(Integer.parseInt(s[1]));
+                q.setOrderId(Long.parseLong(s[2]));
+                q.setInstrumentId(s[3]);
+                q.setExchangeId(s[4]);
+                q.setDirection(Integer.parseInt(s[5]));
+                q.setOffset(Integer.parseInt(s[6]));
+                q.setPrice(Double.parseDouble(s[7]));
+                q.setQuantity(Long.parseLong(s[8]));
+                r.add(new RecordedRequest(q, Long.parseLong(s[9])));
+            } catch (RuntimeException ex) {
+                throw new IOException("Wrong value at line " + (i + 1) + ".", ex);
+            }
+        }
+        sort(r);
+        return r;
+    }
+
+    public static void write(Path file, List<RecordedRequest> flow) throws IOException {
+        var lines = new ArrayList<String>(flow.size() + 1);
+        lines.add(HEADER);
+        for (var f : flow) {
+            var q = f.getRequest();
+            lines.add((q.getUpdateTimestamp() == null ? "" : q.getUpdateTimestamp().toString())
+                      + "," + q.getAction()
+                      + "," + q.getOrderId()
+                      + "," + q.getInstrumentId()
+                      + "," + q.getExchangeId()
+                      + "," + q.getDirection()
+                      + "," + q.getOffset()
+                      + "," + q.getPrice()
+                      + "," + q.getQuantity()
+                      + "," + f.getTraded());
+        }
+        Files.write(file, lines, StandardCharsets.UTF_8);
+    }
+
+    private static void sort(List<RecordedRequest> flow) {
+        /*
+         * Stable sort keeps recorded order of requests without timestamp.
+         */
+        flow.sort(Comparator.comparing(f -> f.getRequest().getUpdateTimestamp(),
+                                       Comparator.nullsFirst(Comparator.naturalOrder())));
+    }
+}
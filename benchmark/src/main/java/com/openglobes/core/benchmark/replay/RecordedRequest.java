@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2020 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.benchmark.replay;
+
+import com.openglobes.core.trader.Request;
+
+/**
+ * Recorded request with the quantity that was traded in production.
+ *
+ * @author Hongbao Chen
+ * @since 1.0
+ */
+public class RecordedRequest {
+
+    private final Request request;
+    private final long traded;
+
+    public RecordedRequest(Request request, long traded) {
+        this.request = request;
+        this.traded = traded;
+    }
+
+    public Request getRequest() {
+        return request;
+    }
+
+    /**
+     * Get traded quantity of the order, which is the liquidity put on the
+     * other side before the request is replayed.
+     *
+     * @return traded quantity, always zero for cancel.
+     */
+    public long getTraded() {
+        return traded;
+    }
+}
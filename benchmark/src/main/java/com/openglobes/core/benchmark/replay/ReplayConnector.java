@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2020 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.benchmark.replay;
+
+import com.openglobes.core.connector.IConnector;
+import com.openglobes.core.trader.Response;
+import com.openglobes.core.trader.Trade;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Connector of a replay session, counting what core writes back.
+ *
+ * @author Hongbao Chen
+ * @since 1.0
+ */
+class ReplayConnector implements IConnector {
+
+    private final AtomicLong lastWrite;
+    private final AtomicLong responses;
+    private final AtomicLong trades;
+
+    ReplayConnector(AtomicLong responses, AtomicLong trades, AtomicLong lastWrite) {
+        this.responses = responses;
+        this.trades = trades;
+        this.lastWrite = lastWrite;
+    }
+
+    @Override
+    public void write(Trade trade) {
+        trades.incrementAndGet();
+        lastWrite.set(System.nanoTime());
+    }
+
+    @Override
+    public void write(Response response) {
+        responses.incrementAndGet();
+        lastWrite.set(System.nanoTime());
+    }
+
+    @Override
+    public void dispose() {
+    }
+}
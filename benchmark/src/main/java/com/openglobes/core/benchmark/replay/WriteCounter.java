@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2020 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.benchmark.replay;
+
+import com.openglobes.core.benchmark.DataSources;
+import com.openglobes.core.data.DataChangeType;
+import com.openglobes.core.data.ITraderDataSource;
+import com.openglobes.core.data.UnknownDataChangeException;
+import com.openglobes.core.event.InvalidSubscriptionException;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Count rows created, updated and deleted in data source by class.
+ *
+ * @author Hongbao Chen
+ * @since 1.0
+ */
+class WriteCounter {
+
+    private final Map<String, AtomicLong> counts = new ConcurrentHashMap<>(64);
+
+    /**
+     * Subscribe all changes of data source. Data source fails publishing
+     * change without subscriber, so it subscribes reads too but doesn't count
+     * them.
+     *
+     * @param ds data source.
+     */
+    void subscribe(ITraderDataSource ds) throws UnknownDataChangeException, InvalidSubscriptionException {
+        for (var t : DataChangeType.values()) {
+            for (var c : DataSources.CLASSES) {
+                var key = t.name() + " " + c.getSimpleName();
+                var n = counts.computeIfAbsent(key, k -> new AtomicLong(0));
+                ds.addListener(c, event -> {
+                    if (t != DataChangeType.RETRIEVE) {
+                        n.incrementAndGet();
+                    }
+                }, t);
+            }
+        }
+    }
+
+    Map<String, Long> snapshot() {
+        var r = new TreeMap<String, Long>();
+        counts.forEach((k, v) -> {
+            if (v.get() > 0) {
+                r.put(k, v.get());
+            }
+        });
+        return r;
+    }
+
+    long total() {
+        long r = 0;
+        for (var v : counts.values()) {
+            r += v.get();
+        }
+        return r;
+    }
+
+    void reset() {
+        counts.values().forEach(v -> v.set(0));
+    }
+}
@@ -23,6 +23,7 @@ import com.openglobes.core.data.ITraderDataSource;
 import com.openglobes.core.plugin.IPlugin;
 import com.openglobes.core.plugin.IPluginContext;
 import com.openglobes.core.session.AcquireInformationException;
+import com.openglobes.core.trader.ILatencyMonitor;
 import com.openglobes.core.trader.ITraderEngine;
 import com.openglobes.core.trader.ITraderGateway;
 
@@ -54,6 +55,14 @@ public interface ICore {
 
     Collection<IGatewayContext> gateways();
 
+    /**
+     * Get per-order stage latency of the core, from session request to
+     * connector write.
+     *
+     * @return latency monitor.
+     */
+    ILatencyMonitor getLatencyMonitor();
+
     IRequestContext getRequest();
 
     ISharedContext getShared();
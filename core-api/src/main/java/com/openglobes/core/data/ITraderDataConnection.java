@@ -35,14 +35,20 @@ public interface ITraderDataConnection extends AutoCloseable,
 
     void addCommission(Commission commission) throws DataInsertionException;
 
+    void addCommissions(Collection<Commission> commissions) throws DataInsertionException;
+
     void addContract(Contract contract) throws DataInsertionException;
 
+    void addContracts(Collection<Contract> contracts) throws DataInsertionException;
+
     void addDeposit(Deposit deposit) throws DataInsertionException;
 
     void addInstrument(Instrument instrument) throws DataInsertionException;
 
     void addMargin(Margin margin) throws DataInsertionException;
 
+    void addMargins(Collection<Margin> margins) throws DataInsertionException;
+
     void addRequest(Request request) throws DataInsertionException;
 
     void addResponse(Response response) throws DataInsertionException;
@@ -90,6 +96,8 @@ public interface ITraderDataConnection extends AutoCloseable,
 
     Collection<Margin> getMargins() throws DataQueryException;
 
+    Collection<Margin> getMarginsByContractId(long contractId) throws DataQueryException;
+
     Collection<Margin> getMarginsByOrderId(long orderId) throws DataQueryException;
 
     Collection<Margin> getMarginsByStatus(Integer status) throws DataQueryException;
@@ -136,12 +144,18 @@ public interface ITraderDataConnection extends AutoCloseable,
 
     void updateCommission(Commission commission) throws DataUpdateException;
 
+    void updateCommissions(Collection<Commission> commissions) throws DataUpdateException;
+
     void updateContract(Contract contract) throws DataUpdateException;
 
+    void updateContracts(Collection<Contract> contracts) throws DataUpdateException;
+
     void updateInstrument(Instrument instrument) throws DataUpdateException;
 
     void updateMargin(Margin margin) throws DataUpdateException;
 
+    void updateMargins(Collection<Margin> margins) throws DataUpdateException;
+
     void updateSettlementPrice(SettlementPrice price) throws DataUpdateException;
 
     void updateTradingDay(TradingDay day) throws DataUpdateException;
@@ -16,6 +16,8 @@
  */
 package com.openglobes.core.session;
 
+import com.openglobes.core.trader.CancelFilter;
+
 import java.util.Properties;
 
 /**
@@ -24,6 +26,15 @@ import java.util.Properties;
  */
 public interface ISession {
 
+    /**
+     * Cancel live orders of this session that match the filter.
+     *
+     * @param filter criteria of orders to cancel.
+     *
+     * @return number of cancels sent to gateways.
+     */
+    int cancelAll(CancelFilter filter);
+
     <T> void request(Class<T> clazz,
                      T object,
                      Properties properties) throws AcquireInformationException,
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2020 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.trader;
+
+import com.openglobes.core.utils.ICopyable;
+
+import java.util.function.LongPredicate;
+
+/**
+ * Criteria of live orders to cancel in bulk.
+ * <p>
+ * Criteria left {@code null} match any order, so an empty filter matches all
+ * live orders. The order filter tests source order IDs, and sessions use it to
+ * restrict the cancels to their own orders.
+ *
+ * @author Hongbao Chen
+ * @since 1.0
+ */
+public class CancelFilter implements ICopyable<CancelFilter> {
+
+    private Integer direction;
+    private String instrumentId;
+    private LongPredicate orderFilter;
+    private Integer traderId;
+
+    public CancelFilter() {
+    }
+
+    public Integer getDirection() {
+        return direction;
+    }
+
+    public void setDirection(Integer direction) {
+        this.direction = direction;
+    }
+
+    public String getInstrumentId() {
+        return instrumentId;
+    }
+
+    public void setInstrumentId(String instrumentId) {
+        this.instrumentId = instrumentId;
+    }
+
+    public LongPredicate getOrderFilter() {
+        return orderFilter;
+    }
+
+    public void setOrderFilter(LongPredicate orderFilter) {
+        this.orderFilter = orderFilter;
+    }
+
+    public Integer getTraderId() {
+        return traderId;
+    }
+
+    public void setTraderId(Integer traderId) {
+        this.traderId = traderId;
+    }
+
+    @Override
+    public CancelFilter copy() {
+        var c = new CancelFilter();
+        c.direction = direction;
+        c.instrumentId = instrumentId;
+        c.orderFilter = orderFilter;
+        c.traderId = traderId;
+        return c;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2020 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.trader;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Trader gateway that accepts requests asynchronously and in batches.
+ * <p>
+ * Engine sends requests without holding its locks and keeps at most
+ * {@link #getInFlightLimit()} submissions in flight. A submission completes
+ * when the gateway has sent the request to its counter, not when the order
+ * is done. Responses and trades are still notified through
+ * {@link ITraderGatewayHandler}.
+ *
+ * @author Hongbao Chen
+ * @since 1.0
+ */
+public interface IAsyncTraderGateway extends ITraderGateway {
+
+    /**
+     * Get max number of submissions the gateway can have in flight. Engine
+     * reads it again when the gateway notifies a status change, so a gateway
+     * reconnecting with a new limit should notify its handler.
+     *
+     * @return positive in-flight limit.
+     */
+    int getInFlightLimit();
+
+    /**
+     * Send requests in the order of the collection. The requests may be
+     * written to counter in fewer round trips than calling
+     * {@link #insert(Request)} one by one.
+     *
+     * @param requests requests to send.
+     */
+    void insertAll(Collection<Request> requests);
+
+    /**
+     * Submit request asynchronously.
+     *
+     * @param request request to send.
+     *
+     * @return handle completed after the request is sent, or completed
+     *         exceptionally if it fails sending the request.
+     */
+    CompletableFuture<Void> submit(Request request);
+
+    /**
+     * Submit requests asynchronously in the order of the collection.
+     *
+     * @param requests requests to send.
+     *
+     * @return handle completed after all requests are sent, or completed
+     *         exceptionally if it fails sending any of them.
+     */
+    CompletableFuture<Void> submitAll(Collection<Request> requests);
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2020 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.trader;
+
+import java.util.Collection;
+
+/**
+ * Per-order stage latency monitor.
+ * <p>
+ * Components along the order path mark stages of an order with its engine
+ * order ID, and the time between stages is aggregated into histograms of
+ * all gateways and of each gateway. Marking is free when monitor is
+ * disabled, and doesn't allocate when it is enabled.
+ *
+ * @author Hongbao Chen
+ * @since 1.0
+ */
+public interface ILatencyMonitor {
+
+    boolean isEnabled();
+
+    /**
+     * Switch the monitor at runtime. Samples are kept when it is disabled.
+     *
+     * @param enabled {@code true} to sample latency.
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * Associate order with gateway so its later stages are also aggregated
+     * for the gateway.
+     *
+     * @param orderId  order ID.
+     * @param traderId trader ID.
+     */
+    void bind(long orderId, int traderId);
+
+    /**
+     * Mark the order reaches the stage now. Only the first mark of a stage
+     * is sampled.
+     *
+     * @param stage   stage defined in {@link LatencyStage}.
+     * @param orderId order ID.
+     */
+    void mark(int stage, long orderId);
+
+    LatencySnapshot getSnapshot(int stage);
+
+    LatencySnapshot getSnapshot(int stage, int traderId);
+
+    /**
+     * Get snapshots of all sampled stages, of all gateways and of each
+     * gateway.
+     *
+     * @return snapshots.
+     */
+    Collection<LatencySnapshot> getSnapshots();
+
+    void reset();
+}
@@ -31,6 +31,17 @@ import java.util.Properties;
  */
 public interface ITraderEngine {
 
+    /**
+     * Cancel all live orders matching the filter in one pass. Cancels are
+     * sent to each gateway in a batch, and orders inserted during the call
+     * may be missed.
+     *
+     * @param filter criteria of orders to cancel.
+     *
+     * @return number of cancels sent to gateways.
+     */
+    int cancelAll(CancelFilter filter);
+
     void enableTrader(int traderId, boolean enabled) throws UnknownTraderIdException;
 
     ITraderEngineAlgorithm getAlgorithm();
@@ -43,6 +54,12 @@ public interface ITraderEngine {
 
     IEventSource getEventSource();
 
+    ILatencyMonitor getLatencyMonitor();
+
+    ITraderRouter getRouter();
+
+    void setRouter(ITraderRouter router);
+
     Instrument getTodayInstrument(String instrumentId);
 
     Collection<Instrument> getTodayInstruments();
@@ -72,4 +72,13 @@ public interface ITraderEngineAlgorithm {
                          Integer offset,
                          Contract c,
                          LocalDate tradingDay);
+
+    /**
+     * Prepare calculation of the instrument. Engine calls it when the
+     * instrument is loaded or its fees change.
+     *
+     * @param instrument instrument.
+     */
+    default void loadInstrument(Instrument instrument) {
+    }
 }
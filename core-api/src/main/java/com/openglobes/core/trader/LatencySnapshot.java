@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2020 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.trader;
+
+import java.io.Serializable;
+
+/**
+ * Latency distribution of a stage at the time of query, in nanoseconds.
+ *
+ * @author Hongbao Chen
+ * @since 1.0
+ */
+public class LatencySnapshot implements Serializable {
+
+    private final long count;
+    private final long max;
+    private final long p50;
+    private final long p99;
+    private final long p999;
+    private final int stage;
+    private final Integer traderId;
+
+    public LatencySnapshot(int stage,
+                           Integer traderId,
+                           long count,
+                           long p50,
+                           long p99,
+                           long p999,
+                           long max) {
+        this.stage = stage;
+        this.traderId = traderId;
+        this.count = count;
+        this.p50 = p50;
+        this.p99 = p99;
+        this.p999 = p999;
+        this.max = max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public long getP50() {
+        return p50;
+    }
+
+    public long getP99() {
+        return p99;
+    }
+
+    public long getP999() {
+        return p999;
+    }
+
+    /**
+     * Get stage of the latency.
+     *
+     * @return stage defined in {@link LatencyStage}.
+     */
+    public int getStage() {
+        return stage;
+    }
+
+    /**
+     * Get trader ID of the gateway.
+     *
+     * @return trader ID, or {@code null} if the latency is of all gateways.
+     */
+    public Integer getTraderId() {
+        return traderId;
+    }
+
+    @Override
+    public String toString() {
+        return LatencyStage.nameOf(stage)
+               + (traderId == null ? "" : "@" + traderId)
+               + "[count=" + count
+               + ", p50=" + p50
+               + ", p99=" + p99
+               + ", p999=" + p999
+               + ", max=" + max + "]";
+    }
+}
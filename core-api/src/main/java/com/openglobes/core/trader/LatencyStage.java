@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2020 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.trader;
+
+import java.io.Serializable;
+
+/**
+ * Stages of an order's lifecycle where latency is sampled.
+ * <p>
+ * Latency of a stage is the time from the previous sampled stage of the same
+ * order to the stage. {@link #END_TO_END} is the time from the first sampled
+ * stage to the order's first response written to connector.
+ *
+ * @author Hongbao Chen
+ * @since 1.0
+ */
+public class LatencyStage implements Serializable {
+
+    /**
+     * Session receives the request.
+     */
+    public static final int SESSION_REQUEST = 0;
+    /**
+     * Request passes the interceptor chain and enters engine.
+     */
+    public static final int CHAIN_REQUEST = 1;
+    /**
+     * Engine's shard thread starts dispatching the request.
+     */
+    public static final int ENGINE_DISPATCH = 2;
+    /**
+     * Request is sent to gateway.
+     */
+    public static final int GATEWAY_INSERT = 3;
+    /**
+     * Gateway calls back with the first response.
+     */
+    public static final int GATEWAY_RESPONSE = 4;
+    /**
+     * Response event is handled and passed to the interceptor chain.
+     */
+    public static final int RESPONSE_EVENT = 5;
+    /**
+     * Response passes the interceptor chain and is written to connector.
+     */
+    public static final int CONNECTOR_WRITE = 6;
+    /**
+     * From the first sampled stage to connector write.
+     */
+    public static final int END_TO_END = 7;
+    /**
+     * Number of stages.
+     */
+    public static final int COUNT = 8;
+
+    private static final String[] NAMES = {
+            "SESSION_REQUEST",
+            "CHAIN_REQUEST",
+            "ENGINE_DISPATCH",
+            "GATEWAY_INSERT",
+            "GATEWAY_RESPONSE",
+            "RESPONSE_EVENT",
+            "CONNECTOR_WRITE",
+            "END_TO_END"
+    };
+
+    private LatencyStage() {
+    }
+
+    public static String nameOf(int stage) {
+        if (stage < 0 || stage >= COUNT) {
+            throw new IllegalArgumentException("Unknown stage: " + stage + ".");
+        }
+        return NAMES[stage];
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2020 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.trader;
+
+/**
+ * Rate limits of a trader gateway session.
+ * <p>
+ * Inserts and cancels are limited by separate token buckets. Requests over
+ * the rate wait in a bounded queue where cancels go before inserts, and are
+ * sent as tokens refill. Request is rejected at once if the queue is full.
+ *
+ * @author Hongbao Chen
+ * @since 1.0
+ */
+public class ThrottleSetting {
+
+    private final int cancelBurst;
+    private final double cancelsPerSecond;
+    private final int insertBurst;
+    private final double insertsPerSecond;
+    private final int queueCapacity;
+
+    /**
+     * Create throttle setting.
+     *
+     * @param insertsPerSecond max rate of inserting orders.
+     * @param insertBurst      max number of inserts sent at once.
+     * @param cancelsPerSecond max rate of canceling orders.
+     * @param cancelBurst      max number of cancels sent at once.
+     * @param queueCapacity    max number of requests waiting for tokens.
+     */
+    public ThrottleSetting(double insertsPerSecond,
+                           int insertBurst,
+                           double cancelsPerSecond,
+                           int cancelBurst,
+                           int queueCapacity) {
+        if (insertsPerSecond <= 0 || cancelsPerSecond <= 0) {
+            throw new IllegalArgumentException("Non-positive rate.");
+        }
+        if (insertBurst <= 0 || cancelBurst <= 0) {
+            throw new IllegalArgumentException("Non-positive burst.");
+        }
+        if (queueCapacity < 0) {
+            throw new IllegalArgumentException("Negative queue capacity.");
+        }
+        this.insertsPerSecond = insertsPerSecond;
+        this.insertBurst = insertBurst;
+        this.cancelsPerSecond = cancelsPerSecond;
+        this.cancelBurst = cancelBurst;
+        this.queueCapacity = queueCapacity;
+    }
+
+    public int getCancelBurst() {
+        return cancelBurst;
+    }
+
+    public double getCancelsPerSecond() {
+        return cancelsPerSecond;
+    }
+
+    public int getInsertBurst() {
+        return insertBurst;
+    }
+
+    public double getInsertsPerSecond() {
+        return insertsPerSecond;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+}
@@ -27,16 +27,19 @@ import java.time.ZonedDateTime;
 public class TraderGatewayContext {
 
     private final ZonedDateTime registerTimestamp;
+    private final TraderGatewayStatistics statistics;
     private Boolean enabled;
     private ITraderEngine engine;
     private ITraderGatewayHandler handler;
     private String note;
+    private volatile ThrottleSetting throttle;
     private ITraderGateway trader;
     private Integer traderId;
     private ZonedDateTime updateTimestamp;
 
     public TraderGatewayContext() {
         registerTimestamp = ZonedDateTime.now();
+        statistics = new TraderGatewayStatistics();
     }
 
     public void setEnabled(Boolean enabled) {
@@ -75,6 +78,25 @@ public class TraderGatewayContext {
         return registerTimestamp;
     }
 
+    public TraderGatewayStatistics getStatistics() {
+        return statistics;
+    }
+
+    public ThrottleSetting getThrottle() {
+        return throttle;
+    }
+
+    /**
+     * Set rate limits of the gateway. Requests are not throttled if it is
+     * {@code null}. New setting takes effect at once.
+     *
+     * @param throttle throttle setting, or {@code null}.
+     */
+    public void setThrottle(ThrottleSetting throttle) {
+        this.throttle = throttle;
+        updateTimestamp();
+    }
+
     public ITraderGateway getTrader() {
         return trader;
     }
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2020 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.trader;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live statistics of a trader gateway, updated by gateway callbacks and read
+ * by router.
+ * <p>
+ * Ack latency is the time from inserting an order into gateway to the first
+ * response or trade of the order, smoothed by exponential moving average.
+ * Queue wait is the time a throttled request waits before it is sent,
+ * smoothed the same way.
+ *
+ * @author Hongbao Chen
+ * @since 1.0
+ */
+public class TraderGatewayStatistics {
+
+    private static final double ALPHA = 0.2D;
+    private final AtomicLong acks = new AtomicLong(0);
+    private final AtomicLong inFlight = new AtomicLong(0);
+    private final AtomicLong queueDepth = new AtomicLong(0);
+    private final AtomicLong queued = new AtomicLong(0);
+    private final AtomicLong rejects = new AtomicLong(0);
+    private final AtomicLong requests = new AtomicLong(0);
+    private final AtomicLong throttleRejects = new AtomicLong(0);
+    private volatile double ackLatency = 0.0D;
+    private volatile long maxQueueWait = 0L;
+    private volatile double queueWait = 0.0D;
+
+    public TraderGatewayStatistics() {
+    }
+
+    /**
+     * Get smoothed ack latency in nanoseconds. It is zero if no order has been
+     * acknowledged.
+     *
+     * @return ack latency in nanoseconds.
+     */
+    public double getAckLatency() {
+        return ackLatency;
+    }
+
+    public long getAckCount() {
+        return acks.get();
+    }
+
+    public long getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getRejectCount() {
+        return rejects.get();
+    }
+
+    public double getRejectRate() {
+        var a = acks.get();
+        return a == 0 ? 0.0D : (double) rejects.get() / a;
+    }
+
+    public long getMaxQueueWait() {
+        return maxQueueWait;
+    }
+
+    public long getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    /**
+     * Get smoothed queue wait in nanoseconds. It is zero if no request has
+     * been queued.
+     *
+     * @return queue wait in nanoseconds.
+     */
+    public double getQueueWait() {
+        return queueWait;
+    }
+
+    public long getQueuedCount() {
+        return queued.get();
+    }
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    public long getThrottleRejectCount() {
+        return throttleRejects.get();
+    }
+
+    public void onAck(long latencyNanos) {
+        synchronized (acks) {
+            if (acks.getAndIncrement() == 0) {
+                ackLatency = latencyNanos;
+            } else {
+                ackLatency = ALPHA * latencyNanos + (1.0D - ALPHA) * ackLatency;
+            }
+        }
+    }
+
+    public void onComplete() {
+        inFlight.decrementAndGet();
+    }
+
+    public void onInsert() {
+        requests.incrementAndGet();
+        inFlight.incrementAndGet();
+    }
+
+    public void onDequeue(long waitNanos) {
+        queueDepth.decrementAndGet();
+        synchronized (queued) {
+            if (waitNanos > maxQueueWait) {
+                maxQueueWait = waitNanos;
+            }
+            if (queueWait == 0.0D) {
+                queueWait = waitNanos;
+            } else {
+                queueWait = ALPHA * waitNanos + (1.0D - ALPHA) * queueWait;
+            }
+        }
+    }
+
+    public void onEnqueue() {
+        queued.incrementAndGet();
+        queueDepth.incrementAndGet();
+    }
+
+    public void onReject() {
+        rejects.incrementAndGet();
+    }
+
+    public void onThrottleReject() {
+        throttleRejects.incrementAndGet();
+    }
+}
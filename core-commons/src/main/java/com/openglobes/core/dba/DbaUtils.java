@@ -111,6 +111,12 @@ public class DbaUtils {
         var fs = clazz.getDeclaredFields();
         var r = new LinkedList<MetaField>();
         for (var f : fs) {
+            /*
+             * Static field, like serialVersionUID, isn't a column.
+             */
+            if (Modifier.isStatic(f.getModifiers())) {
+                continue;
+            }
             var info = inspectField(f);
             if (info != null) {
                 r.add(info);
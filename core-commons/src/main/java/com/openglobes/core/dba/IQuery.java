@@ -16,6 +16,7 @@
  */
 package com.openglobes.core.dba;
 
+import java.lang.reflect.Field;
 import java.sql.SQLException;
 import java.util.Collection;
 
@@ -58,6 +59,51 @@ public interface IQuery {
                                     IllegalFieldTypeException,
                                     NoPrimaryKeyException;
 
+    /**
+     * Insert all objects in one JDBC batch.
+     *
+     * @param clazz   class of the objects.
+     * @param objects objects to insert.
+     * @param <T>     type of the objects.
+     *
+     * @return affected rows for each object, in iteration order.
+     *
+     * @throws SQLException if the batch fails.
+     */
+    <T> int[] insertMany(Class<T> clazz,
+                         Collection<T> objects) throws SQLException,
+                                                       IllegalFieldCharacterException,
+                                                       UnsupportedFieldTypeException,
+                                                       FieldAccessException,
+                                                       NoFieldException,
+                                                       MissingFieldException,
+                                                       IllegalFieldTypeException,
+                                                       NoPrimaryKeyException;
+
+    /**
+     * Update all objects in one JDBC batch, each matching the record whose
+     * key field equals the object's key value.
+     *
+     * @param clazz   class of the objects.
+     * @param objects objects to update.
+     * @param key     key field to locate record.
+     * @param <T>     type of the objects.
+     *
+     * @return affected rows for each object, in iteration order.
+     *
+     * @throws SQLException if the batch fails.
+     */
+    <T> int[] updateMany(Class<T> clazz,
+                         Collection<T> objects,
+                         Field key) throws SQLException,
+                                           IllegalFieldCharacterException,
+                                           UnsupportedFieldTypeException,
+                                           NoFieldException,
+                                           FieldAccessException,
+                                           MissingFieldException,
+                                           IllegalFieldTypeException,
+                                           NoPrimaryKeyException;
+
     <T> int remove(Class<T> clazz,
                    ICondition<?> condition) throws SQLException,
                                                    IllegalFieldCharacterException,
@@ -16,6 +16,7 @@
  */
 package com.openglobes.core.dba;
 
+import java.lang.reflect.Field;
 import java.sql.*;
 import java.time.LocalDate;
 import java.time.LocalTime;
@@ -56,6 +57,27 @@ class Query implements IQuery {
                                     object));
     }
 
+    @Override
+    public <T> int[] insertMany(Class<T> clazz,
+                                Collection<T> objects) throws SQLException,
+                                                              IllegalFieldCharacterException,
+                                                              UnsupportedFieldTypeException,
+                                                              FieldAccessException,
+                                                              NoFieldException,
+                                                              MissingFieldException,
+                                                              IllegalFieldTypeException,
+                                                              NoPrimaryKeyException {
+        var m = findMeta(clazz);
+        ensureTable(m);
+        var sqls = new String[objects.size()];
+        int i = 0;
+        for (var o : objects) {
+            sqls[i++] = getInsertSql(m,
+                                     o);
+        }
+        return executeBatch(sqls);
+    }
+
     @Override
     public <T> int remove(Class<T> clazz,
                           ICondition<?> condition) throws SQLException,
@@ -113,6 +135,36 @@ class Query implements IQuery {
                                     condition));
     }
 
+    @Override
+    public <T> int[] updateMany(Class<T> clazz,
+                                Collection<T> objects,
+                                Field key) throws SQLException,
+                                                  IllegalFieldCharacterException,
+                                                  UnsupportedFieldTypeException,
+                                                  NoFieldException,
+                                                  FieldAccessException,
+                                                  MissingFieldException,
+                                                  IllegalFieldTypeException,
+                                                  NoPrimaryKeyException {
+        var m = findMeta(clazz);
+        ensureTable(m);
+        DbaUtils.enableAccess(key);
+        var sqls = new String[objects.size()];
+        int i = 0;
+        try {
+            for (var o : objects) {
+                sqls[i++] = getUpdateSql(m,
+                                         o,
+                                         Queries.equals(key,
+                                                        key.get(o)));
+            }
+        } catch (IllegalArgumentException | IllegalAccessException ex) {
+            throw new FieldAccessException(key.getName(),
+                                           ex);
+        }
+        return executeBatch(sqls);
+    }
+
     private String buildFieldPair(MetaField f) throws UnsupportedFieldTypeException {
         return f.getName() + " " + DbaUtils.convertSqlType(f.getType());
     }
@@ -218,6 +270,21 @@ class Query implements IQuery {
         }
     }
 
+    private int[] executeBatch(String[] sqls) throws SQLException {
+        if (sqls.length == 0) {
+            return new int[0];
+        }
+        try (Statement stat = conn.createStatement()) {
+            for (var sql : sqls) {
+                stat.addBatch(sql);
+            }
+            return stat.executeBatch();
+        } catch (SQLException ex) {
+            throw new SQLException(ex.getMessage() + "|" + sqls[0] + "(" + sqls.length + " in batch)",
+                                   ex);
+        }
+    }
+
     private <T> Collection<T> executeSelect(MetaTable<T> meta,
                                             String sql,
                                             IDefaultFactory<T> factory) throws SQLException,
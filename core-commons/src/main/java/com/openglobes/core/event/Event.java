@@ -16,6 +16,7 @@
  */
 package com.openglobes.core.event;
 
+import com.openglobes.core.utils.Clocks;
 import com.openglobes.core.utils.Utils;
 
 import java.io.Serializable;
@@ -36,7 +37,7 @@ public class Event<T> implements IEvent<T>,
 
     public Event() {
         seq = Utils.nextId();
-        ts = ZonedDateTime.now();
+        ts = Clocks.getDefault().now();
     }
 
     @Override
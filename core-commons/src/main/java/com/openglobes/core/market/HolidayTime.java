@@ -16,6 +16,8 @@
  */
 package com.openglobes.core.market;
 
+import com.openglobes.core.utils.ICopyable;
+
 import java.io.Serializable;
 import java.time.ZonedDateTime;
 
@@ -23,7 +25,7 @@ import java.time.ZonedDateTime;
  * @author Hongbao Chen
  * @since 1.0
  */
-public class HolidayTime implements Serializable {
+public class HolidayTime implements Serializable, ICopyable<HolidayTime> {
 
     private Integer dayRank;
     private ZonedDateTime fromTime;
@@ -83,4 +85,15 @@ public class HolidayTime implements Serializable {
         this.type = type;
     }
 
+    @Override
+    public HolidayTime copy() {
+        var c = new HolidayTime();
+        c.dayRank = dayRank;
+        c.fromTime = fromTime;
+        c.holidayTimeId = holidayTimeId;
+        c.timestamp = timestamp;
+        c.toTime = toTime;
+        c.type = type;
+        return c;
+    }
 }
@@ -16,6 +16,8 @@
  */
 package com.openglobes.core.market;
 
+import com.openglobes.core.utils.ICopyable;
+
 import java.io.Serializable;
 import java.time.ZonedDateTime;
 
@@ -23,7 +25,7 @@ import java.time.ZonedDateTime;
  * @author Hongbao Chen
  * @since 1.0
  */
-public class HolidayTimePair implements Serializable {
+public class HolidayTimePair implements Serializable, ICopyable<HolidayTimePair> {
 
     private Long holidayTimeId;
     private Long holidayTimePairId;
@@ -64,4 +66,14 @@ public class HolidayTimePair implements Serializable {
     public void setTimestamp(ZonedDateTime timestamp) {
         this.timestamp = timestamp;
     }
+
+    @Override
+    public HolidayTimePair copy() {
+        var c = new HolidayTimePair();
+        c.holidayTimeId = holidayTimeId;
+        c.holidayTimePairId = holidayTimePairId;
+        c.holidayTimeSetId = holidayTimeSetId;
+        c.timestamp = timestamp;
+        return c;
+    }
 }
@@ -16,6 +16,8 @@
  */
 package com.openglobes.core.market;
 
+import com.openglobes.core.utils.ICopyable;
+
 import java.io.Serializable;
 import java.time.ZonedDateTime;
 
@@ -23,7 +25,7 @@ import java.time.ZonedDateTime;
  * @author Hongbao Chen
  * @since 1.0
  */
-public class HolidayTimeSet implements Serializable {
+public class HolidayTimeSet implements Serializable, ICopyable<HolidayTimeSet> {
 
     private Long holidayTimeSetId;
     private String name;
@@ -55,4 +57,13 @@ public class HolidayTimeSet implements Serializable {
     public void setTimestamp(ZonedDateTime timestamp) {
         this.timestamp = timestamp;
     }
+
+    @Override
+    public HolidayTimeSet copy() {
+        var c = new HolidayTimeSet();
+        c.holidayTimeSetId = holidayTimeSetId;
+        c.name = name;
+        c.timestamp = timestamp;
+        return c;
+    }
 }
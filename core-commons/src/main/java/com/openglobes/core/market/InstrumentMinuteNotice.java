@@ -16,6 +16,8 @@
  */
 package com.openglobes.core.market;
 
+import com.openglobes.core.utils.ICopyable;
+
 import java.io.Serializable;
 import java.time.LocalDate;
 import java.time.ZonedDateTime;
@@ -24,7 +26,7 @@ import java.time.ZonedDateTime;
  * @author Hongbao Chen
  * @since 1.0
  */
-public class InstrumentMinuteNotice implements Serializable {
+public class InstrumentMinuteNotice implements Serializable, ICopyable<InstrumentMinuteNotice> {
 
     private final ZonedDateTime alignTime;
     private final String instrumentId;
@@ -77,4 +79,12 @@ public class InstrumentMinuteNotice implements Serializable {
     public LocalDate getTradingDay() {
         return tradingDay;
     }
+
+    @Override
+    public InstrumentMinuteNotice copy() {
+        /*
+         * Immutable object shares itself.
+         */
+        return this;
+    }
 }
@@ -16,6 +16,8 @@
  */
 package com.openglobes.core.market;
 
+import com.openglobes.core.utils.ICopyable;
+
 import java.io.Serializable;
 import java.time.LocalDate;
 import java.time.ZonedDateTime;
@@ -24,7 +26,7 @@ import java.time.ZonedDateTime;
  * @author Hongbao Chen
  * @since 1.0
  */
-public class InstrumentNotice implements Serializable {
+public class InstrumentNotice implements Serializable, ICopyable<InstrumentNotice> {
 
     private final ZonedDateTime alignTime;
     private final String instrumentId;
@@ -70,4 +72,12 @@ public class InstrumentNotice implements Serializable {
     public Integer getType() {
         return type;
     }
+
+    @Override
+    public InstrumentNotice copy() {
+        /*
+         * Immutable object shares itself.
+         */
+        return this;
+    }
 }
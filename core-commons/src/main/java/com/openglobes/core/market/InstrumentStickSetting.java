@@ -16,6 +16,8 @@
  */
 package com.openglobes.core.market;
 
+import com.openglobes.core.utils.ICopyable;
+
 import java.io.Serializable;
 import java.time.ZonedDateTime;
 
@@ -23,7 +25,7 @@ import java.time.ZonedDateTime;
  * @author Hongbao Chen
  * @since 1.0
  */
-public class InstrumentStickSetting implements Serializable {
+public class InstrumentStickSetting implements Serializable, ICopyable<InstrumentStickSetting> {
 
     private Integer days;
     private String instrumentId;
@@ -74,4 +76,14 @@ public class InstrumentStickSetting implements Serializable {
         this.timestamp = timestamp;
     }
 
+    @Override
+    public InstrumentStickSetting copy() {
+        var c = new InstrumentStickSetting();
+        c.days = days;
+        c.instrumentId = instrumentId;
+        c.instrumentStickSettingId = instrumentStickSettingId;
+        c.minutes = minutes;
+        c.timestamp = timestamp;
+        return c;
+    }
 }
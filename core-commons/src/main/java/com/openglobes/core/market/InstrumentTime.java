@@ -16,13 +16,15 @@
  */
 package com.openglobes.core.market;
 
+import com.openglobes.core.utils.ICopyable;
+
 import java.io.Serializable;
 
 /**
  * @author Hongbao Chen
  * @since 1.0
  */
-public class InstrumentTime implements Serializable {
+public class InstrumentTime implements Serializable, ICopyable<InstrumentTime> {
 
     private Long holidayTimeSetId;
     private String instrumentId;
@@ -63,4 +65,14 @@ public class InstrumentTime implements Serializable {
     public void setWorkdayTimeSetId(Long workdayTimeSetId) {
         this.workdayTimeSetId = workdayTimeSetId;
     }
+
+    @Override
+    public InstrumentTime copy() {
+        var c = new InstrumentTime();
+        c.holidayTimeSetId = holidayTimeSetId;
+        c.instrumentId = instrumentId;
+        c.instrumentTimeId = instrumentTimeId;
+        c.workdayTimeSetId = workdayTimeSetId;
+        return c;
+    }
 }
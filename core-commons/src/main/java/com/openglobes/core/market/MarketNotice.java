@@ -16,6 +16,8 @@
  */
 package com.openglobes.core.market;
 
+import com.openglobes.core.utils.ICopyable;
+
 import java.io.Serializable;
 import java.time.LocalDate;
 import java.time.ZonedDateTime;
@@ -24,7 +26,7 @@ import java.time.ZonedDateTime;
  * @author Hongbao Chen
  * @since 1.0
  */
-public class MarketNotice implements Serializable {
+public class MarketNotice implements Serializable, ICopyable<MarketNotice> {
 
     private Long marketNoticeId;
     private ZonedDateTime timestamp;
@@ -66,4 +68,13 @@ public class MarketNotice implements Serializable {
         this.type = type;
     }
 
+    @Override
+    public MarketNotice copy() {
+        var c = new MarketNotice();
+        c.marketNoticeId = marketNoticeId;
+        c.timestamp = timestamp;
+        c.tradingDay = tradingDay;
+        c.type = type;
+        return c;
+    }
 }
@@ -16,6 +16,8 @@
  */
 package com.openglobes.core.market;
 
+import com.openglobes.core.utils.ICopyable;
+
 import java.io.Serializable;
 import java.time.LocalDate;
 import java.time.ZonedDateTime;
@@ -24,7 +26,7 @@ import java.time.ZonedDateTime;
  * @author Hongbao Chen
  * @since 1.0
  */
-public class Stick implements Serializable {
+public class Stick implements Serializable, ICopyable<Stick> {
 
     private Double closePrice;
     private Integer days;
@@ -138,4 +140,21 @@ public class Stick implements Serializable {
         this.volumn = volumn;
     }
 
+    @Override
+    public Stick copy() {
+        var c = new Stick();
+        c.closePrice = closePrice;
+        c.days = days;
+        c.highPrice = highPrice;
+        c.instrumentId = instrumentId;
+        c.lowPrice = lowPrice;
+        c.minutes = minutes;
+        c.openInsterest = openInsterest;
+        c.openPrice = openPrice;
+        c.stickId = stickId;
+        c.timestamp = timestamp;
+        c.tradingDay = tradingDay;
+        c.volumn = volumn;
+        return c;
+    }
 }
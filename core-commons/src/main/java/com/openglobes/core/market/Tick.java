@@ -5,6 +5,8 @@
  */
 package com.openglobes.core.market;
 
+import com.openglobes.core.utils.ICopyable;
+
 import java.io.Serializable;
 import java.time.LocalDate;
 import java.time.ZonedDateTime;
@@ -13,7 +15,7 @@ import java.time.ZonedDateTime;
  * @author Hongbao Chen
  * @since 1.0
  */
-public class Tick implements Serializable {
+public class Tick implements Serializable, ICopyable<Tick> {
 
     private Double askPrice;
     private Long askVolumn;
@@ -136,4 +138,22 @@ public class Tick implements Serializable {
         this.volumn = volumn;
     }
 
+    @Override
+    public Tick copy() {
+        var c = new Tick();
+        c.askPrice = askPrice;
+        c.askVolumn = askVolumn;
+        c.bidPrice = bidPrice;
+        c.bidVolumn = bidVolumn;
+        c.instrumentId = instrumentId;
+        c.openInterest = openInterest;
+        c.price = price;
+        c.quantity = quantity;
+        c.settlementPrice = settlementPrice;
+        c.tickId = tickId;
+        c.timestamp = timestamp;
+        c.tradingDay = tradingDay;
+        c.volumn = volumn;
+        return c;
+    }
 }
@@ -16,6 +16,8 @@
  */
 package com.openglobes.core.market;
 
+import com.openglobes.core.utils.ICopyable;
+
 import java.io.Serializable;
 import java.time.DayOfWeek;
 import java.time.LocalTime;
@@ -25,7 +27,7 @@ import java.time.ZonedDateTime;
  * @author Hongbao Chen
  * @since 1.0
  */
-public class WorkdayTime implements Serializable {
+public class WorkdayTime implements Serializable, ICopyable<WorkdayTime> {
 
     private Integer dayRank;
     private LocalTime fromTime;
@@ -85,4 +87,15 @@ public class WorkdayTime implements Serializable {
         this.workdayTimeId = workdayTimeId;
     }
 
+    @Override
+    public WorkdayTime copy() {
+        var c = new WorkdayTime();
+        c.dayRank = dayRank;
+        c.fromTime = fromTime;
+        c.timestamp = timestamp;
+        c.toTime = toTime;
+        c.dayOfWeek = dayOfWeek;
+        c.workdayTimeId = workdayTimeId;
+        return c;
+    }
 }
@@ -16,6 +16,8 @@
  */
 package com.openglobes.core.market;
 
+import com.openglobes.core.utils.ICopyable;
+
 import java.io.Serializable;
 import java.time.ZonedDateTime;
 
@@ -23,7 +25,7 @@ import java.time.ZonedDateTime;
  * @author Hongbao Chen
  * @since 1.0
  */
-public class WorkdayTimePair implements Serializable {
+public class WorkdayTimePair implements Serializable, ICopyable<WorkdayTimePair> {
 
     private ZonedDateTime timestamp;
     private Long workdayTimeId;
@@ -64,4 +66,14 @@ public class WorkdayTimePair implements Serializable {
     public void setWorkdayTimeSetId(Long workdayTimeSetId) {
         this.workdayTimeSetId = workdayTimeSetId;
     }
+
+    @Override
+    public WorkdayTimePair copy() {
+        var c = new WorkdayTimePair();
+        c.timestamp = timestamp;
+        c.workdayTimeId = workdayTimeId;
+        c.workdayTimePairId = workdayTimePairId;
+        c.workdayTimeSetId = workdayTimeSetId;
+        return c;
+    }
 }
@@ -16,6 +16,8 @@
  */
 package com.openglobes.core.market;
 
+import com.openglobes.core.utils.ICopyable;
+
 import java.io.Serializable;
 import java.time.ZonedDateTime;
 
@@ -23,7 +25,7 @@ import java.time.ZonedDateTime;
  * @author Hongbao Chen
  * @since 1.0
  */
-public class WorkdayTimeSet implements Serializable {
+public class WorkdayTimeSet implements Serializable, ICopyable<WorkdayTimeSet> {
 
     private String name;
     private ZonedDateTime timestamp;
@@ -55,4 +57,13 @@ public class WorkdayTimeSet implements Serializable {
     public void setWorkdayTimeSetId(Long workdayTimeSetId) {
         this.workdayTimeSetId = workdayTimeSetId;
     }
+
+    @Override
+    public WorkdayTimeSet copy() {
+        var c = new WorkdayTimeSet();
+        c.name = name;
+        c.timestamp = timestamp;
+        c.workdayTimeSetId = workdayTimeSetId;
+        return c;
+    }
 }
@@ -16,6 +16,8 @@
  */
 package com.openglobes.core.trader;
 
+import com.openglobes.core.utils.ICopyable;
+
 import java.io.Serializable;
 import java.time.LocalDate;
 import java.time.ZonedDateTime;
@@ -26,7 +28,7 @@ import java.time.ZonedDateTime;
  * @author Hongbao Chen
  * @since 1.0
  */
-public class Account implements Serializable {
+public class Account implements Serializable, ICopyable<Account> {
 
     private static final long serialVersionUID = 38749288723L;
 
@@ -178,4 +180,25 @@ public class Account implements Serializable {
         this.withdraw = withdraw;
     }
 
+    @Override
+    public Account copy() {
+        var c = new Account();
+        c.accountId = accountId;
+        c.balance = balance;
+        c.closeProfit = closeProfit;
+        c.commission = commission;
+        c.deposit = deposit;
+        c.frozenCommission = frozenCommission;
+        c.frozenMargin = frozenMargin;
+        c.margin = margin;
+        c.positionProfit = positionProfit;
+        c.preBalance = preBalance;
+        c.preDeposit = preDeposit;
+        c.preMargin = preMargin;
+        c.preWithdraw = preWithdraw;
+        c.timestamp = timestamp;
+        c.tradingDay = tradingDay;
+        c.withdraw = withdraw;
+        return c;
+    }
 }
@@ -13,6 +13,7 @@ import java.io.Serializable;
  */
 public class ActionType implements Serializable {
 
+    public static final int AMEND = (0x82);
     public static final int DELETE = (0x81);
     public static final int NEW = (0x80);
 
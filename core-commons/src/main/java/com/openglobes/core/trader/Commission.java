@@ -16,6 +16,8 @@
  */
 package com.openglobes.core.trader;
 
+import com.openglobes.core.utils.ICopyable;
+
 import java.io.Serializable;
 import java.time.LocalDate;
 import java.time.ZonedDateTime;
@@ -26,7 +28,7 @@ import java.time.ZonedDateTime;
  * @author Hongbao Chen
  * @since 1.0
  */
-public class Commission implements Serializable {
+public class Commission implements Serializable, ICopyable<Commission> {
 
     private Double commission;
     private Long commissionId;
@@ -104,4 +106,17 @@ public class Commission implements Serializable {
         this.tradingDay = tradingDay;
     }
 
+    @Override
+    public Commission copy() {
+        var c = new Commission();
+        c.commission = commission;
+        c.commissionId = commissionId;
+        c.contractId = contractId;
+        c.orderId = orderId;
+        c.status = status;
+        c.tag = tag;
+        c.timestamp = timestamp;
+        c.tradingDay = tradingDay;
+        return c;
+    }
 }
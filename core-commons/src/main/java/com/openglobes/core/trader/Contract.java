@@ -16,6 +16,8 @@
  */
 package com.openglobes.core.trader;
 
+import com.openglobes.core.utils.ICopyable;
+
 import java.io.Serializable;
 import java.time.LocalDate;
 import java.time.ZonedDateTime;
@@ -26,7 +28,7 @@ import java.time.ZonedDateTime;
  * @author Hongbao Chen
  * @since 1.0
  */
-public class Contract implements Serializable {
+public class Contract implements Serializable, ICopyable<Contract> {
 
     private Double closeAmount;
     private LocalDate closeTradingDay;
@@ -148,4 +150,23 @@ public class Contract implements Serializable {
     public void setTraderId(Integer traderId) {
         this.traderId = traderId;
     }
+
+    @Override
+    public Contract copy() {
+        var c = new Contract();
+        c.closeAmount = closeAmount;
+        c.closeTradingDay = closeTradingDay;
+        c.contractId = contractId;
+        c.direction = direction;
+        c.instrumentId = instrumentId;
+        c.openAmount = openAmount;
+        c.openTimestamp = openTimestamp;
+        c.openTradingDay = openTradingDay;
+        c.status = status;
+        c.tag = tag;
+        c.timestamp = timestamp;
+        c.tradeId = tradeId;
+        c.traderId = traderId;
+        return c;
+    }
 }
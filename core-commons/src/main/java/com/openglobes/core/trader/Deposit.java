@@ -5,6 +5,8 @@
  */
 package com.openglobes.core.trader;
 
+import com.openglobes.core.utils.ICopyable;
+
 import java.io.Serializable;
 import java.time.LocalDate;
 import java.time.ZonedDateTime;
@@ -13,7 +15,7 @@ import java.time.ZonedDateTime;
  * @author Hongbao Chen
  * @since 1.0
  */
-public class Deposit implements Serializable {
+public class Deposit implements Serializable, ICopyable<Deposit> {
 
     private Double amount;
     private Long depositId;
@@ -55,4 +57,13 @@ public class Deposit implements Serializable {
         this.tradingDay = tradingDay;
     }
 
+    @Override
+    public Deposit copy() {
+        var c = new Deposit();
+        c.amount = amount;
+        c.depositId = depositId;
+        c.timestamp = timestamp;
+        c.tradingDay = tradingDay;
+        return c;
+    }
 }
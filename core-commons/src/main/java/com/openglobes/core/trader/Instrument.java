@@ -16,6 +16,8 @@
  */
 package com.openglobes.core.trader;
 
+import com.openglobes.core.utils.ICopyable;
+
 import java.io.Serializable;
 import java.time.LocalDate;
 import java.time.ZonedDateTime;
@@ -26,7 +28,7 @@ import java.time.ZonedDateTime;
  * @author Hongbao Chen
  * @since 1.0
  */
-public class Instrument implements Serializable {
+public class Instrument implements Serializable, ICopyable<Instrument> {
 
     private Double commissionCloseYdRatio;
     private Double commissionCloseTodayRatio;
@@ -148,4 +150,23 @@ public class Instrument implements Serializable {
     public void setTimestamp(ZonedDateTime timestamp) {
         this.timestamp = timestamp;
     }
+
+    @Override
+    public Instrument copy() {
+        var c = new Instrument();
+        c.commissionCloseYdRatio = commissionCloseYdRatio;
+        c.commissionCloseTodayRatio = commissionCloseTodayRatio;
+        c.commissionOpenRatio = commissionOpenRatio;
+        c.commissionType = commissionType;
+        c.endDate = endDate;
+        c.exchangeId = exchangeId;
+        c.instrumentId = instrumentId;
+        c.marginRatio = marginRatio;
+        c.marginType = marginType;
+        c.multiple = multiple;
+        c.priceTick = priceTick;
+        c.startDate = startDate;
+        c.timestamp = timestamp;
+        return c;
+    }
 }
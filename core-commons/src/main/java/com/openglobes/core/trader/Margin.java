@@ -16,6 +16,8 @@
  */
 package com.openglobes.core.trader;
 
+import com.openglobes.core.utils.ICopyable;
+
 import java.io.Serializable;
 import java.time.LocalDate;
 import java.time.ZonedDateTime;
@@ -26,7 +28,7 @@ import java.time.ZonedDateTime;
  * @author Hongbao Chen
  * @since 1.0
  */
-public class Margin implements Serializable {
+public class Margin implements Serializable, ICopyable<Margin> {
 
     private Long contractId;
     private Double margin;
@@ -104,4 +106,17 @@ public class Margin implements Serializable {
         this.tradingDay = tradingDay;
     }
 
+    @Override
+    public Margin copy() {
+        var c = new Margin();
+        c.contractId = contractId;
+        c.margin = margin;
+        c.marginId = marginId;
+        c.orderId = orderId;
+        c.status = status;
+        c.tag = tag;
+        c.timestamp = timestamp;
+        c.tradingDay = tradingDay;
+        return c;
+    }
 }
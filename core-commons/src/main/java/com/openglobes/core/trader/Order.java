@@ -16,6 +16,8 @@
  */
 package com.openglobes.core.trader;
 
+import com.openglobes.core.utils.ICopyable;
+
 import java.io.Serializable;
 import java.time.LocalDate;
 import java.time.ZonedDateTime;
@@ -26,7 +28,7 @@ import java.time.ZonedDateTime;
  * @author Hongbao Chen
  * @since 1.0
  */
-public class Order implements Serializable {
+public class Order implements Serializable, ICopyable<Order> {
 
     private Double amount;
     private ZonedDateTime deleteTimestamp;
@@ -168,4 +170,24 @@ public class Order implements Serializable {
         return deleted;
     }
 
+    @Override
+    public Order copy() {
+        var c = new Order();
+        c.amount = amount;
+        c.deleteTimestamp = deleteTimestamp;
+        c.deleted = deleted;
+        c.direction = direction;
+        c.insertTimestamp = insertTimestamp;
+        c.instrumentId = instrumentId;
+        c.offset = offset;
+        c.orderId = orderId;
+        c.price = price;
+        c.quantity = quantity;
+        c.status = status;
+        c.tradedVolumn = tradedVolumn;
+        c.traderId = traderId;
+        c.tradingDay = tradingDay;
+        c.updateTimestamp = updateTimestamp;
+        return c;
+    }
 }
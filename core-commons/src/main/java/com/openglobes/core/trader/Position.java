@@ -16,6 +16,8 @@
  */
 package com.openglobes.core.trader;
 
+import com.openglobes.core.utils.ICopyable;
+
 import java.io.Serializable;
 import java.time.LocalDate;
 import java.time.ZonedDateTime;
@@ -31,7 +33,7 @@ import java.time.ZonedDateTime;
  * @author Hongbao Chen
  * @since 1.0
  */
-public class Position implements Serializable {
+public class Position implements Serializable, ICopyable<Position> {
 
     private Double amount;
     private Double closeProfit;
@@ -245,4 +247,32 @@ public class Position implements Serializable {
         this.volumn = volumn;
     }
 
+    @Override
+    public Position copy() {
+        var c = new Position();
+        c.amount = amount;
+        c.closeProfit = closeProfit;
+        c.commission = commission;
+        c.direction = direction;
+        c.frozenCloseVolumn = frozenCloseVolumn;
+        c.frozenCommission = frozenCommission;
+        c.frozenMargin = frozenMargin;
+        c.frozenOpenVolumn = frozenOpenVolumn;
+        c.instrumentId = instrumentId;
+        c.margin = margin;
+        c.todayOpenAmount = todayOpenAmount;
+        c.todayOpenMargin = todayOpenMargin;
+        c.todayOpenVolumn = todayOpenVolumn;
+        c.positionProfit = positionProfit;
+        c.preAmount = preAmount;
+        c.preMargin = preMargin;
+        c.preVolumn = preVolumn;
+        c.timestamp = timestamp;
+        c.todayAmount = todayAmount;
+        c.todayMargin = todayMargin;
+        c.todayVolumn = todayVolumn;
+        c.tradingDay = tradingDay;
+        c.volumn = volumn;
+        return c;
+    }
 }
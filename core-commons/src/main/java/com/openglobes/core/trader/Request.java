@@ -16,6 +16,8 @@
  */
 package com.openglobes.core.trader;
 
+import com.openglobes.core.utils.ICopyable;
+
 import java.io.Serializable;
 import java.time.LocalDate;
 import java.time.ZonedDateTime;
@@ -26,7 +28,7 @@ import java.time.ZonedDateTime;
  * @author Hongbao Chen
  * @since 1.0
  */
-public class Request implements Serializable {
+public class Request implements Serializable, ICopyable<Request> {
 
     private Integer action;
     private Integer direction;
@@ -158,4 +160,23 @@ public class Request implements Serializable {
         this.traderId = traderId;
     }
 
+    @Override
+    public Request copy() {
+        var c = new Request();
+        c.action = action;
+        c.direction = direction;
+        c.exchangeId = exchangeId;
+        c.instrumentId = instrumentId;
+        c.offset = offset;
+        c.orderId = orderId;
+        c.price = price;
+        c.quantity = quantity;
+        c.requestId = requestId;
+        c.signature = signature;
+        c.tag = tag;
+        c.traderId = traderId;
+        c.tradingDay = tradingDay;
+        c.updateTimestamp = updateTimestamp;
+        return c;
+    }
 }
@@ -16,6 +16,8 @@
  */
 package com.openglobes.core.trader;
 
+import com.openglobes.core.utils.ICopyable;
+
 import java.io.Serializable;
 import java.time.LocalDate;
 import java.time.ZonedDateTime;
@@ -26,7 +28,7 @@ import java.time.ZonedDateTime;
  * @author Hongbao Chen
  * @since 1.0
  */
-public class Response implements Serializable {
+public class Response implements Serializable, ICopyable<Response> {
 
     private Integer action;
     private Integer direction;
@@ -149,4 +151,22 @@ public class Response implements Serializable {
         this.tradingDay = tradingDay;
     }
 
+    @Override
+    public Response copy() {
+        var c = new Response();
+        c.action = action;
+        c.direction = direction;
+        c.instrumentId = instrumentId;
+        c.offset = offset;
+        c.orderId = orderId;
+        c.responseId = responseId;
+        c.signature = signature;
+        c.status = status;
+        c.statusCode = statusCode;
+        c.statusMessage = statusMessage;
+        c.timestamp = timestamp;
+        c.traderId = traderId;
+        c.tradingDay = tradingDay;
+        return c;
+    }
 }
@@ -16,6 +16,8 @@
  */
 package com.openglobes.core.trader;
 
+import com.openglobes.core.utils.ICopyable;
+
 import java.io.Serializable;
 import java.time.LocalDate;
 import java.time.ZonedDateTime;
@@ -24,7 +26,7 @@ import java.time.ZonedDateTime;
  * @author Hongbao Chen
  * @since 1.0
  */
-public class SettlementPrice implements Serializable {
+public class SettlementPrice implements Serializable, ICopyable<SettlementPrice> {
 
     private String instrumentId;
     private Double settlementPrice;
@@ -75,4 +77,14 @@ public class SettlementPrice implements Serializable {
         this.tradingDay = tradingDay;
     }
 
+    @Override
+    public SettlementPrice copy() {
+        var c = new SettlementPrice();
+        c.instrumentId = instrumentId;
+        c.settlementPrice = settlementPrice;
+        c.settlementPriceId = settlementPriceId;
+        c.timestamp = timestamp;
+        c.tradingDay = tradingDay;
+        return c;
+    }
 }
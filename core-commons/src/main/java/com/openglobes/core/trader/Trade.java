@@ -16,6 +16,8 @@
  */
 package com.openglobes.core.trader;
 
+import com.openglobes.core.utils.ICopyable;
+
 import java.io.Serializable;
 import java.time.LocalDate;
 import java.time.ZonedDateTime;
@@ -27,7 +29,7 @@ import java.time.ZonedDateTime;
  * @author Hongbao Chen
  * @since 1.0
  */
-public class Trade implements Serializable {
+public class Trade implements Serializable, ICopyable<Trade> {
 
     private Integer action;
     private Integer direction;
@@ -141,4 +143,21 @@ public class Trade implements Serializable {
         this.tradingDay = tradingDay;
     }
 
+    @Override
+    public Trade copy() {
+        var c = new Trade();
+        c.action = action;
+        c.direction = direction;
+        c.instrumentId = instrumentId;
+        c.offset = offset;
+        c.orderId = orderId;
+        c.price = price;
+        c.quantity = quantity;
+        c.signature = signature;
+        c.timestamp = timestamp;
+        c.tradeId = tradeId;
+        c.traderId = traderId;
+        c.tradingDay = tradingDay;
+        return c;
+    }
 }
@@ -5,6 +5,8 @@
  */
 package com.openglobes.core.trader;
 
+import com.openglobes.core.utils.ICopyable;
+
 import java.io.Serializable;
 import java.time.LocalDate;
 import java.time.ZonedDateTime;
@@ -13,7 +15,7 @@ import java.time.ZonedDateTime;
  * @author Hongbao Chen
  * @since 1.0
  */
-public class TradingDay implements Serializable {
+public class TradingDay implements Serializable, ICopyable<TradingDay> {
 
     private LocalDate actionDay;
     private ZonedDateTime timestamp;
@@ -55,4 +57,13 @@ public class TradingDay implements Serializable {
         this.tradingDayId = tradingDayId;
     }
 
+    @Override
+    public TradingDay copy() {
+        var c = new TradingDay();
+        c.actionDay = actionDay;
+        c.timestamp = timestamp;
+        c.tradingDay = tradingDay;
+        c.tradingDayId = tradingDayId;
+        return c;
+    }
 }
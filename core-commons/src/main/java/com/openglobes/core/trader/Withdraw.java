@@ -5,6 +5,8 @@
  */
 package com.openglobes.core.trader;
 
+import com.openglobes.core.utils.ICopyable;
+
 import java.io.Serializable;
 import java.time.LocalDate;
 import java.time.ZonedDateTime;
@@ -13,7 +15,7 @@ import java.time.ZonedDateTime;
  * @author Hongbao Chen
  * @since 1.0
  */
-public class Withdraw implements Serializable {
+public class Withdraw implements Serializable, ICopyable<Withdraw> {
 
     private Double amount;
     private ZonedDateTime timestamp;
@@ -54,4 +56,14 @@ public class Withdraw implements Serializable {
     public void setWithdrawId(Long withdrawId) {
         this.withdrawId = withdrawId;
     }
+
+    @Override
+    public Withdraw copy() {
+        var c = new Withdraw();
+        c.amount = amount;
+        c.timestamp = timestamp;
+        c.tradingDay = tradingDay;
+        c.withdrawId = withdrawId;
+        return c;
+    }
 }
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2020 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.utils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+/**
+ * Clock that caches system time and refreshes it once the resolution has
+ * passed. Calls within the resolution return the same time without
+ * allocation.
+ *
+ * @author Hongbao Chen
+ * @since 1.0
+ */
+public class CoarseClock implements IClock {
+
+    private final long resolution;
+    private final ZoneId zone;
+    private volatile Snapshot snapshot;
+
+    public CoarseClock(Duration resolution) {
+        this(resolution, ZoneId.systemDefault());
+    }
+
+    public CoarseClock(Duration resolution, ZoneId zone) {
+        if (resolution.isNegative() || resolution.isZero()) {
+            throw new IllegalArgumentException("Non-positive resolution.");
+        }
+        this.resolution = resolution.toMillis();
+        this.zone = zone;
+        this.snapshot = refresh(System.currentTimeMillis());
+    }
+
+    @Override
+    public ZonedDateTime now() {
+        return current().now;
+    }
+
+    @Override
+    public LocalDate today() {
+        return current().today;
+    }
+
+    private Snapshot current() {
+        var s = snapshot;
+        var m = System.currentTimeMillis();
+        if (m - s.millis >= resolution || m < s.millis) {
+            s = refresh(m);
+            snapshot = s;
+        }
+        return s;
+    }
+
+    private Snapshot refresh(long millis) {
+        var n = Instant.ofEpochMilli(millis).atZone(zone);
+        return new Snapshot(millis, n, n.toLocalDate());
+    }
+
+    private static class Snapshot {
+
+        private final long millis;
+        private final ZonedDateTime now;
+        private final LocalDate today;
+
+        Snapshot(long millis, ZonedDateTime now, LocalDate today) {
+            this.millis = millis;
+            this.now = now;
+            this.today = today;
+        }
+    }
+}
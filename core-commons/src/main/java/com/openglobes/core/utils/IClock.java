@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2020 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.utils;
+
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+
+/**
+ * Source of current time.
+ * <p>
+ * Code that stamps time reads it from a clock instead of the system, so the
+ * same code runs on wall clock in production and on virtual clock in replay
+ * and backtest.
+ *
+ * @author Hongbao Chen
+ * @since 1.0
+ */
+public interface IClock {
+
+    /**
+     * Get current time.
+     *
+     * @return current time.
+     */
+    ZonedDateTime now();
+
+    /**
+     * Get current day. Virtual clock may return the trading day that differs
+     * from the date of {@link #now()}.
+     *
+     * @return current day.
+     */
+    LocalDate today();
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2020 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.utils;
+
+/**
+ * Object that makes a deep copy of itself without serialization or
+ * reflection.
+ * <p>
+ * Model classes hold immutable field values only, like boxed numbers,
+ * strings and {@code java.time} values, so copying field references is a
+ * deep copy.
+ *
+ * @param <T> type of the copy.
+ *
+ * @author Hongbao Chen
+ * @since 1.0
+ */
+public interface ICopyable<T> {
+
+    /**
+     * Make a deep copy.
+     *
+     * @return new object equal to this one.
+     */
+    T copy();
+}
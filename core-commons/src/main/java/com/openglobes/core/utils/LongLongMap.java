@@ -0,0 +1,275 @@
+/*
+ * Copyright (C) 2020 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.utils;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from primitive long to primitive long.
+ * <p>
+ * Writes are serialized by the map's monitor, and reads are lock-free, so a
+ * single writer thread and many reader threads can share the map without
+ * boxing. {@link Long#MIN_VALUE} and {@code Long.MIN_VALUE + 1} are reserved
+ * and can't be used as keys.
+ *
+ * @author Hongbao Chen
+ * @since 1.0
+ */
+public class LongLongMap {
+
+    private static final VarHandle ARRAY = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final long REMOVED = Long.MIN_VALUE + 1;
+    private final int initialCapacity;
+    private int size;
+    private volatile Table table;
+    private int used;
+
+    public LongLongMap() {
+        this(1024);
+    }
+
+    public LongLongMap(int initialCapacity) {
+        if (initialCapacity <= 0) {
+            throw new IllegalArgumentException("Non-positive capacity.");
+        }
+        this.initialCapacity = tableSizeFor(initialCapacity * 2);
+        this.table = new Table(this.initialCapacity);
+    }
+
+    /**
+     * Add delta to the value of the key and return the new value.
+     *
+     * @param key     key.
+     * @param delta   value to add.
+     * @param missing value returned if the key doesn't exist, and nothing is
+     *                changed.
+     *
+     * @return new value, or {@code missing} if the key doesn't exist.
+     */
+    public synchronized long addAndGet(long key, long delta, long missing) {
+        var t = table;
+        var i = t.find(key);
+        if (i < 0) {
+            return missing;
+        }
+        var v = (long) ARRAY.getAcquire(t.values, i) + delta;
+        ARRAY.setRelease(t.values, i, v);
+        return v;
+    }
+
+    /**
+     * Remove all keys. The old table is dropped at once so readers never see
+     * a partially cleared map.
+     */
+    public synchronized void clear() {
+        table = new Table(initialCapacity);
+        size = 0;
+        used = 0;
+    }
+
+    public boolean containsKey(long key) {
+        checkKey(key);
+        return table.find(key) >= 0;
+    }
+
+    /**
+     * Visit all mappings. Mappings changed during visit may or may not be
+     * visited.
+     *
+     * @param visitor visitor.
+     */
+    public void forEach(Visitor visitor) {
+        var t = table;
+        for (int i = 0; i < t.keys.length; ++i) {
+            var k = (long) ARRAY.getAcquire(t.keys, i);
+            if (k != EMPTY && k != REMOVED) {
+                visitor.visit(k, (long) ARRAY.getAcquire(t.values, i));
+            }
+        }
+    }
+
+    public long get(long key, long missing) {
+        checkKey(key);
+        while (true) {
+            var t = table;
+            var i = t.find(key);
+            if (i < 0) {
+                return missing;
+            }
+            var v = (long) ARRAY.getAcquire(t.values, i);
+            /*
+             * Slot may be reused by another key between reading key and
+             * value, read again in that case.
+             */
+            if ((long) ARRAY.getAcquire(t.keys, i) == key) {
+                return v;
+            }
+        }
+    }
+
+    public synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Put the mapping.
+     *
+     * @param key   key.
+     * @param value value.
+     *
+     * @return {@code true} if the key is new.
+     */
+    public synchronized boolean put(long key, long value) {
+        checkKey(key);
+        var t = table;
+        var i = t.find(key);
+        if (i >= 0) {
+            ARRAY.setRelease(t.values, i, value);
+            return false;
+        }
+        if ((used + 1) * 2 > t.keys.length) {
+            t = rehash(size + 1 > t.keys.length / 4 ? t.keys.length * 2 : t.keys.length);
+        }
+        var slot = t.slotFor(key);
+        var old = (long) ARRAY.getAcquire(t.keys, slot);
+        /*
+         * Write value before key, so a reader seeing the key sees the value.
+         */
+        ARRAY.setRelease(t.values, slot, value);
+        ARRAY.setRelease(t.keys, slot, key);
+        if (old == EMPTY) {
+            ++used;
+        }
+        ++size;
+        return true;
+    }
+
+    /**
+     * Remove the key.
+     *
+     * @param key     key.
+     * @param missing value returned if the key doesn't exist.
+     *
+     * @return removed value, or {@code missing} if the key doesn't exist.
+     */
+    public synchronized long remove(long key, long missing) {
+        checkKey(key);
+        var t = table;
+        var i = t.find(key);
+        if (i < 0) {
+            return missing;
+        }
+        var v = (long) ARRAY.getAcquire(t.values, i);
+        ARRAY.setRelease(t.keys, i, REMOVED);
+        --size;
+        return v;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private void checkKey(long key) {
+        if (key == EMPTY || key == REMOVED) {
+            throw new IllegalArgumentException("Reserved key: " + key + ".");
+        }
+    }
+
+    private Table rehash(int capacity) {
+        var o = table;
+        var n = new Table(capacity);
+        for (int i = 0; i < o.keys.length; ++i) {
+            var k = o.keys[i];
+            if (k != EMPTY && k != REMOVED) {
+                var s = n.slotFor(k);
+                n.values[s] = o.values[i];
+                n.keys[s] = k;
+            }
+        }
+        used = size;
+        /*
+         * Volatile write publishes the filled table.
+         */
+        table = n;
+        return n;
+    }
+
+    private static int tableSizeFor(int c) {
+        int n = 1;
+        while (n < c) {
+            n <<= 1;
+        }
+        return n;
+    }
+
+    @FunctionalInterface
+    public interface Visitor {
+
+        void visit(long key, long value);
+    }
+
+    private static class Table {
+
+        private final long[] keys;
+        private final int mask;
+        private final long[] values;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            values = new long[capacity];
+            mask = capacity - 1;
+            Arrays.fill(keys, EMPTY);
+        }
+
+        int find(long key) {
+            var i = hash(key) & mask;
+            while (true) {
+                var k = (long) ARRAY.getAcquire(keys, i);
+                if (k == key) {
+                    return i;
+                }
+                if (k == EMPTY) {
+                    return -1;
+                }
+                i = (i + 1) & mask;
+            }
+        }
+
+        int hash(long key) {
+            var h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+
+        int slotFor(long key) {
+            /*
+             * Only called by writer for an absent key, reuse the first
+             * removed slot on the probe path.
+             */
+            var i = hash(key) & mask;
+            while (true) {
+                var k = (long) ARRAY.getAcquire(keys, i);
+                if (k == EMPTY || k == REMOVED) {
+                    return i;
+                }
+                i = (i + 1) & mask;
+            }
+        }
+    }
+}
@@ -21,14 +21,43 @@ import java.util.concurrent.atomic.AtomicLong;
 public class Utils {
 
     private static final AtomicLong AUTO_INC = new AtomicLong(0);
+    /*
+     * Subclass inheriting copy() would be copied as its superclass, so only
+     * class declaring copy() itself copies itself.
+     */
+    private static final ClassValue<Boolean> DECLARES_COPY = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            try {
+                type.getDeclaredMethod("copy");
+                return true;
+            } catch (NoSuchMethodException ignored) {
+                return false;
+            }
+        }
+    };
     private static final AtomicLong EXECUTION_ID = new AtomicLong();
 
     private Utils() {
     }
 
+    /**
+     * Make a deep copy of the specified object. If the object is
+     * {@link ICopyable} and its class declares {@code copy()}, it copies
+     * itself, or it is copied by serialization.
+     *
+     * @param copied object to copy.
+     * @param <T>    type of the object.
+     *
+     * @return deep copy of the object, or {@code null} if the object can't be
+     *         copied by serialization.
+     */
     @SuppressWarnings("unchecked")
     public static <T> T copy(T copied) {
         Objects.requireNonNull(copied);
+        if (copied instanceof ICopyable && DECLARES_COPY.get(copied.getClass())) {
+            return ((ICopyable<T>) copied).copy();
+        }
         try (ByteArrayOutputStream bo = new ByteArrayOutputStream()) {
             new ObjectOutputStream(bo).writeObject(copied);
             return (T) new ObjectInputStream(
@@ -45,7 +74,17 @@ public class Utils {
      * @return current rounded time to minute.
      */
     public static ZonedDateTime getRoundedTimeByMinute() {
-        ZonedDateTime n = ZonedDateTime.now();
+        return getRoundedTimeByMinute(Clocks.getDefault().now());
+    }
+
+    /**
+     * Round the time to the closest minute. The seconds and nano seconds are
+     * all zero.
+     *
+     * @param n time to round.
+     * @return rounded time to minute.
+     */
+    public static ZonedDateTime getRoundedTimeByMinute(ZonedDateTime n) {
         ZonedDateTime r = ZonedDateTime.of(n.getYear(),
                                            n.getMonthValue(),
                                            n.getDayOfMonth(),
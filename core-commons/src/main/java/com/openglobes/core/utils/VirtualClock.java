@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2020 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.utils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Objects;
+
+/**
+ * Clock that only moves when it is set, so replay runs as fast as the data is
+ * fed and stamps the same time on every run.
+ * <p>
+ * Clock starts at epoch of the system zone until it is set.
+ *
+ * @author Hongbao Chen
+ * @since 1.0
+ */
+public class VirtualClock implements IClock {
+
+    private volatile Snapshot snapshot;
+
+    public VirtualClock() {
+        this(Instant.EPOCH.atZone(ZoneId.systemDefault()));
+    }
+
+    public VirtualClock(ZonedDateTime start) {
+        set(start);
+    }
+
+    @Override
+    public ZonedDateTime now() {
+        return snapshot.now;
+    }
+
+    @Override
+    public LocalDate today() {
+        return snapshot.today;
+    }
+
+    /**
+     * Set current time, and current day is the date of the time.
+     *
+     * @param now current time.
+     */
+    public void set(ZonedDateTime now) {
+        Objects.requireNonNull(now);
+        set(now, now.toLocalDate());
+    }
+
+    /**
+     * Set current time and current day.
+     *
+     * @param now   current time.
+     * @param today current day, or {@code null} to use the date of the time.
+     */
+    public synchronized void set(ZonedDateTime now, LocalDate today) {
+        Objects.requireNonNull(now);
+        snapshot = new Snapshot(now, today == null ? now.toLocalDate() : today);
+    }
+
+    /**
+     * Move time forward by the specified duration and keep current day.
+     *
+     * @param duration duration to move.
+     */
+    public synchronized void advance(Duration duration) {
+        var s = snapshot;
+        snapshot = new Snapshot(s.now.plus(duration), s.today);
+    }
+
+    private static class Snapshot {
+
+        private final ZonedDateTime now;
+        private final LocalDate today;
+
+        Snapshot(ZonedDateTime now, LocalDate today) {
+            this.now = now;
+            this.today = today;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2021 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.dba;
+
+import com.openglobes.core.dba.tables.TableWithStaticField;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author Hongbao Chen
+ * @since 1.0
+ */
+@DisplayName("DbaUtils Tests")
+public class DbaUtilsTest {
+
+    @Test
+    @DisplayName("Static field isn't a column.")
+    public void skipStaticField() throws Exception {
+        var names = new HashSet<String>();
+        DbaUtils.inspectFields(TableWithStaticField.class).forEach(f -> names.add(f.getField().getName()));
+        assertEquals(2, names.size());
+        assertEquals(new HashSet<>(List.of("tableWithStaticFieldId", "name")), names);
+    }
+}
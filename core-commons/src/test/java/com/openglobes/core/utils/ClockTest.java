@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2021 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.utils;
+
+import com.openglobes.core.event.Event;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Clock Tests")
+class ClockTest {
+
+    private static final ZonedDateTime START = ZonedDateTime.of(2021, 3, 1, 21, 0, 29, 0, ZoneId.of("Asia/Shanghai"));
+
+    @Test
+    @DisplayName("VirtualClock moves only when it is set.")
+    void virtualClock() {
+        var c = new VirtualClock(START);
+        assertSame(c.now(), c.now());
+        assertEquals(START.toLocalDate(), c.today());
+        /*
+         * Night session belongs to the next trading day.
+         */
+        c.set(START, LocalDate.of(2021, 3, 2));
+        c.advance(Duration.ofSeconds(1));
+        assertEquals(START.plusSeconds(1), c.now());
+        assertEquals(LocalDate.of(2021, 3, 2), c.today());
+        assertEquals(START.plusSeconds(31).withSecond(0), Utils.getRoundedTimeByMinute(c.now()));
+    }
+
+    @Test
+    @DisplayName("CoarseClock returns cached time within resolution.")
+    void coarseClock() {
+        var c = new CoarseClock(Duration.ofHours(1));
+        assertSame(c.now(), c.now());
+        assertTrue(Duration.between(c.now(), ZonedDateTime.now()).abs().toHours() < 2);
+        assertThrows(IllegalArgumentException.class, () -> new CoarseClock(Duration.ZERO));
+    }
+
+    @Test
+    @DisplayName("Event reads time from the default clock.")
+    void defaultClock() {
+        var old = Clocks.getDefault();
+        try {
+            Clocks.setDefault(new VirtualClock(START));
+            assertEquals(START, new Event<String>().getTimestamp());
+            assertEquals(START.withSecond(0), Utils.getRoundedTimeByMinute());
+        } finally {
+            Clocks.setDefault(old);
+        }
+        assertThrows(NullPointerException.class, () -> Clocks.setDefault(null));
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2021 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("LongLongMap Tests")
+class LongLongMapTest {
+
+    @Test
+    @DisplayName("Put, get, remove and rehash")
+    void putGetRemove() {
+        var m = new LongLongMap(4);
+        for (long i = 0; i < 1000; ++i) {
+            assertTrue(m.put(i * 7, i));
+        }
+        assertFalse(m.put(7, 100));
+        assertEquals(1000, m.size());
+        assertEquals(100, m.get(7, -1));
+        assertEquals(-1, m.get(-7, -1));
+        for (long i = 0; i < 1000; i += 2) {
+            assertEquals(i == 1 ? 100 : i, m.remove(i * 7, -1));
+        }
+        assertEquals(500, m.size());
+        assertFalse(m.containsKey(0));
+        assertTrue(m.containsKey(7));
+        /*
+         * Removed slots are reused.
+         */
+        assertTrue(m.put(0, 1));
+        assertEquals(1, m.get(0, -1));
+        var copy = new HashMap<Long, Long>();
+        m.forEach(copy::put);
+        assertEquals(501, copy.size());
+        m.clear();
+        assertTrue(m.isEmpty());
+        assertEquals(-1, m.get(7, -1));
+    }
+
+    @Test
+    @DisplayName("addAndGet() and reserved keys")
+    void addAndGet() {
+        var m = new LongLongMap();
+        assertEquals(-1, m.addAndGet(1, 3, -1));
+        assertFalse(m.containsKey(1));
+        m.put(1, 0);
+        assertEquals(3, m.addAndGet(1, 3, -1));
+        assertEquals(1, m.addAndGet(1, -2, -1));
+        assertThrows(IllegalArgumentException.class, () -> m.put(Long.MIN_VALUE, 1));
+        assertThrows(IllegalArgumentException.class, () -> m.put(Long.MIN_VALUE + 1, 1));
+    }
+}
@@ -16,14 +16,13 @@
  */
 package com.openglobes.core.utils;
 
-import com.openglobes.core.trader.ActionType;
-import com.openglobes.core.trader.Request;
+import com.openglobes.core.market.*;
+import com.openglobes.core.trader.*;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
-import java.time.Duration;
-import java.time.LocalTime;
-import java.time.ZonedDateTime;
+import java.lang.reflect.Modifier;
+import java.time.*;
 import java.util.TimerTask;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -51,6 +50,87 @@ class UtilsTest {
                    "Instrument ID should be null.");
     }
 
+    @Test
+    @DisplayName("ICopyable::copy() copies all fields")
+    void copyAllFields() throws Exception {
+        var classes = new Class<?>[]{Account.class, Commission.class, Contract.class, Deposit.class,
+                                     Instrument.class, Margin.class, Order.class, Position.class,
+                                     Request.class, Response.class, SettlementPrice.class, Trade.class,
+                                     TradingDay.class, Withdraw.class, HolidayTime.class,
+                                     HolidayTimePair.class, HolidayTimeSet.class, InstrumentStickSetting.class,
+                                     InstrumentTime.class, MarketNotice.class, Stick.class, Tick.class,
+                                     WorkdayTime.class, WorkdayTimePair.class, WorkdayTimeSet.class};
+        for (var clazz : classes) {
+            var old = clazz.getConstructor().newInstance();
+            for (var f : clazz.getDeclaredFields()) {
+                if (Modifier.isStatic(f.getModifiers())) {
+                    continue;
+                }
+                f.setAccessible(true);
+                f.set(old, sample(f.getType()));
+            }
+            var n = Utils.copy(old);
+            assertNotSame(old, n);
+            for (var f : clazz.getDeclaredFields()) {
+                if (Modifier.isStatic(f.getModifiers())) {
+                    continue;
+                }
+                f.setAccessible(true);
+                assertEquals(f.get(old),
+                             f.get(n),
+                             clazz.getSimpleName() + "." + f.getName() + " must be copied.");
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Utils::copy() copies subclass of ICopyable by serialization")
+    void copySubclass() {
+        var old = new SubStick();
+        old.setInstrumentId("c2101");
+        old.setVolumn(3L);
+        old.count = 5L;
+
+        var n = Utils.copy(old);
+
+        assertNotSame(old, n);
+        assertEquals(SubStick.class,
+                     n.getClass(),
+                     "Copy must keep runtime class.");
+        assertEquals(old.getInstrumentId(),
+                     n.getInstrumentId(),
+                     "Instrument ID must be same.");
+        assertEquals(old.getVolumn(),
+                     n.getVolumn(),
+                     "Volumn must be same.");
+        assertEquals(old.count,
+                     n.count,
+                     "Subclass field must be copied.");
+    }
+
+    private Object sample(Class<?> type) {
+        if (type == Integer.class) {
+            return 1;
+        } else if (type == Long.class) {
+            return 2L;
+        } else if (type == Double.class) {
+            return 3.0D;
+        } else if (type == Boolean.class) {
+            return Boolean.TRUE;
+        } else if (type == String.class) {
+            return "sample";
+        } else if (type == LocalDate.class) {
+            return LocalDate.now();
+        } else if (type == LocalTime.class) {
+            return LocalTime.now();
+        } else if (type == ZonedDateTime.class) {
+            return ZonedDateTime.now();
+        } else if (type == DayOfWeek.class) {
+            return DayOfWeek.MONDAY;
+        }
+        throw new IllegalArgumentException("Unsupported field type: " + type.getCanonicalName() + ".");
+    }
+
     @Test
     void getRoundedTimeByMinute() {
         var n = Utils.getRoundedTimeByMinute();
@@ -124,4 +204,12 @@ class UtilsTest {
         r.purge();
         r.cancel();
     }
+
+    /*
+     * Subclass inheriting copy(), like stick context of market data.
+     */
+    private static class SubStick extends Stick {
+
+        private Long count;
+    }
 }
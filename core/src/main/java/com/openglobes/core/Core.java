@@ -33,6 +33,7 @@ import com.openglobes.core.trader.*;
 
 import java.util.Collection;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -47,12 +48,16 @@ public class Core implements ICore {
     private final IRequestContext reqCtx;
     private final ISharedContext sharedCtx;
     private final ISessionFactory factory;
-    private Collection<IConnectorContext> connectors;
+    private final Collection<IConnectorContext> connectors;
+    private final Collection<IGatewayContext> gates;
+    private final Collection<IPluginContext> plugins;
     private IDataSourceContext ds;
-    private Collection<IGatewayContext> gates;
-    private Collection<IPluginContext> plugins;
     private ICoreListener coreLis;
+
     public Core() {
+        connectors = new ConcurrentLinkedQueue<>();
+        gates = new ConcurrentLinkedQueue<>();
+        plugins = new ConcurrentLinkedQueue<>();
         sharedCtx = new SharedContext();
         engine = new TraderEngine();
         reqCtx = new RequestContext(engine, sharedCtx);
@@ -91,6 +96,11 @@ public class Core implements ICore {
         return gates;
     }
 
+    @Override
+    public ILatencyMonitor getLatencyMonitor() {
+        return engine.getLatencyMonitor();
+    }
+
     @Override
     public IRequestContext getRequest() {
         return reqCtx;
@@ -108,8 +118,10 @@ public class Core implements ICore {
 
     @Override
     public IConnectorContext getConnectorContext(IConnector connector) throws AcquireInformationException {
-        return new ConnectorContext(connector,
-                                    factory.createSession(connector));
+        var c = new ConnectorContext(connector,
+                                     factory.createSession(connector));
+        connectors.add(c);
+        return c;
     }
 
     @Override
@@ -129,14 +141,19 @@ public class Core implements ICore {
     @Override
     public void installGateway(ITraderGateway gateway) throws CoreInstallException {
         Objects.requireNonNull(gateway);
+        if (ds == null) {
+            throw new CoreInstallException("Data source must be installed before gateway.");
+        }
         GatewayContext gctx = new GatewayContext(gateway);
         gates.add(gctx);
         try {
             engine.setDataSource(ds.get());
             engine.setAlgorithm(algo);
             engine.registerTrader(gates.size(), gateway);
-            /* Install event handlers. */
-            installEngineEventHandlers(engine);
+            /* Install event handlers once for all gateways. */
+            if (gates.size() == 1) {
+                installEngineEventHandlers(engine);
+            }
         } catch (DuplicatedTraderIdException | InvalidSubscriptionException ex) {
             throw new CoreInstallException(ex.getMessage(), ex);
         }
@@ -145,8 +162,8 @@ public class Core implements ICore {
     private void installEngineEventHandlers(ITraderEngine engine) throws InvalidSubscriptionException {
         var chain = sharedCtx.getInterceptorChain();
         var src = engine.getEventSource();
-        src.subscribe(Trade.class, new TradeHandler(chain));
-        src.subscribe(Response.class, new ResponseHandler(chain));
+        src.subscribe(Trade.class, new TradeHandler(chain, engine.getLatencyMonitor()));
+        src.subscribe(Response.class, new ResponseHandler(chain, engine.getLatencyMonitor()));
         src.subscribe(TraderRuntimeException.class, new TraderRuntimeExceptionHandler(coreLis));
         src.subscribe(GatewayRuntimeException.class, new GatewayRuntimeExceptionHandler(coreLis));
         src.subscribe(ServiceRuntimeStatus.class, new ServiceRuntimeStatusHandler(coreLis));
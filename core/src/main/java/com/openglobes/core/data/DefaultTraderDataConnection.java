@@ -23,7 +23,9 @@ import com.openglobes.core.trader.*;
 import java.lang.reflect.Field;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.Collection;
+import java.util.Objects;
 
 /**
  * Trader engine's data connection.
@@ -61,6 +63,16 @@ public class DefaultTraderDataConnection extends AbstractTraderDataConnection {
         }
     }
 
+    @Override
+    public void addCommissions(Collection<Commission> commissions) throws DataInsertionException {
+        try {
+            callInsertMany(Commission.class, commissions);
+        } catch (EventException | SQLException | DataException ex) {
+            throw new DataInsertionException(ex.getMessage(),
+                                             ex);
+        }
+    }
+
     @Override
     public void addContract(Contract contract) throws DataInsertionException {
         try {
@@ -71,6 +83,16 @@ public class DefaultTraderDataConnection extends AbstractTraderDataConnection {
         }
     }
 
+    @Override
+    public void addContracts(Collection<Contract> contracts) throws DataInsertionException {
+        try {
+            callInsertMany(Contract.class, contracts);
+        } catch (EventException | SQLException | DataException ex) {
+            throw new DataInsertionException(ex.getMessage(),
+                                             ex);
+        }
+    }
+
     @Override
     public void addDeposit(Deposit deposit) throws DataInsertionException {
         try {
@@ -101,6 +123,16 @@ public class DefaultTraderDataConnection extends AbstractTraderDataConnection {
         }
     }
 
+    @Override
+    public void addMargins(Collection<Margin> margins) throws DataInsertionException {
+        try {
+            callInsertMany(Margin.class, margins);
+        } catch (EventException | SQLException | DataException ex) {
+            throw new DataInsertionException(ex.getMessage(),
+                                             ex);
+        }
+    }
+
     @Override
     public void addRequest(Request request) throws DataInsertionException {
         try {
@@ -391,6 +423,21 @@ public class DefaultTraderDataConnection extends AbstractTraderDataConnection {
         }
     }
 
+    @Override
+    public Collection<Margin> getMarginsByContractId(long contractId) throws DataQueryException {
+        try {
+            return callGetMany(Margin.class,
+                               Queries.equals(Margin.class.getDeclaredField("contractId"), contractId),
+                               Margin::new);
+        } catch (NoSuchFieldException | SecurityException ex) {
+            throw new DataQueryException(Margin.class.getCanonicalName(),
+                                         ex);
+        } catch (DbaException | SQLException | DataException ex) {
+            throw new DataQueryException(ex.getMessage(),
+                                         ex);
+        }
+    }
+
     @Override
     public Collection<Margin> getMarginsByOrderId(long orderId) throws DataQueryException {
         try {
@@ -424,9 +471,19 @@ public class DefaultTraderDataConnection extends AbstractTraderDataConnection {
     @Override
     public Request getRequestByOrderId(long orderId) throws DataQueryException {
         try {
-            return callGetSingle(Request.class,
+            /*
+             * DELETE requests are saved with the same order ID, so return the
+             * NEW one.
+             */
+            var rs = callGetMany(Request.class,
                                  Queries.equals(Request.class.getDeclaredField("orderId"), orderId),
                                  Request::new);
+            for (var r : rs) {
+                if (Objects.equals(r.getAction(), ActionType.NEW)) {
+                    return r;
+                }
+            }
+            return null;
         } catch (NoSuchFieldException | SecurityException ex) {
             throw new DataQueryException(Request.class.getCanonicalName(),
                                          ex);
@@ -733,6 +790,21 @@ public class DefaultTraderDataConnection extends AbstractTraderDataConnection {
         }
     }
 
+    @Override
+    public void updateCommissions(Collection<Commission> commissions) throws DataUpdateException {
+        try {
+            callUpdateMany(Commission.class,
+                           commissions,
+                           Commission.class.getDeclaredField("commissionId"));
+        } catch (NoSuchFieldException | SecurityException ex) {
+            throw new DataUpdateException(Commission.class.getCanonicalName(),
+                                          ex);
+        } catch (EventException | SQLException | DataException ex) {
+            throw new DataUpdateException(ex.getMessage(),
+                                          ex);
+        }
+    }
+
     @Override
     public void updateContract(Contract contract) throws DataUpdateException {
         try {
@@ -748,6 +820,21 @@ public class DefaultTraderDataConnection extends AbstractTraderDataConnection {
         }
     }
 
+    @Override
+    public void updateContracts(Collection<Contract> contracts) throws DataUpdateException {
+        try {
+            callUpdateMany(Contract.class,
+                           contracts,
+                           Contract.class.getDeclaredField("contractId"));
+        } catch (NoSuchFieldException | SecurityException ex) {
+            throw new DataUpdateException(Contract.class.getCanonicalName(),
+                                          ex);
+        } catch (EventException | SQLException | DataException ex) {
+            throw new DataUpdateException(ex.getMessage(),
+                                          ex);
+        }
+    }
+
     @Override
     public void updateInstrument(Instrument instrument) throws DataUpdateException {
         try {
@@ -778,6 +865,21 @@ public class DefaultTraderDataConnection extends AbstractTraderDataConnection {
         }
     }
 
+    @Override
+    public void updateMargins(Collection<Margin> margins) throws DataUpdateException {
+        try {
+            callUpdateMany(Margin.class,
+                           margins,
+                           Margin.class.getDeclaredField("marginId"));
+        } catch (NoSuchFieldException | SecurityException ex) {
+            throw new DataUpdateException(Margin.class.getCanonicalName(),
+                                          ex);
+        } catch (EventException | SQLException | DataException ex) {
+            throw new DataUpdateException(ex.getMessage(),
+                                          ex);
+        }
+    }
+
     @Override
     public void updateSettlementPrice(SettlementPrice price) throws DataUpdateException {
         try {
@@ -860,6 +962,26 @@ public class DefaultTraderDataConnection extends AbstractTraderDataConnection {
         }
     }
 
+    private <T> void callInsertMany(Class<T> clazz,
+                                    Collection<T> objects)
+            throws DataQueryException,
+                   SQLException,
+                   EventException,
+                   UnknownDataChangeException {
+        try {
+            requireEachAffected(query.insertMany(clazz, objects),
+                                "inserting");
+            for (var o : objects) {
+                callOnChange(clazz,
+                             o,
+                             DataChangeType.CREATE);
+            }
+        } catch (DbaException ex) {
+            throw new DataQueryException(clazz.getCanonicalName(),
+                                         ex);
+        }
+    }
+
     private <T> void callOnChange(Class<T> clazz,
                                   T object,
                                   DataChangeType type)
@@ -923,4 +1045,36 @@ public class DefaultTraderDataConnection extends AbstractTraderDataConnection {
             throw new DataQueryException(ex);
         }
     }
+
+    private <T> void callUpdateMany(Class<T> clazz,
+                                    Collection<T> objects,
+                                    Field field)
+            throws DataQueryException,
+                   SQLException,
+                   EventException,
+                   UnknownDataChangeException {
+        try {
+            requireEachAffected(query.updateMany(clazz, objects, field),
+                                "updating");
+            for (var o : objects) {
+                callOnChange(clazz,
+                             o,
+                             DataChangeType.UPDATE);
+            }
+        } catch (DbaException ex) {
+            throw new DataQueryException(clazz.getCanonicalName(),
+                                         ex);
+        }
+    }
+
+    private void requireEachAffected(int[] rs, String action) throws DbaException {
+        for (var r : rs) {
+            /*
+             * Driver may not report the exact count of a batched statement.
+             */
+            if (r != 1 && r != Statement.SUCCESS_NO_INFO) {
+                throw new DbaException("Fail " + action + " record, " + r + " rows affected.");
+            }
+        }
+    }
 }
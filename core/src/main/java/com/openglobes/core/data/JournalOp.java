@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2020 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.data;
+
+import com.openglobes.core.trader.*;
+
+import java.io.*;
+import java.util.Objects;
+
+/**
+ * Change of a journaled object.
+ *
+ * @author Hongbao Chen
+ * @since 1.0
+ */
+class JournalOp {
+
+    static final byte INSERT = 1;
+    static final byte REMOVE = 3;
+    static final byte UPDATE = 2;
+    private static final Class<?>[] TYPES = new Class<?>[]{
+            null,
+            Response.class,
+            Trade.class,
+            Commission.class,
+            Margin.class,
+            Contract.class
+    };
+    private final Long id;
+    private final byte kind;
+    private final Class<?> type;
+    private final Object value;
+
+    private JournalOp(byte kind, Class<?> type, Long id, Object value) {
+        this.kind = kind;
+        this.type = type;
+        this.id = id;
+        this.value = value;
+    }
+
+    static JournalOp insert(Class<?> type, Long id, Object value) {
+        return new JournalOp(INSERT, type, id, Objects.requireNonNull(value));
+    }
+
+    static JournalOp read(DataInputStream in) throws IOException {
+        var kind = in.readByte();
+        var code = in.readByte();
+        if (code <= 0 || code >= TYPES.length) {
+            throw new IOException("Unknown journal type: " + code + ".");
+        }
+        var id = in.readLong();
+        Object value = null;
+        if (kind != REMOVE) {
+            var bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            try (var oi = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                value = oi.readObject();
+            } catch (ClassNotFoundException ex) {
+                throw new IOException(ex.getMessage(), ex);
+            }
+        }
+        return new JournalOp(kind, TYPES[code], id, value);
+    }
+
+    static JournalOp remove(Class<?> type, Long id) {
+        return new JournalOp(REMOVE, type, id, null);
+    }
+
+    static JournalOp update(Class<?> type, Long id, Object value) {
+        return new JournalOp(UPDATE, type, id, Objects.requireNonNull(value));
+    }
+
+    private static byte codeOf(Class<?> type) {
+        for (byte i = 1; i < TYPES.length; ++i) {
+            if (TYPES[i] == type) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    Long getId() {
+        return id;
+    }
+
+    byte getKind() {
+        return kind;
+    }
+
+    Class<?> getType() {
+        return type;
+    }
+
+    /**
+     * Object after the change, or {@code null} if it is removed.
+     *
+     * @return object after the change.
+     */
+    Object getValue() {
+        return value;
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeByte(kind);
+        out.writeByte(codeOf(type));
+        out.writeLong(id);
+        if (kind != REMOVE) {
+            var bo = new ByteArrayOutputStream(512);
+            try (var oo = new ObjectOutputStream(bo)) {
+                oo.writeObject(value);
+            }
+            out.writeInt(bo.size());
+            bo.writeTo(out);
+        }
+    }
+}
@@ -0,0 +1,652 @@
+/*
+ * Copyright (C) 2020 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.data;
+
+import com.openglobes.core.dba.IPooledDataSource;
+import com.openglobes.core.trader.*;
+import com.openglobes.core.utils.Utils;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Connection of {@link JournaledTraderDataSource}.
+ * <p>
+ * Changes of journaled objects in a transaction are kept in the connection
+ * and committed to journal together. Queries of journaled objects merge the
+ * uncommitted changes of this connection and the unflushed changes of all
+ * connections into results from the wrapped data source.
+ *
+ * @author Hongbao Chen
+ * @since 1.0
+ */
+class JournaledTraderDataConnection implements ITraderDataConnection {
+
+    private static final Object REMOVED = new Object();
+    private final ITraderDataConnection conn;
+    private final Map<Class<?>, Map<Long, Object>> local;
+    private final List<JournalOp> pending;
+    private final JournaledTraderDataSource source;
+    private boolean inTransaction;
+
+    JournaledTraderDataConnection(JournaledTraderDataSource source, ITraderDataConnection connection) {
+        this.source = Objects.requireNonNull(source);
+        this.conn = Objects.requireNonNull(connection);
+        local = new HashMap<>(8);
+        pending = new ArrayList<>(16);
+        inTransaction = false;
+    }
+
+    @Override
+    public void addAccount(Account account) throws DataInsertionException {
+        conn.addAccount(account);
+    }
+
+    @Override
+    public void addCommission(Commission commission) throws DataInsertionException {
+        try {
+            record(JournalOp.insert(Commission.class,
+                                    Objects.requireNonNull(commission.getCommissionId(), "Commission ID null."),
+                                    Utils.copy(commission)));
+        } catch (IOException ex) {
+            throw new DataInsertionException(ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    public void addCommissions(Collection<Commission> commissions) throws DataInsertionException {
+        for (var c : commissions) {
+            addCommission(c);
+        }
+    }
+
+    @Override
+    public void addContract(Contract contract) throws DataInsertionException {
+        try {
+            record(JournalOp.insert(Contract.class,
+                                    Objects.requireNonNull(contract.getContractId(), "Contract ID null."),
+                                    Utils.copy(contract)));
+        } catch (IOException ex) {
+            throw new DataInsertionException(ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    public void addContracts(Collection<Contract> contracts) throws DataInsertionException {
+        for (var c : contracts) {
+            addContract(c);
+        }
+    }
+
+    @Override
+    public void addDeposit(Deposit deposit) throws DataInsertionException {
+        conn.addDeposit(deposit);
+    }
+
+    @Override
+    public void addInstrument(Instrument instrument) throws DataInsertionException {
+        conn.addInstrument(instrument);
+    }
+
+    @Override
+    public void addMargin(Margin margin) throws DataInsertionException {
+        try {
+            record(JournalOp.insert(Margin.class,
+                                    Objects.requireNonNull(margin.getMarginId(), "Margin ID null."),
+                                    Utils.copy(margin)));
+        } catch (IOException ex) {
+            throw new DataInsertionException(ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    public void addMargins(Collection<Margin> margins) throws DataInsertionException {
+        for (var m : margins) {
+            addMargin(m);
+        }
+    }
+
+    @Override
+    public void addRequest(Request request) throws DataInsertionException {
+        conn.addRequest(request);
+    }
+
+    @Override
+    public void addResponse(Response response) throws DataInsertionException {
+        try {
+            record(JournalOp.insert(Response.class,
+                                    Objects.requireNonNull(response.getResponseId(), "Response ID null."),
+                                    Utils.copy(response)));
+        } catch (IOException ex) {
+            throw new DataInsertionException(ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    public void addSettlementPrice(SettlementPrice price) throws DataInsertionException {
+        conn.addSettlementPrice(price);
+    }
+
+    @Override
+    public void addTrade(Trade trade) throws DataInsertionException {
+        try {
+            record(JournalOp.insert(Trade.class,
+                                    Objects.requireNonNull(trade.getTradeId(), "Trade ID null."),
+                                    Utils.copy(trade)));
+        } catch (IOException ex) {
+            throw new DataInsertionException(ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    public void addTradingDay(TradingDay day) throws DataInsertionException {
+        conn.addTradingDay(day);
+    }
+
+    @Override
+    public void addWithdraw(Withdraw withdraw) throws DataInsertionException {
+        conn.addWithdraw(withdraw);
+    }
+
+    /**
+     * Close connection and discard uncommitted changes.
+     */
+    @Override
+    public void close() {
+        pending.clear();
+        local.clear();
+        inTransaction = false;
+        conn.close();
+    }
+
+    /**
+     * Commit rows written to the wrapped data source, then commit journaled
+     * changes. The two commits are not atomic. If writing journal fails, the
+     * committed rows stay and the journaled changes are discarded.
+     *
+     * @throws SQLException fail committing rows or writing journal.
+     */
+    @Override
+    public void commit() throws SQLException {
+        var ops = new ArrayList<>(pending);
+        endTransaction();
+        conn.commit();
+        try {
+            source.commit(ops);
+        } catch (IOException ex) {
+            throw new SQLException("Fail writing journal after committing other rows, " + ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    public Account getAccount() throws DataQueryException {
+        return conn.getAccount();
+    }
+
+    @Override
+    public Commission getCommissionById(Long commissionId) throws DataQueryException {
+        return getOne(Commission.class,
+                      commissionId,
+                      () -> conn.getCommissionById(commissionId));
+    }
+
+    @Override
+    public Collection<Commission> getCommissions() throws DataQueryException {
+        return getMany(Commission.class,
+                       Commission::getCommissionId,
+                       c -> true,
+                       conn::getCommissions);
+    }
+
+    @Override
+    public Collection<Commission> getCommissionsByOrderId(long orderId) throws DataQueryException {
+        return getMany(Commission.class,
+                       Commission::getCommissionId,
+                       c -> Objects.equals(c.getOrderId(), orderId),
+                       () -> conn.getCommissionsByOrderId(orderId));
+    }
+
+    @Override
+    public Collection<Commission> getCommissionsByStatus(Integer status) throws DataQueryException {
+        return getMany(Commission.class,
+                       Commission::getCommissionId,
+                       c -> Objects.equals(c.getStatus(), status),
+                       () -> conn.getCommissionsByStatus(status));
+    }
+
+    @Override
+    public Contract getContractById(Long contractId) throws DataQueryException {
+        return getOne(Contract.class,
+                      contractId,
+                      () -> conn.getContractById(contractId));
+    }
+
+    @Override
+    public Collection<Contract> getContracts() throws DataQueryException {
+        return getMany(Contract.class,
+                       Contract::getContractId,
+                       c -> true,
+                       conn::getContracts);
+    }
+
+    @Override
+    public Collection<Contract> getContractsByInstrumentId(String instrumentId) throws DataQueryException {
+        return getMany(Contract.class,
+                       Contract::getContractId,
+                       c -> Objects.equals(c.getInstrumentId(), instrumentId),
+                       () -> conn.getContractsByInstrumentId(instrumentId));
+    }
+
+    @Override
+    public Collection<Contract> getContractsByStatus(Integer status) throws DataQueryException {
+        return getMany(Contract.class,
+                       Contract::getContractId,
+                       c -> Objects.equals(c.getStatus(), status),
+                       () -> conn.getContractsByStatus(status));
+    }
+
+    @Override
+    public Collection<Contract> getContractsByTradeId(long tradeId) throws DataQueryException {
+        return getMany(Contract.class,
+                       Contract::getContractId,
+                       c -> Objects.equals(c.getTradeId(), tradeId),
+                       () -> conn.getContractsByTradeId(tradeId));
+    }
+
+    @Override
+    public ITraderDataSource getDataSource() {
+        return source;
+    }
+
+    @Override
+    public Collection<Deposit> getDeposits() throws DataQueryException {
+        return conn.getDeposits();
+    }
+
+    @Override
+    public Instrument getInstrumentById(String instrumentId) throws DataQueryException {
+        return conn.getInstrumentById(instrumentId);
+    }
+
+    @Override
+    public Collection<Instrument> getInstrumentsByExchangeId(String exchangeId) throws DataQueryException {
+        return conn.getInstrumentsByExchangeId(exchangeId);
+    }
+
+    @Override
+    public Margin getMarginById(Long marginId) throws DataQueryException {
+        return getOne(Margin.class,
+                      marginId,
+                      () -> conn.getMarginById(marginId));
+    }
+
+    @Override
+    public Collection<Margin> getMargins() throws DataQueryException {
+        return getMany(Margin.class,
+                       Margin::getMarginId,
+                       m -> true,
+                       conn::getMargins);
+    }
+
+    @Override
+    public Collection<Margin> getMarginsByContractId(long contractId) throws DataQueryException {
+        return getMany(Margin.class,
+                       Margin::getMarginId,
+                       m -> Objects.equals(m.getContractId(), contractId),
+                       () -> conn.getMarginsByContractId(contractId));
+    }
+
+    @Override
+    public Collection<Margin> getMarginsByOrderId(long orderId) throws DataQueryException {
+        return getMany(Margin.class,
+                       Margin::getMarginId,
+                       m -> Objects.equals(m.getOrderId(), orderId),
+                       () -> conn.getMarginsByOrderId(orderId));
+    }
+
+    @Override
+    public Collection<Margin> getMarginsByStatus(Integer status) throws DataQueryException {
+        return getMany(Margin.class,
+                       Margin::getMarginId,
+                       m -> Objects.equals(m.getStatus(), status),
+                       () -> conn.getMarginsByStatus(status));
+    }
+
+    @Override
+    public Request getRequestByOrderId(long orderId) throws DataQueryException {
+        return conn.getRequestByOrderId(orderId);
+    }
+
+    @Override
+    public Collection<Request> getRequests() throws DataQueryException {
+        return conn.getRequests();
+    }
+
+    @Override
+    public Response getResponseById(long responseId) throws DataQueryException {
+        return getOne(Response.class,
+                      responseId,
+                      () -> conn.getResponseById(responseId));
+    }
+
+    @Override
+    public Collection<Response> getResponseByOrderId(long orderId) throws DataQueryException {
+        return getMany(Response.class,
+                       Response::getResponseId,
+                       r -> Objects.equals(r.getOrderId(), orderId),
+                       () -> conn.getResponseByOrderId(orderId));
+    }
+
+    @Override
+    public Collection<Response> getResponses() throws DataQueryException {
+        return getMany(Response.class,
+                       Response::getResponseId,
+                       r -> true,
+                       conn::getResponses);
+    }
+
+    @Override
+    public SettlementPrice getSettlementPriceByInstrumentId(String instrumentId) throws DataQueryException {
+        return conn.getSettlementPriceByInstrumentId(instrumentId);
+    }
+
+    @Override
+    public IPooledDataSource getSource() {
+        return source;
+    }
+
+    @Override
+    public Connection getSqlConnection() {
+        return conn.getSqlConnection();
+    }
+
+    @Override
+    public Trade getTradeById(Long tradeId) throws DataQueryException {
+        return getOne(Trade.class,
+                      tradeId,
+                      () -> conn.getTradeById(tradeId));
+    }
+
+    @Override
+    public Collection<Trade> getTrades() throws DataQueryException {
+        return getMany(Trade.class,
+                       Trade::getTradeId,
+                       t -> true,
+                       conn::getTrades);
+    }
+
+    @Override
+    public Collection<Trade> getTradesByOrderId(long orderId) throws DataQueryException {
+        return getMany(Trade.class,
+                       Trade::getTradeId,
+                       t -> Objects.equals(t.getOrderId(), orderId),
+                       () -> conn.getTradesByOrderId(orderId));
+    }
+
+    @Override
+    public TradingDay getTradingDay() throws DataQueryException {
+        return conn.getTradingDay();
+    }
+
+    @Override
+    public Collection<Withdraw> getWithdraws() throws DataQueryException {
+        return conn.getWithdraws();
+    }
+
+    @Override
+    public void removeCommission(long commissionId) throws DataRemovalException {
+        try {
+            record(JournalOp.remove(Commission.class, commissionId));
+        } catch (IOException ex) {
+            throw new DataRemovalException(ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    public void removeContract(long contractId) throws DataRemovalException {
+        try {
+            record(JournalOp.remove(Contract.class, contractId));
+        } catch (IOException ex) {
+            throw new DataRemovalException(ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    public void removeDeposit(long depositId) throws DataRemovalException {
+        conn.removeDeposit(depositId);
+    }
+
+    @Override
+    public void removeInstrument(String instrumentId) throws DataRemovalException {
+        conn.removeInstrument(instrumentId);
+    }
+
+    @Override
+    public void removeMargin(long marginId) throws DataRemovalException {
+        try {
+            record(JournalOp.remove(Margin.class, marginId));
+        } catch (IOException ex) {
+            throw new DataRemovalException(ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    public void removeSettlementPrice(String instrumentId) throws DataRemovalException {
+        conn.removeSettlementPrice(instrumentId);
+    }
+
+    @Override
+    public void removeWithdraw(long withdrawId) throws DataRemovalException {
+        conn.removeWithdraw(withdrawId);
+    }
+
+    @Override
+    public void rollback() throws SQLException {
+        endTransaction();
+        conn.rollback();
+    }
+
+    @Override
+    public void transaction() throws SQLException {
+        conn.transaction();
+        pending.clear();
+        local.clear();
+        inTransaction = true;
+    }
+
+    @Override
+    public void updateAccount(Account account) throws DataUpdateException {
+        conn.updateAccount(account);
+    }
+
+    @Override
+    public void updateCommission(Commission commission) throws DataUpdateException {
+        try {
+            record(JournalOp.update(Commission.class,
+                                    Objects.requireNonNull(commission.getCommissionId(), "Commission ID null."),
+                                    Utils.copy(commission)));
+        } catch (IOException ex) {
+            throw new DataUpdateException(ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    public void updateCommissions(Collection<Commission> commissions) throws DataUpdateException {
+        for (var c : commissions) {
+            updateCommission(c);
+        }
+    }
+
+    @Override
+    public void updateContract(Contract contract) throws DataUpdateException {
+        try {
+            record(JournalOp.update(Contract.class,
+                                    Objects.requireNonNull(contract.getContractId(), "Contract ID null."),
+                                    Utils.copy(contract)));
+        } catch (IOException ex) {
+            throw new DataUpdateException(ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    public void updateContracts(Collection<Contract> contracts) throws DataUpdateException {
+        for (var c : contracts) {
+            updateContract(c);
+        }
+    }
+
+    @Override
+    public void updateInstrument(Instrument instrument) throws DataUpdateException {
+        conn.updateInstrument(instrument);
+    }
+
+    @Override
+    public void updateMargin(Margin margin) throws DataUpdateException {
+        try {
+            record(JournalOp.update(Margin.class,
+                                    Objects.requireNonNull(margin.getMarginId(), "Margin ID null."),
+                                    Utils.copy(margin)));
+        } catch (IOException ex) {
+            throw new DataUpdateException(ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    public void updateMargins(Collection<Margin> margins) throws DataUpdateException {
+        for (var m : margins) {
+            updateMargin(m);
+        }
+    }
+
+    @Override
+    public void updateSettlementPrice(SettlementPrice price) throws DataUpdateException {
+        conn.updateSettlementPrice(price);
+    }
+
+    @Override
+    public void updateTradingDay(TradingDay day) throws DataUpdateException {
+        conn.updateTradingDay(day);
+    }
+
+    private void endTransaction() {
+        pending.clear();
+        local.clear();
+        inTransaction = false;
+    }
+
+    /**
+     * Find the latest version of the object in this connection, then in
+     * journal.
+     *
+     * @return object, {@link #REMOVED} if it is removed, or {@code null} if
+     *         it is not changed.
+     */
+    private Object findChanged(Class<?> type, Long id) {
+        var l = local.get(type);
+        if (l != null && l.containsKey(id)) {
+            return l.get(id);
+        }
+        var v = source.overlayOf(type).get(id);
+        if (v == null) {
+            return null;
+        }
+        return v.getValue() == null ? REMOVED : v.getValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Collection<T> getMany(Class<T> type,
+                                      Function<T, Long> idOf,
+                                      Predicate<T> filter,
+                                      Loader<Collection<T>> loader) throws DataQueryException {
+        source.pruneLock().readLock().lock();
+        try {
+            var base = loader.load();
+            var global = source.overlayOf(type);
+            var l = local.getOrDefault(type, Map.of());
+            if (global.isEmpty() && l.isEmpty()) {
+                return base;
+            }
+            var r = new ArrayList<T>(base.size() + 8);
+            var seen = new HashSet<Long>(base.size() + 8);
+            for (var o : base) {
+                var id = idOf.apply(o);
+                seen.add(id);
+                var c = findChanged(type, id);
+                if (c == null) {
+                    r.add(o);
+                } else if (c != REMOVED && filter.test((T) c)) {
+                    r.add(Utils.copy((T) c));
+                }
+            }
+            /*
+             * Objects not flushed to data source yet.
+             */
+            for (var e : global.entrySet()) {
+                var v = e.getValue().getValue();
+                if (v != null && !seen.contains(e.getKey()) && !l.containsKey(e.getKey()) && filter.test((T) v)) {
+                    r.add(Utils.copy((T) v));
+                }
+            }
+            for (var e : l.entrySet()) {
+                var v = e.getValue();
+                if (v != REMOVED && !seen.contains(e.getKey()) && filter.test((T) v)) {
+                    r.add(Utils.copy((T) v));
+                }
+            }
+            return r;
+        } finally {
+            source.pruneLock().readLock().unlock();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T getOne(Class<T> type, Long id, Loader<T> loader) throws DataQueryException {
+        source.pruneLock().readLock().lock();
+        try {
+            var c = findChanged(type, id);
+            if (c == REMOVED) {
+                throw new DataQueryException("Empty result.");
+            }
+            if (c != null) {
+                return Utils.copy((T) c);
+            }
+            return loader.load();
+        } finally {
+            source.pruneLock().readLock().unlock();
+        }
+    }
+
+    private void record(JournalOp op) throws IOException {
+        if (inTransaction) {
+            pending.add(op);
+            local.computeIfAbsent(op.getType(), k -> new HashMap<>(16))
+                 .put(op.getId(), op.getValue() == null ? REMOVED : op.getValue());
+        } else {
+            source.commit(List.of(op));
+        }
+    }
+
+    @FunctionalInterface
+    private interface Loader<T> {
+
+        T load() throws DataQueryException;
+    }
+}
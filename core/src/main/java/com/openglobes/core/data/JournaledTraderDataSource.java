@@ -0,0 +1,596 @@
+/*
+ * Copyright (C) 2020 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.data;
+
+import com.openglobes.core.event.IEventHandler;
+import com.openglobes.core.event.IEventSource;
+import com.openglobes.core.event.InvalidSubscriptionException;
+import com.openglobes.core.dba.UnknownConnectionException;
+import com.openglobes.core.trader.*;
+import com.openglobes.core.utils.Loggers;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+
+/**
+ * Write-behind data source wrapping another data source.
+ * <p>
+ * Changes of responses, trades, commissions, margins and contracts are
+ * appended to a local journal file on commit and become visible to all
+ * connections at once after the journal is forced to disk. A background
+ * thread flushes them to the wrapped data source in batches. Other data goes to the wrapped data source directly.
+ * <p>
+ * Changes not flushed before the process stops are replayed to the wrapped
+ * data source when the journal is opened again. So the wrapped data source
+ * must be opened before it is wrapped.
+ * <p>
+ * Changes failing to flush after several retries are moved to a quarantine
+ * journal file beside the journal, so later changes are not blocked by them.
+ * Quarantined changes stay visible to queries, and every {@link #flush()}
+ * fails while there are quarantined changes, because the wrapped data source
+ * misses them.
+ *
+ * @author Hongbao Chen
+ * @since 1.0
+ */
+public class JournaledTraderDataSource implements ITraderDataSource {
+
+    private static final int MAX_BATCH = 256;
+    private static final int MAX_RETRIES = 3;
+    private static final long RETRY_MILLIS = 1000L;
+    private final Object commitLock = new Object();
+    private final ITraderDataSource ds;
+    private final Object flushLock = new Object();
+    private final Thread flusher;
+    private final WriteJournal journal;
+    private final Path journalPath;
+    private final Map<Class<?>, Map<Long, Version>> overlay;
+    private final ReadWriteLock pruneLock;
+    private final BlockingQueue<Batch> queue;
+    private volatile boolean closing;
+    private long flushedSeq;
+    private WriteJournal quarantine;
+    private long quarantinedCount;
+
+    /**
+     * Wrap the specified data source, and replay changes in the journal that
+     * are not flushed yet.
+     *
+     * @param dataSource  opened data source to flush changes to.
+     * @param journalPath path of journal file.
+     *
+     * @throws IOException            fail opening or reading journal.
+     * @throws DataInsertionException fail replaying changes to data source.
+     */
+    public JournaledTraderDataSource(ITraderDataSource dataSource, Path journalPath)
+            throws IOException, DataInsertionException {
+        ds = Objects.requireNonNull(dataSource);
+        this.journalPath = journalPath;
+        journal = new WriteJournal(journalPath);
+        overlay = new ConcurrentHashMap<>(8);
+        pruneLock = new ReentrantReadWriteLock();
+        queue = new LinkedBlockingQueue<>();
+        closing = false;
+        quarantinedCount = 0L;
+        replay();
+        flushedSeq = journal.getLastSeq();
+        flusher = new Thread(this::flushLoop, "journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    static void apply(ITraderDataConnection conn, JournalOp op, boolean mayExist)
+            throws DataInsertionException, DataUpdateException, SQLException {
+        var v = op.getValue();
+        switch (op.getKind()) {
+            case JournalOp.INSERT:
+                if (mayExist) {
+                    upsert(conn, v);
+                } else {
+                    insert(conn, v);
+                }
+                break;
+            case JournalOp.UPDATE:
+                update(conn, v);
+                break;
+            default:
+                try {
+                    remove(conn, op.getType(), op.getId());
+                } catch (DataRemovalException ignored) {
+                    /*
+                     * Already removed.
+                     */
+                }
+                break;
+        }
+    }
+
+    private static void insert(ITraderDataConnection conn, Object v) throws DataInsertionException {
+        if (v instanceof Response) {
+            conn.addResponse((Response) v);
+        } else if (v instanceof Trade) {
+            conn.addTrade((Trade) v);
+        } else if (v instanceof Commission) {
+            conn.addCommission((Commission) v);
+        } else if (v instanceof Margin) {
+            conn.addMargin((Margin) v);
+        } else {
+            conn.addContract((Contract) v);
+        }
+    }
+
+    private static void upsert(ITraderDataConnection conn, Object v) throws DataInsertionException,
+                                                                          DataUpdateException,
+                                                                          SQLException {
+        /*
+         * Change may be flushed before its checkpoint is written. Failed
+         * statement aborts the whole transaction on some databases, like
+         * PostgreSQL, so roll back to a savepoint before updating.
+         */
+        var sql = conn.getSqlConnection();
+        var sp = sql.setSavepoint();
+        try {
+            insert(conn, v);
+            sql.releaseSavepoint(sp);
+        } catch (DataInsertionException ex) {
+            sql.rollback(sp);
+            if (!exists(conn, v)) {
+                throw ex;
+            }
+            update(conn, v);
+        }
+    }
+
+    private static boolean exists(ITraderDataConnection conn, Object v) {
+        /*
+         * Query throws if the object is not found.
+         */
+        try {
+            if (v instanceof Response) {
+                conn.getResponseById(((Response) v).getResponseId());
+            } else if (v instanceof Trade) {
+                conn.getTradeById(((Trade) v).getTradeId());
+            } else if (v instanceof Commission) {
+                conn.getCommissionById(((Commission) v).getCommissionId());
+            } else if (v instanceof Margin) {
+                conn.getMarginById(((Margin) v).getMarginId());
+            } else {
+                conn.getContractById(((Contract) v).getContractId());
+            }
+            return true;
+        } catch (DataQueryException ex) {
+            return false;
+        }
+    }
+
+    private static void remove(ITraderDataConnection conn, Class<?> type, Long id) throws DataRemovalException {
+        if (type == Commission.class) {
+            conn.removeCommission(id);
+        } else if (type == Margin.class) {
+            conn.removeMargin(id);
+        } else if (type == Contract.class) {
+            conn.removeContract(id);
+        } else {
+            throw new DataRemovalException("Can't remove " + type.getCanonicalName() + ".");
+        }
+    }
+
+    private static void update(ITraderDataConnection conn, Object v) throws DataUpdateException {
+        if (v instanceof Commission) {
+            conn.updateCommission((Commission) v);
+        } else if (v instanceof Margin) {
+            conn.updateMargin((Margin) v);
+        } else if (v instanceof Contract) {
+            conn.updateContract((Contract) v);
+        }
+        /*
+         * Responses and trades are never updated, and existing one is the
+         * same as the journaled one.
+         */
+    }
+
+    @Override
+    public <T> void addListener(Class<T> clazz,
+                                IEventHandler<T> handler,
+                                DataChangeType type)
+            throws UnknownDataChangeException,
+                   InvalidSubscriptionException {
+        ds.addListener(clazz, handler, type);
+    }
+
+    /**
+     * Flush all committed changes and close journal and the wrapped data
+     * source. If flush fails, the changes are replayed on next open.
+     */
+    @Override
+    public void close() {
+        closing = true;
+        try {
+            flusher.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            journal.close();
+            if (quarantine != null) {
+                quarantine.close();
+            }
+        } catch (IOException ex) {
+            Loggers.getLogger(JournaledTraderDataSource.class.getCanonicalName())
+                   .log(Level.SEVERE, ex.getMessage(), ex);
+        }
+        ds.close();
+    }
+
+    /**
+     * Wait until all changes committed before the call are flushed to the
+     * wrapped data source.
+     *
+     * @throws InterruptedException interrupted while waiting.
+     * @throws DataUpdateException  some changes are quarantined and not in
+     *                              the wrapped data source.
+     */
+    public void flush() throws InterruptedException, DataUpdateException {
+        var seq = journal.getLastSeq();
+        synchronized (flushLock) {
+            while (flushedSeq < seq) {
+                if (!flusher.isAlive()) {
+                    throw new IllegalStateException("Journal flusher stopped.");
+                }
+                flushLock.wait(RETRY_MILLIS);
+            }
+            if (quarantinedCount > 0) {
+                throw new DataUpdateException(quarantinedCount + " committed units are quarantined in "
+                                              + quarantinePath() + ".");
+            }
+        }
+    }
+
+    /**
+     * Get the number of committed units moved to quarantine journal because
+     * they can't be flushed to the wrapped data source.
+     *
+     * @return number of quarantined units.
+     */
+    public long getQuarantinedCount() {
+        synchronized (flushLock) {
+            return quarantinedCount;
+        }
+    }
+
+    @Override
+    public ITraderDataConnection getConnection() throws SQLException,
+                                                        ClassNotFoundException {
+        return new JournaledTraderDataConnection(this, ds.getConnection());
+    }
+
+    @Override
+    public Properties getConnectionProperties() {
+        return ds.getConnectionProperties();
+    }
+
+    @Override
+    public IEventSource getEventSource(DataChangeType type) throws UnknownDataChangeException {
+        return ds.getEventSource(type);
+    }
+
+    @Override
+    public Properties getProperties() {
+        return ds.getProperties();
+    }
+
+    @Override
+    public Connection getSqlConnection() throws SQLException,
+                                                ClassNotFoundException {
+        return ds.getSqlConnection();
+    }
+
+    @Override
+    public void open(Properties properties) {
+        ds.open(properties);
+    }
+
+    @Override
+    public void ungetSqlConnection(Connection connection) throws UnknownConnectionException {
+        ds.ungetSqlConnection(connection);
+    }
+
+    /**
+     * Append changes of a committed unit to journal, and make them visible
+     * after the journal is forced to disk.
+     *
+     * @param ops changes.
+     *
+     * @throws IOException fail writing journal.
+     */
+    void commit(List<JournalOp> ops) throws IOException {
+        if (ops.isEmpty()) {
+            return;
+        }
+        Batch batch;
+        synchronized (commitLock) {
+            if (closing) {
+                throw new IOException("Journal closed.");
+            }
+            batch = new Batch(journal.append(ops), ops);
+            queue.add(batch);
+        }
+        var durable = false;
+        try {
+            journal.sync(batch.seq);
+            /*
+             * Commits of the same object may become durable out of order, so
+             * keep the later version.
+             */
+            for (var op : ops) {
+                overlayOf(op.getType()).merge(op.getId(),
+                                              new Version(op.getValue(), batch.seq),
+                                              (o, n) -> o.seq > n.seq ? o : n);
+            }
+            durable = true;
+        } finally {
+            batch.complete(durable);
+        }
+    }
+
+    /**
+     * Get the latest committed but not flushed version of objects. The map
+     * doesn't shrink while holding the read lock of {@link #pruneLock()}.
+     *
+     * @param type type of objects.
+     *
+     * @return map from ID to version.
+     */
+    Map<Long, Version> overlayOf(Class<?> type) {
+        return overlay.computeIfAbsent(type, k -> new ConcurrentHashMap<>(256));
+    }
+
+    ReadWriteLock pruneLock() {
+        return pruneLock;
+    }
+
+    private boolean flush(List<Batch> batches, boolean mayExist) {
+        try (var conn = ds.getConnection()) {
+            conn.transaction();
+            try {
+                for (var b : batches) {
+                    if (!b.durable) {
+                        /*
+                         * Committer is told the commit fails.
+                         */
+                        continue;
+                    }
+                    for (var op : b.ops) {
+                        apply(conn, op, mayExist);
+                    }
+                }
+                conn.commit();
+            } catch (DataException | SQLException | RuntimeException ex) {
+                conn.rollback();
+                throw ex;
+            }
+        } catch (DataException | SQLException | ClassNotFoundException | RuntimeException ex) {
+            Loggers.getLogger(JournaledTraderDataSource.class.getCanonicalName())
+                   .log(Level.WARNING, "Fail flushing journal, " + ex.getMessage(), ex);
+            return false;
+        }
+        flushed(batches);
+        return true;
+    }
+
+    private void flushed(List<Batch> batches) {
+        flushed(batches, true);
+    }
+
+    private void flushed(List<Batch> batches, boolean pruned) {
+        var seq = batches.get(batches.size() - 1).seq;
+        if (pruned) {
+            prune(batches, seq);
+        }
+        try {
+            journal.checkpoint(seq);
+        } catch (IOException ex) {
+            /*
+             * Flushed changes are replayed again on next open, which is
+             * harmless.
+             */
+            Loggers.getLogger(JournaledTraderDataSource.class.getCanonicalName())
+                   .log(Level.WARNING, ex.getMessage(), ex);
+        }
+        synchronized (flushLock) {
+            flushedSeq = seq;
+            flushLock.notifyAll();
+        }
+    }
+
+    private boolean flushEach(List<Batch> batches) {
+        /*
+         * Failing units are found by flushing one at a time, and moved aside
+         * so changes after them are flushed. Quarantined changes are kept in
+         * overlay, so queries don't silently revert to older rows.
+         */
+        for (var b : batches) {
+            var one = List.of(b);
+            if (!flush(one, true)) {
+                try {
+                    quarantine(b);
+                } catch (IOException ex) {
+                    Loggers.getLogger(JournaledTraderDataSource.class.getCanonicalName())
+                           .log(Level.SEVERE, "Fail quarantining journal, " + ex.getMessage(), ex);
+                    return false;
+                }
+                flushed(one, false);
+            }
+        }
+        return true;
+    }
+
+    private void flushLoop() {
+        var batches = new ArrayList<Batch>(MAX_BATCH);
+        while (true) {
+            Batch first;
+            try {
+                first = queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (first == null) {
+                if (closing) {
+                    return;
+                }
+                continue;
+            }
+            batches.clear();
+            batches.add(first);
+            queue.drainTo(batches, MAX_BATCH - 1);
+            try {
+                /*
+                 * Flush changes only after they are durable in journal.
+                 */
+                for (var b : batches) {
+                    b.await();
+                }
+                var retries = 0;
+                while (!flush(batches, retries > 0)) {
+                    if (closing) {
+                        return;
+                    }
+                    Thread.sleep(RETRY_MILLIS);
+                    if (++retries >= MAX_RETRIES) {
+                        if (!flushEach(batches)) {
+                            return;
+                        }
+                        break;
+                    }
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void prune(List<Batch> batches, long seq) {
+        pruneLock.writeLock().lock();
+        try {
+            for (var b : batches) {
+                for (var op : b.ops) {
+                    overlayOf(op.getType()).computeIfPresent(op.getId(),
+                                                             (k, v) -> v.seq <= seq ? null : v);
+                }
+            }
+        } finally {
+            pruneLock.writeLock().unlock();
+        }
+    }
+
+    private void quarantine(Batch batch) throws IOException {
+        if (quarantine == null) {
+            quarantine = new WriteJournal(quarantinePath());
+        }
+        quarantine.sync(quarantine.append(batch.ops));
+        synchronized (flushLock) {
+            ++quarantinedCount;
+        }
+        Loggers.getLogger(JournaledTraderDataSource.class.getCanonicalName())
+               .severe("Quarantine journal record " + batch.seq + " of " + batch.ops.size()
+                       + " changes after " + MAX_RETRIES + " failed flushes.");
+    }
+
+    private Path quarantinePath() {
+        return journalPath.resolveSibling(journalPath.getFileName() + ".quarantine");
+    }
+
+    private void replay() throws IOException, DataInsertionException {
+        var unflushed = journal.readUnflushed();
+        if (!unflushed.isEmpty()) {
+            try (var conn = ds.getConnection()) {
+                conn.transaction();
+                try {
+                    for (var ops : unflushed.values()) {
+                        for (var op : ops) {
+                            apply(conn, op, true);
+                        }
+                    }
+                    conn.commit();
+                } catch (DataException | SQLException | RuntimeException ex) {
+                    conn.rollback();
+                    throw new DataInsertionException("Fail replaying journal, " + ex.getMessage(), ex);
+                }
+            } catch (SQLException | ClassNotFoundException ex) {
+                throw new DataInsertionException("Fail replaying journal, " + ex.getMessage(), ex);
+            }
+        }
+        journal.reset();
+    }
+
+    static class Version {
+
+        private final long seq;
+        private final Object value;
+
+        Version(Object value, long seq) {
+            this.value = value;
+            this.seq = seq;
+        }
+
+        /**
+         * Object of the version, or {@code null} if it is removed.
+         *
+         * @return object.
+         */
+        Object getValue() {
+            return value;
+        }
+    }
+
+    private static class Batch {
+
+        private final CountDownLatch completed;
+        private final List<JournalOp> ops;
+        private final long seq;
+        private volatile boolean durable;
+
+        Batch(long seq, List<JournalOp> ops) {
+            this.seq = seq;
+            this.ops = ops;
+            completed = new CountDownLatch(1);
+            durable = false;
+        }
+
+        void await() throws InterruptedException {
+            completed.await();
+        }
+
+        void complete(boolean durable) {
+            this.durable = durable;
+            completed.countDown();
+        }
+    }
+}
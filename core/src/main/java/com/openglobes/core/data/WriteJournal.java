@@ -0,0 +1,233 @@
+/*
+ * Copyright (C) 2020 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.data;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal file of committed changes with a checkpoint file
+ * recording the last sequence flushed to data source.
+ * <p>
+ * Each record is a committed unit of changes framed by its length and
+ * checksum, so a torn record at the tail is detected and dropped on replay.
+ * Concurrent committers share one {@link FileChannel#force(boolean)} call.
+ *
+ * @author Hongbao Chen
+ * @since 1.0
+ */
+class WriteJournal implements AutoCloseable {
+
+    private static final long TRUNCATE_SIZE = 64L * 1024 * 1024;
+    private final FileChannel checkpointChannel;
+    private final FileChannel channel;
+    private final Object syncLock = new Object();
+    private long checkpoint;
+    private long lastSeq;
+    private volatile long syncedSeq;
+
+    WriteJournal(Path path) throws IOException {
+        Objects.requireNonNull(path);
+        channel = FileChannel.open(path,
+                                   StandardOpenOption.CREATE,
+                                   StandardOpenOption.READ,
+                                   StandardOpenOption.WRITE);
+        checkpointChannel = FileChannel.open(path.resolveSibling(path.getFileName() + ".ckpt"),
+                                             StandardOpenOption.CREATE,
+                                             StandardOpenOption.READ,
+                                             StandardOpenOption.WRITE);
+        checkpoint = readCheckpoint();
+        lastSeq = checkpoint;
+        syncedSeq = checkpoint;
+    }
+
+    /**
+     * Append a committed unit of changes. The record is not durable until
+     * {@link #sync(long)} returns.
+     *
+     * @param ops changes.
+     *
+     * @return sequence of the record.
+     *
+     * @throws IOException fail writing file.
+     */
+    synchronized long append(List<JournalOp> ops) throws IOException {
+        var seq = lastSeq + 1;
+        var bo = new ByteArrayOutputStream(1024);
+        var out = new DataOutputStream(bo);
+        out.writeLong(seq);
+        out.writeInt(ops.size());
+        for (var op : ops) {
+            op.write(out);
+        }
+        out.flush();
+        var body = bo.toByteArray();
+        var crc = new CRC32();
+        crc.update(body);
+        var buffer = ByteBuffer.allocate(body.length + 12);
+        buffer.putInt(body.length).put(body).putLong(crc.getValue()).flip();
+        var position = channel.size();
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        lastSeq = seq;
+        return seq;
+    }
+
+    /**
+     * Mark records up to the specified sequence flushed to data source. The
+     * journal file is emptied if all records are flushed and it grows too
+     * large.
+     *
+     * @param seq sequence of last flushed record.
+     *
+     * @throws IOException fail writing checkpoint.
+     */
+    synchronized void checkpoint(long seq) throws IOException {
+        if (seq <= checkpoint) {
+            return;
+        }
+        writeCheckpoint(seq);
+        checkpoint = seq;
+        if (checkpoint == lastSeq && channel.size() > TRUNCATE_SIZE) {
+            channel.truncate(0);
+            channel.force(true);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            channel.close();
+        } finally {
+            checkpointChannel.close();
+        }
+    }
+
+    synchronized long getLastSeq() {
+        return lastSeq;
+    }
+
+    /**
+     * Read records not yet flushed to data source, stopping at the first
+     * torn or corrupted record.
+     *
+     * @return map from sequence to changes, in sequence order.
+     *
+     * @throws IOException fail reading file.
+     */
+    synchronized SortedMap<Long, List<JournalOp>> readUnflushed() throws IOException {
+        var r = new TreeMap<Long, List<JournalOp>>();
+        var in = new DataInputStream(new BufferedInputStream(
+                Channels.newInputStream(channel.position(0))));
+        while (true) {
+            byte[] body;
+            long crcValue;
+            try {
+                var length = in.readInt();
+                if (length <= 0 || length > channel.size()) {
+                    break;
+                }
+                body = new byte[length];
+                in.readFully(body);
+                crcValue = in.readLong();
+            } catch (EOFException ex) {
+                break;
+            }
+            var crc = new CRC32();
+            crc.update(body);
+            if (crc.getValue() != crcValue) {
+                break;
+            }
+            var bi = new DataInputStream(new ByteArrayInputStream(body));
+            var seq = bi.readLong();
+            var count = bi.readInt();
+            var ops = new ArrayList<JournalOp>(count);
+            for (int i = 0; i < count; ++i) {
+                ops.add(JournalOp.read(bi));
+            }
+            lastSeq = Math.max(lastSeq, seq);
+            if (seq > checkpoint) {
+                r.put(seq, ops);
+            }
+        }
+        syncedSeq = lastSeq;
+        return r;
+    }
+
+    /**
+     * Empty the journal after all records are flushed to data source.
+     *
+     * @throws IOException fail writing file.
+     */
+    synchronized void reset() throws IOException {
+        writeCheckpoint(lastSeq);
+        checkpoint = lastSeq;
+        channel.truncate(0);
+        channel.force(true);
+    }
+
+    /**
+     * Wait until the record of the specified sequence is durable. Callers
+     * waiting at the same time are covered by one force.
+     *
+     * @param seq sequence of the record.
+     *
+     * @throws IOException fail forcing file.
+     */
+    void sync(long seq) throws IOException {
+        if (syncedSeq >= seq) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (syncedSeq >= seq) {
+                return;
+            }
+            var target = getLastSeq();
+            channel.force(false);
+            syncedSeq = target;
+        }
+    }
+
+    private long readCheckpoint() throws IOException {
+        var buffer = ByteBuffer.allocate(Long.BYTES);
+        var position = 0L;
+        while (buffer.hasRemaining()) {
+            var n = checkpointChannel.read(buffer, position);
+            if (n < 0) {
+                return 0L;
+            }
+            position += n;
+        }
+        return buffer.flip().getLong();
+    }
+
+    private void writeCheckpoint(long seq) throws IOException {
+        var buffer = ByteBuffer.allocate(Long.BYTES).putLong(seq).flip();
+        var position = 0L;
+        while (buffer.hasRemaining()) {
+            position += checkpointChannel.write(buffer, position);
+        }
+        checkpointChannel.force(false);
+    }
+}
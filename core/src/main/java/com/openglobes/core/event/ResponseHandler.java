@@ -18,6 +18,8 @@ package com.openglobes.core.event;
 
 import com.openglobes.core.interceptor.IInterceptorChain;
 import com.openglobes.core.interceptor.InterceptorException;
+import com.openglobes.core.trader.ILatencyMonitor;
+import com.openglobes.core.trader.LatencyStage;
 import com.openglobes.core.trader.Response;
 import com.openglobes.core.utils.Loggers;
 
@@ -30,15 +32,20 @@ import java.util.logging.Level;
 public class ResponseHandler implements IEventHandler<Response> {
 
     private final IInterceptorChain interceptors;
+    private final ILatencyMonitor latency;
 
-    public ResponseHandler(IInterceptorChain interceptors) {
+    public ResponseHandler(IInterceptorChain interceptors, ILatencyMonitor latency) {
         this.interceptors = interceptors;
+        this.latency = latency;
     }
 
     @Override
     public void handle(IEvent<Response> event) {
         try {
             var rsp = event.get();
+            if (rsp.getOrderId() != null) {
+                latency.mark(LatencyStage.RESPONSE_EVENT, rsp.getOrderId());
+            }
             interceptors.respond(Response.class, rsp);
         } catch (InterceptorException ex) {
             Loggers.getLogger(ResponseHandler.class.getCanonicalName())
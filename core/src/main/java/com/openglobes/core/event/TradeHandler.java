@@ -18,6 +18,8 @@ package com.openglobes.core.event;
 
 import com.openglobes.core.interceptor.IInterceptorChain;
 import com.openglobes.core.interceptor.InterceptorException;
+import com.openglobes.core.trader.ILatencyMonitor;
+import com.openglobes.core.trader.LatencyStage;
 import com.openglobes.core.trader.Trade;
 import com.openglobes.core.utils.Loggers;
 
@@ -30,15 +32,20 @@ import java.util.logging.Level;
 public class TradeHandler implements IEventHandler<Trade> {
 
     private final IInterceptorChain interceptors;
+    private final ILatencyMonitor latency;
 
-    public TradeHandler(IInterceptorChain interceptors) {
+    public TradeHandler(IInterceptorChain interceptors, ILatencyMonitor latency) {
         this.interceptors = interceptors;
+        this.latency = latency;
     }
 
     @Override
     public void handle(IEvent<Trade> event) {
         try {
             var rsp = event.get();
+            if (rsp.getOrderId() != null) {
+                latency.mark(LatencyStage.RESPONSE_EVENT, rsp.getOrderId());
+            }
             interceptors.respond(Trade.class, rsp);
         } catch (InterceptorException ex) {
             Loggers.getLogger(TradeHandler.class.getCanonicalName())
@@ -17,6 +17,8 @@
 package com.openglobes.core.interceptor;
 
 import com.openglobes.core.IRequestContext;
+import com.openglobes.core.trader.ActionType;
+import com.openglobes.core.trader.LatencyStage;
 import com.openglobes.core.utils.Loggers;
 
 import java.util.logging.Level;
@@ -36,6 +38,10 @@ public class LastRequestInterceptor extends AbstractRequestInterceptor<RequestIn
     public InterceptOperation onRequest(RequestInterceptingContext context,
                                         IInterceptorChain stack) {
         try {
+            var r = context.getRequest();
+            if (r.getOrderId() != null && r.getAction() == ActionType.NEW) {
+                ctx.getTraderEngine().getLatencyMonitor().mark(LatencyStage.CHAIN_REQUEST, r.getOrderId());
+            }
             ctx.getTraderEngine().request(context.getRequest(),
                                           context.getInstrument(),
                                           context.getProperties());
@@ -49,6 +49,19 @@ class Session implements ISession {
         disposed = true;
     }
 
+    @Override
+    public int cancelAll(CancelFilter filter) {
+        Objects.requireNonNull(filter);
+        var c = filter.copy();
+        var f = filter.getOrderFilter();
+        if (f == null) {
+            c.setOrderFilter(map::containsDestId);
+        } else {
+            c.setOrderFilter(orderId -> map.containsDestId(orderId) && f.test(orderId));
+        }
+        return req.getTraderEngine().cancelAll(c);
+    }
+
     @Override
     public void dispose() throws SessionException {
         check();
@@ -74,6 +87,7 @@ class Session implements ISession {
                                              UnsupportedSessionResponseException {
         try {
             Objects.requireNonNull(object);
+            markWrite(object);
             adjustSrcId(object);
             if (object instanceof Trade) {
                 rsp.getConnector().write((Trade) object);
@@ -116,8 +130,9 @@ class Session implements ISession {
             r.setOrderId(map.getSrcIdByDest(r.getOrderId()));
         } else if (object instanceof Response) {
             var r = (Response) object;
-            r.setOrderId(map.getSrcIdByDest(r.getOrderId()));
-            checkRemoveMapping(r);
+            var destId = r.getOrderId();
+            r.setOrderId(map.getSrcIdByDest(destId));
+            checkRemoveMapping(r, destId);
         } else {
             throw new UnsupportedSessionResponseException(object.getClass().getCanonicalName());
         }
@@ -129,12 +144,12 @@ class Session implements ISession {
         }
     }
 
-    private void checkRemoveMapping(Response response) {
+    private void checkRemoveMapping(Response response, Long destId) {
         switch (response.getStatus()) {
             case OrderStatus.ALL_TRADED:
             case OrderStatus.DELETED:
             case OrderStatus.REJECTED:
-                map.eraseByDestId(response.getOrderId());
+                map.eraseByDestId(destId);
                 break;
             default:
                 break;
@@ -152,6 +167,9 @@ class Session implements ISession {
             throws AcquireInformationException, ForwardRequestException {
         try {
             adjustDestId(request);
+            if (request.getAction() == ActionType.NEW) {
+                req.getTraderEngine().getLatencyMonitor().mark(LatencyStage.SESSION_REQUEST, request.getOrderId());
+            }
             req.getSharedContext().getInterceptorChain()
                .request(RequestInterceptingContext.class,
                         new RequestInterceptingContext(request,
@@ -164,6 +182,18 @@ class Session implements ISession {
         }
     }
 
+    private <T> void markWrite(T object) {
+        Long orderId = null;
+        if (object instanceof Trade) {
+            orderId = ((Trade) object).getOrderId();
+        } else if (object instanceof Response) {
+            orderId = ((Response) object).getOrderId();
+        }
+        if (orderId != null) {
+            req.getTraderEngine().getLatencyMonitor().mark(LatencyStage.CONNECTOR_WRITE, orderId);
+        }
+    }
+
     private Instrument getInstrument(String instrumentId) throws AcquireInformationException {
         var ds = req.getTraderEngine().getDataSource();
         try (var conn = ds.getConnection()) {
@@ -189,6 +219,10 @@ class Session implements ISession {
             toSrc.put(destId, srcId);
         }
 
+        public boolean containsDestId(long destId) {
+            return toSrc.containsKey(destId);
+        }
+
         public void eraseByDestId(Long destId) {
             var srcId = getSrcIdByDest(destId);
             toDest.remove(srcId);
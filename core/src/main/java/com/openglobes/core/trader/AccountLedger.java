@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2020 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.trader;
+
+import java.util.Objects;
+
+/**
+ * Live account ledger maintained incrementally by freeze, deal and unfreeze
+ * transitions, so pre-trade money check doesn't need to recompute account
+ * from data source.
+ * <p>
+ * Position profit is evaluated with settlement prices and can't be tracked
+ * incrementally. It is kept as the value of last reset and refreshed by
+ * reconciliation.
+ *
+ * @author Hongbao Chen
+ * @since 1.0
+ */
+class AccountLedger {
+
+    private double closeProfit;
+    private double commission;
+    private double deposit;
+    private double frozenCommission;
+    private double frozenMargin;
+    private double margin;
+    private double positionProfit;
+    private double preBalance;
+    private boolean ready;
+    private double withdraw;
+
+    AccountLedger() {
+        ready = false;
+    }
+
+    synchronized void apply(Change change) {
+        Objects.requireNonNull(change);
+        if (!ready) {
+            /*
+             * Changes before reset are in data source and counted by reset.
+             */
+            return;
+        }
+        frozenMargin += change.frozenMargin;
+        frozenCommission += change.frozenCommission;
+        margin += change.margin;
+        commission += change.commission;
+        closeProfit += change.closeProfit;
+    }
+
+    synchronized boolean freeze(double margin, double commission) {
+        if (getAvailable() < margin + commission) {
+            return false;
+        }
+        frozenMargin += margin;
+        frozenCommission += commission;
+        return true;
+    }
+
+    synchronized void freezeCommission(double commission) {
+        if (!ready) {
+            return;
+        }
+        frozenCommission += commission;
+    }
+
+    synchronized double getAvailable() {
+        var balance = preBalance + deposit - withdraw + closeProfit + positionProfit - commission;
+        return balance - margin - frozenMargin - frozenCommission;
+    }
+
+    synchronized void invalidate() {
+        ready = false;
+    }
+
+    synchronized boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Compare the incrementally maintained values with the account
+     * recomputed from data source, and reset ledger to the account.
+     *
+     * @param account   account recomputed from data source.
+     * @param tolerance max absolute difference that is not a drift.
+     *
+     * @return description of the drifted fields, or {@code null} if no drift.
+     */
+    synchronized String reconcile(Account account, double tolerance) {
+        Objects.requireNonNull(account);
+        String r = null;
+        if (ready) {
+            var sb = new StringBuilder();
+            appendDrift(sb, "frozenMargin", frozenMargin, account.getFrozenMargin(), tolerance);
+            appendDrift(sb, "frozenCommission", frozenCommission, account.getFrozenCommission(), tolerance);
+            appendDrift(sb, "margin", margin, account.getMargin(), tolerance);
+            appendDrift(sb, "commission", commission, account.getCommission(), tolerance);
+            appendDrift(sb, "closeProfit", closeProfit, account.getCloseProfit(), tolerance);
+            if (sb.length() > 0) {
+                r = sb.toString();
+            }
+        }
+        reset(account);
+        return r;
+    }
+
+    synchronized void reset(Account account) {
+        Objects.requireNonNull(account);
+        preBalance = valueOf(account.getPreBalance());
+        deposit = valueOf(account.getDeposit());
+        withdraw = valueOf(account.getWithdraw());
+        closeProfit = valueOf(account.getCloseProfit());
+        positionProfit = valueOf(account.getPositionProfit());
+        commission = valueOf(account.getCommission());
+        frozenCommission = valueOf(account.getFrozenCommission());
+        margin = valueOf(account.getMargin());
+        frozenMargin = valueOf(account.getFrozenMargin());
+        ready = true;
+    }
+
+    synchronized void unfreeze(double margin, double commission) {
+        frozenMargin -= margin;
+        frozenCommission -= commission;
+    }
+
+    private void appendDrift(StringBuilder sb, String name, double ledger, Double account, double tolerance) {
+        var v = valueOf(account);
+        if (Math.abs(ledger - v) > tolerance) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(name).append(':').append(ledger).append("!=").append(v);
+        }
+    }
+
+    private double valueOf(Double v) {
+        return v == null ? 0.0D : v;
+    }
+
+    /**
+     * Changes collected in a data source transaction, and applied to the
+     * ledger after the transaction commits.
+     */
+    static class Change {
+
+        private double closeProfit;
+        private double commission;
+        private double frozenCommission;
+        private double frozenMargin;
+        private double margin;
+
+        Change() {
+        }
+
+        void dealClose(double margin, double commission, double closeProfit) {
+            this.frozenCommission -= commission;
+            this.commission += commission;
+            this.margin -= margin;
+            this.closeProfit += closeProfit;
+        }
+
+        void dealOpen(double margin, double commission) {
+            this.frozenMargin -= margin;
+            this.margin += margin;
+            this.frozenCommission -= commission;
+            this.commission += commission;
+        }
+
+        void unfreeze(double margin, double commission) {
+            this.frozenMargin -= margin;
+            this.frozenCommission -= commission;
+        }
+    }
+}
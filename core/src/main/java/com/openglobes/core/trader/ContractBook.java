@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2020 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.trader;
+
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index of OPEN contracts keyed by instrument, direction, trader and open
+ * trading day, each queue in FIFO order of open timestamp.
+ * <p>
+ * Book of an instrument is only accessed under the shard lock of the
+ * instrument. If a change to data source fails, unload the instrument and
+ * the book is reloaded from data source on next use.
+ *
+ * @author Hongbao Chen
+ * @since 1.0
+ */
+class ContractBook {
+
+    private static final Comparator<Contract> FIFO = Comparator.comparing(Contract::getOpenTimestamp,
+                                                                          Comparator.nullsFirst(
+                                                                                  ZonedDateTime::compareTo));
+    private final Map<String, InstrumentBook> books;
+
+    ContractBook() {
+        books = new ConcurrentHashMap<>(512);
+    }
+
+    /**
+     * Add contract that turns OPEN. It is ignored if the instrument is not
+     * loaded because loading reads it from data source.
+     *
+     * @param contract OPEN contract.
+     */
+    void add(Contract contract) {
+        var b = books.get(contract.getInstrumentId());
+        if (b != null) {
+            b.add(contract);
+        }
+    }
+
+    void clear() {
+        books.clear();
+    }
+
+    int count(String instrumentId, Integer direction) {
+        var b = books.get(instrumentId);
+        return b == null ? 0 : b.count(direction);
+    }
+
+    boolean isLoaded(String instrumentId) {
+        return books.containsKey(instrumentId);
+    }
+
+    void load(String instrumentId, Collection<Contract> contracts) {
+        var b = new InstrumentBook();
+        var sorted = new ArrayList<Contract>(contracts.size());
+        for (var c : contracts) {
+            if (c.getStatus() == ContractStatus.OPEN) {
+                sorted.add(c);
+            }
+        }
+        sorted.sort(FIFO);
+        for (var c : sorted) {
+            b.add(c);
+        }
+        books.put(instrumentId, b);
+    }
+
+    /**
+     * Remove and return the earliest opened contracts of the specified
+     * direction. Nothing is removed if there are not enough contracts.
+     *
+     * @param instrumentId instrument ID.
+     * @param direction    direction of the contracts.
+     * @param quantity     number of contracts.
+     *
+     * @return contracts in FIFO order, or {@code null} if there are not enough
+     *         contracts.
+     */
+    List<Contract> take(String instrumentId, Integer direction, int quantity) {
+        var b = books.get(instrumentId);
+        if (b == null) {
+            throw new IllegalStateException("Instrument not loaded: " + instrumentId + ".");
+        }
+        return b.take(direction, quantity);
+    }
+
+    void unload(String instrumentId) {
+        books.remove(instrumentId);
+    }
+
+    private static class InstrumentBook {
+
+        private final Map<Key, ArrayDeque<Contract>> queues = new HashMap<>(16);
+        private int buyCount = 0;
+        private int sellCount = 0;
+
+        void add(Contract contract) {
+            var q = queues.computeIfAbsent(new Key(contract),
+                                           k -> new ArrayDeque<>(64));
+            var last = q.peekLast();
+            if (last == null || FIFO.compare(last, contract) <= 0) {
+                q.addLast(contract);
+            } else {
+                /*
+                 * Contract reopened after its close is canceled, insert it
+                 * back at its position.
+                 */
+                var a = new ArrayList<Contract>(q);
+                a.add(contract);
+                a.sort(FIFO);
+                q.clear();
+                q.addAll(a);
+            }
+            if (contract.getDirection() == Direction.BUY) {
+                ++buyCount;
+            } else {
+                ++sellCount;
+            }
+        }
+
+        int count(Integer direction) {
+            return direction == Direction.BUY ? buyCount : sellCount;
+        }
+
+        List<Contract> take(Integer direction, int quantity) {
+            if (count(direction) < quantity) {
+                return null;
+            }
+            var r = new ArrayList<Contract>(quantity);
+            while (r.size() < quantity) {
+                /*
+                 * Merge queues of the same direction by open timestamp.
+                 */
+                ArrayDeque<Contract> earliest = null;
+                for (var e : queues.entrySet()) {
+                    if (!Objects.equals(e.getKey().direction, direction)) {
+                        continue;
+                    }
+                    var h = e.getValue().peekFirst();
+                    if (h != null && (earliest == null || FIFO.compare(h, earliest.peekFirst()) < 0)) {
+                        earliest = e.getValue();
+                    }
+                }
+                if (earliest == null) {
+                    throw new IllegalStateException("Contract count mismatch.");
+                }
+                r.add(earliest.pollFirst());
+            }
+            if (direction == Direction.BUY) {
+                buyCount -= quantity;
+            } else {
+                sellCount -= quantity;
+            }
+            return r;
+        }
+    }
+
+    private static class Key {
+
+        private final Integer direction;
+        private final LocalDate openTradingDay;
+        private final Integer traderId;
+
+        Key(Contract contract) {
+            direction = contract.getDirection();
+            traderId = contract.getTraderId();
+            openTradingDay = contract.getOpenTradingDay();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            var k = (Key) o;
+            return Objects.equals(direction, k.direction)
+                   && Objects.equals(traderId, k.traderId)
+                   && Objects.equals(openTradingDay, k.openTradingDay);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(direction, traderId, openTradingDay);
+        }
+    }
+}
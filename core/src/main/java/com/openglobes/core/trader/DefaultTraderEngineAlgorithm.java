@@ -18,6 +18,9 @@ package com.openglobes.core.trader;
 
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * Algorithm implemetation.
@@ -27,10 +30,23 @@ import java.util.*;
  */
 public class DefaultTraderEngineAlgorithm implements ITraderEngineAlgorithm {
 
+    /**
+     * Number of contracts from which positions are summed in parallel by
+     * default.
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 10000;
+    /**
+     * Property key of the number of contracts from which positions are summed
+     * in parallel.
+     */
+    public static final String PARALLEL_THRESHOLD_KEY = "Algorithm.ParallelThreshold";
+
+    private final Map<String, InstrumentFees> fees;
     private final Properties props;
 
     public DefaultTraderEngineAlgorithm() {
         props = new Properties();
+        fees = new ConcurrentHashMap<>(512);
     }
 
     @Override
@@ -94,10 +110,7 @@ public class DefaultTraderEngineAlgorithm implements ITraderEngineAlgorithm {
 
     @Override
     public double getAmount(double price, Instrument instrument) {
-        Objects.requireNonNull(instrument, instrument.getInstrumentId());
-        var multiple = instrument.getMultiple();
-        Objects.requireNonNull(multiple, instrument.getInstrumentId() + " multiple.");
-        return price * multiple;
+        return getFees(instrument).getAmount(price);
     }
 
     @Override
@@ -134,17 +147,7 @@ public class DefaultTraderEngineAlgorithm implements ITraderEngineAlgorithm {
 
     @Override
     public double getMargin(double price, Instrument instrument) {
-        Objects.requireNonNull(instrument, instrument.getInstrumentId());
-        var type = instrument.getMarginType();
-        Objects.requireNonNull(type, instrument.getInstrumentId() + " margin type.");
-        var ratio = instrument.getMarginRatio();
-        Objects.requireNonNull(ratio, instrument.getInstrumentId() + " margin ratio.");
-        if (type == RatioType.BY_MONEY) {
-            double m = getAmount(price, instrument);
-            return m * ratio;
-        } else {
-            return ratio;
-        }
+        return getFees(instrument).getMargin(price);
     }
 
     @Override
@@ -186,8 +189,6 @@ public class DefaultTraderEngineAlgorithm implements ITraderEngineAlgorithm {
                    IllegalContractStatusException, InvalidFeeStatusException,
                    InvalidCommissionException {
         Objects.requireNonNull(contracts);
-        final var lp = new HashMap<String, Position>(64);
-        final var sp = new HashMap<String, Position>(64);
         /*
          * Store margins/commissions in map for constant access time.
          */
@@ -200,18 +201,48 @@ public class DefaultTraderEngineAlgorithm implements ITraderEngineAlgorithm {
             var s = cmap.computeIfAbsent(c.getContractId(), k -> new HashSet<>(2));
             s.add(c);
         });
+        if (contracts.size() >= getParallelThreshold()) {
+            var r = getPositionsParallel(contracts, map, cmap, prices, instruments, tradingDay);
+            if (r != null) {
+                return r;
+            }
+        }
+        final var sums = new HashMap<String, PositionSum[]>(64);
+        addContracts(sums, contracts, map, cmap, prices, instruments, tradingDay);
+        return toPositions(List.of(sums));
+    }
 
+    @Override
+    public void setProperties(Properties properties) {
+        props.clear();
+        props.putAll(properties);
+    }
+
+    private void addContracts(Map<String, PositionSum[]> sums,
+                              Collection<Contract> contracts,
+                              Map<Long, Margin> map,
+                              Map<Long, Set<Commission>> cmap,
+                              Map<String, SettlementPrice> prices,
+                              Map<String, Instrument> instruments,
+                              LocalDate tradingDay)
+            throws InvalidContractDirectionException, IllegalInstrumentIdException,
+                   InvalidContractIdException, MarginNotFoundException,
+                   SettlementNotFoundException, InvalidSettlementPriceException,
+                   InstrumentNotFoundException, InvalidContractStatusException,
+                   IllegalContractStatusException, InvalidFeeStatusException,
+                   InvalidCommissionException {
         for (var c : contracts) {
-            Position p;
+            PositionSum p;
             var direction = c.getDirection();
             if (direction == null) {
                 throw new InvalidContractDirectionException(c.getInstrumentId());
             }
-            if (direction == Direction.BUY) {
-                p = lp.computeIfAbsent(c.getInstrumentId(), k -> initPosition(c, tradingDay));
-            } else {
-                p = sp.computeIfAbsent(c.getInstrumentId(), k -> initPosition(c, tradingDay));
+            var pair = sums.computeIfAbsent(c.getInstrumentId(), k -> new PositionSum[2]);
+            var i = direction == Direction.BUY ? 0 : 1;
+            if (pair[i] == null) {
+                pair[i] = new PositionSum(c, tradingDay);
             }
+            p = pair[i];
             var id = c.getInstrumentId();
             if (id.isBlank()) {
                 throw new IllegalInstrumentIdException("Empty string.");
@@ -240,98 +271,111 @@ public class DefaultTraderEngineAlgorithm implements ITraderEngineAlgorithm {
                                  instrument);
             }
         }
-        var r = new HashSet<Position>(lp.values());
-        r.addAll(sp.values());
-        return r;
     }
 
-    @Override
-    public void setProperties(Properties properties) {
-        props.clear();
-        props.putAll(properties);
+    private int getParallelThreshold() {
+        var v = props.getProperty(PARALLEL_THRESHOLD_KEY);
+        if (v == null) {
+            return DEFAULT_PARALLEL_THRESHOLD;
+        }
+        try {
+            return Integer.parseInt(v.trim());
+        } catch (NumberFormatException ex) {
+            return DEFAULT_PARALLEL_THRESHOLD;
+        }
+    }
+
+    /**
+     * Sum contracts of each instrument in a fork/join task. Contracts of an
+     * instrument are summed in the same order as the serial path, so sums are
+     * bit-identical to it.
+     *
+     * @return positions, or {@code null} if any contract fails so the serial
+     * path throws the same exception on the same contract.
+     */
+    private Collection<Position> getPositionsParallel(Collection<Contract> contracts,
+                                                      Map<Long, Margin> map,
+                                                      Map<Long, Set<Commission>> cmap,
+                                                      Map<String, SettlementPrice> prices,
+                                                      Map<String, Instrument> instruments,
+                                                      LocalDate tradingDay) {
+        final var groups = new LinkedHashMap<String, List<Contract>>(64);
+        for (var c : contracts) {
+            groups.computeIfAbsent(c.getInstrumentId(), k -> new ArrayList<>(64)).add(c);
+        }
+        final var tasks = new ArrayList<ForkJoinTask<Map<String, PositionSum[]>>>(groups.size());
+        for (var g : groups.values()) {
+            tasks.add(ForkJoinPool.commonPool().submit(() -> {
+                var sums = new HashMap<String, PositionSum[]>(2);
+                addContracts(sums, g, map, cmap, prices, instruments, tradingDay);
+                return sums;
+            }));
+        }
+        final var results = new ArrayList<Map<String, PositionSum[]>>(tasks.size());
+        var failed = false;
+        for (var t : tasks) {
+            try {
+                results.add(t.join());
+            } catch (RuntimeException ex) {
+                failed = true;
+            }
+        }
+        return failed ? null : toPositions(results);
     }
 
-    private void addClosedContract(Position p,
+    private Collection<Position> toPositions(Collection<Map<String, PositionSum[]>> sums) {
+        var r = new HashSet<Position>(64);
+        for (var m : sums) {
+            for (var pair : m.values()) {
+                for (var p : pair) {
+                    if (p != null) {
+                        r.add(p.toPosition());
+                    }
+                }
+            }
+        }
+        return r;
+    }
+
+    private void addClosedContract(PositionSum p,
                                    Contract c,
                                    Collection<Commission> commissions) throws InvalidCommissionException {
-        var closeProfit = getProperProfit(c.getOpenAmount(),
-                                          c.getCloseAmount(),
-                                          c.getDirection());
-        if (p.getCloseProfit() == null) {
-            p.setCloseProfit(closeProfit);
-        } else {
-            p.setCloseProfit(p.getCloseProfit() + closeProfit);
-        }
-        var commission = getProperCommission(c.getContractId(),
-                                             commissions,
-                                             FeeStatus.DEALED);
-        if (p.getCommission() == null) {
-            p.setCommission(commission);
-        } else {
-            p.setCommission(p.getCommission() + commission);
-        }
+        p.closeProfit += getProperProfit(c.getOpenAmount(),
+                                         c.getCloseAmount(),
+                                         c.getDirection());
+        p.commission += getProperCommission(c.getContractId(),
+                                            commissions,
+                                            FeeStatus.DEALED);
     }
 
-    private void addClosingContract(Position p,
+    private void addClosingContract(PositionSum p,
                                     Contract c,
                                     Collection<Commission> commissions,
                                     Margin margin,
                                     Double price,
                                     Instrument instrument)
             throws InvalidCommissionException, InvalidContractStatusException, InvalidFeeStatusException {
-        if (p.getAmount() == null) {
-            p.setAmount(c.getOpenAmount());
-        } else {
-            p.setAmount(p.getAmount() + c.getOpenAmount());
-        }
-        Double commission = getProperCommission(c.getContractId(),
-                                                commissions,
-                                                FeeStatus.DEALED);
-        Double frozenCommission = getProperCommission(c.getContractId(),
-                                                      commissions,
-                                                      FeeStatus.FORZEN);
-        if (p.getCommission() == null) {
-            p.setCommission(commission);
-        } else {
-            p.setCommission(p.getCommission() + commission);
-        }
-        if (p.getFrozenCommission() == null) {
-            p.setFrozenCommission(frozenCommission);
-        } else {
-            p.setFrozenCommission(p.getFrozenCommission() + frozenCommission);
-        }
-        Long frozenCloseVolumn = getProperVolumn(c.getStatus(), ContractStatus.CLOSING);
-        var volumn = frozenCloseVolumn;
-        if (p.getVolumn() == null) {
-            p.setVolumn(volumn);
-        } else {
-            p.setVolumn(p.getVolumn() + volumn);
-        }
-        if (p.getFrozenCloseVolumn() == null) {
-            p.setFrozenCloseVolumn(frozenCloseVolumn);
-        } else {
-            p.setFrozenCloseVolumn(p.getFrozenCloseVolumn() + frozenCloseVolumn);
-        }
-        Double m = getProperMargin(c.getContractId(),
-                                   margin,
-                                   FeeStatus.DEALED);
-        if (p.getMargin() == null) {
-            p.setMargin(m);
-        } else {
-            p.setMargin(p.getMargin() + m);
-        }
-        Double pprofit = getProperPositionProfit(c,
-                                                 price,
-                                                 instrument);
-        if (p.getPositionProfit() == null) {
-            p.setPositionProfit(pprofit);
-        } else {
-            p.setPositionProfit(p.getPositionProfit() + pprofit);
-        }
-
-    }
-
-    private void addOpenContract(Position p,
+        p.amount += c.getOpenAmount();
+        var commission = getProperCommission(c.getContractId(),
+                                             commissions,
+                                             FeeStatus.DEALED);
+        var frozenCommission = getProperCommission(c.getContractId(),
+                                                   commissions,
+                                                   FeeStatus.FORZEN);
+        p.commission += commission;
+        p.frozenCommission += frozenCommission;
+        var frozenCloseVolumn = getProperVolumn(c.getStatus(), ContractStatus.CLOSING);
+        p.volumn += frozenCloseVolumn;
+        p.frozenCloseVolumn += frozenCloseVolumn;
+        p.margin += getProperMargin(c.getContractId(),
+                                    margin,
+                                    FeeStatus.DEALED);
+        p.positionProfit += getProperPositionProfit(c,
+                                                    price,
+                                                    instrument);
+    }
+
+    private void addOpenContract(PositionSum p,
                                  Contract c,
                                  Collection<Commission> commissions,
                                  Margin margin,
@@ -339,92 +383,41 @@ public class DefaultTraderEngineAlgorithm implements ITraderEngineAlgorithm {
                                  Instrument instrument)
             throws InvalidCommissionException, InvalidContractStatusException,
                    InvalidFeeStatusException {
-        if (p.getAmount() == null) {
-            p.setAmount(c.getOpenAmount());
-        } else {
-            p.setAmount(p.getAmount() + c.getOpenAmount());
-        }
-        Double commission = getProperCommission(c.getContractId(),
-                                                commissions,
-                                                FeeStatus.DEALED);
-        if (p.getCommission() == null) {
-            p.setCommission(commission);
-        } else {
-            p.setCommission(p.getCommission() + commission);
-        }
-        Long volumn = getProperVolumn(c.getStatus(), ContractStatus.OPEN);
-        if (p.getVolumn() == null) {
-            p.setVolumn(volumn);
-        } else {
-            p.setVolumn(p.getVolumn() + volumn);
-        }
-        Double m = getProperMargin(c.getContractId(),
-                                   margin,
-                                   FeeStatus.DEALED);
-        if (p.getMargin() == null) {
-            p.setMargin(m);
-        } else {
-            p.setMargin(p.getMargin() + m);
-        }
-        Double pprofit = getProperPositionProfit(c,
-                                                 price,
-                                                 instrument);
-        if (p.getPositionProfit() == null) {
-            p.setPositionProfit(pprofit);
-        } else {
-            p.setPositionProfit(p.getPositionProfit() + pprofit);
-        }
-    }
-
-    private void addOpeningContract(Position p,
+        p.amount += c.getOpenAmount();
+        p.commission += getProperCommission(c.getContractId(),
+                                            commissions,
+                                            FeeStatus.DEALED);
+        p.volumn += getProperVolumn(c.getStatus(), ContractStatus.OPEN);
+        p.margin += getProperMargin(c.getContractId(),
+                                    margin,
+                                    FeeStatus.DEALED);
+        p.positionProfit += getProperPositionProfit(c,
+                                                    price,
+                                                    instrument);
+    }
+
+    private void addOpeningContract(PositionSum p,
                                     Contract c,
                                     Collection<Commission> commissions,
                                     Margin margin)
             throws InvalidCommissionException, InvalidContractStatusException,
                    InvalidFeeStatusException {
-        Double frozenCommission = getProperCommission(c.getContractId(),
-                                                      commissions,
-                                                      FeeStatus.FORZEN);
-        if (p.getFrozenCommission() == null) {
-            p.setFrozenCommission(frozenCommission);
-        } else {
-            p.setFrozenCommission(p.getFrozenCommission() + frozenCommission);
-        }
-        Long frozenOpenVolumn = getProperVolumn(c.getStatus(), ContractStatus.OPENING);
-        if (p.getFrozenOpenVolumn() == null) {
-            p.setFrozenOpenVolumn(frozenOpenVolumn);
-        } else {
-            p.setFrozenOpenVolumn(p.getFrozenOpenVolumn() + frozenOpenVolumn);
-        }
-        Double frozenMargin = getProperMargin(c.getContractId(),
-                                              margin,
-                                              FeeStatus.FORZEN);
-        if (p.getFrozenMargin() == null) {
-            p.setFrozenMargin(frozenMargin);
-        } else {
-            p.setFrozenMargin(p.getFrozenMargin() + frozenMargin);
-        }
+        p.frozenCommission += getProperCommission(c.getContractId(),
+                                                  commissions,
+                                                  FeeStatus.FORZEN);
+        p.frozenOpenVolumn += getProperVolumn(c.getStatus(), ContractStatus.OPENING);
+        p.frozenMargin += getProperMargin(c.getContractId(),
+                                          margin,
+                                          FeeStatus.FORZEN);
     }
 
-    private void addPreContract(Position p, Contract c, Margin margin) {
-        if (p.getPreAmount() == null) {
-            p.setPreAmount(c.getOpenAmount());
-        } else {
-            p.setPreAmount(p.getPreAmount() + c.getOpenAmount());
-        }
-        if (p.getPreVolumn() == null) {
-            p.setPreVolumn(1L);
-        } else {
-            p.setPreVolumn(p.getPreVolumn() + 1L);
-        }
-        if (p.getPreMargin() == null) {
-            p.setPreMargin(margin.getMargin());
-        } else {
-            p.setPreMargin(p.getPreMargin() + margin.getMargin());
-        }
+    private void addPreContract(PositionSum p, Contract c, Margin margin) {
+        p.preAmount += c.getOpenAmount();
+        p.preVolumn += 1L;
+        p.preMargin += margin.getMargin();
     }
 
-    private void addPrePosition(Position p,
+    private void addPrePosition(PositionSum p,
                                 Contract c,
                                 Collection<Commission> commissions,
                                 Margin margin,
@@ -466,50 +459,24 @@ public class DefaultTraderEngineAlgorithm implements ITraderEngineAlgorithm {
                        margin);
     }
 
-    private void addTodayContract(Position p, Contract c, Margin margin)
+    private void addTodayContract(PositionSum p, Contract c, Margin margin)
             throws InvalidFeeStatusException, InvalidContractStatusException {
-        if (p.getTodayAmount() == null) {
-            p.setTodayAmount(c.getOpenAmount());
-        } else {
-            p.setTodayAmount(p.getTodayAmount() + c.getOpenAmount());
-        }
-        var volumn = getProperVolumn(c.getStatus(),
-                                     ContractStatus.OPEN,
-                                     ContractStatus.CLOSING);
-        if (p.getTodayVolumn() == null) {
-            p.setTodayVolumn(volumn);
-        } else {
-            p.setTodayVolumn(p.getTodayVolumn() + volumn);
-        }
-        var m = getProperMargin(c.getContractId(),
-                                margin,
-                                FeeStatus.DEALED);
-        if (p.getTodayMargin() == null) {
-            p.setTodayMargin(m);
-        } else {
-            p.setTodayMargin(p.getTodayMargin() + m);
-        }
+        p.todayAmount += c.getOpenAmount();
+        p.todayVolumn += getProperVolumn(c.getStatus(),
+                                         ContractStatus.OPEN,
+                                         ContractStatus.CLOSING);
+        p.todayMargin += getProperMargin(c.getContractId(),
+                                         margin,
+                                         FeeStatus.DEALED);
     }
 
-    private void addTodayOpenContract(Position p, Contract c, Margin margin) {
-        if (p.getTodayOpenAmount() == null) {
-            p.setTodayOpenAmount(c.getOpenAmount());
-        } else {
-            p.setTodayOpenAmount(p.getTodayOpenAmount() + c.getOpenAmount());
-        }
-        if (p.getTodayOpenVolumn() == null) {
-            p.setTodayOpenVolumn(1L);
-        } else {
-            p.setTodayOpenVolumn(p.getTodayOpenVolumn() + 1L);
-        }
-        if (p.getTodayOpenMargin() == null) {
-            p.setTodayOpenMargin(margin.getMargin());
-        } else {
-            p.setTodayOpenMargin(p.getTodayOpenMargin() + margin.getMargin());
-        }
+    private void addTodayOpenContract(PositionSum p, Contract c, Margin margin) {
+        p.todayOpenAmount += c.getOpenAmount();
+        p.todayOpenVolumn += 1L;
+        p.todayOpenMargin += margin.getMargin();
     }
 
-    private void addTodayPosition(Position p,
+    private void addTodayPosition(PositionSum p,
                                   Contract c,
                                   Collection<Commission> commissions,
                                   Margin margin,
@@ -611,18 +578,31 @@ public class DefaultTraderEngineAlgorithm implements ITraderEngineAlgorithm {
 
     private double getCommission(double price, Instrument instrument, Integer offset)
             throws InvalidRequestOffsetException {
-        Objects.requireNonNull(instrument,
-                               instrument.getInstrumentId());
-        var ctype = instrument.getCommissionType();
-        Objects.requireNonNull(ctype, instrument.getInstrumentId() + " commission type.");
-        var ratio = getProperCommissionRatio(instrument, offset);
-        Objects.requireNonNull(ratio, instrument.getInstrumentId() + " commission ratio.");
-        if (ctype == RatioType.BY_MONEY) {
-            double m = getAmount(price, instrument);
-            return m * ratio;
-        } else {
-            return ratio;
+        return getFees(instrument).getCommission(price, offset);
+    }
+
+    /**
+     * Get calculator of the instrument. It is built when the instrument is
+     * loaded, or on the first call or when fees of the instrument change.
+     *
+     * @param instrument instrument.
+     *
+     * @return fee calculator.
+     */
+    private InstrumentFees getFees(Instrument instrument) {
+        Objects.requireNonNull(instrument, "Instrument null ptr.");
+        var f = fees.get(instrument.getInstrumentId());
+        if (f == null || !f.isOf(instrument)) {
+            f = new InstrumentFees(instrument);
+            fees.put(instrument.getInstrumentId(), f);
         }
+        return f;
+    }
+
+    @Override
+    public void loadInstrument(Instrument instrument) {
+        Objects.requireNonNull(instrument, "Instrument null ptr.");
+        fees.put(instrument.getInstrumentId(), new InstrumentFees(instrument));
     }
 
     private void setOrderStatus(Order order) throws QuantityOverflowException {
@@ -661,23 +641,6 @@ public class DefaultTraderEngineAlgorithm implements ITraderEngineAlgorithm {
         return v;
     }
 
-    private Double getProperCommissionRatio(Instrument instrument, Integer offset)
-            throws InvalidRequestOffsetException {
-        Objects.requireNonNull(instrument, instrument.getInstrumentId());
-        if (offset == Offset.OPEN) {
-            return instrument.getCommissionOpenRatio();
-        } else {
-            switch (offset) {
-                case Offset.CLOSE_YD:
-                    return instrument.getCommissionCloseYdRatio();
-                case Offset.CLOSE_TODAY:
-                    return instrument.getCommissionCloseTodayRatio();
-                default:
-                    throw new InvalidRequestOffsetException("Can't handle offset " + offset + ".");
-            }
-        }
-    }
-
     private double getProperDeposit(Collection<Deposit> deposits) throws InvalidAmountException {
         Objects.requireNonNull(deposits);
         double deposit = 0D;
@@ -758,33 +721,6 @@ public class DefaultTraderEngineAlgorithm implements ITraderEngineAlgorithm {
         return r;
     }
 
-    private Position initPosition(Contract c, LocalDate tradingDay) {
-        var p0 = new Position();
-        p0.setAmount(0.0D);
-        p0.setCloseProfit(0.0D);
-        p0.setFrozenCloseVolumn(0L);
-        p0.setFrozenMargin(0.0D);
-        p0.setFrozenOpenVolumn(0L);
-        p0.setInstrumentId(c.getInstrumentId());
-        p0.setMargin(0.0D);
-        p0.setPositionProfit(0.0D);
-        p0.setCommission(0.0D);
-        p0.setFrozenCommission(0.0D);
-        p0.setPreAmount(0.0D);
-        p0.setPreMargin(0.0D);
-        p0.setPreVolumn(0L);
-        p0.setTodayAmount(0.0D);
-        p0.setTodayOpenAmount(0.0D);
-        p0.setTodayMargin(0.0D);
-        p0.setTodayOpenMargin(0.0D);
-        p0.setTodayVolumn(0L);
-        p0.setTodayOpenVolumn(0L);
-        p0.setTradingDay(tradingDay);
-        p0.setDirection(c.getDirection());
-        p0.setVolumn(0L);
-        return p0;
-    }
-
     private void requireNotNulls(Object... values) {
         for (var v : values) {
             if (v == null) {
@@ -870,4 +806,67 @@ public class DefaultTraderEngineAlgorithm implements ITraderEngineAlgorithm {
         order.setAmount(amount);
         order.setTradedVolumn(volumn);
     }
+
+    /**
+     * Running sums of a position in primitive fields, and turned into
+     * {@link Position} after all contracts are added.
+     */
+    private static class PositionSum {
+
+        private final Integer direction;
+        private final String instrumentId;
+        private final LocalDate tradingDay;
+        private double amount;
+        private double closeProfit;
+        private double commission;
+        private long frozenCloseVolumn;
+        private double frozenCommission;
+        private double frozenMargin;
+        private long frozenOpenVolumn;
+        private double margin;
+        private double positionProfit;
+        private double preAmount;
+        private double preMargin;
+        private long preVolumn;
+        private double todayAmount;
+        private double todayMargin;
+        private double todayOpenAmount;
+        private double todayOpenMargin;
+        private long todayOpenVolumn;
+        private long todayVolumn;
+        private long volumn;
+
+        PositionSum(Contract c, LocalDate tradingDay) {
+            this.direction = c.getDirection();
+            this.instrumentId = c.getInstrumentId();
+            this.tradingDay = tradingDay;
+        }
+
+        Position toPosition() {
+            var p0 = new Position();
+            p0.setAmount(amount);
+            p0.setCloseProfit(closeProfit);
+            p0.setFrozenCloseVolumn(frozenCloseVolumn);
+            p0.setFrozenMargin(frozenMargin);
+            p0.setFrozenOpenVolumn(frozenOpenVolumn);
+            p0.setInstrumentId(instrumentId);
+            p0.setMargin(margin);
+            p0.setPositionProfit(positionProfit);
+            p0.setCommission(commission);
+            p0.setFrozenCommission(frozenCommission);
+            p0.setPreAmount(preAmount);
+            p0.setPreMargin(preMargin);
+            p0.setPreVolumn(preVolumn);
+            p0.setTodayAmount(todayAmount);
+            p0.setTodayOpenAmount(todayOpenAmount);
+            p0.setTodayMargin(todayMargin);
+            p0.setTodayOpenMargin(todayOpenMargin);
+            p0.setTodayVolumn(todayVolumn);
+            p0.setTodayOpenVolumn(todayOpenVolumn);
+            p0.setTradingDay(tradingDay);
+            p0.setDirection(direction);
+            p0.setVolumn(volumn);
+            return p0;
+        }
+    }
 }
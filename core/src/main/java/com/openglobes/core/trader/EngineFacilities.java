@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2021 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.trader;
+
+import java.util.Objects;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Engine internals shared with gateway handlers. Engine gives them to the
+ * handler when it registers the gateway, so callbacks don't reach into the
+ * engine.
+ *
+ * @author Hongbao Chen
+ * @since 1.0
+ */
+class EngineFacilities {
+
+    private final ContractBook book;
+    private final FrozenRegistry frozen;
+    private final AccountLedger ledger;
+    private final Publisher publisher;
+    private final OrderShards shards;
+
+    EngineFacilities(ContractBook book,
+                     FrozenRegistry frozen,
+                     AccountLedger ledger,
+                     OrderShards shards,
+                     Publisher publisher) {
+        this.book = Objects.requireNonNull(book);
+        this.frozen = Objects.requireNonNull(frozen);
+        this.ledger = Objects.requireNonNull(ledger);
+        this.shards = Objects.requireNonNull(shards);
+        this.publisher = Objects.requireNonNull(publisher);
+    }
+
+    ContractBook getContractBook() {
+        return book;
+    }
+
+    FrozenRegistry getFrozenRegistry() {
+        return frozen;
+    }
+
+    AccountLedger getLedger() {
+        return ledger;
+    }
+
+    Lock getShardLock(String instrumentId) {
+        return shards.lockOf(instrumentId);
+    }
+
+    <T> void publishEvent(Class<T> clazz, T object) {
+        publisher.publish(clazz, object);
+    }
+
+    @FunctionalInterface
+    interface Publisher {
+
+        <T> void publish(Class<T> clazz, T object);
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2020 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.trader;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Binary snapshot of engine's in-memory state: ID translations with order
+ * quantities and down counts of each trader, order-to-trader map,
+ * instruments of the trading day and IDs of orders having frozen bundles.
+ * <p>
+ * Engine encodes the state under all shard locks so the maps agree with each
+ * other, and writes the encoded bytes to file after it releases the locks.
+ * Bundles are changed with data source, so only their order IDs are kept
+ * and their bundles are reloaded from data source on restore.
+ *
+ * @author Hongbao Chen
+ * @since 1.0
+ */
+class EngineSnapshot {
+
+    private static final int MAGIC = 0x4F47534E;
+    private static final int VERSION = 2;
+
+    private EngineSnapshot() {
+    }
+
+    /**
+     * Read snapshot into the specified state. Translations of the traders
+     * are replaced.
+     *
+     * @param path         snapshot file.
+     * @param tradingDay   expected trading day.
+     * @param traders      registered traders.
+     * @param orderTraders order-to-trader map to fill.
+     * @param instruments  instrument map to fill.
+     * @param frozen       collection to fill with IDs of orders having
+     *                     frozen bundles.
+     *
+     * @throws IOException fail reading snapshot, or snapshot doesn't match.
+     */
+    static void read(Path path,
+                     LocalDate tradingDay,
+                     Map<Integer, TraderContext> traders,
+                     Map<Long, Integer> orderTraders,
+                     Map<String, Instrument> instruments,
+                     Collection<Long> frozen) throws IOException {
+        Objects.requireNonNull(tradingDay);
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not an engine snapshot: " + path + ".");
+            }
+            var day = LocalDate.ofEpochDay(in.readLong());
+            if (!day.equals(tradingDay)) {
+                throw new IOException("Snapshot of " + day + " doesn't match trading day " + tradingDay + ".");
+            }
+            var n = in.readInt();
+            for (int i = 0; i < n; ++i) {
+                var traderId = in.readInt();
+                var ctx = traders.get(traderId);
+                if (ctx == null) {
+                    throw new IOException("Trader not registered: " + traderId + ".");
+                }
+                ctx.read(in);
+            }
+            n = in.readInt();
+            for (int i = 0; i < n; ++i) {
+                var orderId = in.readLong();
+                orderTraders.put(orderId, in.readInt());
+            }
+            var bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            try (var oi = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                for (var o : (ArrayList<?>) oi.readObject()) {
+                    var instrument = (Instrument) o;
+                    instruments.put(instrument.getInstrumentId(), instrument);
+                }
+            } catch (ClassNotFoundException | ClassCastException ex) {
+                throw new IOException(ex.getMessage(), ex);
+            }
+            n = in.readInt();
+            for (int i = 0; i < n; ++i) {
+                frozen.add(in.readLong());
+            }
+        }
+    }
+
+    /**
+     * Encode snapshot of the specified state. Caller holds the locks that
+     * keep the state from changing.
+     *
+     * @param tradingDay   trading day.
+     * @param traders      registered traders.
+     * @param orderTraders order-to-trader map.
+     * @param instruments  instruments of the trading day.
+     * @param frozen       IDs of orders having frozen bundles.
+     *
+     * @return encoded snapshot.
+     *
+     * @throws IOException fail encoding snapshot.
+     */
+    static byte[] encode(LocalDate tradingDay,
+                         Map<Integer, TraderContext> traders,
+                         Map<Long, Integer> orderTraders,
+                         Map<String, Instrument> instruments,
+                         Collection<Long> frozen) throws IOException {
+        Objects.requireNonNull(tradingDay);
+        var bytes = new ByteArrayOutputStream(64 * 1024);
+        var out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(tradingDay.toEpochDay());
+        out.writeInt(traders.size());
+        for (var ctx : traders.values()) {
+            out.writeInt(ctx.getTraderId());
+            ctx.write(out);
+        }
+        out.writeInt(orderTraders.size());
+        for (var e : orderTraders.entrySet()) {
+            out.writeLong(e.getKey());
+            out.writeInt(e.getValue());
+        }
+        var bo = new ByteArrayOutputStream(4096);
+        try (var oo = new ObjectOutputStream(bo)) {
+            oo.writeObject(new ArrayList<>(instruments.values()));
+        }
+        out.writeInt(bo.size());
+        bo.writeTo(out);
+        out.writeInt(frozen.size());
+        for (var orderId : frozen) {
+            out.writeLong(orderId);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Write encoded snapshot to a temporary file and replace the specified
+     * file with it, so the file always holds a complete snapshot.
+     *
+     * @param path  snapshot file.
+     * @param bytes snapshot encoded by {@link #encode}.
+     *
+     * @throws IOException fail writing snapshot.
+     */
+    static void write(Path path, byte[] bytes) throws IOException {
+        var tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (var fo = new FileOutputStream(tmp.toFile())) {
+            fo.write(bytes);
+            fo.getFD().sync();
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
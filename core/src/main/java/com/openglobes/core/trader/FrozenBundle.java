@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2020 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.trader;
+
+import java.util.Objects;
+
+/**
+ * Contract, margin and commission frozen for one lot of an order.
+ * <p>
+ * Margin of an opening lot is frozen by the order, and margin of a closing
+ * lot is the dealed margin of the contract being closed.
+ *
+ * @author Hongbao Chen
+ * @since 1.0
+ */
+class FrozenBundle {
+
+    private final Commission commission;
+    private final Contract contract;
+    private final Margin margin;
+
+    FrozenBundle(Commission commission, Margin margin, Contract contract) {
+        this.commission = Objects.requireNonNull(commission);
+        this.margin = Objects.requireNonNull(margin);
+        this.contract = Objects.requireNonNull(contract);
+    }
+
+    Commission getCommission() {
+        return commission;
+    }
+
+    Contract getContract() {
+        return contract;
+    }
+
+    Margin getMargin() {
+        return margin;
+    }
+}
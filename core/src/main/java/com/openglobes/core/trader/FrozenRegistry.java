@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2020 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.trader;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Live frozen bundles of orders keyed by source order ID, so trades and
+ * cancels of an order transit its bundles in memory without querying data
+ * source.
+ * <p>
+ * Bundles of an order are only accessed under the shard lock of the
+ * order's instrument. If a change to data source fails, unload the order
+ * and its bundles are reloaded from data source on next use.
+ *
+ * @author Hongbao Chen
+ * @since 1.0
+ */
+class FrozenRegistry {
+
+    private final Map<Long, Map<Long, FrozenBundle>> orders;
+
+    FrozenRegistry() {
+        orders = new ConcurrentHashMap<>(1024);
+    }
+
+    void clear() {
+        orders.clear();
+    }
+
+    /**
+     * Remove bundles that are dealed or deleted. The order stays loaded after
+     * all its bundles are done, so late callbacks of the order don't query
+     * data source. Registry is cleared at settlement.
+     *
+     * @param orderId source order ID.
+     * @param done    done bundles.
+     */
+    void complete(Long orderId, Collection<FrozenBundle> done) {
+        var m = orders.get(orderId);
+        if (m == null) {
+            return;
+        }
+        for (var b : done) {
+            m.remove(b.getContract().getContractId());
+        }
+    }
+
+    /**
+     * Get live bundles of the order in the order they are frozen.
+     *
+     * @param orderId source order ID.
+     *
+     * @return live bundles, or {@code null} if the order is not loaded.
+     */
+    Collection<FrozenBundle> get(Long orderId) {
+        var m = orders.get(orderId);
+        return m == null ? null : m.values();
+    }
+
+    /**
+     * Get IDs of orders that have live bundles.
+     *
+     * @return order IDs.
+     */
+    Collection<Long> getOrderIds() {
+        var r = new ArrayList<Long>(orders.size());
+        orders.forEach((orderId, m) -> {
+            if (!m.isEmpty()) {
+                r.add(orderId);
+            }
+        });
+        return r;
+    }
+
+    boolean isLoaded(Long orderId) {
+        return orders.containsKey(orderId);
+    }
+
+    void load(Long orderId, Collection<FrozenBundle> bundles) {
+        var m = new LinkedHashMap<Long, FrozenBundle>(Math.max(16, bundles.size() * 2));
+        for (var b : bundles) {
+            m.put(b.getContract().getContractId(), b);
+        }
+        orders.put(orderId, m);
+    }
+
+    void unload(Long orderId) {
+        orders.remove(orderId);
+    }
+}
@@ -16,91 +16,270 @@
  */
 package com.openglobes.core.trader;
 
+import com.openglobes.core.utils.LongLongMap;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
 
 /**
  * Translate source ID to destinated ID, and trans back.
  * <p>
  * It also provides a simple count down mechanism to member the rest volumn to
  * trade. If it counts down to zero, the order is fulfilled.
+ * <p>
+ * IDs are kept in primitive maps. Writes are serialized and reads are
+ * lock-free, so response thread can translate IDs while shard thread adds
+ * new ones.
  *
  * @author Hongbao Chen
  * @since 1.0
  */
 public class IdTranslator {
 
-    private final HashMap<Long, Long> destDownCounts;
-    private final HashMap<Long, Long> dests;
+    /**
+     * Returned by primitive finders if the ID is not found.
+     */
+    public static final long NONE = Long.MIN_VALUE;
+    private final LongLongMap destDownCounts;
+    private final LongLongMap destQuantities;
+    private final LongLongMap dests;
+    private final LongLongMap firstDests;
     private final AtomicLong id = new AtomicLong(0);
-    private final HashMap<Long, Set<Long>> srcs;
+    private final LongLongMap nextDests;
 
     public IdTranslator() {
-        dests = new HashMap<>(1024);
-        destDownCounts = new HashMap<>(1024);
-        srcs = new HashMap<>(1024);
+        dests = new LongLongMap(1024);
+        destDownCounts = new LongLongMap(1024);
+        destQuantities = new LongLongMap(1024);
+        /*
+         * Destinated IDs of a source ID are linked by the ID maps: source to
+         * its latest destinated ID, and each destinated ID to the previous
+         * one.
+         */
+        firstDests = new LongLongMap(1024);
+        nextDests = new LongLongMap(1024);
     }
 
     public void clear() {
-        dests.clear();
-        destDownCounts.clear();
-        srcs.clear();
+        synchronized (this) {
+            dests.clear();
+            destDownCounts.clear();
+            destQuantities.clear();
+            firstDests.clear();
+            nextDests.clear();
+        }
     }
 
     public void countDown(Long destId, Long count) {
-        Long c;
-        synchronized (destDownCounts) {
-            c = destDownCounts.get(destId);
-            if (c == null) {
+        countDownAndGet(destId, count);
+    }
+
+    /**
+     * Count down the rest volumn of the destinated ID.
+     *
+     * @param destId destinated ID.
+     * @param count  volumn to count down.
+     *
+     * @return rest volumn after count down.
+     */
+    long countDownAndGet(long destId, long count) {
+        long c;
+        synchronized (this) {
+            c = destDownCounts.addAndGet(destId, -count, NONE);
+            if (c == NONE) {
                 throw new NullPointerException("Count down not found(" + destId + ").");
             }
-            c -= count;
-            destDownCounts.put(destId, c);
         }
         if (c < 0) {
             throw new IllegalStateException("Count down too many(" + count + ").");
         }
+        return c;
+    }
+
+    public long findDownCount(long destId) {
+        return destDownCounts.get(destId, NONE);
+    }
+
+    public long findSourceId(long destId) {
+        return dests.get(destId, NONE);
+    }
+
+    /**
+     * Find the latest destinated ID of the source ID. Destinated IDs of the
+     * source ID are walked from it by {@link #findNextDestinatedId(long)}
+     * without allocation.
+     *
+     * @param srcId source ID.
+     *
+     * @return the latest destinated ID, or {@link #NONE} if there is none.
+     */
+    long findFirstDestinatedId(long srcId) {
+        return firstDests.get(srcId, NONE);
+    }
+
+    /**
+     * Find the destinated ID given before the specified one for the same
+     * source ID.
+     *
+     * @param destId destinated ID.
+     *
+     * @return the previous destinated ID, or {@link #NONE} if there is none.
+     */
+    long findNextDestinatedId(long destId) {
+        return nextDests.get(destId, NONE);
+    }
+
+    public void forEachDestinatedId(long srcId, LongConsumer consumer) {
+        for (var i = findFirstDestinatedId(srcId); i != NONE; i = findNextDestinatedId(i)) {
+            consumer.accept(i);
+        }
     }
 
     public void setBase(Long b) {
         id.set(b);
     }
 
+    /**
+     * Skip the specified number of destinated IDs, so IDs that might be given
+     * out before are not given again.
+     *
+     * @param count number of IDs to skip.
+     */
+    void skip(long count) {
+        id.addAndGet(count);
+    }
+
     public Long getDestinatedId(Long srcId, Long downCount) {
-        var i = getDestinatedId(srcId);
-        initCountDown(i, downCount);
-        return i;
+        synchronized (this) {
+            var i = nextDestinatedId(srcId);
+            initCountDown(i, downCount);
+            return i;
+        }
     }
 
     public Long getDestinatedId(Long srcId) {
+        return nextDestinatedId(srcId);
+    }
+
+    private long nextDestinatedId(long srcId) {
         var i = id.incrementAndGet();
-        dests.put(i, srcId);
-        var s = srcs.computeIfAbsent(srcId, (Long k) -> new HashSet<>(64));
-        s.add(i);
+        synchronized (this) {
+            dests.put(i, srcId);
+            nextDests.put(i, firstDests.get(srcId, NONE));
+            firstDests.put(srcId, i);
+        }
         return i;
     }
 
+    /**
+     * Get destinated IDs of the source ID in a new collection. Hot paths walk
+     * them by {@link #forEachDestinatedId(long, LongConsumer)} instead.
+     *
+     * @param srcId source ID.
+     *
+     * @return destinated IDs, or {@code null} if there is none.
+     */
     public Collection<Long> getDestinatedIds(Long srcId) {
-        return srcs.get(srcId);
+        if (!firstDests.containsKey(srcId)) {
+            return null;
+        }
+        var r = new ArrayList<Long>(2);
+        forEachDestinatedId(srcId, r::add);
+        return r;
     }
 
     public Long getDownCountByDestId(Long destId) {
-        synchronized (destDownCounts) {
-            return destDownCounts.get(destId);
-        }
+        var c = findDownCount(destId);
+        return c == NONE ? null : c;
     }
 
     public Long getSourceId(Long destId) {
-        return dests.get(destId);
+        var i = findSourceId(destId);
+        return i == NONE ? null : i;
     }
 
-    private void initCountDown(Long destId, Long count) {
-        synchronized (destDownCounts) {
+    private void initCountDown(long destId, long count) {
+        destDownCounts.put(destId, count);
+        destQuantities.put(destId, count);
+    }
+
+    void forEachDownCount(LongLongMap.Visitor visitor) {
+        destDownCounts.forEach(visitor);
+    }
+
+    long findQuantity(long destId) {
+        return destQuantities.get(destId, NONE);
+    }
+
+    /**
+     * Replace all IDs with those read by {@link #write(DataOutput)}.
+     *
+     * @param in input.
+     *
+     * @throws IOException fail reading input.
+     */
+    void read(DataInput in) throws IOException {
+        synchronized (this) {
+            clear();
+            id.set(in.readLong());
+            var count = in.readInt();
+            for (int i = 0; i < count; ++i) {
+                var destId = in.readLong();
+                var srcId = in.readLong();
+                var quantity = in.readLong();
+                var downCount = in.readLong();
+                /*
+                 * IDs are written in ascending order, so linking them again
+                 * keeps the order of destinated IDs.
+                 */
+                dests.put(destId, srcId);
+                nextDests.put(destId, firstDests.get(srcId, NONE));
+                firstDests.put(srcId, destId);
+                if (downCount != NONE) {
+                    destDownCounts.put(destId, downCount);
+                }
+                if (quantity != NONE) {
+                    destQuantities.put(destId, quantity);
+                }
+            }
+        }
+    }
+
+    void setDownCount(long destId, long count) {
+        synchronized (this) {
             destDownCounts.put(destId, count);
         }
     }
 
+    /**
+     * Write ID base, translations, quantities and down counts.
+     *
+     * @param out output.
+     *
+     * @throws IOException fail writing output.
+     */
+    void write(DataOutput out) throws IOException {
+        long[] ids;
+        synchronized (this) {
+            ids = new long[dests.size()];
+            var n = new int[1];
+            dests.forEach((k, v) -> ids[n[0]++] = k);
+            out.writeLong(id.get());
+        }
+        Arrays.sort(ids);
+        out.writeInt(ids.length);
+        for (var i : ids) {
+            out.writeLong(i);
+            out.writeLong(dests.get(i, NONE));
+            out.writeLong(destQuantities.get(i, NONE));
+            out.writeLong(destDownCounts.get(i, NONE));
+        }
+    }
+
 }
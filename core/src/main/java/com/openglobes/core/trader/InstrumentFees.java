@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2020 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.trader;
+
+import java.util.Objects;
+
+/**
+ * Fee and margin calculator of an instrument.
+ * <p>
+ * Ratios and types are read from the instrument once and kept in primitive
+ * fields, so a lot is evaluated by a few multiplications. Missing ratio is
+ * kept as {@code NaN} and only fails the calculation that needs it, like
+ * reading the null ratio from instrument.
+ * <p>
+ * Calculator keeps its own copy of the instrument, so it isn't changed by
+ * the caller's object, and is matched with instruments by value.
+ *
+ * @author Hongbao Chen
+ * @since 1.0
+ */
+class InstrumentFees {
+
+    private final boolean commissionByMoney;
+    private final double commissionCloseToday;
+    private final double commissionCloseYd;
+    private final double commissionOpen;
+    private final Integer commissionType;
+    private final Instrument instrument;
+    private final boolean marginByMoney;
+    private final double marginRatio;
+    private final Integer marginType;
+    private final double multiple;
+
+    InstrumentFees(Instrument instrument) {
+        this.instrument = instrument.copy();
+        commissionType = instrument.getCommissionType();
+        commissionByMoney = commissionType != null && commissionType == RatioType.BY_MONEY;
+        commissionOpen = valueOf(instrument.getCommissionOpenRatio());
+        commissionCloseYd = valueOf(instrument.getCommissionCloseYdRatio());
+        commissionCloseToday = valueOf(instrument.getCommissionCloseTodayRatio());
+        marginType = instrument.getMarginType();
+        marginByMoney = marginType != null && marginType == RatioType.BY_MONEY;
+        marginRatio = valueOf(instrument.getMarginRatio());
+        multiple = instrument.getMultiple() == null ? Double.NaN : instrument.getMultiple();
+    }
+
+    /**
+     * Check if the instruments have the same ratios, types and multiple.
+     *
+     * @param a instrument.
+     * @param b another instrument.
+     *
+     * @return {@code true} if their fees are the same.
+     */
+    static boolean hasSameFees(Instrument a, Instrument b) {
+        return Objects.equals(a.getCommissionType(), b.getCommissionType())
+               && Objects.equals(a.getCommissionOpenRatio(), b.getCommissionOpenRatio())
+               && Objects.equals(a.getCommissionCloseYdRatio(), b.getCommissionCloseYdRatio())
+               && Objects.equals(a.getCommissionCloseTodayRatio(), b.getCommissionCloseTodayRatio())
+               && Objects.equals(a.getMarginType(), b.getMarginType())
+               && Objects.equals(a.getMarginRatio(), b.getMarginRatio())
+               && Objects.equals(a.getMultiple(), b.getMultiple());
+    }
+
+    private static double valueOf(Double v) {
+        return v == null ? Double.NaN : v;
+    }
+
+    double getAmount(double price) {
+        if (Double.isNaN(multiple)) {
+            throw new NullPointerException(instrument.getInstrumentId() + " multiple.");
+        }
+        return price * multiple;
+    }
+
+    double getCommission(double price, int offset) throws InvalidRequestOffsetException {
+        if (commissionType == null) {
+            throw new NullPointerException(instrument.getInstrumentId() + " commission type.");
+        }
+        double ratio;
+        switch (offset) {
+            case Offset.OPEN:
+                ratio = commissionOpen;
+                break;
+            case Offset.CLOSE_YD:
+                ratio = commissionCloseYd;
+                break;
+            case Offset.CLOSE_TODAY:
+                ratio = commissionCloseToday;
+                break;
+            default:
+                throw new InvalidRequestOffsetException("Can't handle offset " + offset + ".");
+        }
+        if (Double.isNaN(ratio)) {
+            throw new NullPointerException(instrument.getInstrumentId() + " commission ratio.");
+        }
+        return commissionByMoney ? getAmount(price) * ratio : ratio;
+    }
+
+    double getMargin(double price) {
+        if (marginType == null) {
+            throw new NullPointerException(instrument.getInstrumentId() + " margin type.");
+        }
+        if (Double.isNaN(marginRatio)) {
+            throw new NullPointerException(instrument.getInstrumentId() + " margin ratio.");
+        }
+        return marginByMoney ? getAmount(price) * marginRatio : marginRatio;
+    }
+
+    /**
+     * Check if the calculator computes the fees of the instrument.
+     *
+     * @param instrument instrument.
+     *
+     * @return {@code true} if the instrument has the same fees as the one it
+     *         is built from.
+     */
+    boolean isOf(Instrument instrument) {
+        return this.instrument.getInstrumentId().equals(instrument.getInstrumentId())
+               && hasSameFees(this.instrument, instrument);
+    }
+}
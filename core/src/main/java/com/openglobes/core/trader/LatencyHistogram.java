@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2020 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.trader;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Log-linear histogram of non-negative nanoseconds.
+ * <p>
+ * Each power of two is split into 16 buckets, so a percentile is within
+ * about 6% of the true value. Recording is lock-free and doesn't allocate.
+ *
+ * @author Hongbao Chen
+ * @since 1.0
+ */
+class LatencyHistogram {
+
+    private static final int SUB_BITS = 4;
+    private static final int SUB = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB;
+
+    private final AtomicLongArray counts;
+    private final AtomicLong max;
+    private final AtomicLong total;
+
+    LatencyHistogram() {
+        counts = new AtomicLongArray(BUCKETS);
+        max = new AtomicLong(0L);
+        total = new AtomicLong(0L);
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB) {
+            return (int) Math.max(0L, value);
+        }
+        var exp = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        var sub = (int) (value >>> exp) & (SUB - 1);
+        return (exp + 1) * SUB + sub;
+    }
+
+    static long upperOf(int index) {
+        if (index < SUB) {
+            return index;
+        }
+        var exp = index / SUB - 1;
+        var sub = index % SUB;
+        return ((long) (SUB + sub) << exp) + (1L << exp) - 1;
+    }
+
+    long count() {
+        return total.get();
+    }
+
+    long max() {
+        return max.get();
+    }
+
+    /**
+     * Get the value at the quantile, as upper bound of its bucket but no
+     * larger than max.
+     *
+     * @param quantile quantile in {@code [0, 1]}.
+     *
+     * @return value at the quantile, or {@code 0} if histogram is empty.
+     */
+    long quantile(double quantile) {
+        var n = total.get();
+        if (n == 0) {
+            return 0L;
+        }
+        var rank = (long) Math.ceil(quantile * n);
+        if (rank < 1) {
+            rank = 1;
+        }
+        long seen = 0L;
+        for (int i = 0; i < BUCKETS; ++i) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperOf(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        counts.incrementAndGet(indexOf(nanos));
+        total.incrementAndGet();
+        long m;
+        while (nanos > (m = max.get())) {
+            if (max.compareAndSet(m, nanos)) {
+                break;
+            }
+        }
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKETS; ++i) {
+            counts.set(i, 0L);
+        }
+        total.set(0L);
+        max.set(0L);
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright (C) 2020 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.trader;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency monitor keeping stage timestamps of recent orders in a fixed
+ * table.
+ * <p>
+ * Order takes the slot indexed by low bits of its ID, and a newer order
+ * evicts the older one in the same slot. Orders in flight are far fewer than
+ * the slots, so eviction only drops samples of orders that never complete.
+ * <p>
+ * Stages of an order are marked from different threads. A slot is taken by
+ * compare-and-set on its tag, and each stage is stamped once by
+ * compare-and-set, so racing marks drop a sample instead of mixing stamps of
+ * two orders.
+ *
+ * @author Hongbao Chen
+ * @since 1.0
+ */
+class LatencyMonitor implements ILatencyMonitor {
+
+    /*
+     * Zero is a valid order ID, so tag empty slot and slot being taken with
+     * negative ones.
+     */
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final int NO_TRADER = Integer.MIN_VALUE;
+    private static final long TAKING = Long.MIN_VALUE + 1;
+
+    private final Map<Integer, LatencyHistogram[]> gateways;
+    private final LatencyHistogram[] histograms;
+    private final int mask;
+    private final AtomicLongArray stamps;
+    private final AtomicLongArray tags;
+    private final AtomicIntegerArray traders;
+    private volatile boolean enabled;
+
+    LatencyMonitor(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be power of 2.");
+        }
+        mask = capacity - 1;
+        tags = new AtomicLongArray(capacity);
+        traders = new AtomicIntegerArray(capacity);
+        stamps = new AtomicLongArray(capacity * LatencyStage.COUNT);
+        histograms = newHistograms();
+        gateways = new ConcurrentHashMap<>(16);
+        enabled = false;
+        clearSlots();
+    }
+
+    private static LatencyHistogram[] newHistograms() {
+        var hs = new LatencyHistogram[LatencyStage.COUNT];
+        for (int i = 0; i < hs.length; ++i) {
+            hs[i] = new LatencyHistogram();
+        }
+        return hs;
+    }
+
+    private static LatencySnapshot snapshot(int stage, Integer traderId, LatencyHistogram h) {
+        return new LatencySnapshot(stage,
+                                   traderId,
+                                   h.count(),
+                                   h.quantile(0.5D),
+                                   h.quantile(0.99D),
+                                   h.quantile(0.999D),
+                                   h.max());
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void bind(long orderId, int traderId) {
+        if (!enabled) {
+            return;
+        }
+        var slot = (int) orderId & mask;
+        if (tags.get(slot) != orderId) {
+            return;
+        }
+        if (!gateways.containsKey(traderId)) {
+            gateways.putIfAbsent(traderId, newHistograms());
+        }
+        if (traders.compareAndSet(slot, NO_TRADER, traderId) && tags.get(slot) != orderId) {
+            /*
+             * Slot is taken by another order meanwhile.
+             */
+            traders.compareAndSet(slot, traderId, NO_TRADER);
+        }
+    }
+
+    @Override
+    public void mark(int stage, long orderId) {
+        if (!enabled) {
+            return;
+        }
+        var now = System.nanoTime();
+        var slot = (int) orderId & mask;
+        var base = slot * LatencyStage.COUNT;
+        var tag = tags.get(slot);
+        if (tag != orderId) {
+            /*
+             * Order is first seen at this stage, take the slot. The slot is
+             * published with its tag after it is cleared.
+             */
+            if (tag == TAKING || !tags.compareAndSet(slot, tag, TAKING)) {
+                return;
+            }
+            for (int i = 0; i < LatencyStage.COUNT; ++i) {
+                stamps.set(base + i, 0L);
+            }
+            traders.set(slot, NO_TRADER);
+            stamps.set(base + stage, now);
+            tags.set(slot, orderId);
+            return;
+        }
+        if (!stamps.compareAndSet(base + stage, 0L, now)) {
+            return;
+        }
+        long prev = 0L;
+        long first = 0L;
+        for (int i = 0; i < stage; ++i) {
+            var t = stamps.get(base + i);
+            if (t != 0L) {
+                prev = t;
+                if (first == 0L) {
+                    first = t;
+                }
+            }
+        }
+        var trader = traders.get(slot);
+        if (prev == 0L || tags.get(slot) != orderId) {
+            /*
+             * No earlier stage, or stamps read may belong to the order taking
+             * the slot meanwhile.
+             */
+            return;
+        }
+        var hs = trader == NO_TRADER ? null : gateways.get(trader);
+        histograms[stage].record(now - prev);
+        if (hs != null) {
+            hs[stage].record(now - prev);
+        }
+        if (stage == LatencyStage.CONNECTOR_WRITE) {
+            histograms[LatencyStage.END_TO_END].record(now - first);
+            if (hs != null) {
+                hs[LatencyStage.END_TO_END].record(now - first);
+            }
+        }
+    }
+
+    @Override
+    public LatencySnapshot getSnapshot(int stage) {
+        checkStage(stage);
+        return snapshot(stage, null, histograms[stage]);
+    }
+
+    @Override
+    public LatencySnapshot getSnapshot(int stage, int traderId) {
+        checkStage(stage);
+        var hs = gateways.get(traderId);
+        if (hs == null) {
+            return new LatencySnapshot(stage, traderId, 0L, 0L, 0L, 0L, 0L);
+        }
+        return snapshot(stage, traderId, hs[stage]);
+    }
+
+    @Override
+    public Collection<LatencySnapshot> getSnapshots() {
+        var r = new ArrayList<LatencySnapshot>(LatencyStage.COUNT * (gateways.size() + 1));
+        for (int i = 0; i < LatencyStage.COUNT; ++i) {
+            if (histograms[i].count() > 0) {
+                r.add(snapshot(i, null, histograms[i]));
+            }
+        }
+        gateways.forEach((id, hs) -> {
+            for (int i = 0; i < LatencyStage.COUNT; ++i) {
+                if (hs[i].count() > 0) {
+                    r.add(snapshot(i, id, hs[i]));
+                }
+            }
+        });
+        return r;
+    }
+
+    @Override
+    public void reset() {
+        for (var h : histograms) {
+            h.reset();
+        }
+        gateways.values().forEach(hs -> {
+            for (var h : hs) {
+                h.reset();
+            }
+        });
+        clearSlots();
+    }
+
+    private void checkStage(int stage) {
+        if (stage < 0 || stage >= LatencyStage.COUNT) {
+            throw new IllegalArgumentException("Unknown stage: " + stage + ".");
+        }
+    }
+
+    private void clearSlots() {
+        for (int i = 0; i < tags.length(); ++i) {
+            tags.set(i, EMPTY);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2020 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.trader;
+
+import java.util.List;
+
+/**
+ * Route to the enabled gateway with the least expected latency, which is the
+ * smoothed ack latency multiplied by the orders waiting ahead. Gateways
+ * without any ack are tried first to collect samples. Rejects penalize the
+ * latency, so a gateway rejecting orders is less preferred.
+ *
+ * @author Hongbao Chen
+ * @since 1.0
+ */
+public class LeastLatencyRouter implements ITraderRouter {
+
+    public LeastLatencyRouter() {
+    }
+
+    @Override
+    public TraderGatewayContext route(Request request, List<TraderGatewayContext> gateways) {
+        TraderGatewayContext r = null;
+        double min = Double.MAX_VALUE;
+        for (int i = 0; i < gateways.size(); ++i) {
+            var g = gateways.get(i);
+            if (!Boolean.TRUE.equals(g.isEnabled())) {
+                continue;
+            }
+            var s = g.getStatistics();
+            if (s.getAckCount() == 0) {
+                return g;
+            }
+            var score = s.getAckLatency() * (1 + s.getInFlight()) / Math.max(1.0D - s.getRejectRate(), 0.01D);
+            if (score < min) {
+                min = score;
+                r = g;
+            }
+        }
+        return r;
+    }
+}
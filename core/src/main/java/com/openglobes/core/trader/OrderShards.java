@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2020 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.trader;
+
+import com.openglobes.core.event.*;
+
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Partition order lifecycle work by instrument onto single-writer shards.
+ * <p>
+ * Requests of the same instrument are processed by the same shard thread in
+ * order, and requests of different shards are processed in parallel. Gateway
+ * callbacks are not run on shard threads, so they take the shard lock of the
+ * instrument to exclude the shard thread. Account-wide work takes all locks.
+ *
+ * @author Hongbao Chen
+ * @since 1.0
+ */
+class OrderShards {
+
+    private final IEventSource[] lanes;
+    private final ReentrantLock[] locks;
+
+    OrderShards(int count, IEventHandler<RequestDetail> handler) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Non-positive shard count.");
+        }
+        Objects.requireNonNull(handler);
+        lanes = new IEventSource[count];
+        locks = new ReentrantLock[count];
+        for (int i = 0; i < count; ++i) {
+            locks[i] = new ReentrantLock();
+            lanes[i] = new EventSource();
+            try {
+                lanes[i].subscribe(RequestDetail.class, handler);
+            } catch (InvalidSubscriptionException ex) {
+                throw new IllegalStateException(ex.getMessage(), ex);
+            }
+        }
+    }
+
+    int count() {
+        return lanes.length;
+    }
+
+    ReentrantLock lockOf(String instrumentId) {
+        return locks[shardOf(instrumentId)];
+    }
+
+    void lockAll() {
+        /*
+         * Always lock in the same order to avoid dead lock.
+         */
+        for (var l : locks) {
+            l.lock();
+        }
+    }
+
+    void publish(RequestDetail detail) throws NoSubscribedClassException {
+        lanes[shardOf(detail.getRequest().getInstrumentId())].publish(RequestDetail.class, detail);
+    }
+
+    int shardOf(String instrumentId) {
+        Objects.requireNonNull(instrumentId);
+        var h = instrumentId.hashCode();
+        return ((h ^ (h >>> 16)) & 0x7FFFFFFF) % lanes.length;
+    }
+
+    void unlockAll() {
+        for (int i = locks.length - 1; i >= 0; --i) {
+            locks[i].unlock();
+        }
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright (C) 2020 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.trader;
+
+import java.util.*;
+
+/**
+ * Throttle of requests sent to a trader gateway.
+ * <p>
+ * Inserts and cancels take tokens from separate buckets. Request without
+ * token waits in a bounded queue, and the queue is drained as tokens
+ * refill, cancels before inserts. Requests passing the throttle go to an
+ * outbox, and one thread at a time sends the outbox outside the throttle's
+ * monitor. So they reach gateway in the order they pass the throttle, and a
+ * sender blocked by gateway doesn't block threads offering requests.
+ *
+ * @author Hongbao Chen
+ * @since 1.0
+ */
+class RequestThrottle {
+
+    private final TokenBucket cancelBucket;
+    private final ArrayDeque<Queued> cancels;
+    private final TokenBucket insertBucket;
+    private final ArrayDeque<Queued> inserts;
+    private final ArrayDeque<Request> outbox;
+    private final TraderGatewayContext ctx;
+    private final Sink sink;
+    private final TraderGatewayStatistics statistics;
+    private boolean scheduled;
+    private boolean sending;
+    private Timer timer;
+
+    RequestThrottle(TraderGatewayContext ctx, Sink sink) {
+        this.ctx = ctx;
+        this.statistics = ctx.getStatistics();
+        this.sink = sink;
+        cancels = new ArrayDeque<>(64);
+        inserts = new ArrayDeque<>(256);
+        outbox = new ArrayDeque<>(64);
+        cancelBucket = new TokenBucket();
+        insertBucket = new TokenBucket();
+        scheduled = false;
+        sending = false;
+    }
+
+    /**
+     * Drop all queued requests and stop the timer. Queued inserts are passed
+     * to {@link Sink#drop(Request)} so they are answered, and queued cancels
+     * are discarded.
+     */
+    void clear() {
+        var drops = new ArrayList<Request>(16);
+        synchronized (this) {
+            for (int i = cancels.size() + inserts.size(); i > 0; --i) {
+                statistics.onDequeue(0L);
+            }
+            inserts.forEach(q -> drops.add(q.request));
+            cancels.clear();
+            inserts.clear();
+            if (timer != null) {
+                timer.cancel();
+                timer = null;
+            }
+            scheduled = false;
+        }
+        drops.forEach(sink::drop);
+    }
+
+    /**
+     * Send request if there is token, or queue it.
+     * <p>
+     * Cancel of an insert that is still in queue removes the insert, and
+     * neither of them is sent. The removed insert is passed to
+     * {@link Sink#drop(Request)}.
+     *
+     * @param request request to send.
+     *
+     * @return {@code false} if the queue is full and request is rejected.
+     */
+    boolean offer(Request request) {
+        Queued dropped = null;
+        synchronized (this) {
+            var s = ctx.getThrottle();
+            if (s == null) {
+                /*
+                 * Throttle is removed, send queued requests first.
+                 */
+                poll(cancels, null, outbox);
+                poll(inserts, null, outbox);
+                outbox.addLast(request);
+            } else {
+                var cancel = request.getAction() == ActionType.DELETE;
+                if (cancel) {
+                    dropped = removeInsert(request.getOrderId());
+                }
+                if (dropped == null) {
+                    var queue = cancel ? cancels : inserts;
+                    var bucket = cancel ? cancelBucket : insertBucket;
+                    var rate = cancel ? s.getCancelsPerSecond() : s.getInsertsPerSecond();
+                    var burst = cancel ? s.getCancelBurst() : s.getInsertBurst();
+                    if (queue.isEmpty() && bucket.tryTake(rate, burst)) {
+                        outbox.addLast(request);
+                    } else if (cancels.size() + inserts.size() >= s.getQueueCapacity()) {
+                        statistics.onThrottleReject();
+                        return false;
+                    } else {
+                        queue.addLast(new Queued(request));
+                        statistics.onEnqueue();
+                        schedule(s);
+                        return true;
+                    }
+                }
+            }
+        }
+        if (dropped != null) {
+            sink.drop(dropped.request);
+            return true;
+        }
+        flush();
+        return true;
+    }
+
+    private void drain() {
+        synchronized (this) {
+            scheduled = false;
+            var s = ctx.getThrottle();
+            if (s == null) {
+                poll(cancels, null, outbox);
+                poll(inserts, null, outbox);
+            } else {
+                poll(cancels, () -> cancelBucket.tryTake(s.getCancelsPerSecond(), s.getCancelBurst()), outbox);
+                poll(inserts, () -> insertBucket.tryTake(s.getInsertsPerSecond(), s.getInsertBurst()), outbox);
+                schedule(s);
+            }
+        }
+        flush();
+    }
+
+    /**
+     * Send the outbox in order. If another thread is sending, it takes the
+     * requests added meanwhile before it stops.
+     */
+    private void flush() {
+        while (true) {
+            List<Request> list;
+            synchronized (this) {
+                if (sending || outbox.isEmpty()) {
+                    return;
+                }
+                sending = true;
+                list = new ArrayList<>(outbox);
+                outbox.clear();
+            }
+            try {
+                sink.send(list);
+            } finally {
+                synchronized (this) {
+                    sending = false;
+                }
+            }
+        }
+    }
+
+    private void poll(ArrayDeque<Queued> queue, TokenTaker taker, Collection<Request> list) {
+        while (!queue.isEmpty() && (taker == null || taker.take())) {
+            var q = queue.pollFirst();
+            statistics.onDequeue(System.nanoTime() - q.since);
+            list.add(q.request);
+        }
+    }
+
+    private Queued removeInsert(Long orderId) {
+        var it = inserts.iterator();
+        while (it.hasNext()) {
+            var q = it.next();
+            if (Objects.equals(q.request.getOrderId(), orderId)) {
+                it.remove();
+                statistics.onDequeue(System.nanoTime() - q.since);
+                return q;
+            }
+        }
+        return null;
+    }
+
+    private void schedule(ThrottleSetting s) {
+        if (scheduled || (cancels.isEmpty() && inserts.isEmpty())) {
+            return;
+        }
+        long wait = Long.MAX_VALUE;
+        if (!cancels.isEmpty()) {
+            wait = Math.min(wait, cancelBucket.nanosToToken(s.getCancelsPerSecond()));
+        }
+        if (!inserts.isEmpty()) {
+            wait = Math.min(wait, insertBucket.nanosToToken(s.getInsertsPerSecond()));
+        }
+        if (timer == null) {
+            timer = new Timer("throttle-" + ctx.getTraderId(), true);
+        }
+        scheduled = true;
+        timer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                drain();
+            }
+        }, Math.max(1L, (wait + 999_999L) / 1_000_000L));
+    }
+
+    /**
+     * Destination of requests passing the throttle.
+     */
+    interface Sink {
+
+        /**
+         * Queued insert is canceled before it is sent.
+         *
+         * @param request canceled insert.
+         */
+        void drop(Request request);
+
+        /**
+         * Send requests to gateway in order.
+         *
+         * @param requests requests.
+         */
+        void send(List<Request> requests);
+    }
+
+    private interface TokenTaker {
+
+        boolean take();
+    }
+
+    private static class Queued {
+
+        private final Request request;
+        private final long since;
+
+        Queued(Request request) {
+            this.request = request;
+            this.since = System.nanoTime();
+        }
+    }
+
+    private static class TokenBucket {
+
+        private long last;
+        private double tokens;
+
+        TokenBucket() {
+            last = System.nanoTime();
+            tokens = Double.NaN;
+        }
+
+        long nanosToToken(double rate) {
+            if (tokens >= 1.0D) {
+                return 0L;
+            }
+            return (long) ((1.0D - tokens) / rate * 1.0E9D);
+        }
+
+        boolean tryTake(double rate, int burst) {
+            var now = System.nanoTime();
+            if (Double.isNaN(tokens)) {
+                /*
+                 * Bucket starts full.
+                 */
+                tokens = burst;
+            } else {
+                tokens = Math.min(burst, tokens + (now - last) * rate / 1.0E9D);
+            }
+            last = now;
+            if (tokens >= 1.0D) {
+                tokens -= 1.0D;
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright (C) 2020 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.trader;
+
+import com.openglobes.core.data.DataQueryException;
+import com.openglobes.core.data.ITraderDataConnection;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Requests of a trading day with their trades, contracts and responses,
+ * loaded by a few set queries and grouped in memory for settlement.
+ * <p>
+ * Order states only depend on the data of their own order, so they are
+ * computed in parallel across orders and are the same as those computed
+ * request by request.
+ *
+ * @author Hongbao Chen
+ * @since 1.0
+ */
+class SettlementBatch {
+
+    private static final int SERIAL_THRESHOLD = 64;
+    private final Map<Long, List<Contract>> contracts;
+    private final List<Request> requests;
+    private final Map<Long, List<Response>> responses;
+    private final Map<Long, List<Trade>> trades;
+
+    SettlementBatch(Collection<Request> requests,
+                    Collection<Trade> trades,
+                    Collection<Contract> contracts,
+                    Collection<Response> responses) {
+        Objects.requireNonNull(requests);
+        Objects.requireNonNull(trades);
+        Objects.requireNonNull(contracts);
+        Objects.requireNonNull(responses);
+        this.requests = new ArrayList<>(requests);
+        this.trades = new HashMap<>(this.requests.size());
+        this.responses = new HashMap<>(this.requests.size());
+        this.contracts = new HashMap<>(trades.size());
+        for (var r : this.requests) {
+            Objects.requireNonNull(r.getOrderId());
+            this.trades.put(r.getOrderId(), new ArrayList<>(4));
+            this.responses.put(r.getOrderId(), new ArrayList<>(2));
+        }
+        /*
+         * Only keep the data of the loaded requests.
+         */
+        for (var t : trades) {
+            var s = this.trades.get(t.getOrderId());
+            if (s != null) {
+                s.add(t);
+                this.contracts.put(t.getTradeId(), new ArrayList<>(4));
+            }
+        }
+        for (var c : contracts) {
+            var s = this.contracts.get(c.getTradeId());
+            if (s != null) {
+                s.add(c);
+            }
+        }
+        for (var r : responses) {
+            var s = this.responses.get(r.getOrderId());
+            if (s != null) {
+                s.add(r);
+            }
+        }
+    }
+
+    /**
+     * Find orders of the trading day. DELETE requests are saved with the
+     * same order ID as the order, so only NEW requests are kept and each
+     * order is kept once.
+     *
+     * @param requests   requests in data source.
+     * @param tradingDay trading day.
+     *
+     * @return NEW requests of the trading day in the order they are found.
+     */
+    static List<Request> findOrders(Collection<Request> requests, LocalDate tradingDay) {
+        Objects.requireNonNull(requests);
+        Objects.requireNonNull(tradingDay);
+        var r = new LinkedHashMap<Long, Request>(Math.max(16, requests.size() * 2));
+        for (var q : requests) {
+            if (tradingDay.equals(q.getTradingDay()) && Objects.equals(q.getAction(), ActionType.NEW)) {
+                r.putIfAbsent(q.getOrderId(), q);
+            }
+        }
+        return new ArrayList<>(r.values());
+    }
+
+    static SettlementBatch load(ITraderDataConnection conn, LocalDate tradingDay) throws DataQueryException {
+        var today = findOrders(conn.getRequests(), tradingDay);
+        var trades = conn.getTrades();
+        Objects.requireNonNull(trades);
+        var contracts = conn.getContracts();
+        Objects.requireNonNull(contracts);
+        var responses = conn.getResponses();
+        Objects.requireNonNull(responses);
+        return new SettlementBatch(today, trades, contracts, responses);
+    }
+
+    Collection<Contract> getContracts(Collection<Trade> trades) {
+        var r = new ArrayList<Contract>(trades.size());
+        for (var t : trades) {
+            var s = contracts.get(t.getTradeId());
+            if (s != null) {
+                r.addAll(s);
+            }
+        }
+        return r;
+    }
+
+    /**
+     * Compute orders of the loaded requests.
+     *
+     * @param algo        algorithm.
+     * @param instruments instruments of the trading day.
+     *
+     * @return orders in the same order as {@link #getRequests()}.
+     *
+     * @throws InvalidContractException    contract doesn't match its request.
+     * @throws QuantityOverflowException   traded quantity overflows.
+     * @throws InstrumentNotFoundException instrument not found.
+     * @throws WrongOrderIdException       trade doesn't match its request.
+     */
+    List<Order> getOrders(ITraderEngineAlgorithm algo, Map<String, Instrument> instruments)
+            throws InvalidContractException, QuantityOverflowException, InstrumentNotFoundException,
+                   WrongOrderIdException {
+        Objects.requireNonNull(algo);
+        Objects.requireNonNull(instruments);
+        var r = new ArrayList<Order>(requests.size());
+        if (requests.size() < SERIAL_THRESHOLD) {
+            for (var request : requests) {
+                r.add(getOrder(request, algo, instruments));
+            }
+            return r;
+        }
+        var tasks = new ArrayList<Callable<Order>>(requests.size());
+        for (var request : requests) {
+            tasks.add(() -> getOrder(request, algo, instruments));
+        }
+        for (var f : ForkJoinPool.commonPool().invokeAll(tasks)) {
+            r.add(join(f));
+        }
+        return r;
+    }
+
+    List<Request> getRequests() {
+        return requests;
+    }
+
+    Collection<Response> getResponses(Long orderId) {
+        var s = responses.get(orderId);
+        return s == null ? List.of() : s;
+    }
+
+    Collection<Trade> getTrades(Long orderId) {
+        var s = trades.get(orderId);
+        return s == null ? List.of() : s;
+    }
+
+    private Order getOrder(Request request, ITraderEngineAlgorithm algo, Map<String, Instrument> instruments)
+            throws InvalidContractException, QuantityOverflowException, InstrumentNotFoundException,
+                   WrongOrderIdException {
+        var ts = getTrades(request.getOrderId());
+        return algo.getOrder(request,
+                             getContracts(ts),
+                             ts,
+                             getResponses(request.getOrderId()),
+                             instruments);
+    }
+
+    private Order join(Future<Order> future)
+            throws InvalidContractException, QuantityOverflowException, InstrumentNotFoundException,
+                   WrongOrderIdException {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Settlement interrupted.", ex);
+        } catch (ExecutionException ex) {
+            var c = ex.getCause();
+            if (c instanceof InvalidContractException) {
+                throw (InvalidContractException) c;
+            } else if (c instanceof QuantityOverflowException) {
+                throw (QuantityOverflowException) c;
+            } else if (c instanceof InstrumentNotFoundException) {
+                throw (InstrumentNotFoundException) c;
+            } else if (c instanceof WrongOrderIdException) {
+                throw (WrongOrderIdException) c;
+            } else if (c instanceof RuntimeException) {
+                throw (RuntimeException) c;
+            } else if (c instanceof Error) {
+                throw (Error) c;
+            }
+            throw new IllegalStateException(c.getMessage(), c);
+        }
+    }
+}
@@ -16,16 +16,125 @@
  */
 package com.openglobes.core.trader;
 
+import com.openglobes.core.GatewayRuntimeException;
+import com.openglobes.core.utils.Clocks;
+import com.openglobes.core.utils.LongLongMap;
+import com.openglobes.core.utils.Utils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
 /**
  * @author Hongbao Chen
  * @since 1.0
  */
 public class TraderContext extends IdTranslator {
 
+    private static final int THROTTLE_REJECT_CODE = 201;
+    private static final String THROTTLE_REJECT_MSG = "Throttle queue is full.";
+    private static final int SUBMIT_ERROR_CODE = 202;
+    private static final String SUBMIT_ERROR_MSG = "Gateway fails submitting request.";
+
     private final TraderGatewayContext ctx;
+    private final LongLongMap insertTimes;
+    private final Map<Long, Request> liveOrders;
+    private final RequestThrottle throttle;
+    private volatile InFlight inFlight;
 
     TraderContext(TraderGatewayContext ctx) {
         this.ctx = ctx;
+        this.insertTimes = new LongLongMap(1024);
+        this.liveOrders = new ConcurrentHashMap<>(1024);
+        this.throttle = new RequestThrottle(ctx, new ThrottleSink());
+    }
+
+    /**
+     * Sample ack latency on the first response or trade of the order.
+     *
+     * @param destId   destinated order ID.
+     * @param rejected {@code true} if the order is rejected.
+     */
+    void acknowledge(long destId, boolean rejected) {
+        var t = insertTimes.remove(destId, NONE);
+        if (t != NONE) {
+            ctx.getStatistics().onAck(System.nanoTime() - t);
+        }
+        if (rejected) {
+            ctx.getStatistics().onReject();
+        }
+    }
+
+    /**
+     * Index order that is sent to gateway until it is fulfilled or deleted.
+     *
+     * @param order request with destinated order ID.
+     */
+    void addLiveOrder(Request order) {
+        liveOrders.put(order.getOrderId(), order);
+    }
+
+    /**
+     * Clear ID mappings and live orders of the context. Throttle is not
+     * drained here because the engine clears contexts under all shard locks
+     * after its registries are gone, call {@link #drainThrottle()} before
+     * that so dropped inserts still release their frozen money.
+     */
+    @Override
+    public void clear() {
+        super.clear();
+        insertTimes.clear();
+        liveOrders.clear();
+    }
+
+    /**
+     * Stop the throttle when the gateway is unregistered. Inserts still in
+     * throttle queue are answered as deleted.
+     */
+    void close() {
+        drainThrottle();
+    }
+
+    /**
+     * Answer inserts still in throttle queue as deleted and stop the throttle.
+     * It goes through the gateway handler and touches data source, so call it
+     * without holding shard locks.
+     */
+    void drainThrottle() {
+        throttle.clear();
+    }
+
+    @Override
+    long countDownAndGet(long destId, long count) {
+        var c = super.countDownAndGet(destId, count);
+        if (c == 0) {
+            liveOrders.remove(destId);
+        }
+        return c;
+    }
+
+    /**
+     * Visit orders not yet fulfilled or deleted. The view is weakly consistent
+     * and doesn't block threads adding or completing orders.
+     *
+     * @param consumer visitor of requests with destinated order ID.
+     */
+    void forEachLiveOrder(Consumer<Request> consumer) {
+        liveOrders.values().forEach(consumer);
+    }
+
+    @Override
+    void setDownCount(long destId, long count) {
+        super.setDownCount(destId, count);
+        if (count <= 0) {
+            liveOrders.remove(destId);
+        }
+    }
+
+    void complete() {
+        ctx.getStatistics().onComplete();
     }
 
     ITraderEngine getEngine() {
@@ -42,6 +151,7 @@ public class TraderContext extends IdTranslator {
 
     void setHandler(ITraderGatewayHandler handler) {
         ctx.setHandler(handler);
+        refreshInFlight();
     }
 
     TraderGatewayContext getTraderGatewayContext() {
@@ -53,10 +163,217 @@ public class TraderContext extends IdTranslator {
     }
 
     void insert(Request request) {
-        ctx.getTrader().insert(request);
+        insertAll(List.of(request));
+    }
+
+    /**
+     * Send requests to gateway in order. If gateway has a
+     * {@link ThrottleSetting}, requests pass the throttle first, and request
+     * rejected by a full queue is answered at once.
+     *
+     * @param requests requests to send.
+     */
+    void insertAll(List<Request> requests) {
+        if (ctx.getThrottle() == null) {
+            send(requests);
+            return;
+        }
+        for (var r : requests) {
+            if (!throttle.offer(r)) {
+                onThrottleReject(r);
+            }
+        }
+    }
+
+    /**
+     * Send requests to gateway. If gateway is {@link IAsyncTraderGateway},
+     * requests are submitted in batches no larger than its in-flight limit,
+     * and it waits for permits when the limit is reached. Otherwise requests
+     * are inserted one by one.
+     *
+     * @param requests requests to send.
+     */
+    private void send(List<Request> requests) {
+        var latency = getEngine().getLatencyMonitor();
+        for (var r : requests) {
+            if (r.getAction() == ActionType.NEW) {
+                ctx.getStatistics().onInsert();
+                insertTimes.put(r.getOrderId(), System.nanoTime());
+                if (latency.isEnabled()) {
+                    var srcId = findSourceId(r.getOrderId());
+                    latency.bind(srcId, getTraderId());
+                    latency.mark(LatencyStage.GATEWAY_INSERT, srcId);
+                }
+            }
+        }
+        var g = ctx.getTrader();
+        if (g instanceof IAsyncTraderGateway) {
+            submitAll((IAsyncTraderGateway) g, requests);
+        } else {
+            for (var r : requests) {
+                g.insert(r);
+            }
+        }
+    }
+
+    private void onThrottleReject(Request request) {
+        var h = getHandler();
+        if (h == null) {
+            return;
+        }
+        if (request.getAction() == ActionType.NEW) {
+            /*
+             * Answer like gateway rejects the order so the engine releases
+             * its frozen money.
+             */
+            h.onResponse(createResponse(request,
+                                        OrderStatus.REJECTED,
+                                        THROTTLE_REJECT_CODE,
+                                        THROTTLE_REJECT_MSG));
+        } else {
+            h.onError(new GatewayRuntimeException(THROTTLE_REJECT_CODE,
+                                                  THROTTLE_REJECT_MSG
+                                                  + " Order ID: " + request.getOrderId() + "."));
+        }
+    }
+
+    private Response createResponse(Request request, int status, int code, String msg) {
+        var r = new Response();
+        r.setResponseId(Utils.nextId());
+        r.setInstrumentId(request.getInstrumentId());
+        r.setOrderId(request.getOrderId());
+        r.setTraderId(getTraderId());
+        r.setAction(request.getAction());
+        r.setOffset(request.getOffset());
+        r.setDirection(request.getDirection());
+        r.setTradingDay(request.getTradingDay());
+        r.setSignature(Utils.nextUuid().toString());
+        r.setStatus(status);
+        r.setStatusCode(code);
+        r.setStatusMessage(msg);
+        r.setTimestamp(Clocks.getDefault().now());
+        return r;
+    }
+
+    /**
+     * Re-read in-flight limit of async gateway when its handler is set or it
+     * reports status change, like after reconnecting with a new limit.
+     * Submissions in flight release permits of the old limit, so new
+     * submissions never wait for permits that won't come back.
+     */
+    synchronized void refreshInFlight() {
+        var g = ctx.getTrader();
+        if (inFlight == null || !(g instanceof IAsyncTraderGateway)) {
+            return;
+        }
+        var limit = ((IAsyncTraderGateway) g).getInFlightLimit();
+        if (limit > 0 && limit != inFlight.limit) {
+            inFlight = new InFlight(limit);
+        }
+    }
+
+    private synchronized InFlight getInFlight(IAsyncTraderGateway gateway) {
+        if (inFlight == null) {
+            var limit = gateway.getInFlightLimit();
+            if (limit <= 0) {
+                throw new IllegalStateException("Non-positive in-flight limit.");
+            }
+            inFlight = new InFlight(limit);
+        }
+        return inFlight;
+    }
+
+    private void submitAll(IAsyncTraderGateway gateway, List<Request> requests) {
+        var f = getInFlight(gateway);
+        var permits = f.permits;
+        var limit = f.limit;
+        for (int i = 0; i < requests.size(); i += limit) {
+            var batch = requests.subList(i, Math.min(requests.size(), i + limit));
+            var n = batch.size();
+            permits.acquireUninterruptibly(n);
+            try {
+                gateway.submitAll(batch).whenComplete((v, th) -> {
+                    permits.release(n);
+                    if (th != null) {
+                        onSubmitError(batch, th);
+                    }
+                });
+            } catch (RuntimeException ex) {
+                permits.release(n);
+                throw ex;
+            }
+        }
+    }
+
+    /**
+     * Answer inserts of the failed batch like gateway rejects them, so the
+     * engine releases their frozen money. Gateway doesn't tell which requests
+     * of the batch failed, so inserts that are already acknowledged by a
+     * response or trade are left alone.
+     *
+     * @param requests failed batch.
+     * @param th       failure.
+     */
+    private void onSubmitError(List<Request> requests, Throwable th) {
+        var h = getHandler();
+        if (h == null) {
+            return;
+        }
+        h.onError(new GatewayRuntimeException(-1, th.getMessage(), th));
+        for (var r : requests) {
+            if (r.getAction() != ActionType.NEW || insertTimes.remove(r.getOrderId(), NONE) == NONE) {
+                continue;
+            }
+            try {
+                h.onResponse(createResponse(r,
+                                            OrderStatus.REJECTED,
+                                            SUBMIT_ERROR_CODE,
+                                            SUBMIT_ERROR_MSG));
+            } catch (RuntimeException ex) {
+                h.onError(new GatewayRuntimeException(-1, ex.getMessage(), ex));
+            }
+        }
     }
 
     boolean isEnabled() {
         return ctx.isEnabled();
     }
+
+    private static class InFlight {
+
+        private final int limit;
+        private final Semaphore permits;
+
+        InFlight(int limit) {
+            this.limit = limit;
+            this.permits = new Semaphore(limit);
+        }
+    }
+
+    private class ThrottleSink implements RequestThrottle.Sink {
+
+        @Override
+        public void drop(Request request) {
+            /*
+             * Insert is canceled before sent, answer like gateway deletes it
+             * so the engine releases its frozen money and contracts.
+             */
+            var h = getHandler();
+            if (h == null) {
+                return;
+            }
+            var r = createResponse(request, OrderStatus.DELETED, 0, "");
+            r.setAction(ActionType.DELETE);
+            try {
+                h.onResponse(r);
+            } catch (RuntimeException ex) {
+                h.onError(new GatewayRuntimeException(-1, ex.getMessage(), ex));
+            }
+        }
+
+        @Override
+        public void send(List<Request> requests) {
+            TraderContext.this.send(requests);
+        }
+    }
 }
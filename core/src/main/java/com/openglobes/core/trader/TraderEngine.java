@@ -19,36 +19,121 @@ package com.openglobes.core.trader;
 import com.openglobes.core.ServiceRuntimeStatus;
 import com.openglobes.core.data.*;
 import com.openglobes.core.event.*;
+import com.openglobes.core.utils.Clocks;
 import com.openglobes.core.utils.Loggers;
 import com.openglobes.core.utils.Utils;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.SQLException;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
 import java.util.logging.Level;
 
 public class TraderEngine implements ITraderEngine {
 
-    private final IEventSource es0;
-    private final HashMap<String, Instrument> instruments;
-    private final HashMap<Long, Integer> orderTraders;
-    private final HashMap<Integer, TraderContext> traders;
+    private final ContractBook book;
+    private final FrozenRegistry frozen;
+    private final AccountLedger ledger;
+    private final IEventSource es;
+    private final EngineFacilities facilities;
+    private final Map<String, Instrument> instruments;
+    private final LatencyMonitor latency;
+    private final Object moneyLock;
+    private final Map<Long, Integer> orderTraders;
+    private final OrderShards shards;
+    private final Map<Integer, TraderContext> traders;
     private ITraderEngineAlgorithm algo;
+    private volatile boolean bulkSettlement;
     private ITraderDataSource ds;
-    private IEventSource es;
+    private volatile List<TraderGatewayContext> gateways;
+    private Duration reconcilePeriod;
+    private ITraderRouter router;
+    private Timer reconcileTimer;
+    private Path snapshotPath;
+    private Duration snapshotPeriod;
+    private Timer snapshotTimer;
     private ServiceRuntimeStatus status;
 
     public TraderEngine() {
-        traders = new HashMap<>(32);
-        orderTraders = new HashMap<>(1024);
-        instruments = new HashMap<>(512);
-        es0 = new EventSource();
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create engine processing requests on the specified number of shards.
+     * Requests of the same instrument are always processed on the same shard.
+     *
+     * @param shardCount number of shards.
+     */
+    public TraderEngine(int shardCount) {
+        book = new ContractBook();
+        frozen = new FrozenRegistry();
+        moneyLock = new Object();
+        ledger = new AccountLedger();
+        reconcilePeriod = Duration.ofMinutes(1);
+        bulkSettlement = false;
+        snapshotPeriod = Duration.ofSeconds(30);
+        router = new WeightedRoundRobinRouter();
+        gateways = List.of();
+        traders = new ConcurrentHashMap<>(32);
+        orderTraders = new ConcurrentHashMap<>(1024);
+        instruments = new ConcurrentHashMap<>(512);
+        latency = new LatencyMonitor(1 << 16);
+        es = new EventSource();
+        shards = new OrderShards(shardCount,
+                                 (IEvent<RequestDetail> event) -> {
+                                     dispatchRequest(event.get());
+                                 });
+        facilities = new EngineFacilities(book, frozen, ledger, shards, this::publishEvent);
+    }
+
+    @Override
+    public int cancelAll(CancelFilter filter) {
+        Objects.requireNonNull(filter);
+        /*
+         * Cancels are decided in one pass over the live orders instead of
+         * one DELETE per order through the shards. Engine IDs of the canceled
+         * orders are kept to persist the cancels.
+         */
+        var outgoing = new Outgoing();
+        var canceled = new LinkedHashMap<Long, Request>(64);
+        var count = 0;
+        /*
+         * Live orders are changed by shards under their locks, so hold all
+         * shards while building the batch, and send after unlock.
+         */
+        shards.lockAll();
         try {
-            es0.subscribe(RequestDetail.class, (IEvent<RequestDetail> event) -> {
-                dispatchRequest(event.get());
-            });
-        } catch (InvalidSubscriptionException e) {
-            e.printStackTrace();
+            for (var ctx : traders.values()) {
+                if (filter.getTraderId() != null && !filter.getTraderId().equals(ctx.getTraderId())) {
+                    continue;
+                }
+                var cancels = new ArrayList<Request>(64);
+                ctx.forEachLiveOrder(order -> {
+                    var srcId = ctx.findSourceId(order.getOrderId());
+                    if (srcId != IdTranslator.NONE && matches(filter, order, srcId)) {
+                        var c = createCancel(order);
+                        cancels.add(c);
+                        if (!canceled.containsKey(srcId)) {
+                            var r = c.copy();
+                            r.setOrderId(srcId);
+                            canceled.put(srcId, r);
+                        }
+                    }
+                });
+                for (var c : cancels) {
+                    outgoing.add(ctx, c);
+                }
+                count += cancels.size();
+            }
+        } finally {
+            shards.unlockAll();
         }
+        outgoing.send();
+        saveCancels(canceled.values());
+        return count;
     }
 
     @Override
@@ -75,8 +160,9 @@ public class TraderEngine implements ITraderEngine {
 
     @Override
     public void setDataSource(ITraderDataSource dataSource) {
-        Objects.requireNonNull(ds);
+        Objects.requireNonNull(dataSource);
         ds = dataSource;
+        invalidateLedger();
     }
 
     @Override
@@ -84,6 +170,22 @@ public class TraderEngine implements ITraderEngine {
         return es;
     }
 
+    @Override
+    public ILatencyMonitor getLatencyMonitor() {
+        return latency;
+    }
+
+    @Override
+    public ITraderRouter getRouter() {
+        return router;
+    }
+
+    @Override
+    public void setRouter(ITraderRouter router) {
+        Objects.requireNonNull(router);
+        this.router = router;
+    }
+
     @Override
     public Instrument getTodayInstrument(String instrumentId) {
         return instruments.get(instrumentId);
@@ -128,6 +230,16 @@ public class TraderEngine implements ITraderEngine {
         checkDataSourceAlgorithmNotNull();
         try {
             renewAccount();
+            book.clear();
+            frozen.clear();
+            instruments.clear();
+            /*
+             * Ledger is reset by the first reconciliation, so it counts
+             * deposits of the trading day.
+             */
+            invalidateLedger();
+            startReconcile();
+            startSnapshot();
         } catch (DataQueryException | UnexpectedErrorException ex) {
             changeStatus(TraderEngineStatuses.INIT_FAILED);
             throw new TraderRenewException(ex.getMessage(), ex);
@@ -140,8 +252,7 @@ public class TraderEngine implements ITraderEngine {
         Objects.requireNonNull(request);
         checkIllegalRequest(request, instrument);
         try {
-            es0.publish(RequestDetail.class,
-                        new RequestDetail(request, instrument, properties));
+            shards.publish(new RequestDetail(request, instrument, properties));
         } catch (NoSubscribedClassException ex) {
             /*
              * It shouldn't throw exception here unless the internal facilities
@@ -155,21 +266,167 @@ public class TraderEngine implements ITraderEngine {
     public void settle() throws SettlementException {
         changeStatus(TraderEngineStatuses.SETTLING);
         checkDataSourceAlgorithmNotNull();
+        stopReconcile();
+        stopSnapshot();
+        drainThrottles();
+        shards.lockAll();
         try {
             settle(ds);
             settleAccount();
+            invalidateLedger();
         } catch (TraderException ex) {
             throw new SettlementException(ex.getMessage(), ex);
+        } finally {
+            shards.unlockAll();
+        }
+    }
+
+    /**
+     * Restore in-memory state of the trading day from the latest snapshot, in
+     * place of {@link #renew()} when engine restarts in the middle of a
+     * trading day. Traders must be registered before restore.
+     * <p>
+     * Rest volumes of orders that are not done in snapshot are recounted from
+     * their trades and responses in data source, so the responses and trades
+     * after the snapshot are counted, and frozen bundles of orders in
+     * snapshot are reloaded from data source. Orders sent after the snapshot
+     * are not in snapshot, and the period of snapshot bounds the number of
+     * them. Their destinated IDs are not saved, so each trader skips as many
+     * IDs as they might have taken and new orders never reuse them.
+     *
+     * @throws SnapshotException fail reading snapshot or data source.
+     */
+    public void restore() throws SnapshotException {
+        checkDataSourceAlgorithmNotNull();
+        if (snapshotPath == null) {
+            throw new SnapshotException("Snapshot path not set.");
+        }
+        changeStatus(TraderEngineStatuses.INITIALIZING);
+        drainThrottles();
+        shards.lockAll();
+        try {
+            clearInternals();
+            var frozenIds = new ArrayList<Long>(512);
+            EngineSnapshot.read(snapshotPath,
+                                findAnyContext().getGatewayInfo().getTradingDay(),
+                                traders,
+                                orderTraders,
+                                instruments,
+                                frozenIds);
+            instruments.values().forEach(algo::loadInstrument);
+            try (var conn = ds.getConnection()) {
+                for (var ctx : traders.values()) {
+                    recountLiveOrders(ctx, conn);
+                }
+                for (var orderId : frozenIds) {
+                    frozen.load(orderId, TraderGatewayHandler.loadFrozenBundles(orderId, conn));
+                }
+                skipUnsavedIds(conn);
+            }
+            resetLedger();
+            changeStatus(TraderEngineStatuses.WORKING);
+        } catch (Throwable th) {
+            clearInternals();
+            changeStatus(TraderEngineStatuses.INIT_FAILED);
+            throw new SnapshotException(th.getMessage(), th);
+        } finally {
+            shards.unlockAll();
+        }
+        startReconcile();
+        startSnapshot();
+    }
+
+    /**
+     * Set settlement to load requests, trades, contracts and responses of the
+     * trading day in a few set queries and compute order states in parallel,
+     * instead of querying request by request. Both ways give the same result,
+     * and bulk settlement holds the day's data in memory.
+     *
+     * @param bulk {@code true} to settle in bulk.
+     */
+    public void setBulkSettlement(boolean bulk) {
+        bulkSettlement = bulk;
+    }
+
+    /**
+     * Set the file of snapshot. If it is set, engine writes snapshot
+     * periodically after renewal or restore.
+     *
+     * @param path snapshot file.
+     */
+    public void setSnapshotPath(Path path) {
+        snapshotPath = path;
+    }
+
+    /**
+     * Set the period of snapshot. The new period takes effect at next renewal
+     * or restore.
+     *
+     * @param period snapshot period.
+     */
+    public void setSnapshotPeriod(Duration period) {
+        Objects.requireNonNull(period);
+        if (period.isNegative() || period.isZero()) {
+            throw new IllegalArgumentException("Non-positive snapshot period.");
+        }
+        snapshotPeriod = period;
+    }
+
+    /**
+     * Write snapshot of in-memory state now. Requests wait while the state is
+     * encoded in memory, and not while it is written to file.
+     *
+     * @throws SnapshotException fail writing snapshot.
+     */
+    public void snapshot() throws SnapshotException {
+        if (snapshotPath == null) {
+            throw new SnapshotException("Snapshot path not set.");
+        }
+        try {
+            var tradingDay = findAnyContext().getGatewayInfo().getTradingDay();
+            byte[] bytes;
+            shards.lockAll();
+            try {
+                bytes = EngineSnapshot.encode(tradingDay,
+                                              traders,
+                                              orderTraders,
+                                              instruments,
+                                              frozen.getOrderIds());
+            } finally {
+                shards.unlockAll();
+            }
+            EngineSnapshot.write(snapshotPath, bytes);
+        } catch (IOException | NoTraderException ex) {
+            throw new SnapshotException(ex.getMessage(), ex);
         }
     }
 
+    /**
+     * Set the period to reconcile live account ledger with the account
+     * recomputed from data source. The new period takes effect at next
+     * renewal.
+     *
+     * @param period reconciliation period.
+     */
+    public void setReconcilePeriod(Duration period) {
+        Objects.requireNonNull(period);
+        if (period.isNegative() || period.isZero()) {
+            throw new IllegalArgumentException("Non-positive reconcile period.");
+        }
+        reconcilePeriod = period;
+    }
+
     @Override
     public void unregisterTrader(int traderId) throws UnknownTraderIdException {
         /*
          * Verify trader with specified ID exists, or throw exception.
          */
         getTraderGatewayContext(traderId);
-        traders.remove(traderId);
+        var c = traders.remove(traderId);
+        if (c != null) {
+            c.close();
+        }
+        updateGateways();
     }
 
     private void addTrader(int traderId, ITraderGateway trader) {
@@ -179,8 +436,11 @@ public class TraderEngine implements ITraderEngine {
         c.setTrader(trader);
         c.setTraderId(traderId);
         var trCtx = new TraderContext(c);
-        trader.setHandler(new TraderGatewayHandler(trCtx));
+        var h = new TraderGatewayHandler(trCtx, facilities);
+        trCtx.setHandler(h);
+        trader.setHandler(h);
         traders.put(traderId, trCtx);
+        updateGateways();
     }
 
     private ServiceRuntimeStatus buildStatus(TraderEngineStatuses enums) {
@@ -199,26 +459,6 @@ public class TraderEngine implements ITraderEngine {
         publishEvent(ServiceRuntimeStatus.class, s);
     }
 
-    private boolean canClose(Contract c, Request request)
-            throws InvalidRequestOffsetException, InvalidRequestDirectionException {
-        if (c.getStatus() != ContractStatus.OPEN) {
-            return false;
-        }
-        var offset = request.getOffset();
-        var direction = request.getDirection();
-        if (null == offset) {
-            throw new InvalidRequestOffsetException("Offset null ptr.");
-        }
-        if (null == direction) {
-            throw new InvalidRequestDirectionException("Direction null ptr.");
-        }
-        if (direction == Direction.BUY) {
-            return c.getDirection() == Direction.SELL;
-        } else {
-            return c.getDirection() == Direction.BUY;
-        }
-    }
-
     private void changeStatus(TraderEngineStatuses enums) {
         this.status = buildStatus(enums);
         callOnStatusChange(this.status);
@@ -231,24 +471,22 @@ public class TraderEngine implements ITraderEngine {
         if (request.getQuantity() < 0) {
             throw new IllegalQuantityException("Illegal request quantity.");
         }
-        var cs = getAvailableContracts(request);
-        if (cs.size() < request.getQuantity()) {
-            throw new QuantityOverflowException(request.getQuantity() + ">" + cs.size());
-        }
-        var r = new HashSet<Contract>(32);
-        for (int i = 0; i < request.getQuantity(); ++i) {
-            var ctr = cs.get(i);
-            r.add(ctr);
-            var c = algo.getCommission(request.getPrice(),
-                                       instrument,
-                                       request.getOffset(),
-                                       ctr,
-                                       request.getTradingDay());
-            setFrozenClose(c,
-                           ctr,
-                           getMarginByContract(ctr));
+        var cs = takeContracts(request);
+        var commissions = new double[cs.size()];
+        double total = 0.0D;
+        for (int i = 0; i < cs.size(); ++i) {
+            commissions[i] = algo.getCommission(request.getPrice(),
+                                                instrument,
+                                                request.getOffset(),
+                                                cs.get(i),
+                                                request.getTradingDay());
+            total += commissions[i];
         }
-        return r;
+        setFrozenClose(commissions,
+                       cs,
+                       request);
+        ledger.freezeCommission(total);
+        return cs;
     }
 
     private void checkAssetsOpen(Request request, Instrument instrument)
@@ -265,13 +503,40 @@ public class TraderEngine implements ITraderEngine {
                                    request.getOffset(),
                                    null,
                                    request.getTradingDay());
-        var total = request.getQuantity() * (m + c);
-        var available = getAvailableMoney();
-        if (available < total) {
-            throw new MoneyOverflowException(total + ">" + available);
+        var frozenMargin = request.getQuantity() * m;
+        var frozenCommission = request.getQuantity() * c;
+        if (!ledger.isReady()) {
+            /*
+             * Without ledger, check money and write the frozen rows under one
+             * lock, so the money can't be taken by request of another shard
+             * between the check and the rows.
+             */
+            synchronized (moneyLock) {
+                var total = frozenMargin + frozenCommission;
+                var available = getAvailableMoney();
+                if (available < total) {
+                    throw new MoneyOverflowException(total + ">" + available);
+                }
+                setFrozenOpen(a, m, c, request);
+            }
+            return;
         }
-        for (int i = 0; i < request.getQuantity(); ++i) {
+        /*
+         * Check and freeze money in ledger at once, so the money can't be
+         * taken by request of another shard before the rows are written.
+         */
+        if (!ledger.freeze(frozenMargin, frozenCommission)) {
+            throw new MoneyOverflowException((frozenMargin + frozenCommission) + ">" + ledger.getAvailable());
+        }
+        try {
             setFrozenOpen(a, m, c, request);
+        } catch (DataAccessException | NoTraderException ex) {
+            /*
+             * No row is written if freezing fails, release the whole
+             * quantity.
+             */
+            ledger.unfreeze(frozenMargin, frozenCommission);
+            throw ex;
         }
     }
 
@@ -324,6 +589,8 @@ public class TraderEngine implements ITraderEngine {
     }
 
     private void clearInternals() {
+        book.clear();
+        frozen.clear();
         orderTraders.clear();
         instruments.clear();
         traders.values().forEach(s -> {
@@ -360,6 +627,15 @@ public class TraderEngine implements ITraderEngine {
         }
     }
 
+    private Request createCancel(Request order) {
+        var c = order.copy();
+        c.setAction(ActionType.DELETE);
+        c.setRequestId(Utils.nextId());
+        c.setSignature(Utils.nextUuid().toString());
+        c.setUpdateTimestamp(Clocks.getDefault().now());
+        return c;
+    }
+
     private void decideTrader(Request request)
             throws TraderDisabledException, UnknownTraderIdException, NoTraderException {
         var rt = getProperTrader(request);
@@ -379,6 +655,7 @@ public class TraderEngine implements ITraderEngine {
          * Mock DELETE response.
          */
         var r = new Response();
+        r.setResponseId(Utils.nextId());
         r.setInstrumentId(request.getInstrumentId());
         r.setOrderId(orderId);
         r.setTraderId(traderId);
@@ -396,18 +673,18 @@ public class TraderEngine implements ITraderEngine {
         }
     }
 
-    private void deleteRequest(Request request, TraderContext context)
+    private void deleteRequest(Request request, TraderContext context, Outgoing outgoing)
             throws DestinatedIdNotFoundException, CountDownNotFoundException {
-        var ids = context.getDestinatedIds(request.getOrderId());
-        if (ids == null) {
+        var i = context.findFirstDestinatedId(request.getOrderId());
+        if (i == IdTranslator.NONE) {
             throw new DestinatedIdNotFoundException("Source ID: " + request.getOrderId() + ".");
         }
-        for (var i : ids) {
+        for (; i != IdTranslator.NONE; i = context.findNextDestinatedId(i)) {
             /*
              * If the order is fulfilled, don't cancel it any more.
              */
-            var cd = context.getDownCountByDestId(i);
-            if (cd == null) {
+            var cd = context.findDownCount(i);
+            if (cd == IdTranslator.NONE) {
                 throw new CountDownNotFoundException("Destinated ID: " + i + ").");
             }
             if (cd <= 0) {
@@ -415,11 +692,19 @@ public class TraderEngine implements ITraderEngine {
             }
             var c = Utils.copy(request);
             c.setOrderId(i);
-            context.insert(c);
+            outgoing.add(context, c);
         }
     }
 
+    private void drainThrottles() {
+        traders.values().forEach(TraderContext::drainThrottle);
+    }
+
     private void dispatchRequest(RequestDetail detail) {
+        var orderId = detail.getRequest().getOrderId();
+        if (orderId != null && detail.getRequest().getAction() == ActionType.NEW) {
+            latency.mark(LatencyStage.ENGINE_DISPATCH, orderId);
+        }
         try (var conn = ds.getConnection()) {
             if (null == detail.getRequest().getAction()) {
                 throw new IllegalRequestActionException("Action null ptr.");
@@ -452,19 +737,32 @@ public class TraderEngine implements ITraderEngine {
         return traders.get(traderId);
     }
 
-    private TraderContext findContextRandomly(Request request) throws NoTraderException {
-        var a = new ArrayList<>(traders.keySet());
-        traders.forEach((k, v) -> {
-            if (v.isEnabled()) {
-                a.add(k);
-            }
-        });
-        if (a.isEmpty()) {
-            throw new NoTraderException("No existing trader.");
+    private TraderContext findContextByRouter(Request request) throws NoTraderException {
+        var g = router.route(request, gateways);
+        if (g == null) {
+            throw new NoTraderException("No enabled trader.");
+        }
+        var traderId = g.getTraderId();
+        var ctx = traders.get(traderId);
+        if (ctx == null) {
+            throw new NoTraderException("Routed trader not registered: " + traderId + ".");
         }
-        var traderId = a.get(new Random().nextInt(a.size()));
         orderTraders.put(request.getOrderId(), traderId);
-        return traders.get(traderId);
+        return ctx;
+    }
+
+    private Map<Long, Request> findNewRequests(ITraderDataConnection conn) throws DataQueryException {
+        /*
+         * DELETE requests are saved with the same order ID, so keep the NEW
+         * ones.
+         */
+        var r = new HashMap<Long, Request>(512);
+        for (var q : conn.getRequests()) {
+            if (q.getOrderId() != null && Objects.equals(q.getAction(), ActionType.NEW)) {
+                r.put(q.getOrderId(), q);
+            }
+        }
+        return r;
     }
 
     private Map<String, Instrument> findRelatedInstruments(
@@ -503,7 +801,7 @@ public class TraderEngine implements ITraderEngine {
         }
     }
 
-    private Integer findTraderIdByOrderId(long orderId) throws UnknownOrderIdException {
+    Integer findTraderIdByOrderId(long orderId) throws UnknownOrderIdException {
         var traderId = orderTraders.get(orderId);
         if (traderId == null) {
             throw new UnknownOrderIdException(Long.toString(orderId));
@@ -514,9 +812,15 @@ public class TraderEngine implements ITraderEngine {
     private void forDelete(Request request)
             throws UnknownTraderIdException, CountDownNotFoundException, DestinatedIdNotFoundException {
         Objects.requireNonNull(request);
-        synchronized (this) {
-            forwardDeleteRequest(request, request.getTraderId());
+        var outgoing = new Outgoing();
+        var lock = shards.lockOf(request.getInstrumentId());
+        lock.lock();
+        try {
+            forwardDeleteRequest(request, request.getTraderId(), outgoing);
+        } finally {
+            lock.unlock();
         }
+        outgoing.send();
     }
 
     private void forNew(Request request, Instrument instrument)
@@ -530,57 +834,57 @@ public class TraderEngine implements ITraderEngine {
         /*
          * Remmeber the instrument it once operated.
          */
-        instruments.put(instrument.getInstrumentId(), instrument);
-        synchronized (this) {
+        var today = loadInstrument(instrument);
+        /*
+         * Money is shared by all shards and checked atomically by ledger, and
+         * contracts of an instrument are owned by its shard.
+         */
+        var outgoing = new Outgoing();
+        var lock = shards.lockOf(request.getInstrumentId());
+        lock.lock();
+        try {
             if (request.getOffset() == Offset.OPEN) {
                 decideTrader(request);
-                checkAssetsOpen(request, instrument);
-                forwardNewRequest(request, request.getTraderId());
+                try {
+                    checkAssetsOpen(request, today);
+                } catch (IllegalQuantityException | DataAccessException | MoneyOverflowException |
+                         AlgorithmException | NoTraderException | RuntimeException ex) {
+                    /*
+                     * Rejected order is never sent, so forget its trader.
+                     */
+                    orderTraders.remove(request.getOrderId());
+                    throw ex;
+                }
+                forwardNewRequest(request, request.getTraderId(), outgoing);
             } else {
-                var cs = checkAssetsClose(request, instrument);
+                var cs = checkAssetsClose(request, today);
                 var grp = group(cs, request);
                 for (var r : grp) {
-                    forwardNewRequest(r, r.getTraderId());
+                    forwardNewRequest(r, r.getTraderId(), outgoing);
                 }
             }
+        } finally {
+            lock.unlock();
         }
+        /*
+         * Send after unlock, so gateway I/O doesn't block callbacks of the
+         * shard. Shard thread sends before taking its next request, so
+         * requests of an instrument are still sent in order.
+         */
+        outgoing.send();
     }
 
-    private void forwardDeleteRequest(Request request, Integer traderId)
+    private void forwardDeleteRequest(Request request, Integer traderId, Outgoing outgoing)
             throws UnknownTraderIdException, DestinatedIdNotFoundException,
                    CountDownNotFoundException {
         var ctx = findContextByTraderId(traderId);
-        deleteRequest(request, ctx);
+        deleteRequest(request, ctx, outgoing);
     }
 
-    private void forwardNewRequest(Request request, Integer traderId) throws UnknownTraderIdException {
+    private void forwardNewRequest(Request request, Integer traderId, Outgoing outgoing)
+            throws UnknownTraderIdException {
         var ctx = findContextByTraderId(traderId);
-        newRequest(request, ctx);
-    }
-
-    private List<Contract> getAvailableContracts(Request request)
-            throws ContractNotFoundException, InvalidRequestOffsetException,
-                   InvalidRequestDirectionException, DataAccessException {
-        try (var conn = ds.getConnection()) {
-            final var cs = conn.getContractsByInstrumentId(request.getInstrumentId());
-            if (cs == null) {
-                throw new ContractNotFoundException(request.getInstrumentId());
-            }
-            var sorted = new LinkedList<Contract>(cs);
-            sorted.sort((Contract o1, Contract o2)
-                                -> o1.getOpenTimestamp().compareTo(o2.getOpenTimestamp()));
-            // Scan from earlier to later.
-            var it = sorted.iterator();
-            while (it.hasNext()) {
-                var c = it.next();
-                if (!canClose(c, request)) {
-                    it.remove();
-                }
-            }
-            return sorted;
-        } catch (SQLException | ClassNotFoundException | DataQueryException ex) {
-            throw new DataAccessException(ex.getMessage(), ex);
-        }
+        newRequest(request, ctx, outgoing);
     }
 
     private double getAvailableMoney() throws DataAccessException, AlgorithmException {
@@ -588,49 +892,24 @@ public class TraderEngine implements ITraderEngine {
         return (a.getBalance() - a.getMargin() - a.getFrozenMargin() - a.getFrozenCommission());
     }
 
-    private Collection<Contract> getContractsByTrades(Collection<Trade> rsps)
-            throws ContractNotFoundException, DataAccessException {
+    private Collection<Contract> getContractsByTrades(Collection<Trade> rsps, ITraderDataConnection conn)
+            throws ContractNotFoundException, DataQueryException {
         final var cs = new HashSet<Contract>(128);
-        try (var conn = ds.getConnection()) {
-            for (var r : rsps) {
-                var s = conn.getContractsByTradeId(r.getTradeId());
-                if (s == null) {
-                    throw new ContractNotFoundException("Trade ID:" + r.getTradeId() + ").");
-                }
-                cs.addAll(s);
-            }
-            return cs;
-        } catch (DataQueryException | SQLException | ClassNotFoundException ex) {
-            throw new DataAccessException(ex.getMessage(), ex);
-        }
-    }
-
-    private Margin getMarginByContract(Contract contract)
-            throws DataAccessException, MarginNotFoundException {
-        Margin m = null;
-        try (ITraderDataConnection conn = ds.getConnection()) {
-            var trade = conn.getTradeById(contract.getTradeId());
-            var margins = conn.getMarginsByOrderId(trade.getOrderId());
-            for (var x : margins) {
-                if (x.getContractId().equals(contract.getContractId())) {
-                    m = x;
-                    break;
-                }
-            }
-            if (m == null) {
-                throw new MarginNotFoundException("Margin not found for contract ID: " + contract.getContractId() + ".");
+        for (var r : rsps) {
+            var s = conn.getContractsByTradeId(r.getTradeId());
+            if (s == null) {
+                throw new ContractNotFoundException("Trade ID:" + r.getTradeId() + ").");
             }
-            return m;
-        } catch (DataQueryException | ClassNotFoundException | SQLException ex) {
-            throw new DataAccessException(ex.getMessage(), ex);
+            cs.addAll(s);
         }
+        return cs;
     }
 
     private TraderContext getProperTrader(Request request)
             throws TraderDisabledException, UnknownTraderIdException, NoTraderException {
         var traderId = request.getTraderId();
         if (traderId == null) {
-            return findContextRandomly(request);
+            return findContextByRouter(request);
         } else {
             var ctx = findContextByTraderId(traderId);
             if (!ctx.isEnabled()) {
@@ -641,8 +920,12 @@ public class TraderEngine implements ITraderEngine {
         }
     }
 
-    private Collection<String> getRalatedInstrumentIds() {
-        return null;
+    private Collection<String> getRalatedInstrumentIds(Collection<Contract> contracts) {
+        final var r = new HashSet<String>(512);
+        for (var c : contracts) {
+            r.add(c.getInstrumentId());
+        }
+        return r;
     }
 
     private TraderContext findAnyContext() throws NoTraderException {
@@ -655,10 +938,11 @@ public class TraderEngine implements ITraderEngine {
     private Account getSettledAccount() throws DataAccessException, AlgorithmException {
         try (var conn = ds.getConnection()) {
             final var tradingDay = findAnyContext().getGatewayInfo().getTradingDay();
-            final var ids = getRalatedInstrumentIds();
+            final var contracts = conn.getContracts();
+            final var ids = getRalatedInstrumentIds(contracts);
             final var settlePrices = findSettlementPrices(ids, conn);
             final var relatedInstruments = findRelatedInstruments(ids, conn);
-            final var positions = algo.getPositions(conn.getContracts(),
+            final var positions = algo.getPositions(contracts,
                                                     conn.getCommissions(),
                                                     conn.getMargins(),
                                                     settlePrices,
@@ -677,20 +961,42 @@ public class TraderEngine implements ITraderEngine {
         }
     }
 
+    private void saveCancels(Collection<Request> cancels) {
+        if (cancels.isEmpty()) {
+            return;
+        }
+        ITraderDataConnection conn = null;
+        try {
+            conn = ds.getConnection();
+            conn.transaction();
+            for (var r : cancels) {
+                conn.addRequest(r);
+            }
+            conn.commit();
+        } catch (Throwable th) {
+            rollback(conn);
+            Loggers.getLogger(TraderEngine.class.getCanonicalName())
+                   .log(Level.SEVERE, th.getMessage(), th);
+        } finally {
+            if (conn != null) {
+                conn.close();
+            }
+        }
+    }
+
     private void settle(ITraderDataSource ds)
             throws DataAccessException, ContractNotFoundException, AlgorithmException,
                    NoTraderException, UnknownTraderIdException, UnknownOrderIdException,
                    InvalidContractException, QuantityOverflowException, InstrumentNotFoundException,
                    WrongOrderIdException {
         try (var conn = ds.getConnection()) {
-            var rs = conn.getRequests();
             var tradingDay = findAnyContext().getGatewayInfo().getTradingDay();
-            Objects.requireNonNull(rs);
-            for (var r : rs) {
-                if (!r.getTradingDay().equals(tradingDay)) {
-                    continue;
+            if (bulkSettlement) {
+                settleBulk(SettlementBatch.load(conn, tradingDay));
+            } else {
+                for (var r : SettlementBatch.findOrders(conn.getRequests(), tradingDay)) {
+                    settleRequest(r, conn);
                 }
-                settleRequest(r, conn);
             }
             // Clear everyday to avoid mem leak.
             clearInternals();
@@ -715,6 +1021,7 @@ public class TraderEngine implements ITraderEngine {
                     o.setOffset(Offset.CLOSE_YD);
                     o.setQuantity(0L);
                     o.setTraderId(c.getTraderId());
+                    yd.put(c.getTraderId(), o);
                 }
                 o.setQuantity(o.getQuantity() + 1);
             } else {
@@ -727,6 +1034,7 @@ public class TraderEngine implements ITraderEngine {
                     o.setOffset(Offset.CLOSE_TODAY);
                     o.setQuantity(0L);
                     o.setTraderId(c.getTraderId());
+                    today.put(c.getTraderId(), o);
                 }
                 o.setQuantity(o.getQuantity() + 1);
             }
@@ -757,10 +1065,70 @@ public class TraderEngine implements ITraderEngine {
         }
     }
 
-    private void newRequest(Request request, TraderContext context) {
-        Long destId = context.getDestinatedId(request.getOrderId(), request.getQuantity());
-        request.setOrderId(destId);
-        context.insert(request);
+    private void invalidateLedger() {
+        /*
+         * Shard holding its lock mustn't see ledger changes its state.
+         */
+        shards.lockAll();
+        try {
+            ledger.invalidate();
+        } finally {
+            shards.unlockAll();
+        }
+    }
+
+    private Instrument loadInstrument(Instrument instrument) {
+        /*
+         * Engine keeps its own copy, so the caller's object isn't pinned and
+         * its later changes don't leak in. The copy is replaced and fee
+         * calculators are rebuilt only if the fees change.
+         */
+        var today = instruments.get(instrument.getInstrumentId());
+        if (today != null && InstrumentFees.hasSameFees(today, instrument)) {
+            return today;
+        }
+        return instruments.compute(instrument.getInstrumentId(), (k, v) -> {
+            if (v != null && InstrumentFees.hasSameFees(v, instrument)) {
+                return v;
+            }
+            var c = instrument.copy();
+            algo.loadInstrument(c);
+            return c;
+        });
+    }
+
+    private void resetLedger() {
+        /*
+         * Reset ledger before requests come. If it fails, requests check
+         * money against data source one at a time until reconciliation.
+         */
+        try {
+            ledger.reset(getSettledAccount());
+        } catch (Throwable th) {
+            ledger.invalidate();
+            Loggers.getLogger(TraderEngine.class.getCanonicalName())
+                   .log(Level.WARNING, th.getMessage(), th);
+        }
+    }
+
+    private boolean matches(CancelFilter filter, Request order, long srcId) {
+        if (filter.getInstrumentId() != null && !filter.getInstrumentId().equals(order.getInstrumentId())) {
+            return false;
+        }
+        if (filter.getDirection() != null && !filter.getDirection().equals(order.getDirection())) {
+            return false;
+        }
+        return filter.getOrderFilter() == null || filter.getOrderFilter().test(srcId);
+    }
+
+    private void newRequest(Request request, TraderContext context, Outgoing outgoing) {
+        /*
+         * Keep source ID in the request persisted after dispatch.
+         */
+        var c = Utils.copy(request);
+        c.setOrderId(context.getDestinatedId(request.getOrderId(), request.getQuantity()));
+        context.addLiveOrder(c);
+        outgoing.add(context, c);
     }
 
     private void renewAccount() throws UnexpectedErrorException, DataQueryException {
@@ -792,6 +1160,119 @@ public class TraderEngine implements ITraderEngine {
         }
     }
 
+    private void addLiveOrder(TraderContext ctx, Request request, long destId, long quantity) {
+        if (request == null) {
+            return;
+        }
+        var c = request.copy();
+        c.setOrderId(destId);
+        c.setQuantity(quantity);
+        c.setTraderId(ctx.getTraderId());
+        ctx.addLiveOrder(c);
+    }
+
+    private void recountLiveOrders(TraderContext ctx, ITraderDataConnection conn) throws DataQueryException {
+        var live = new HashSet<Long>(64);
+        ctx.forEachDownCount((destId, count) -> {
+            if (count > 0) {
+                live.add(ctx.findSourceId(destId));
+            }
+        });
+        if (live.isEmpty()) {
+            return;
+        }
+        var news = findNewRequests(conn);
+        for (var srcId : live) {
+            long traded = 0;
+            for (var t : conn.getTradesByOrderId(srcId)) {
+                if (Objects.equals(t.getTraderId(), ctx.getTraderId()) && t.getQuantity() != null) {
+                    traded += t.getQuantity();
+                }
+            }
+            boolean done = false;
+            for (var r : conn.getResponseByOrderId(srcId)) {
+                if (!Objects.equals(r.getTraderId(), ctx.getTraderId())) {
+                    continue;
+                }
+                var s = r.getStatus();
+                if (s != null && (s == OrderStatus.REJECTED || s == OrderStatus.DELETED)
+                    || r.getAction() != null && r.getAction() == ActionType.DELETE) {
+                    done = true;
+                }
+            }
+            /*
+             * Trades only carry source ID, so they fill destinated orders in
+             * the order they are sent.
+             */
+            var destIds = new ArrayList<Long>(2);
+            ctx.forEachDestinatedId(srcId, destIds::add);
+            Collections.reverse(destIds);
+            for (var destId : destIds) {
+                var quantity = ctx.findQuantity(destId);
+                if (quantity == IdTranslator.NONE) {
+                    continue;
+                }
+                var filled = Math.min(quantity, traded);
+                traded -= filled;
+                ctx.setDownCount(destId, done ? 0 : quantity - filled);
+                if (!done && quantity > filled) {
+                    addLiveOrder(ctx, news.get(srcId), destId, quantity);
+                }
+            }
+        }
+    }
+
+    private void skipUnsavedIds(ITraderDataConnection conn) throws DataQueryException {
+        /*
+         * Count saved inserts that no trader translates, and a request each
+         * shard may have sent but not saved. A close takes at most two IDs of
+         * a trader, for today's and yesterday's contracts.
+         */
+        long n = shards.count();
+        for (var srcId : findNewRequests(conn).keySet()) {
+            if (!isTranslated(srcId)) {
+                ++n;
+            }
+        }
+        for (var ctx : traders.values()) {
+            ctx.skip(2 * n);
+        }
+    }
+
+    private boolean isTranslated(long srcId) {
+        for (var ctx : traders.values()) {
+            if (ctx.findFirstDestinatedId(srcId) != IdTranslator.NONE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Map<Long, Margin> requireMargins(Collection<Contract> contracts, ITraderDataConnection conn)
+            throws DataQueryException, MarginNotFoundException {
+        /*
+         * Query margins of the closing contracts only, not the whole book.
+         */
+        final var margins = new HashMap<Long, Margin>(contracts.size());
+        for (var c : contracts) {
+            for (var m : conn.getMarginsByContractId(c.getContractId())) {
+                if (Objects.equals(m.getStatus(), FeeStatus.DEALED)) {
+                    margins.put(c.getContractId(), m);
+                }
+            }
+            if (!margins.containsKey(c.getContractId())) {
+                throw new MarginNotFoundException("Margin not found for contract ID: " + c.getContractId() + ".");
+            }
+        }
+        return margins;
+    }
+
+    private void resetContracts(Collection<Contract> contracts) {
+        for (var c : contracts) {
+            c.setStatus(ContractStatus.OPEN);
+        }
+    }
+
     private void rollback(ITraderDataConnection conn) {
         if (conn == null) {
             return;
@@ -804,41 +1285,81 @@ public class TraderEngine implements ITraderEngine {
         }
     }
 
-    private void setFrozenClose(double commission, Contract contract, Margin margin)
-            throws DataAccessException, NoTraderException {
+    private void reconcile() {
+        try {
+            /*
+             * Hold all shards during reconciliation, or transitions happen
+             * between reading data source and resetting ledger.
+             */
+            shards.lockAll();
+            try {
+                var drift = ledger.reconcile(getSettledAccount(), 1.0E-6);
+                if (drift != null) {
+                    callOnException(new TraderRuntimeException("Account ledger drifts: " + drift + "."));
+                }
+            } finally {
+                shards.unlockAll();
+            }
+        } catch (Throwable th) {
+            Loggers.getLogger(TraderEngine.class.getCanonicalName())
+                   .log(Level.WARNING, th.getMessage(), th);
+        }
+    }
+
+    private void setFrozenClose(double[] commissions, List<Contract> contracts, Request request)
+            throws DataAccessException, NoTraderException, MarginNotFoundException {
         ITraderDataConnection conn = null;
         try {
             conn = ds.getConnection();
             final var tradingDay = findAnyContext().getGatewayInfo().getTradingDay();
+            final var cms = new ArrayList<Commission>(contracts.size());
             conn.transaction();
             /*
-             * Update contracts status to make it frozen.
+             * Margin of the closing contract stays dealed until the contract
+             * is closed, and is released then. Just verify all margins exist.
              */
-            contract.setStatus(ContractStatus.CLOSING);
-            conn.updateContract(contract);
-            /*
-             * Update margin status to make it frozen.
-             */
-            margin.setStatus(FeeStatus.FORZEN);
-            conn.updateMargin(margin);
-            /*
-             * Add new commission for the current order, and make it frozen
-             * before order is filled.
-             */
-            var cms = new Commission();
-            cms.setCommission(commission);
-            cms.setCommissionId(Utils.nextId());
-            cms.setContractId(contract.getContractId());
-            cms.setStatus(FeeStatus.FORZEN);
-            cms.setTradingDay(tradingDay);
-            conn.addCommission(cms);
+            final var margins = requireMargins(contracts, conn);
+            final var bundles = new ArrayList<FrozenBundle>(contracts.size());
+            int i = 0;
+            for (var contract : contracts) {
+                /*
+                 * Update contracts status to make it frozen.
+                 */
+                contract.setStatus(ContractStatus.CLOSING);
+                /*
+                 * Add new commission for the current order, and make it frozen
+                 * before order is filled.
+                 */
+                var cms0 = new Commission();
+                cms0.setCommission(commissions[i++]);
+                cms0.setCommissionId(Utils.nextId());
+                cms0.setContractId(contract.getContractId());
+                cms0.setOrderId(request.getOrderId());
+                cms0.setStatus(FeeStatus.FORZEN);
+                cms0.setTradingDay(tradingDay);
+                cms0.setTag(request.getTag());
+                cms.add(cms0);
+                bundles.add(new FrozenBundle(cms0,
+                                             margins.get(contract.getContractId()),
+                                             contract));
+            }
+            conn.updateContracts(contracts);
+            conn.addCommissions(cms);
             /*
              * Commit change.
              */
             conn.commit();
+            frozen.load(request.getOrderId(), bundles);
         } catch (ClassNotFoundException | SQLException | DataException ex) {
             rollback(conn);
+            resetContracts(contracts);
+            book.unload(request.getInstrumentId());
             throw new DataAccessException(ex.getMessage(), ex);
+        } catch (MarginNotFoundException ex) {
+            rollback(conn);
+            resetContracts(contracts);
+            book.unload(request.getInstrumentId());
+            throw ex;
         } finally {
             if (conn != null) {
                 conn.close();
@@ -852,48 +1373,61 @@ public class TraderEngine implements ITraderEngine {
         try {
             conn = ds.getConnection();
             final var tradingDay = findAnyContext().getGatewayInfo().getTradingDay();
-            conn.transaction();
-            /*
-             * Add preparing contract.
-             */
-            var ctr = new Contract();
-            ctr.setContractId(Utils.nextId());
-            ctr.setTraderId(request.getTraderId());
-            ctr.setInstrumentId(request.getInstrumentId());
-            ctr.setOpenAmount(amount);
-            ctr.setOpenTradingDay(tradingDay);
-            ctr.setDirection(request.getDirection());
-            ctr.setStatus(ContractStatus.OPENING);
-            ctr.setTag(request.getTag());
-            conn.addContract(ctr);
-            /*
-             * Add frozen margin.
-             */
-            var cmn = new Commission();
-            cmn.setCommission(commission);
-            cmn.setCommissionId(Utils.nextId());
-            cmn.setContractId(ctr.getContractId());
-            cmn.setOrderId(request.getOrderId());
-            cmn.setStatus(FeeStatus.FORZEN);
-            cmn.setTradingDay(tradingDay);
-            cmn.setTag(request.getTag());
-            conn.addCommission(cmn);
-            /*
-             * Add frozen commission.
-             */
-            var mn = new Margin();
-            mn.setContractId(ctr.getContractId());
-            mn.setMargin(margin);
-            mn.setMarginId(Utils.nextId());
-            mn.setOrderId(request.getOrderId());
-            mn.setStatus(FeeStatus.FORZEN);
-            mn.setTradingDay(tradingDay);
-            mn.setTag(request.getTag());
-            conn.addMargin(mn);
+            final var quantity = request.getQuantity().intValue();
+            final var ctrs = new ArrayList<Contract>(quantity);
+            final var cmns = new ArrayList<Commission>(quantity);
+            final var mns = new ArrayList<Margin>(quantity);
+            final var bundles = new ArrayList<FrozenBundle>(quantity);
+            for (int i = 0; i < quantity; ++i) {
+                /*
+                 * Add preparing contract.
+                 */
+                var ctr = new Contract();
+                ctr.setContractId(Utils.nextId());
+                ctr.setTraderId(request.getTraderId());
+                ctr.setInstrumentId(request.getInstrumentId());
+                ctr.setOpenAmount(amount);
+                ctr.setOpenTradingDay(tradingDay);
+                ctr.setDirection(request.getDirection());
+                ctr.setStatus(ContractStatus.OPENING);
+                ctr.setTag(request.getTag());
+                ctrs.add(ctr);
+                /*
+                 * Add frozen commission.
+                 */
+                var cmn = new Commission();
+                cmn.setCommission(commission);
+                cmn.setCommissionId(Utils.nextId());
+                cmn.setContractId(ctr.getContractId());
+                cmn.setOrderId(request.getOrderId());
+                cmn.setStatus(FeeStatus.FORZEN);
+                cmn.setTradingDay(tradingDay);
+                cmn.setTag(request.getTag());
+                cmns.add(cmn);
+                /*
+                 * Add frozen margin.
+                 */
+                var mn = new Margin();
+                mn.setContractId(ctr.getContractId());
+                mn.setMargin(margin);
+                mn.setMarginId(Utils.nextId());
+                mn.setOrderId(request.getOrderId());
+                mn.setStatus(FeeStatus.FORZEN);
+                mn.setTradingDay(tradingDay);
+                mn.setTag(request.getTag());
+                mns.add(mn);
+                bundles.add(new FrozenBundle(cmn, mn, ctr));
+            }
             /*
-             * Commit change.
+             * Write all rows of the request in one transaction, so the whole
+             * quantity is frozen, or none.
              */
+            conn.transaction();
+            conn.addContracts(ctrs);
+            conn.addCommissions(cmns);
+            conn.addMargins(mns);
             conn.commit();
+            frozen.load(request.getOrderId(), bundles);
         } catch (ClassNotFoundException | SQLException | DataException ex) {
             rollback(conn);
             throw new DataAccessException(ex.getMessage(), ex);
@@ -904,6 +1438,94 @@ public class TraderEngine implements ITraderEngine {
         }
     }
 
+    private void startReconcile() {
+        stopReconcile();
+        var millis = reconcilePeriod.toMillis();
+        reconcileTimer = new Timer("ledger-reconcile", true);
+        reconcileTimer.scheduleAtFixedRate(new TimerTask() {
+            @Override
+            public void run() {
+                reconcile();
+            }
+        }, 0, millis);
+    }
+
+    private void startSnapshot() {
+        stopSnapshot();
+        if (snapshotPath == null) {
+            return;
+        }
+        var millis = snapshotPeriod.toMillis();
+        snapshotTimer = new Timer("engine-snapshot", true);
+        snapshotTimer.scheduleAtFixedRate(new TimerTask() {
+            @Override
+            public void run() {
+                try {
+                    snapshot();
+                } catch (SnapshotException ex) {
+                    callOnException(new TraderRuntimeException(ex.getMessage(), ex));
+                }
+            }
+        }, millis, millis);
+    }
+
+    private synchronized void updateGateways() {
+        /*
+         * Router iterates the immutable snapshot without allocation.
+         */
+        var a = new ArrayList<TraderGatewayContext>(traders.size());
+        traders.values().forEach(c -> {
+            a.add(c.getTraderGatewayContext());
+        });
+        gateways = List.copyOf(a);
+    }
+
+    private void stopSnapshot() {
+        if (snapshotTimer != null) {
+            snapshotTimer.cancel();
+            snapshotTimer = null;
+        }
+    }
+
+    private void stopReconcile() {
+        if (reconcileTimer != null) {
+            reconcileTimer.cancel();
+            reconcileTimer = null;
+        }
+    }
+
+    private List<Contract> takeContracts(Request request)
+            throws QuantityOverflowException, InvalidRequestOffsetException,
+                   InvalidRequestDirectionException, DataAccessException {
+        if (null == request.getOffset()) {
+            throw new InvalidRequestOffsetException("Offset null ptr.");
+        }
+        if (null == request.getDirection()) {
+            throw new InvalidRequestDirectionException("Direction null ptr.");
+        }
+        var instrumentId = request.getInstrumentId();
+        if (!book.isLoaded(instrumentId)) {
+            try (var conn = ds.getConnection()) {
+                book.load(instrumentId,
+                          conn.getContractsByInstrumentId(instrumentId));
+            } catch (SQLException | ClassNotFoundException | DataQueryException ex) {
+                throw new DataAccessException(ex.getMessage(), ex);
+            }
+        }
+        /*
+         * Close contracts of the opposite direction.
+         */
+        var direction = request.getDirection() == Direction.BUY ? Direction.SELL : Direction.BUY;
+        var quantity = request.getQuantity().intValue();
+        var r = book.take(instrumentId,
+                          direction,
+                          quantity);
+        if (r == null) {
+            throw new QuantityOverflowException(quantity + ">" + book.count(instrumentId, direction));
+        }
+        return r;
+    }
+
     private void settleAccount() throws DataAccessException, UnexpectedErrorException {
         ITraderDataConnection conn = null;
         try {
@@ -930,6 +1552,25 @@ public class TraderEngine implements ITraderEngine {
         }
     }
 
+    private void settleBulk(SettlementBatch batch)
+            throws InvalidContractException, QuantityOverflowException, InstrumentNotFoundException,
+                   WrongOrderIdException, UnknownTraderIdException, UnknownOrderIdException {
+        var orders = batch.getOrders(algo, instruments);
+        var rs = batch.getRequests();
+        /*
+         * Deleting an order only adds data of that order, so it doesn't
+         * change states of the other orders computed in advance.
+         */
+        for (int i = 0; i < rs.size(); ++i) {
+            var s = orders.get(i).getStatus();
+            if (s == OrderStatus.ACCEPTED
+                || s == OrderStatus.QUEUED
+                || s == OrderStatus.UNQUEUED) {
+                deleteOrderRequest(rs.get(i));
+            }
+        }
+    }
+
     private void settleRequest(Request r, ITraderDataConnection conn)
             throws DataQueryException, ContractNotFoundException, DataAccessException,
                    QuantityOverflowException, InvalidContractException, UnknownTraderIdException,
@@ -938,7 +1579,7 @@ public class TraderEngine implements ITraderEngine {
         Objects.requireNonNull(orderId);
         var trades = conn.getTradesByOrderId(orderId);
         Objects.requireNonNull(trades);
-        var ctrs = getContractsByTrades(trades);
+        var ctrs = getContractsByTrades(trades, conn);
         Objects.requireNonNull(ctrs);
         var cals = conn.getResponseByOrderId(orderId);
         Objects.requireNonNull(cals);
@@ -955,6 +1596,30 @@ public class TraderEngine implements ITraderEngine {
         }
     }
 
+    ContractBook getContractBook() {
+        return book;
+    }
+
+    EngineFacilities getFacilities() {
+        return facilities;
+    }
+
+    FrozenRegistry getFrozenRegistry() {
+        return frozen;
+    }
+
+    AccountLedger getLedger() {
+        return ledger;
+    }
+
+    TraderContext getTraderContext(int traderId) throws UnknownTraderIdException {
+        return findContextByTraderId(traderId);
+    }
+
+    Lock getShardLock(String instrumentId) {
+        return shards.lockOf(instrumentId);
+    }
+
     <T> void publishEvent(Class<T> clazz, T object) {
         if (es == null || es.isEmpty()) {
             return;
@@ -969,4 +1634,21 @@ public class TraderEngine implements ITraderEngine {
             ex.printStackTrace();
         }
     }
+
+    /**
+     * Requests decided under shard lock and sent to gateways in a batch per
+     * trader after unlock.
+     */
+    private static class Outgoing {
+
+        private final Map<TraderContext, List<Request>> requests = new LinkedHashMap<>(4);
+
+        void add(TraderContext context, Request request) {
+            requests.computeIfAbsent(context, k -> new ArrayList<>(4)).add(request);
+        }
+
+        void send() {
+            requests.forEach(TraderContext::insertAll);
+        }
+    }
 }
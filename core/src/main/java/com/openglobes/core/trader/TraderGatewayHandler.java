@@ -22,9 +22,10 @@ import com.openglobes.core.data.*;
 import com.openglobes.core.utils.Utils;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Objects;
+import java.util.concurrent.locks.Lock;
 
 /**
  * Implementation of service handler to process responses.
@@ -35,9 +36,11 @@ import java.util.Objects;
 public class TraderGatewayHandler implements ITraderGatewayHandler {
 
     private final TraderContext ctx;
+    private final EngineFacilities facilities;
 
-    public TraderGatewayHandler(TraderContext context) {
+    TraderGatewayHandler(TraderContext context, EngineFacilities facilities) {
         this.ctx = context;
+        this.facilities = facilities;
     }
 
     @Override
@@ -47,10 +50,13 @@ public class TraderGatewayHandler implements ITraderGatewayHandler {
 
     @Override
     public void onResponse(Response response) {
-        try (var conn = ctx.getEngine().getDataSource().getConnection()) {
+        try {
             preprocess(response);
-            synchronized (ctx.getEngine()) {
-                conn.addResponse(response);
+            markLatency(response.getOrderId());
+            var lock = getShardLock(response.getInstrumentId());
+            lock.lock();
+            try (var work = beginWork(response.getInstrumentId(), response.getOrderId())) {
+                work.getConnection().addResponse(response);
                 /*
                  * If the request is create a new order, but now it fails, delete that
                  * order.
@@ -60,8 +66,11 @@ public class TraderGatewayHandler implements ITraderGatewayHandler {
                     resetRejectedResponse(response);
                 }
                 if (response.getAction() == ActionType.DELETE) {
-                    dealDelete(response);
+                    dealDelete(response, work);
                 }
+                work.commit();
+            } finally {
+                lock.unlock();
             }
             callOnResponse(response);
         } catch (DataException ex) {
@@ -70,11 +79,14 @@ public class TraderGatewayHandler implements ITraderGatewayHandler {
         } catch (SQLException | ClassNotFoundException | TraderException ex) {
             callOnException(new TraderRuntimeException(ex.getMessage(),
                                                        ex));
+        } catch (TraderRuntimeException ex) {
+            callOnException(ex);
         }
     }
 
     @Override
     public void onStatusChange(ServiceRuntimeStatus status) {
+        ctx.refreshInFlight();
         publishEvent(ServiceRuntimeStatus.class, status);
     }
 
@@ -82,16 +94,37 @@ public class TraderGatewayHandler implements ITraderGatewayHandler {
     public void onTrade(Trade trade) {
         try {
             preprocess(trade);
-            synchronized (ctx.getEngine()) {
-                dealTrade(trade);
+            markLatency(trade.getOrderId());
+            var lock = getShardLock(trade.getInstrumentId());
+            lock.lock();
+            try (var work = beginWork(trade.getInstrumentId(), trade.getOrderId())) {
+                dealTrade(trade, work);
+                work.commit();
+            } finally {
+                lock.unlock();
             }
             callOnTrade(trade);
-        } catch (TraderException ex) {
+        } catch (DataException ex) {
+            callOnException(new TraderRuntimeException("Fail saving trade to data source.",
+                                                       ex));
+        } catch (SQLException | ClassNotFoundException | TraderException ex) {
             callOnException(new TraderRuntimeException(ex.getMessage(),
                                                        ex));
+        } catch (GatewayRuntimeException ex) {
+            callOnException(new TraderRuntimeException(ex.getMessage() + "(" + ex.getCode() + ")",
+                                                       ex));
         }
     }
 
+    private UnitOfWork beginWork(String instrumentId, Long orderId) throws InvalidDataSourceException,
+                                                                           SQLException,
+                                                                           ClassNotFoundException {
+        return UnitOfWork.begin(ctx.getEngine().getDataSource(),
+                                facilities,
+                                instrumentId,
+                                orderId);
+    }
+
     private void callOnException(TraderRuntimeException e) {
         try {
             onError(new GatewayRuntimeException(0,
@@ -109,41 +142,32 @@ public class TraderGatewayHandler implements ITraderGatewayHandler {
         publishEvent(Trade.class, trade);
     }
 
-    private void checkFrozenInfo(Collection<FrozenBundle> bs) throws InvalidFrozenBundleException {
-        for (var v : bs) {
-            if (v.getCommission() == null || v.getContract() == null || v.getMargin() == null) {
-                throw new InvalidFrozenBundleException("Invalid frozen bundle and its fields.");
-            }
-        }
-    }
-
     private void closeDelete(Response response,
-                             ITraderDataConnection conn) throws DataQueryException,
-                                                                DataUpdateException,
-                                                                DataRemovalException,
-                                                                InvalidFrozenBundleException,
-                                                                IllegalContractStatusException {
+                             UnitOfWork work) throws DataQueryException,
+                                                     DataRemovalException,
+                                                     InvalidFrozenBundleException,
+                                                     IllegalContractStatusException {
         Collection<FrozenBundle> bs = getFrozenBundles(response.getOrderId(),
-                                                       conn);
+                                                       work.getConnection());
         for (var b : bs) {
             var s = b.getContract().getStatus();
             if (s != ContractStatus.CLOSING) {
                 continue;
             }
-            deleteClose(b.getCommission(),
-                        b.getContract(),
-                        conn);
+            deleteClose(b,
+                        work);
+            work.getChange().unfreeze(0.0D, b.getCommission().getCommission());
         }
     }
 
     private void closeTrade(Trade trade,
-                            ITraderDataConnection conn) throws DataQueryException,
-                                                               QuantityOverflowException,
-                                                               InstrumentNotFoundException,
-                                                               InvalidFrozenBundleException,
-                                                               IllegalContractStatusException {
+                            UnitOfWork work) throws DataQueryException,
+                                                    QuantityOverflowException,
+                                                    InstrumentNotFoundException,
+                                                    InvalidFrozenBundleException,
+                                                    IllegalContractStatusException {
         Collection<FrozenBundle> bs = getFrozenBundles(trade.getOrderId(),
-                                                       conn);
+                                                       work.getConnection());
         int count = 0;
         var it = bs.iterator();
         while (count < trade.getQuantity() && it.hasNext()) {
@@ -152,11 +176,9 @@ public class TraderGatewayHandler implements ITraderGatewayHandler {
             if (s != ContractStatus.CLOSING) {
                 continue;
             }
-            dealClose(b.getCommission(),
-                      b.getMargin(),
-                      b.getContract(),
+            dealClose(b,
                       trade,
-                      conn);
+                      work);
             ++count;
         }
         if (count < trade.getQuantity()) {
@@ -164,206 +186,159 @@ public class TraderGatewayHandler implements ITraderGatewayHandler {
         }
     }
 
-    private void dealClose(Commission commission,
-                           Margin margin,
-                           Contract contract,
+    private void dealClose(FrozenBundle bundle,
                            Trade trade,
-                           ITraderDataConnection conn) throws InstrumentNotFoundException,
-                                                              IllegalContractStatusException {
+                           UnitOfWork work) throws InstrumentNotFoundException,
+                                                   IllegalContractStatusException {
+        var commission = bundle.getCommission();
+        var margin = bundle.getMargin();
+        var contract = bundle.getContract();
         requireStatus(commission.getStatus(),
                       FeeStatus.FORZEN);
         requireStatus(margin.getStatus(),
                       FeeStatus.DEALED);
         requireStatus(contract.getStatus(),
                       ContractStatus.CLOSING);
-        try {
-            /*
-             * Update commission.
-             */
-            commission.setStatus(FeeStatus.DEALED);
-            conn.updateCommission(commission);
-            /*
-             * Update margin.
-             */
-            margin.setStatus(FeeStatus.REMOVED);
-            conn.updateMargin(margin);
-            /*
-             * Update contract.
-             */
-            var price = trade.getPrice();
-            var instrument = getTodayInstrument(trade.getInstrumentId());
-            var amount = ctx.getEngine().getAlgorithm().getAmount(price, instrument);
-            contract.setCloseAmount(amount);
-            contract.setStatus(ContractStatus.CLOSED);
-            contract.setCloseTradingDay(trade.getTradingDay());
-            conn.updateContract(contract);
-        } catch (DataUpdateException ex) {
-
+        /*
+         * Update commission.
+         */
+        commission.setStatus(FeeStatus.DEALED);
+        /*
+         * Update margin.
+         */
+        margin.setStatus(FeeStatus.REMOVED);
+        /*
+         * Update contract.
+         */
+        var price = trade.getPrice();
+        var instrument = getTodayInstrument(trade.getInstrumentId());
+        var amount = ctx.getEngine().getAlgorithm().getAmount(price, instrument);
+        contract.setCloseAmount(amount);
+        contract.setStatus(ContractStatus.CLOSED);
+        contract.setCloseTradingDay(trade.getTradingDay());
+        work.update(bundle);
+        work.getChange().dealClose(margin.getMargin(),
+                                   commission.getCommission(),
+                                   getCloseProfit(contract));
+    }
+
+    private void dealDelete(Response response,
+                            UnitOfWork work) throws RequestNotFoundException,
+                                                    InvalidRequestOffsetException,
+                                                    InvalidFrozenBundleException,
+                                                    IllegalContractStatusException,
+                                                    DataQueryException,
+                                                    DataRemovalException {
+        var o = work.getConnection().getRequestByOrderId(response.getOrderId());
+        if (o == null) {
+            throw new RequestNotFoundException("Order ID: " + response.getOrderId() + ".");
         }
-    }
-
-    private void dealDelete(Response response) throws RequestNotFoundException,
-                                                      InvalidRequestOffsetException,
-                                                      DataAccessException,
-                                                      InvalidFrozenBundleException,
-                                                      InvalidDataSourceException,
-                                                      IllegalContractStatusException {
-        ITraderDataConnection conn = null;
-        try {
-            /*
-             * Get data source and start transaction.
-             */
-            conn = getDataSource().getConnection();
-            conn.transaction();
-            /*
-             * Add cancel response.
-             */
-            conn.addResponse(response);
-            var o = conn.getRequestByOrderId(response.getOrderId());
-            if (o == null) {
-                throw new RequestNotFoundException("Order ID: " + response.getOrderId() + ".");
-            }
-            var offset = o.getOffset();
-            if (offset == null) {
-                throw new InvalidRequestOffsetException("Order ID: " + o.getOrderId() + ".");
-            }
-            if (offset == Offset.OPEN) {
-                openDelete(response,
-                           conn);
-            } else {
-                closeDelete(response,
-                            conn);
-            }
-            conn.commit();
-        } catch (TraderRuntimeException e) {
-            rollbackAndCallHandler(conn,
-                                   e);
-        } catch (DataException | SQLException | ClassNotFoundException ex) {
-            throw new DataAccessException(ex.getMessage(),
-                                          ex);
-        } finally {
-            if (conn != null) {
-                conn.close();
-            }
+        var offset = o.getOffset();
+        if (offset == null) {
+            throw new InvalidRequestOffsetException("Order ID: " + o.getOrderId() + ".");
+        }
+        if (offset == Offset.OPEN) {
+            openDelete(response,
+                       work);
+        } else {
+            closeDelete(response,
+                        work);
         }
     }
 
-    private void dealOpen(Commission commission,
-                          Margin margin,
-                          Contract contract,
+    private void dealOpen(FrozenBundle bundle,
                           Trade trade,
-                          ITraderDataConnection conn) throws InstrumentNotFoundException,
-                                                             DataAccessException,
-                                                             IllegalContractStatusException {
+                          UnitOfWork work) throws InstrumentNotFoundException,
+                                                  IllegalContractStatusException {
+        var commission = bundle.getCommission();
+        var margin = bundle.getMargin();
+        var contract = bundle.getContract();
         requireStatus(commission.getStatus(),
                       FeeStatus.FORZEN);
         requireStatus(margin.getStatus(),
                       FeeStatus.FORZEN);
         requireStatus(contract.getStatus(),
                       ContractStatus.OPENING);
-        try {
-            /*
-             * Update commission.
-             */
-            commission.setStatus(FeeStatus.DEALED);
-            conn.updateCommission(commission);
-            /*
-             * Update margin.
-             */
-            margin.setStatus(FeeStatus.DEALED);
-            conn.updateMargin(margin);
-            /*
-             * Update contract.
-             */
-            var price = trade.getPrice();
-            var instrument = getTodayInstrument(trade.getInstrumentId());
-            var amount = ctx.getEngine().getAlgorithm().getAmount(price, instrument);
-            contract.setOpenAmount(amount);
-            contract.setStatus(ContractStatus.OPEN);
-            contract.setTradeId(trade.getTradeId());
-            contract.setOpenTimestamp(trade.getTimestamp());
-            contract.setOpenTradingDay(trade.getTradingDay());
-            conn.updateCommission(commission);
-        } catch (DataUpdateException ex) {
-            throw new DataAccessException(ex.getMessage(),
-                                          ex);
+        /*
+         * Update commission.
+         */
+        commission.setStatus(FeeStatus.DEALED);
+        /*
+         * Update margin.
+         */
+        margin.setStatus(FeeStatus.DEALED);
+        /*
+         * Update contract.
+         */
+        var price = trade.getPrice();
+        var instrument = getTodayInstrument(trade.getInstrumentId());
+        var amount = ctx.getEngine().getAlgorithm().getAmount(price, instrument);
+        contract.setOpenAmount(amount);
+        contract.setStatus(ContractStatus.OPEN);
+        contract.setTradeId(trade.getTradeId());
+        contract.setOpenTimestamp(trade.getTimestamp());
+        contract.setOpenTradingDay(trade.getTradingDay());
+        work.update(bundle);
+        getContractBook().add(contract);
+        work.getChange().dealOpen(margin.getMargin(),
+                                  commission.getCommission());
+    }
+
+    private void dealTrade(Trade trade,
+                           UnitOfWork work) throws InvalidTradeOffsetException,
+                                                   QuantityOverflowException,
+                                                   InstrumentNotFoundException,
+                                                   InvalidFrozenBundleException,
+                                                   IllegalContractStatusException,
+                                                   DataInsertionException,
+                                                   DataQueryException {
+        /*
+         * Add trade. Please note that volumn in trade could be zero,
+         * notifying a status change of the inserted order request.
+         */
+        work.getConnection().addTrade(trade);
+        var offset = trade.getOffset();
+        if (offset == null) {
+            throw new InvalidTradeOffsetException("Order ID: " + trade.getOrderId() + ".");
         }
-    }
-
-    private void dealTrade(Trade trade) throws InvalidTradeOffsetException,
-                                               QuantityOverflowException,
-                                               InstrumentNotFoundException,
-                                               DataAccessException,
-                                               InvalidFrozenBundleException,
-                                               InvalidDataSourceException,
-                                               IllegalContractStatusException {
-        ITraderDataConnection conn = null;
-        try {
-            /*
-             * Get data source and start transaction.
-             */
-            conn = getDataSource().getConnection();
-            conn.transaction();
-            /*
-             * Add trade. Please note that volumn in trade could be zero,
-             * notifying a status change of the inserted order request.
-             */
-            conn.addTrade(trade);
-            var offset = trade.getOffset();
-            if (offset == null) {
-                throw new InvalidTradeOffsetException("Order ID: " + trade.getOrderId() + ".");
-            }
-            if (Offset.OPEN == offset) {
-                openTrade(trade,
-                          conn);
-            } else {
-                closeTrade(trade,
-                           conn);
-            }
-            conn.commit();
-        } catch (GatewayRuntimeException e) {
-            rollbackAndCallHandler(conn,
-                                   e.getCode(),
-                                   e.getMessage(),
-                                   e);
-        } catch (SQLException | DataInsertionException | DataQueryException | ClassNotFoundException ex) {
-            throw new DataAccessException(ex.getMessage(),
-                                          ex);
-        } finally {
-            if (conn != null) {
-                conn.close();
-            }
+        if (Offset.OPEN == offset) {
+            openTrade(trade,
+                      work);
+        } else {
+            closeTrade(trade,
+                       work);
         }
     }
 
-    private void deleteClose(Commission commission,
-                             Contract contract,
-                             ITraderDataConnection conn) throws DataUpdateException,
-                                                                DataRemovalException,
-                                                                DataQueryException,
-                                                                IllegalContractStatusException {
+    private void deleteClose(FrozenBundle bundle,
+                             UnitOfWork work) throws DataRemovalException,
+                                                     IllegalContractStatusException {
+        var contract = bundle.getContract();
         requireStatus(contract.getStatus(),
                       ContractStatus.CLOSING);
         contract.setStatus(ContractStatus.OPEN);
-        conn.updateContract(contract);
-        conn.removeCommission(commission.getCommissionId());
+        work.getConnection().removeCommission(bundle.getCommission().getCommissionId());
+        work.reopen(bundle);
+        getContractBook().add(contract);
     }
 
-    private void deleteOpen(Commission commission,
-                            Margin margin,
-                            Contract contract,
-                            ITraderDataConnection conn) throws DataRemovalException,
-                                                               IllegalContractStatusException {
+    private void deleteOpen(FrozenBundle bundle,
+                            UnitOfWork work) throws DataRemovalException,
+                                                    IllegalContractStatusException {
+        var commission = bundle.getCommission();
+        var margin = bundle.getMargin();
+        var contract = bundle.getContract();
         requireStatus(commission.getStatus(),
                       FeeStatus.FORZEN);
         requireStatus(margin.getStatus(),
                       FeeStatus.FORZEN);
         requireStatus(contract.getStatus(),
                       ContractStatus.OPENING);
+        var conn = work.getConnection();
         conn.removeContract(contract.getContractId());
         conn.removeCommission(commission.getCommissionId());
         conn.removeMargin(margin.getMarginId());
-
+        work.remove(bundle);
     }
 
     private void resetRejectedResponse(Response response) {
@@ -374,33 +349,63 @@ public class TraderGatewayHandler implements ITraderGatewayHandler {
 
     }
 
-    private ITraderDataSource getDataSource() throws InvalidDataSourceException {
-        var ds = ctx.getEngine().getDataSource();
-        if (ds == null) {
-            throw new InvalidDataSourceException("Data source null ptr.");
+    private double getCloseProfit(Contract contract) {
+        var open = contract.getOpenAmount();
+        var close = contract.getCloseAmount();
+        if (contract.getDirection() == Direction.BUY) {
+            return close - open;
+        } else {
+            return open - close;
         }
-        return ds;
     }
 
     private Collection<FrozenBundle> getFrozenBundles(Long orderId,
                                                       ITraderDataConnection conn) throws DataQueryException,
                                                                                          InvalidFrozenBundleException {
-        final var map = new HashMap<Long, FrozenBundle>(128);
+        var registry = getFrozenRegistry();
+        var bs = registry.get(orderId);
+        if (bs == null) {
+            /*
+             * Order frozen before restart or reloaded after a failed change.
+             */
+            registry.load(orderId, loadFrozenBundles(orderId, conn));
+            bs = registry.get(orderId);
+        }
+        return bs;
+    }
+
+    static Collection<FrozenBundle> loadFrozenBundles(Long orderId,
+                                                      ITraderDataConnection conn) throws DataQueryException,
+                                                                                         InvalidFrozenBundleException {
+        final var r = new ArrayList<FrozenBundle>(128);
         var ms = conn.getMarginsByOrderId(orderId);
         Objects.requireNonNull(ms);
         var cs = conn.getCommissionsByOrderId(orderId);
         Objects.requireNonNull(cs);
         for (var c : cs) {
+            if (c.getStatus() != FeeStatus.FORZEN) {
+                /*
+                 * Dealed lot is done.
+                 */
+                continue;
+            }
             var cid = c.getContractId();
             Objects.requireNonNull(cid);
             var cc = conn.getContractById(cid);
             Objects.requireNonNull(cc);
             var m = getMarginByContractId(cid, ms);
-            Objects.requireNonNull(m);
-            map.put(cid, new FrozenBundle(c, m, cc));
+            if (m == null) {
+                /*
+                 * Closing contract's margin belongs to the order opening it.
+                 */
+                m = getMarginByContract(cc, conn);
+            }
+            if (m == null) {
+                throw new InvalidFrozenBundleException("Margin not found for contract ID: " + cid + ".");
+            }
+            r.add(new FrozenBundle(c, m, cc));
         }
-        checkFrozenInfo(map.values());
-        return map.values();
+        return r;
     }
 
     private Instrument getTodayInstrument(String instrumentId) throws InstrumentNotFoundException {
@@ -411,7 +416,17 @@ public class TraderGatewayHandler implements ITraderGatewayHandler {
         return instrument;
     }
 
-    private Margin getMarginByContractId(Long contractId, Collection<Margin> ms) {
+    private static Margin getMarginByContract(Contract contract,
+                                              ITraderDataConnection conn) throws DataQueryException {
+        var trade = conn.getTradeById(contract.getTradeId());
+        if (trade == null) {
+            return null;
+        }
+        return getMarginByContractId(contract.getContractId(),
+                                     conn.getMarginsByOrderId(trade.getOrderId()));
+    }
+
+    private static Margin getMarginByContractId(Long contractId, Collection<Margin> ms) {
         for (var m : ms) {
             if (Objects.equals(m.getContractId(), contractId)) {
                 return m;
@@ -422,8 +437,8 @@ public class TraderGatewayHandler implements ITraderGatewayHandler {
 
     private Long getSrcId(Long destId) throws SourceIdNotFoundException {
         Objects.requireNonNull(destId, "Destinated ID null.");
-        var srcId = ctx.getSourceId(destId);
-        if (srcId == null) {
+        var srcId = ctx.findSourceId(destId);
+        if (srcId == IdTranslator.NONE) {
             throw new SourceIdNotFoundException("Source ID not found(Destinated ID:" + destId + ").");
         }
         return srcId;
@@ -439,35 +454,36 @@ public class TraderGatewayHandler implements ITraderGatewayHandler {
         return r;
     }
 
-    private void openDelete(Response response, ITraderDataConnection conn) throws DataQueryException,
-                                                                                  DataRemovalException,
-                                                                                  InvalidFrozenBundleException,
-                                                                                  IllegalContractStatusException {
+    private void openDelete(Response response,
+                            UnitOfWork work) throws DataQueryException,
+                                                    DataRemovalException,
+                                                    InvalidFrozenBundleException,
+                                                    IllegalContractStatusException {
         Collection<FrozenBundle> bs = getFrozenBundles(response.getOrderId(),
-                                                       conn);
+                                                       work.getConnection());
         for (var b : bs) {
             var s = b.getContract().getStatus();
             if (s != ContractStatus.OPENING) {
                 continue;
             }
-            deleteOpen(b.getCommission(),
-                       b.getMargin(),
-                       b.getContract(),
-                       conn);
+            deleteOpen(b,
+                       work);
+            work.getChange().unfreeze(b.getMargin().getMargin(),
+                                      b.getCommission().getCommission());
         }
     }
 
-    private void openTrade(Trade trade, ITraderDataConnection conn) throws DataQueryException,
-                                                                           QuantityOverflowException,
-                                                                           InstrumentNotFoundException,
-                                                                           DataAccessException,
-                                                                           InvalidFrozenBundleException,
-                                                                           IllegalContractStatusException {
+    private void openTrade(Trade trade,
+                           UnitOfWork work) throws DataQueryException,
+                                                   QuantityOverflowException,
+                                                   InstrumentNotFoundException,
+                                                   InvalidFrozenBundleException,
+                                                   IllegalContractStatusException {
         /*
          * Deal opening order.
          */
         Collection<FrozenBundle> bs = getFrozenBundles(trade.getOrderId(),
-                                                       conn);
+                                                       work.getConnection());
         int count = 0;
         var it = bs.iterator();
         while (count < trade.getQuantity()
@@ -477,12 +493,9 @@ public class TraderGatewayHandler implements ITraderGatewayHandler {
             if (s != ContractStatus.OPENING) {
                 continue;
             }
-            dealOpen(b.getCommission(),
-                     b.getMargin(),
-                     b.getContract(),
+            dealOpen(b,
                      trade,
-                     conn
-                    );
+                     work);
             ++count;
         }
         if (count < trade.getQuantity()) {
@@ -491,93 +504,71 @@ public class TraderGatewayHandler implements ITraderGatewayHandler {
     }
 
     private void preprocess(Trade trade) throws SourceIdNotFoundException {
-        /*
-         * Order is deleted, so count down to zero.
-         */
-        ctx.countDown(trade.getOrderId(),
-                      trade.getQuantity());
+        ctx.acknowledge(trade.getOrderId(),
+                        false);
+        var rest = ctx.countDownAndGet(trade.getOrderId(),
+                                       trade.getQuantity());
+        if (rest == 0 && trade.getQuantity() > 0) {
+            ctx.complete();
+        }
         trade.setOrderId(getSrcId(trade.getOrderId()));
         trade.setTraderId(ctx.getTraderId());
     }
 
     private void preprocess(Response response) throws SourceIdNotFoundException {
 
-        var rest = ctx.getDownCountByDestId(response.getOrderId());
-        Objects.requireNonNull(rest,
-                               "Count down not found(Order ID: " + response.getOrderId() + ").");
-        /*
-         * Order is deleted, so count down to zero.
-         */
-        ctx.countDown(response.getOrderId(),
-                      rest);
+        var rest = ctx.findDownCount(response.getOrderId());
+        if (rest == IdTranslator.NONE) {
+            throw new NullPointerException("Count down not found(Order ID: " + response.getOrderId() + ").");
+        }
+        var rejected = response.getStatus() != null && response.getStatus() == OrderStatus.REJECTED;
+        ctx.acknowledge(response.getOrderId(),
+                        rejected);
+        if (rejected
+            || response.getAction() == ActionType.DELETE
+            || (response.getStatus() != null && response.getStatus() == OrderStatus.DELETED)) {
+            /*
+             * Order is deleted, so count down to zero.
+             */
+            if (rest > 0) {
+                ctx.countDownAndGet(response.getOrderId(),
+                                    rest);
+                ctx.complete();
+            }
+        }
         response.setOrderId(getSrcId(response.getOrderId()));
         response.setTraderId(ctx.getTraderId());
     }
 
-    private <T> void publishEvent(Class<T> clazz, T object) {
-        var e = (TraderEngine) ctx.getEngine();
-        e.publishEvent(clazz, object);
-    }
-
-    private void requireStatus(Integer saw, Integer wanted) throws IllegalContractStatusException {
-        if (!Objects.equals(saw, wanted)) {
-            throw new IllegalContractStatusException("Expect " + wanted + " but " + saw + ".");
+    private void markLatency(Long orderId) {
+        if (orderId != null) {
+            ctx.getEngine().getLatencyMonitor().mark(LatencyStage.GATEWAY_RESPONSE, orderId);
         }
     }
 
-    private void rollback(ITraderDataConnection conn) {
-        if (conn == null) {
-            return;
-        }
-        try {
-            conn.rollback();
-        } catch (SQLException ex) {
-            callOnException(new TraderRuntimeException(ex.getMessage(), ex));
-        }
+    private Lock getShardLock(String instrumentId) {
+        return facilities.getShardLock(instrumentId);
     }
 
-    private void rollbackAndCallHandler(ITraderDataConnection conn,
-                                        Integer code,
-                                        String message,
-                                        Throwable th) {
-        rollback(conn);
-        callOnException(new TraderRuntimeException(message + "(" + code + ")",
-                                                   th));
+    private ContractBook getContractBook() {
+        return facilities.getContractBook();
     }
 
-    private void rollbackAndCallHandler(ITraderDataConnection conn,
-                                        TraderRuntimeException e) {
-        rollback(conn);
-        callOnException(e);
+    private FrozenRegistry getFrozenRegistry() {
+        return facilities.getFrozenRegistry();
     }
 
-    private class FrozenBundle {
-
-        private final Contract contract;
-        private final Margin margin;
-        private Commission commission;
-
-        FrozenBundle(Commission commission, Margin margin, Contract contract) {
-            this.commission = commission;
-            this.margin = margin;
-            this.contract = contract;
-        }
-
-        Commission getCommission() {
-            return commission;
-        }
-
-        void setCommission(Commission commission) {
-            this.commission = commission;
-        }
+    private AccountLedger getLedger() {
+        return facilities.getLedger();
+    }
 
-        Contract getContract() {
-            return contract;
-        }
+    private <T> void publishEvent(Class<T> clazz, T object) {
+        facilities.publishEvent(clazz, object);
+    }
 
-        Margin getMargin() {
-            return margin;
+    private void requireStatus(Integer saw, Integer wanted) throws IllegalContractStatusException {
+        if (!Objects.equals(saw, wanted)) {
+            throw new IllegalContractStatusException("Expect " + wanted + " but " + saw + ".");
         }
-
     }
 }
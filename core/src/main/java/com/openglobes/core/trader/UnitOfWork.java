@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2020 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.trader;
+
+import com.openglobes.core.data.DataUpdateException;
+import com.openglobes.core.data.ITraderDataConnection;
+import com.openglobes.core.data.ITraderDataSource;
+import com.openglobes.core.utils.Loggers;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.logging.Level;
+
+/**
+ * Unit of work spanning one gateway callback. It carries one connection and
+ * transaction through state transitions and persistence of the callback, and
+ * commits once.
+ * <p>
+ * Changes of frozen bundles are written in batches at commit, and ledger and
+ * frozen registry are changed after commit. If the work is closed without
+ * commit, the transaction is rolled back, and contract book and bundles of
+ * the order are reloaded from data source on next use.
+ *
+ * @author Hongbao Chen
+ * @since 1.0
+ */
+class UnitOfWork implements AutoCloseable {
+
+    private final AccountLedger.Change change;
+    private final List<Commission> commissions;
+    private final ITraderDataConnection conn;
+    private final List<Contract> contracts;
+    private final List<FrozenBundle> done;
+    private final EngineFacilities facilities;
+    private final String instrumentId;
+    private final List<Margin> margins;
+    private final Long orderId;
+    private boolean committed;
+
+    private UnitOfWork(EngineFacilities facilities,
+                       ITraderDataConnection conn,
+                       String instrumentId,
+                       Long orderId) {
+        this.facilities = facilities;
+        this.conn = conn;
+        this.instrumentId = instrumentId;
+        this.orderId = orderId;
+        change = new AccountLedger.Change();
+        commissions = new ArrayList<>(16);
+        contracts = new ArrayList<>(16);
+        margins = new ArrayList<>(16);
+        done = new ArrayList<>(16);
+        committed = false;
+    }
+
+    /**
+     * Begin work for callback of the specified order. Caller holds the shard
+     * lock of the instrument.
+     *
+     * @param ds           data source.
+     * @param facilities   engine internals.
+     * @param instrumentId instrument ID of the order.
+     * @param orderId      source order ID.
+     *
+     * @return work with an open transaction.
+     *
+     * @throws InvalidDataSourceException data source is not set.
+     * @throws SQLException               fail getting connection or starting
+     *                                    transaction.
+     * @throws ClassNotFoundException     fail loading driver.
+     */
+    static UnitOfWork begin(ITraderDataSource ds,
+                            EngineFacilities facilities,
+                            String instrumentId,
+                            Long orderId) throws InvalidDataSourceException,
+                                                 SQLException,
+                                                 ClassNotFoundException {
+        Objects.requireNonNull(facilities);
+        if (ds == null) {
+            throw new InvalidDataSourceException("Data source null ptr.");
+        }
+        var conn = ds.getConnection();
+        try {
+            conn.transaction();
+        } catch (SQLException ex) {
+            conn.close();
+            throw ex;
+        }
+        return new UnitOfWork(facilities, conn, instrumentId, orderId);
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (!committed) {
+                rollback();
+                facilities.getContractBook().unload(instrumentId);
+                facilities.getFrozenRegistry().unload(orderId);
+            }
+        } finally {
+            conn.close();
+        }
+    }
+
+    /**
+     * Write the batched changes, commit transaction, then apply the changes
+     * to ledger and frozen registry.
+     *
+     * @throws DataUpdateException fail writing changes.
+     * @throws SQLException        fail committing transaction.
+     */
+    void commit() throws DataUpdateException, SQLException {
+        if (!commissions.isEmpty()) {
+            conn.updateCommissions(commissions);
+        }
+        if (!margins.isEmpty()) {
+            conn.updateMargins(margins);
+        }
+        if (!contracts.isEmpty()) {
+            conn.updateContracts(contracts);
+        }
+        conn.commit();
+        committed = true;
+        facilities.getLedger().apply(change);
+        facilities.getFrozenRegistry().complete(orderId, done);
+    }
+
+    AccountLedger.Change getChange() {
+        return change;
+    }
+
+    ITraderDataConnection getConnection() {
+        return conn;
+    }
+
+    /**
+     * Bundle is deleted and its rows are removed.
+     *
+     * @param bundle deleted bundle.
+     */
+    void remove(FrozenBundle bundle) {
+        done.add(bundle);
+    }
+
+    /**
+     * Closing contract of the bundle is reopened.
+     *
+     * @param bundle deleted closing bundle.
+     */
+    void reopen(FrozenBundle bundle) {
+        contracts.add(bundle.getContract());
+        done.add(bundle);
+    }
+
+    /**
+     * Bundle is dealed and all its rows are updated.
+     *
+     * @param bundle dealed bundle.
+     */
+    void update(FrozenBundle bundle) {
+        commissions.add(bundle.getCommission());
+        margins.add(bundle.getMargin());
+        contracts.add(bundle.getContract());
+        done.add(bundle);
+    }
+
+    private void rollback() {
+        try {
+            conn.rollback();
+        } catch (SQLException ex) {
+            Loggers.getLogger(UnitOfWork.class.getCanonicalName())
+                   .log(Level.WARNING, ex.getMessage(), ex);
+        }
+    }
+}
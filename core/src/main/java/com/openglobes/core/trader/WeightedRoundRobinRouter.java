@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2020 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.trader;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Smooth weighted round-robin over enabled gateways. Gateways without a
+ * weight have weight 1, so it is plain round-robin by default.
+ *
+ * @author Hongbao Chen
+ * @since 1.0
+ */
+public class WeightedRoundRobinRouter implements ITraderRouter {
+
+    private final Map<Integer, long[]> states;
+
+    public WeightedRoundRobinRouter() {
+        states = new ConcurrentHashMap<>(32);
+    }
+
+    @Override
+    public synchronized TraderGatewayContext route(Request request, List<TraderGatewayContext> gateways) {
+        TraderGatewayContext r = null;
+        long[] chosen = null;
+        long total = 0;
+        for (int i = 0; i < gateways.size(); ++i) {
+            var g = gateways.get(i);
+            if (!Boolean.TRUE.equals(g.isEnabled())) {
+                continue;
+            }
+            /*
+             * State holds weight and current weight, created once per
+             * gateway.
+             */
+            var s = states.computeIfAbsent(g.getTraderId(), k -> new long[]{1, 0});
+            s[1] += s[0];
+            total += s[0];
+            if (chosen == null || s[1] > chosen[1]) {
+                chosen = s;
+                r = g;
+            }
+        }
+        if (chosen != null) {
+            chosen[1] -= total;
+        }
+        return r;
+    }
+
+    public synchronized void setWeight(int traderId, int weight) {
+        if (weight <= 0) {
+            throw new IllegalArgumentException("Non-positive weight.");
+        }
+        states.computeIfAbsent(traderId, k -> new long[]{1, 0})[0] = weight;
+    }
+}
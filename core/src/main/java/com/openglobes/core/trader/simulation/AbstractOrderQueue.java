@@ -21,26 +21,106 @@ import com.openglobes.core.trader.OrderStatus;
 import com.openglobes.core.trader.Request;
 import com.openglobes.core.trader.Response;
 import com.openglobes.core.trader.Trade;
-import com.openglobes.core.utils.Utils;
+import com.openglobes.core.utils.Clocks;
+import com.openglobes.core.utils.IClock;
 
-import java.time.LocalDate;
-import java.time.ZonedDateTime;
 import java.util.*;
+import java.util.function.DoubleToLongFunction;
+
+/**
+ * Price ladder of one side of the book.
+ * <p>
+ * Levels are kept in a tree sorted from the best price, and the best level is
+ * cached so it is read without searching. Order IDs are indexed to their
+ * nodes on levels, so cancel and amend find and unlink an order in constant
+ * time. A level is removed once it has no order.
+ *
+ * @author Hongbao Chen
+ * @since 1.0
+ */
+public abstract class AbstractOrderQueue {
 
-public abstract class AbstractOrderQueue extends LinkedList<RequestBucket> {
     protected final LinkedList<Response> responses = new LinkedList<>();
+    protected final LinkedList<Trade> trades = new LinkedList<>();
+    private final IClock clock;
+    private final IdSequence ids;
+    private final TreeMap<Double, RequestBucket> levels;
+    private final Map<Long, RequestBucket.OrderNode> orders = new HashMap<>(64);
+    private RequestBucket best;
+
+    protected AbstractOrderQueue(Comparator<Double> priceOrder, IClock clock) {
+        this(priceOrder, clock, IdSequence.random());
+    }
+
+    AbstractOrderQueue(Comparator<Double> priceOrder, IClock clock, IdSequence ids) {
+        this.levels = new TreeMap<>(priceOrder);
+        this.clock = Objects.requireNonNull(clock);
+        this.ids = Objects.requireNonNull(ids);
+    }
 
-    @Override
-    public Object clone() {
-        return super.clone();
+    /**
+     * Amend price and quantity of the order. If price is the same and quantity
+     * doesn't increase, the order is changed in place and keeps its place in
+     * queue. Otherwise, it moves to the tail of the level at the new price.
+     * <p>
+     * Quantity is the total quantity of the order, and it must be larger than
+     * the traded volumn. Request without price keeps the order price.
+     *
+     * @param request amend request.
+     */
+    public void amendOrder(Request request) {
+        amendOrder(request, price -> 0L);
+    }
+
+    /**
+     * Amend the order, and set market volumn ahead of it if it moves to the
+     * tail of a level.
+     *
+     * @param request amend request.
+     * @param aheadAt market volumn ahead at the specified price.
+     */
+    void amendOrder(Request request, DoubleToLongFunction aheadAt) {
+        var n = findNode(request.getOrderId());
+        if (n == null) {
+            addResponse(request,
+                        OrderStatus.REJECTED,
+                        100,
+                        "找不到报单");
+            return;
+        }
+        var o = n.getOrder();
+        var quantity = request.getQuantity();
+        if (quantity == null || quantity <= o.getTradedVolumn()) {
+            addResponse(request,
+                        OrderStatus.REJECTED,
+                        104,
+                        "改单数量错误");
+            return;
+        }
+        var price = request.getPrice() == null ? o.getPrice() : request.getPrice();
+        var b = n.getBucket();
+        if (price.equals(o.getPrice()) && quantity <= o.getQuantity()) {
+            b.amend(n, quantity);
+            return;
+        }
+        b.unlink(n);
+        trimLevel(b);
+        o.setPrice(price);
+        findBucketAtPrice(price, o.getDirection(), o.getOffset()).append(n);
+        b = n.getBucket();
+        b.amend(n, quantity);
+        n.setAhead(aheadAt.applyAsLong(price));
     }
 
     public void dequeOrder(Request request) throws NoSuchElementException {
         var orderId = request.getOrderId();
-        for (var b : this) {
-            if (b.removeOrder(orderId)) {
-                return;
-            }
+        var n = findNode(orderId);
+        if (n != null) {
+            var b = n.getBucket();
+            b.removeOrder(n);
+            orders.remove(orderId);
+            trimLevel(b);
+            return;
         }
         addResponse(request,
                     OrderStatus.REJECTED,
@@ -49,69 +129,215 @@ public abstract class AbstractOrderQueue extends LinkedList<RequestBucket> {
     }
 
     public void enqueOrder(Request request) throws IllegalArgumentException {
+        enqueOrder(request, 0L);
+    }
+
+    /**
+     * Append the order to the tail of the level at its price with the
+     * specified market volumn ahead.
+     *
+     * @param request new order request.
+     * @param ahead   market volumn ahead of the order.
+     *
+     * @throws IllegalArgumentException if the request is invalid.
+     */
+    void enqueOrder(Request request, long ahead) throws IllegalArgumentException {
         try {
             checkOffset(request);
-            findBucketAtPrice(request).enqueueRequest(request);
+            var n = findBucketAtPrice(request.getPrice(),
+                                      request.getDirection(),
+                                      request.getOffset()).enqueueRequest(request);
+            n.setAhead(ahead);
+            if (request.getOrderId() != null) {
+                orders.put(request.getOrderId(), n);
+            }
         } catch (Throwable th) {
             throw new IllegalArgumentException(th.getMessage(), th);
         }
     }
 
     public static Response createResponseWithError(Request request, int status, int code, String msg) {
+        return createResponseWithError(request, status, code, msg, Clocks.getDefault());
+    }
+
+    public static Response createResponseWithError(Request request,
+                                                   int status,
+                                                   int code,
+                                                   String msg,
+                                                   IClock clock) {
+        return createResponseWithError(request, status, code, msg, clock, IdSequence.random());
+    }
+
+    static Response createResponseWithError(Request request,
+                                            int status,
+                                            int code,
+                                            String msg,
+                                            IClock clock,
+                                            IdSequence ids) {
         var r = new Response();
         r.setAction(request.getAction());
-        r.setResponseId(Utils.nextId());
+        r.setResponseId(ids.nextId());
         r.setDirection(request.getDirection());
         r.setStatus(status);
         r.setOffset(request.getOffset());
         r.setInstrumentId(request.getInstrumentId());
         r.setOrderId(request.getOrderId());
-        r.setSignature(UUID.randomUUID().toString());
+        r.setSignature(ids.nextSignature());
         r.setStatusCode(code);
         r.setStatusMessage(msg);
-        r.setTimestamp(ZonedDateTime.now());
+        r.setTimestamp(clock.now());
         r.setTraderId(Integer.MAX_VALUE);
-        r.setTradingDay(LocalDate.now());
+        r.setTradingDay(clock.today());
         return r;
     }
 
     private void addResponse(Request request, int status, int code, String msg) {
-        responses.add(createResponseWithError(request, status, code, msg));
+        responses.add(createResponseWithError(request, status, code, msg, clock, ids));
+    }
+
+    /**
+     * Trade the request on the level, and remove the level if all its orders
+     * are fulfilled.
+     *
+     * @param bucket  level to trade.
+     * @param request request to trade on level.
+     */
+    void applyRequest(RequestBucket bucket, Request request) {
+        try {
+            bucket.applyRequest(request);
+        } finally {
+            trimLevel(bucket);
+        }
     }
 
-    protected RequestBucket findBucketAtPrice(Request request) {
-        for (var b : this) {
-            if (b.getPrice().equals(request.getPrice())) {
-                return b;
+    /**
+     * Fill levels the market crosses, from the best level. Resting order trades
+     * at the level price.
+     * <p>
+     * Level at or behind the counter quote fills with quote volumn, and level
+     * behind the last price fills with tick volumn. Tick volumn at the level
+     * price takes the queue first. Volumn shown at a level price caps the
+     * queue ahead of its orders.
+     *
+     * @param quote       counter quote price, or {@code null}.
+     * @param quoteVolumn counter quote volumn.
+     * @param same        quote price on this side, or {@code null}.
+     * @param sameVolumn  quote volumn on this side.
+     * @param last        last price, or {@code null}.
+     * @param lastVolumn  volumn traded in the tick.
+     * @param full        {@code true} if order reached by market fills in full.
+     */
+    void fillTick(Double quote,
+                  long quoteVolumn,
+                  Double same,
+                  long sameVolumn,
+                  Double last,
+                  long lastVolumn,
+                  boolean full) {
+        if (same != null) {
+            var b = levels.get(same);
+            if (b != null) {
+                b.capAhead(sameVolumn);
+            }
+        }
+        var c = levels.comparator();
+        var crossed = new LinkedList<RequestBucket>();
+        for (var b : levels.values()) {
+            var p = b.getPrice();
+            if ((quote == null || c.compare(p, quote) > 0) &&
+                (last == null || c.compare(p, last) > 0)) {
+                break;
+            }
+            crossed.add(b);
+        }
+        for (var b : crossed) {
+            var p = b.getPrice();
+            if (quote != null && c.compare(p, quote) <= 0 && (full || quoteVolumn > 0)) {
+                quoteVolumn -= b.fill(quoteVolumn, false, full);
+            }
+            if (!b.isEmpty() && last != null && (full || lastVolumn > 0)) {
+                var r = c.compare(p, last);
+                if (r < 0) {
+                    lastVolumn -= b.fill(lastVolumn, false, full);
+                } else if (r == 0) {
+                    lastVolumn -= b.fill(lastVolumn, true, full);
+                }
             }
+            trimLevel(b);
+        }
+    }
+
+    protected RequestBucket findBucketAtPrice(double price, int direction, int offset) {
+        var b = levels.get(price);
+        if (b != null) {
+            return b;
+        }
+        b = new RequestBucket(this,
+                              price,
+                              direction,
+                              offset);
+        levels.put(b.getPrice(), b);
+        if (best == null || levels.comparator().compare(b.getPrice(), best.getPrice()) < 0) {
+            best = b;
         }
-        var b = new RequestBucket(request.getPrice(),
-                                  request.getDirection(),
-                                  request.getOffset());
-        add(b);
-        sortBuckets();
         return b;
     }
 
+    private RequestBucket.OrderNode findNode(Long orderId) {
+        return orderId == null ? null : orders.get(orderId);
+    }
+
+    /**
+     * Get level of the best price.
+     *
+     * @return best level, or {@code null} if queue is empty.
+     */
+    RequestBucket getBest() {
+        return best;
+    }
+
+    IClock getClock() {
+        return clock;
+    }
+
+    IdSequence getIds() {
+        return ids;
+    }
+
+    public boolean isEmpty() {
+        return best == null;
+    }
+
+    public int size() {
+        return levels.size();
+    }
+
     public Collection<Trade> getTradeUpdates() {
-        var r = new LinkedList<Trade>();
-        forEach(bucket -> {
-            r.addAll(bucket.getTradeUpdates());
-        });
+        var r = new LinkedList<>(trades);
+        trades.clear();
         return r;
     }
 
     public Collection<Response> getResponseUpdates() {
-        var r = new LinkedList<Response>();
-        forEach(bucket -> {
-            r.addAll(bucket.getResponseUpdates());
-        });
-        r.addAll(responses);
+        var r = new LinkedList<>(responses);
         responses.clear();
         return r;
     }
 
-    protected abstract void sortBuckets();
+    void removeIndex(Long orderId) {
+        orders.remove(orderId);
+    }
+
+    private void trimLevel(RequestBucket bucket) {
+        if (!bucket.isEmpty()) {
+            return;
+        }
+        levels.remove(bucket.getPrice());
+        if (bucket == best) {
+            var e = levels.firstEntry();
+            best = e == null ? null : e.getValue();
+        }
+    }
 
     protected abstract void checkOffset(Request request);
 }
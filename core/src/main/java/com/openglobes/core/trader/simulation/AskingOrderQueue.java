@@ -18,6 +18,8 @@ package com.openglobes.core.trader.simulation;
 
 import com.openglobes.core.trader.Direction;
 import com.openglobes.core.trader.Request;
+import com.openglobes.core.utils.Clocks;
+import com.openglobes.core.utils.IClock;
 
 import java.util.Comparator;
 
@@ -27,14 +29,16 @@ import java.util.Comparator;
  */
 public class AskingOrderQueue extends AbstractOrderQueue {
 
-    private static final long serialVersionUID = 127649287430L;
-
     public AskingOrderQueue() {
+        this(Clocks.getDefault());
     }
 
-    @Override
-    protected void sortBuckets() {
-        sort(Comparator.comparingDouble(RequestBucket::getPrice));
+    public AskingOrderQueue(IClock clock) {
+        this(clock, IdSequence.random());
+    }
+
+    AskingOrderQueue(IClock clock, IdSequence ids) {
+        super(Comparator.naturalOrder(), clock, ids);
     }
 
     @Override
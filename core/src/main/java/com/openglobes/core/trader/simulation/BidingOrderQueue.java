@@ -18,6 +18,10 @@ package com.openglobes.core.trader.simulation;
 
 import com.openglobes.core.trader.Direction;
 import com.openglobes.core.trader.Request;
+import com.openglobes.core.utils.Clocks;
+import com.openglobes.core.utils.IClock;
+
+import java.util.Comparator;
 
 /**
  * @author Hongbao Chen
@@ -25,14 +29,16 @@ import com.openglobes.core.trader.Request;
  */
 public class BidingOrderQueue extends AbstractOrderQueue {
 
-    private static final long serialVersionUID = 372740219L;
-
     public BidingOrderQueue() {
+        this(Clocks.getDefault());
     }
 
-    @Override
-    protected void sortBuckets() {
-        sort((b0, b1) -> Double.compare(b1.getPrice(), b0.getPrice()));
+    public BidingOrderQueue(IClock clock) {
+        this(clock, IdSequence.random());
+    }
+
+    BidingOrderQueue(IClock clock, IdSequence ids) {
+        super(Comparator.reverseOrder(), clock, ids);
     }
 
     @Override
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2021 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.trader.simulation;
+
+import com.openglobes.core.utils.Utils;
+
+import java.util.UUID;
+
+/**
+ * IDs and signatures of updates of a market maker.
+ * <p>
+ * Seeded sequence counts from its seed, so a backtest replaying the same
+ * ticks and requests gives the same IDs and signatures on every run. Random
+ * sequence takes IDs unique in process and random signatures.
+ * <p>
+ * Sequence is used by the thread owning its market maker only.
+ *
+ * @author Hongbao Chen
+ * @since 1.0
+ */
+class IdSequence {
+
+    private final long base;
+    private final boolean seeded;
+    private long ids;
+    private long signatures;
+
+    private IdSequence(long seed, boolean seeded) {
+        this.base = (seed & 0x7FFFFFFFL) << 31;
+        this.seeded = seeded;
+        this.ids = 0L;
+        this.signatures = 0L;
+    }
+
+    static IdSequence random() {
+        return new IdSequence(0L, false);
+    }
+
+    /**
+     * Create sequence counting from the seed. Sequences of different seeds
+     * don't give the same ID until one gives 2^31 IDs.
+     *
+     * @param seed seed.
+     *
+     * @return seeded sequence.
+     */
+    static IdSequence seeded(long seed) {
+        return new IdSequence(seed, true);
+    }
+
+    long nextId() {
+        if (!seeded) {
+            return Utils.nextId();
+        }
+        return base + ++ids;
+    }
+
+    String nextSignature() {
+        if (!seeded) {
+            return Utils.nextUuid().toString();
+        }
+        return new UUID(base, ++signatures).toString();
+    }
+}
@@ -16,13 +16,26 @@
  */
 package com.openglobes.core.trader.simulation;
 
+import com.openglobes.core.market.Tick;
 import com.openglobes.core.trader.*;
+import com.openglobes.core.utils.Clocks;
+import com.openglobes.core.utils.IClock;
+import com.openglobes.core.utils.VirtualClock;
 
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 
 /**
+ * Order book of an instrument.
+ * <p>
+ * Without fill model, orders match each other. With fill model, orders rest on
+ * the book and fill only against recorded ticks, and updates are stamped by
+ * a virtual clock that moves to the time of each tick. IDs and signatures of
+ * updates count from a seed, so replaying the same ticks and requests gives
+ * the same updates.
+ *
  * @author Hongbao Chen
  * @since 1.0
  */
@@ -30,12 +43,74 @@ public class MarketMaker implements IMarketMaker {
 
     private final AbstractOrderQueue askQue;
     private final AbstractOrderQueue bidQue;
-    private final LinkedList<Trade> trades = new LinkedList<>();
-    private final LinkedList<Response> responses = new LinkedList<>();
+    private final IClock clock;
+    private final IdSequence ids;
+    private final TickFillModel model;
+    private final VirtualClock tickClock;
+    private Tick lastTick;
 
     public MarketMaker() {
-        askQue = new AskingOrderQueue();
-        bidQue = new BidingOrderQueue();
+        this(Clocks.getDefault());
+    }
+
+    /**
+     * Create market maker matching orders with each other and stamping
+     * updates by the clock.
+     *
+     * @param clock clock.
+     */
+    public MarketMaker(IClock clock) {
+        this(null, clock, null, IdSequence.random());
+    }
+
+    /**
+     * Create market maker filling orders against ticks with the specified
+     * model.
+     *
+     * @param model tick fill model, or {@code null} to match orders with each
+     *              other.
+     */
+    public MarketMaker(TickFillModel model) {
+        this(model, 0L);
+    }
+
+    /**
+     * Create market maker filling orders against ticks with the specified
+     * model, and counting IDs and signatures of updates from the seed. Market
+     * makers of different instruments on the same gateway need different
+     * seeds so their IDs don't collide.
+     *
+     * @param model tick fill model, or {@code null} to match orders with
+     *              each other.
+     * @param seed  seed of IDs and signatures.
+     */
+    public MarketMaker(TickFillModel model, long seed) {
+        this(model,
+             null,
+             model == null ? null : new VirtualClock(),
+             model == null ? IdSequence.random() : IdSequence.seeded(seed));
+    }
+
+    private MarketMaker(TickFillModel model, IClock clock, VirtualClock tickClock, IdSequence ids) {
+        this.model = model;
+        this.tickClock = tickClock;
+        this.ids = ids;
+        this.clock = tickClock != null ? tickClock : clock != null ? clock : Clocks.getDefault();
+        this.askQue = new AskingOrderQueue(this.clock, ids);
+        this.bidQue = new BidingOrderQueue(this.clock, ids);
+    }
+
+    /**
+     * Get clock that stamps updates of this market maker.
+     *
+     * @return clock.
+     */
+    public IClock getClock() {
+        return clock;
+    }
+
+    IdSequence getIds() {
+        return ids;
     }
 
     @Override
@@ -43,8 +118,6 @@ public class MarketMaker implements IMarketMaker {
         var r = new LinkedList<Trade>();
         r.addAll(askQue.getTradeUpdates());
         r.addAll(bidQue.getTradeUpdates());
-        r.addAll(trades);
-        trades.clear();
         return r;
     }
 
@@ -53,8 +126,6 @@ public class MarketMaker implements IMarketMaker {
         var r = new LinkedList<Response>();
         r.addAll(askQue.getResponseUpdates());
         r.addAll(bidQue.getResponseUpdates());
-        r.addAll(responses);
-        responses.clear();
         return r;
     }
 
@@ -72,11 +143,96 @@ public class MarketMaker implements IMarketMaker {
             case ActionType.DELETE:
                 deleteOrder(request);
                 break;
+            case ActionType.AMEND:
+                amendOrder(request);
+                break;
             default:
                 throw new IllegalArgumentException("Illegal action: " + request.getAction() + ".");
         }
     }
 
+    /**
+     * Fill resting orders with the tick. Orders placed before the tick are
+     * filled, so no order trades on quotes seen before it joins the book.
+     *
+     * @param tick recorded tick.
+     *
+     * @throws IllegalStateException if market maker has no fill model.
+     */
+    public void matchTick(Tick tick) {
+        Objects.requireNonNull(tick);
+        if (model == null) {
+            throw new IllegalStateException("No tick fill model.");
+        }
+        if (tick.getTimestamp() != null) {
+            tickClock.set(tick.getTimestamp(), tick.getTradingDay());
+        }
+        var full = model.getFillQuantity() == TickFillModel.FILL_FULL;
+        var askVolumn = volumnOf(tick.getAskVolumn());
+        var bidVolumn = volumnOf(tick.getBidVolumn());
+        var lastVolumn = volumnOf(tick.getQuantity());
+        bidQue.fillTick(tick.getAskPrice(),
+                        askVolumn,
+                        tick.getBidPrice(),
+                        bidVolumn,
+                        tick.getPrice(),
+                        lastVolumn,
+                        full);
+        askQue.fillTick(tick.getBidPrice(),
+                        bidVolumn,
+                        tick.getAskPrice(),
+                        askVolumn,
+                        tick.getPrice(),
+                        lastVolumn,
+                        full);
+        lastTick = tick;
+    }
+
+    private long volumnOf(Long volumn) {
+        return volumn == null ? 0L : volumn;
+    }
+
+    /**
+     * Market volumn ahead of an order joining the level at the price. Order
+     * better than the market quote is at front, and order at the quote is
+     * behind the shown volumn. Depth behind the quote is unknown, so order
+     * there waits until its level is shown.
+     */
+    private long aheadAt(Double price, int direction) {
+        if (price == null ||
+            model == null ||
+            model.getQueuePosition() == TickFillModel.QUEUE_FRONT ||
+            lastTick == null) {
+            return 0L;
+        }
+        var buy = direction == Direction.BUY;
+        var quote = buy ? lastTick.getBidPrice() : lastTick.getAskPrice();
+        if (quote == null) {
+            return 0L;
+        }
+        var d = buy ? price - quote : quote - price;
+        if (d > 0) {
+            return 0L;
+        } else if (d == 0) {
+            return volumnOf(buy ? lastTick.getBidVolumn() : lastTick.getAskVolumn());
+        } else {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private void amendOrder(Request request) {
+        switch (request.getDirection()) {
+            case Direction.BUY:
+                bidQue.amendOrder(request, price -> aheadAt(price, Direction.BUY));
+                break;
+            case Direction.SELL:
+                askQue.amendOrder(request, price -> aheadAt(price, Direction.SELL));
+                break;
+            default:
+                throw new IllegalArgumentException("Illegal direction: " + request.getDirection() + ".");
+        }
+    }
+
     private void deleteOrder(Request request) throws NoSuchElementException {
         switch (request.getDirection()) {
             case Direction.BUY:
@@ -93,18 +249,27 @@ public class MarketMaker implements IMarketMaker {
     private void newOrder(Request request) {
         switch (request.getDirection()) {
             case Direction.BUY:
-                bidQue.enqueOrder(request);
+                bidQue.enqueOrder(request, aheadAt(request.getPrice(), Direction.BUY));
                 break;
             case Direction.SELL:
-                askQue.enqueOrder(request);
+                askQue.enqueOrder(request, aheadAt(request.getPrice(), Direction.SELL));
                 break;
             default:
                 throw new IllegalArgumentException("Illegal direction: " + request.getDirection() + ".");
         }
     }
 
+    /**
+     * Match orders with each other. With fill model, orders fill only against
+     * ticks and this does nothing.
+     *
+     * @param request request just put on queue.
+     */
     @Override
     public void matchTrade(Request request) {
+        if (model != null) {
+            return;
+        }
         switch (request.getDirection()) {
             case Direction.BUY:
                 buy();
@@ -125,53 +290,33 @@ public class MarketMaker implements IMarketMaker {
         trade(askQue, bidQue, -1);
     }
 
-    private void trimQueue() {
-        trimQueueX(askQue);
-        trimQueueX(bidQue);
-    }
-
-    private void trimQueueX(LinkedList<RequestBucket> buckets) {
-        var it = buckets.iterator();
-        while (it.hasNext()) {
-            var n = it.next();
-            if (n.getVolumn() == 0) {
-                trades.addAll(n.getTradeUpdates());
-                responses.addAll(n.getResponseUpdates());
-                it.remove();
-            }
-        }
-    }
-
     private void buy() {
         trade(bidQue, askQue, 1);
     }
 
-    private void trade(LinkedList<RequestBucket> heads, LinkedList<RequestBucket> tos, int sign) {
-        if (!hasCounterParty()) {
-            return;
-        }
-        RequestBucket head = heads.getFirst();
-        RequestBucket to = tos.getFirst();
-        while ((head.getPrice() - to.getPrice()) * sign >= 0) {
-            activeTrade(head, to);
-            trimQueue();
-            if (!hasCounterParty()) {
+    private void trade(AbstractOrderQueue heads, AbstractOrderQueue tos, int sign) {
+        while (hasCounterParty()) {
+            var head = heads.getBest();
+            var to = tos.getBest();
+            if ((head.getPrice() - to.getPrice()) * sign < 0) {
                 break;
             }
-            head = heads.getFirst();
-            to = tos.getFirst();
+            activeTrade(heads, head, tos, to);
         }
     }
 
-    private void activeTrade(RequestBucket head, RequestBucket to) {
+    private void activeTrade(AbstractOrderQueue heads,
+                             RequestBucket head,
+                             AbstractOrderQueue tos,
+                             RequestBucket to) {
         var q = Math.min(head.getVolumn(), to.getVolumn());
         var r = new Request();
         r.setPrice(to.getPrice());
         r.setQuantity(q);
         r.setDirection(head.getDirection());
-        to.applyRequest(r);
+        tos.applyRequest(to, r);
         r.setDirection(oppositeDirection(head.getDirection()));
-        head.applyRequest(r);
+        heads.applyRequest(head, r);
     }
 
     private int oppositeDirection(int direction) {
@@ -17,34 +17,46 @@
 package com.openglobes.core.trader.simulation;
 
 import com.openglobes.core.trader.*;
-import com.openglobes.core.utils.Utils;
-
-import java.time.LocalDate;
-import java.time.ZonedDateTime;
-import java.util.Collection;
-import java.util.LinkedList;
-import java.util.NoSuchElementException;
-import java.util.UUID;
 
 /**
+ * Orders at a price level, filled in FIFO order.
+ * <p>
+ * Rest volumn of the level is kept in sync with its orders, so reading it
+ * doesn't walk the orders. Orders are linked in nodes that the owning queue
+ * indexes by order ID, so an order is unlinked in constant time. Orders are
+ * removed once they are fulfilled or deleted, and updates are written to the
+ * owning queue.
+ *
  * @author Hongbao Chen
  * @since 1.0
  */
-class RequestBucket extends LinkedList<Order> implements IRequestBucket {
+class RequestBucket implements IRequestBucket {
 
     private final double price;
     private final int direction;
     private final int offset;
-    private final LinkedList<Trade> trades = new LinkedList<>();
-    private final LinkedList<Response> responses = new LinkedList<>();
+    private final AbstractOrderQueue queue;
+    private OrderNode head;
+    private OrderNode tail;
+    private long volumn;
 
-    public RequestBucket(double price, int direction, int offset) {
+    RequestBucket(AbstractOrderQueue queue, double price, int direction, int offset) {
+        this.queue = queue;
         this.price = price;
         this.direction = direction;
         this.offset = offset;
+        this.volumn = 0L;
     }
 
-    public void enqueueRequest(Request request) {
+    /**
+     * Create order for the request and append it to the level.
+     *
+     * @param request new order request.
+     *
+     * @return node of the order.
+     */
+    public OrderNode enqueueRequest(Request request) {
+        var now = queue.getClock().now();
         var o = new Order();
         o.setStatus(OrderStatus.ACCEPTED);
         o.setTradedVolumn(0L);
@@ -52,57 +64,103 @@ class RequestBucket extends LinkedList<Order> implements IRequestBucket {
         o.setDeleted(false);
         o.setOffset(request.getOffset());
         o.setDeleteTimestamp(null);
-        o.setInsertTimestamp(ZonedDateTime.now());
+        o.setInsertTimestamp(now);
         o.setInstrumentId(request.getInstrumentId());
         o.setOrderId(request.getOrderId());
         o.setPrice(request.getPrice());
         o.setQuantity(request.getQuantity());
         o.setTraderId(Integer.MAX_VALUE);
-        o.setTradingDay(LocalDate.now());
-        o.setUpdateTimestamp(ZonedDateTime.now());
-        addResponse(o);
-        super.add(o);
+        o.setTradingDay(queue.getClock().today());
+        o.setUpdateTimestamp(now);
+        addResponse(o, ActionType.NEW);
+        var n = new OrderNode(o);
+        append(n);
+        return n;
+    }
+
+    /**
+     * Change quantity of the order in place so it keeps its place in queue.
+     *
+     * @param node     node of the order on this level.
+     * @param quantity new quantity.
+     */
+    void amend(OrderNode node, long quantity) {
+        var o = node.order;
+        volumn += quantity - o.getQuantity();
+        o.setQuantity(quantity);
+        addResponse(o, ActionType.AMEND);
     }
 
-    public Collection<Trade> getTradeUpdates() {
-        var r = new LinkedList<>(trades);
-        trades.clear();
-        return r;
+    /**
+     * Append the node to the tail of the level.
+     *
+     * @param node order node.
+     */
+    void append(OrderNode node) {
+        node.bucket = this;
+        node.prev = tail;
+        node.next = null;
+        if (tail == null) {
+            head = node;
+        } else {
+            tail.next = node;
+        }
+        tail = node;
+        volumn += node.order.getQuantity() - node.order.getTradedVolumn();
     }
 
-    public Collection<Response> getResponseUpdates() {
-        var r = new LinkedList<>(responses);
-        responses.clear();
-        return r;
+    boolean isEmpty() {
+        return head == null;
     }
 
-    public boolean removeOrder(Long orderId) {
-        if (isEmpty()) {
-            throw new NoSuchElementException("Empty container.");
+    /**
+     * Unlink the node from the level.
+     *
+     * @param node order node on this level.
+     */
+    void unlink(OrderNode node) {
+        if (node.prev == null) {
+            head = node.next;
+        } else {
+            node.prev.next = node.next;
         }
-        for (int i = 0; i < size(); ++i) {
-            var o = get(i);
-            if (o.getOrderId().equals(orderId)) {
-                o.setStatus(OrderStatus.DELETED);
-                addResponse(o);
-                remove(i);
-                return true;
-            }
+        if (node.next == null) {
+            tail = node.prev;
+        } else {
+            node.next.prev = node.prev;
         }
-        return false;
+        node.prev = null;
+        node.next = null;
+        node.bucket = null;
+        volumn -= node.order.getQuantity() - node.order.getTradedVolumn();
+    }
+
+    public void removeOrder(OrderNode node) {
+        var o = node.order;
+        o.setStatus(OrderStatus.DELETED);
+        addResponse(o, ActionType.NEW);
+        unlink(node);
     }
 
     /**
      * Trade the request with the specified volumn and price. The real traded price
      * is the price of the specified request.
+     * <p>
+     * Orders are filled from the head, and fulfilled orders are removed.
      *
      * @param request request to be trade on the queue.
      */
     public void applyRequest(Request request) {
         var vol = request.getQuantity();
-        var it = iterator();
-        while (it.hasNext() && vol > 0) {
-            var order = it.next();
+        while (head != null) {
+            var order = head.order;
+            if (order.getQuantity() - order.getTradedVolumn() == 0) {
+                complete(head);
+                continue;
+            }
+            if (vol <= 0) {
+                break;
+            }
             checkRequest(request, order);
             var traded = Math.min(vol, order.getQuantity() - order.getTradedVolumn());
             doOrder(traded, request.getPrice(), order);
@@ -113,37 +171,101 @@ class RequestBucket extends LinkedList<Order> implements IRequestBucket {
         }
     }
 
+    /**
+     * Fill orders from the head with market volumn at the level price.
+     * <p>
+     * If volumn is traded at the level price, it takes the queue ahead of each
+     * order before it fills the order. Otherwise, the market crosses the level
+     * and orders fill without queue. In full mode, an order reached by the
+     * market fills all its rest volumn.
+     *
+     * @param volumn market volumn.
+     * @param queued {@code true} if volumn is traded at the level price.
+     * @param full   {@code true} if order reached by market fills in full.
+     *
+     * @return filled volumn.
+     */
+    long fill(long volumn, boolean queued, boolean full) {
+        var filled = 0L;
+        var n = head;
+        while (n != null) {
+            var next = n.next;
+            var q = full ? Long.MAX_VALUE : volumn - filled;
+            if (queued) {
+                if (volumn <= n.ahead) {
+                    q = 0L;
+                } else if (!full) {
+                    q = Math.min(q, volumn - n.ahead);
+                }
+                n.ahead = Math.max(0L, n.ahead - volumn);
+            }
+            if (q > 0) {
+                var o = n.order;
+                var traded = Math.min(q, o.getQuantity() - o.getTradedVolumn());
+                doOrder(traded, price, o);
+                filled += traded;
+                if (o.getQuantity() - o.getTradedVolumn() == 0) {
+                    complete(n);
+                }
+            } else if (!queued) {
+                break;
+            }
+            n = next;
+        }
+        return filled;
+    }
+
+    /**
+     * Market volumn ahead of an order is no more than the volumn shown at the
+     * level price.
+     *
+     * @param shown volumn shown at the level price.
+     */
+    void capAhead(long shown) {
+        for (var n = head; n != null; n = n.next) {
+            n.ahead = Math.min(n.ahead, shown);
+        }
+    }
+
+    private void complete(OrderNode node) {
+        unlink(node);
+        if (node.order.getOrderId() != null) {
+            queue.removeIndex(node.order.getOrderId());
+        }
+    }
+
     private void doOrder(long traded, double price, Order order) {
+        volumn -= traded;
         order.setTradedVolumn(order.getTradedVolumn() + traded);
         if (order.getTradedVolumn() == order.getQuantity()) {
             order.setStatus(OrderStatus.ALL_TRADED);
-            addResponse(order);
+            addResponse(order, ActionType.NEW);
         } else {
             order.setStatus(OrderStatus.QUEUED);
             /* First trade on this order. */
             if (order.getTradedVolumn() == traded) {
-                addResponse(order);
+                addResponse(order, ActionType.NEW);
             }
         }
         addTrade(traded, price, order);
     }
 
-    private void addResponse(Order order) {
+    private void addResponse(Order order, int action) {
         var r = new Response();
-        r.setAction(ActionType.NEW);
-        r.setResponseId(Utils.nextId());
+        r.setAction(action);
+        r.setResponseId(queue.getIds().nextId());
         r.setDirection(order.getDirection());
         r.setStatus(order.getStatus());
         r.setOffset(order.getOffset());
         r.setInstrumentId(order.getInstrumentId());
         r.setOrderId(order.getOrderId());
-        r.setSignature(UUID.randomUUID().toString());
+        r.setSignature(queue.getIds().nextSignature());
         r.setStatusCode(0);
         setResponseMsg(r, order);
-        r.setTimestamp(ZonedDateTime.now());
+        r.setTimestamp(queue.getClock().now());
         r.setTraderId(Integer.MAX_VALUE);
-        r.setTradingDay(LocalDate.now());
-        responses.add(r);
+        r.setTradingDay(queue.getClock().today());
+        queue.responses.add(r);
     }
 
     private void setResponseMsg(Response r, Order order) {
@@ -174,12 +296,12 @@ class RequestBucket extends LinkedList<Order> implements IRequestBucket {
         r.setPrice(price);
         r.setInstrumentId(order.getInstrumentId());
         r.setQuantity(traded);
-        r.setSignature(UUID.randomUUID().toString());
-        r.setTimestamp(ZonedDateTime.now());
-        r.setTradeId(Utils.nextId());
+        r.setSignature(queue.getIds().nextSignature());
+        r.setTimestamp(queue.getClock().now());
+        r.setTradeId(queue.getIds().nextId());
         r.setTraderId(Integer.MAX_VALUE);
-        r.setTradingDay(LocalDate.now());
-        trades.add(r);
+        r.setTradingDay(queue.getClock().today());
+        queue.trades.add(r);
     }
 
     private void checkRequest(Request request, Order order) {
@@ -198,19 +320,7 @@ class RequestBucket extends LinkedList<Order> implements IRequestBucket {
 
     @Override
     public Long getVolumn() {
-        return sumUpVolumn();
-    }
-
-    private Long sumUpVolumn() {
-        var v = 0L;
-        for (var o : this) {
-            var x = o.getQuantity() - o.getTradedVolumn();
-            if (x < 0) {
-                throw new IllegalStateException("Order volumn is underflow.");
-            }
-            v += x;
-        }
-        return v;
+        return volumn;
     }
 
     @Override
@@ -222,4 +332,35 @@ class RequestBucket extends LinkedList<Order> implements IRequestBucket {
     public int getOffset() {
         return offset;
     }
+
+    /**
+     * Order linked on a level.
+     */
+    static class OrderNode {
+
+        private final Order order;
+        private RequestBucket bucket;
+        private OrderNode next;
+        private OrderNode prev;
+        /*
+         * Market volumn ahead of the order on the level.
+         */
+        private long ahead;
+
+        OrderNode(Order order) {
+            this.order = order;
+        }
+
+        RequestBucket getBucket() {
+            return bucket;
+        }
+
+        Order getOrder() {
+            return order;
+        }
+
+        void setAhead(long ahead) {
+            this.ahead = ahead;
+        }
+    }
 }
@@ -20,132 +20,189 @@ import com.openglobes.core.GatewayRuntimeException;
 import com.openglobes.core.event.EventSource;
 import com.openglobes.core.event.InvalidSubscriptionException;
 import com.openglobes.core.event.NoSubscribedClassException;
+import com.openglobes.core.market.Tick;
 import com.openglobes.core.trader.*;
+import com.openglobes.core.utils.Clocks;
+import com.openglobes.core.utils.IClock;
 import com.openglobes.core.utils.Loggers;
 
-import java.time.LocalDate;
-import java.time.ZonedDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
+ * Simulated gateway that matches requests on in-memory order books.
+ * <p>
+ * Instruments are hashed onto shards, and each shard matches its
+ * instruments on its own thread with its own market makers. Requests of an
+ * instrument are matched in order, and its trades and responses are sent to
+ * handler in order from its shard thread. With more than one shard, handler
+ * is called from different threads for different instruments.
+ * <p>
+ * With tick fill model, the gateway backtests orders against recorded ticks.
+ * Orders rest on the book and fill when ticks cross them, and updates of an
+ * instrument are stamped by a virtual clock moved by its ticks. Ticks are matched as soon as
+ * they are published, so replay runs as fast as they are fed. Requests and
+ * ticks of an instrument published from one thread are matched in the same
+ * order on every run.
+ *
  * @author Hongbao Chen
  * @since 1.0
  */
-public class SimulatedTraderGateway implements ITraderGateway {
+public class SimulatedTraderGateway implements IAsyncTraderGateway {
+
+    /*
+     * Requests are queued in ring buffer of the event source, and publisher
+     * waits when the ring is full.
+     */
+    private static final int IN_FLIGHT_LIMIT = 1024;
 
-    protected final Set<Long> orderIds = new HashSet<>(64);
-    protected final LinkedList<Response> responses = new LinkedList<>();
+    protected final Set<Long> orderIds = ConcurrentHashMap.newKeySet(64);
     private final TraderGatewayInfo info = new TraderGatewayInfo();
-    private final Map<String, MarketMaker> makers = new HashMap<>();
-    private final EventSource es = new EventSource();
-    private ITraderGatewayHandler handler = null;
+    private final Shard[] shards;
+    private final TickFillModel fillModel;
+    private final IClock clock;
+    private volatile ITraderGatewayHandler handler = null;
 
     public SimulatedTraderGateway() {
+        this(1);
+    }
+
+    /**
+     * Create gateway matching instruments on the specified number of shards.
+     *
+     * @param shardCount number of shards.
+     */
+    public SimulatedTraderGateway(int shardCount) {
+        this(shardCount, null);
+    }
+
+    /**
+     * Create gateway filling orders against ticks with the specified model.
+     *
+     * @param shardCount number of shards.
+     * @param fillModel  tick fill model, or {@code null} to match orders with
+     *                   each other.
+     */
+    public SimulatedTraderGateway(int shardCount, TickFillModel fillModel) {
+        this(shardCount, fillModel, Clocks.getDefault());
+    }
+
+    /**
+     * Create gateway with the specified clock. The clock stamps gateway info,
+     * and stamps updates if there is no tick fill model.
+     *
+     * @param shardCount number of shards.
+     * @param fillModel  tick fill model, or {@code null} to match orders with
+     *                   each other.
+     * @param clock      clock.
+     */
+    public SimulatedTraderGateway(int shardCount, TickFillModel fillModel, IClock clock) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Non-positive shard count.");
+        }
+        this.fillModel = fillModel;
+        this.clock = Objects.requireNonNull(clock);
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; ++i) {
+            shards[i] = new Shard();
+        }
+    }
+
+    private Shard shardOf(String instrumentId) {
+        Objects.requireNonNull(instrumentId);
+        var h = instrumentId.hashCode();
+        return shards[((h ^ (h >>> 16)) & 0x7FFFFFFF) % shards.length];
+    }
+
+    private void publish(Request request, CompletableFuture<Void> future) {
+        Objects.requireNonNull(request);
+        Objects.requireNonNull(request.getInstrumentId());
         try {
-            es.subscribe(Request.class, event -> {
-                var request = event.get();
-                var m = makers.computeIfAbsent(request.getInstrumentId(),
-                                               k -> new MarketMaker());
-                if (!isRequestValid(request)) {
-                    invokeHandler(m, request);
-                    return;
-                }
-                try {
-                    m.enqueueRequest(request);
-                } catch (Throwable th) {
-                    Loggers.getLogger(SimulatedTraderGateway.class.getCanonicalName())
-                           .severe(th.getMessage());
-                }
-                invokeHandler(m, request);
-                try {
-                    m.matchTrade(request);
-                } catch (Throwable th) {
-                    Loggers.getLogger(SimulatedTraderGateway.class.getCanonicalName())
-                           .severe(th.getMessage());
-                }
-                invokeHandler(m, request);
-            });
-        } catch (InvalidSubscriptionException e) {
-            throw new IllegalStateException(e.getMessage(), e);
+            shardOf(request.getInstrumentId()).es.publish(Submission.class, new Submission(request, null, future));
+        } catch (NoSubscribedClassException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+    }
+
+    private void publish(Tick tick, CompletableFuture<Void> future) {
+        Objects.requireNonNull(tick);
+        Objects.requireNonNull(tick.getInstrumentId());
+        if (fillModel == null) {
+            throw new IllegalStateException("No tick fill model.");
+        }
+        try {
+            shardOf(tick.getInstrumentId()).es.publish(Submission.class, new Submission(null, tick, future));
+        } catch (NoSubscribedClassException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
         }
     }
 
-    private void addResponse(Request request, int status, int code, String msg) {
-        responses.add(AbstractOrderQueue.createResponseWithError(request, status, code, msg));
+    private void addResponse(Collection<Response> responses,
+                             MarketMaker maker,
+                             Request request,
+                             int status,
+                             int code,
+                             String msg) {
+        responses.add(AbstractOrderQueue.createResponseWithError(request,
+                                                                 status,
+                                                                 code,
+                                                                 msg,
+                                                                 maker.getClock(),
+                                                                 maker.getIds()));
     }
 
-    private boolean isRequestValid(Request request) {
+    private boolean isRequestValid(Request request, Collection<Response> responses, MarketMaker maker) {
         if (request.getAction() != ActionType.NEW &&
-            request.getAction() != ActionType.DELETE) {
-            addResponse(request,
+            request.getAction() != ActionType.DELETE &&
+            request.getAction() != ActionType.AMEND) {
+            addResponse(responses,
+                        maker,
+                        request,
                         OrderStatus.REJECTED,
                         101,
                         "请求类型错误");
             return false;
         }
         if (request.getAction() == ActionType.NEW) {
-            return isNewRequestValid(request);
+            return isNewRequestValid(request, responses, maker);
         }
         return true;
     }
 
-    private boolean isNewRequestValid(Request request) {
-        var orderId = request.getOrderId();
-        if (orderId != null && orderIds.contains(orderId)) {
-            addResponse(request,
-                        OrderStatus.REJECTED,
-                        102,
-                        "重复报单");
-            return false;
-        }
+    private boolean isNewRequestValid(Request request, Collection<Response> responses, MarketMaker maker) {
         if (request.getDirection() != Direction.BUY &&
             request.getDirection() != Direction.SELL) {
-            addResponse(request,
+            addResponse(responses,
+                        maker,
+                        request,
                         OrderStatus.REJECTED,
                         103,
                         "交易方向错误");
             return false;
         }
-        orderIds.add(orderId);
+        /*
+         * Order IDs are shared by all shards, so take the ID atomically.
+         */
+        var orderId = request.getOrderId();
+        if (orderId != null && !orderIds.add(orderId)) {
+            addResponse(responses,
+                        maker,
+                        request,
+                        OrderStatus.REJECTED,
+                        102,
+                        "重复报单");
+            return false;
+        }
         return true;
     }
 
-    private void invokeHandler(MarketMaker m, Request r) {
-        m.getTradeUpdates().forEach(trade -> {
-            try {
-                if (trade.getOrderId() == null) {
-                    return;
-                }
-                handler.onTrade(trade);
-            } catch (Throwable th) {
-                handler.onError(new GatewayRuntimeException(-1, th.getMessage(), th));
-            }
-        });
-        getResponseUpdates(m).forEach(response -> {
-            try {
-                if (response.getOrderId() == null) {
-                    return;
-                }
-                handler.onResponse(response);
-            } catch (Throwable th) {
-                handler.onError(new GatewayRuntimeException(-1, th.getMessage(), th));
-            }
-        });
-    }
-
-    private Collection<Response> getResponseUpdates(MarketMaker m) {
-        var r = new LinkedList<Response>();
-        r.addAll(m.getResponseUpdates());
-        r.addAll(responses);
-        responses.clear();
-        return r;
-    }
-
     @Override
     public TraderGatewayInfo getGatewayInfo() {
-        info.setTradingDay(LocalDate.now());
-        info.setActionDay(LocalDate.now());
-        info.setUpdateTimestamp(ZonedDateTime.now());
+        var now = clock.now();
+        info.setTradingDay(clock.today());
+        info.setActionDay(now.toLocalDate());
+        info.setUpdateTimestamp(now);
         return info;
     }
 
@@ -155,18 +212,197 @@ public class SimulatedTraderGateway implements ITraderGateway {
     }
 
     public MarketMaker getMarketer(String instrumentId) {
-        return makers.get(instrumentId);
+        return shardOf(instrumentId).makers.get(instrumentId);
     }
 
     @Override
     public void insert(Request request) {
-        Objects.requireNonNull(request);
-        Objects.requireNonNull(request.getInstrumentId());
+        publish(request, null);
+    }
+
+    @Override
+    public int getInFlightLimit() {
+        return IN_FLIGHT_LIMIT;
+    }
+
+    @Override
+    public void insertAll(Collection<Request> requests) {
+        Objects.requireNonNull(requests);
+        for (var r : requests) {
+            publish(r, null);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> submit(Request request) {
+        var f = new CompletableFuture<Void>();
         try {
-            es.publish(Request.class, request);
-        } catch (NoSubscribedClassException e) {
-            throw new IllegalArgumentException(e.getMessage(), e);
+            publish(request, f);
+        } catch (RuntimeException ex) {
+            f.completeExceptionally(ex);
+        }
+        return f;
+    }
+
+    /**
+     * Fill resting orders of the tick's instrument with the tick.
+     *
+     * @param tick recorded tick.
+     *
+     * @throws IllegalStateException if gateway has no tick fill model.
+     */
+    public void insertTick(Tick tick) {
+        publish(tick, null);
+    }
+
+    /**
+     * Fill resting orders with the tick, and complete the returned future after
+     * its trades and responses are sent to handler.
+     *
+     * @param tick recorded tick.
+     *
+     * @return future completed after the tick is matched.
+     */
+    public CompletableFuture<Void> submitTick(Tick tick) {
+        var f = new CompletableFuture<Void>();
+        try {
+            publish(tick, f);
+        } catch (RuntimeException ex) {
+            f.completeExceptionally(ex);
+        }
+        return f;
+    }
+
+    @Override
+    public CompletableFuture<Void> submitAll(Collection<Request> requests) {
+        Objects.requireNonNull(requests);
+        var fs = new CompletableFuture<?>[requests.size()];
+        int i = 0;
+        for (var r : requests) {
+            fs[i++] = submit(r);
+        }
+        return CompletableFuture.allOf(fs);
+    }
+
+    /**
+     * Single matching thread and the market makers it owns.
+     */
+    private class Shard {
+
+        private final EventSource es = new EventSource();
+        private final Map<String, MarketMaker> makers = new ConcurrentHashMap<>(64);
+        private final LinkedList<Response> responses = new LinkedList<>();
+
+        Shard() {
+            try {
+                es.subscribe(Submission.class, event -> {
+                    var s = event.get();
+                    try {
+                        if (s.tick != null) {
+                            process(s.tick);
+                        } else {
+                            process(s.request);
+                        }
+                        if (s.future != null) {
+                            s.future.complete(null);
+                        }
+                    } catch (Throwable th) {
+                        if (s.future != null) {
+                            s.future.completeExceptionally(th);
+                        }
+                    }
+                });
+            } catch (InvalidSubscriptionException e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+        }
+
+        /*
+         * Seed IDs of tick fills by instrument, so makers of different
+         * instruments don't give the same IDs and every run gives the same.
+         */
+        private MarketMaker createMaker(String instrumentId) {
+            return fillModel == null ? new MarketMaker(clock) : new MarketMaker(fillModel, instrumentId.hashCode());
+        }
+
+        private void process(Tick tick) {
+            var m = makers.computeIfAbsent(tick.getInstrumentId(),
+                                           this::createMaker);
+            try {
+                m.matchTick(tick);
+            } catch (Throwable th) {
+                Loggers.getLogger(SimulatedTraderGateway.class.getCanonicalName())
+                       .severe(th.getMessage());
+            }
+            invokeHandler(m);
+        }
+
+        private void process(Request request) {
+            var m = makers.computeIfAbsent(request.getInstrumentId(),
+                                           this::createMaker);
+            if (!isRequestValid(request, responses, m)) {
+                invokeHandler(m);
+                return;
+            }
+            try {
+                m.enqueueRequest(request);
+            } catch (Throwable th) {
+                Loggers.getLogger(SimulatedTraderGateway.class.getCanonicalName())
+                       .severe(th.getMessage());
+            }
+            invokeHandler(m);
+            try {
+                m.matchTrade(request);
+            } catch (Throwable th) {
+                Loggers.getLogger(SimulatedTraderGateway.class.getCanonicalName())
+                       .severe(th.getMessage());
+            }
+            invokeHandler(m);
+        }
+
+        private void invokeHandler(MarketMaker m) {
+            var h = handler;
+            m.getTradeUpdates().forEach(trade -> {
+                try {
+                    if (trade.getOrderId() == null) {
+                        return;
+                    }
+                    h.onTrade(trade);
+                } catch (Throwable th) {
+                    h.onError(new GatewayRuntimeException(-1, th.getMessage(), th));
+                }
+            });
+            getResponseUpdates(m).forEach(response -> {
+                try {
+                    if (response.getOrderId() == null) {
+                        return;
+                    }
+                    h.onResponse(response);
+                } catch (Throwable th) {
+                    h.onError(new GatewayRuntimeException(-1, th.getMessage(), th));
+                }
+            });
+        }
+
+        private Collection<Response> getResponseUpdates(MarketMaker m) {
+            var r = new LinkedList<Response>();
+            r.addAll(m.getResponseUpdates());
+            r.addAll(responses);
+            responses.clear();
+            return r;
         }
     }
 
+    private static class Submission {
+
+        private final CompletableFuture<Void> future;
+        private final Request request;
+        private final Tick tick;
+
+        Submission(Request request, Tick tick, CompletableFuture<Void> future) {
+            this.request = request;
+            this.tick = tick;
+            this.future = future;
+        }
+    }
 }
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2020-2021 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.trader.simulation;
+
+/**
+ * Settings of filling resting orders with recorded ticks.
+ * <p>
+ * Queue position decides how much market volumn is ahead of an order when it
+ * joins its price level. Fill quantity decides whether an order reached by
+ * the market fills in full or only by the volumn the market shows or trades.
+ *
+ * @author Hongbao Chen
+ * @since 1.0
+ */
+public class TickFillModel {
+
+    /**
+     * Order is at the front of its price level.
+     */
+    public static final int QUEUE_FRONT = 0;
+    /**
+     * Order joins behind the volumn shown at its price.
+     */
+    public static final int QUEUE_BACK = 1;
+    /**
+     * Order reached by the market fills in full.
+     */
+    public static final int FILL_FULL = 0;
+    /**
+     * Order fills at most by the volumn the market shows or trades.
+     */
+    public static final int FILL_LIQUIDITY = 1;
+
+    private final int fillQuantity;
+    private final int queuePosition;
+
+    public TickFillModel() {
+        this(QUEUE_BACK, FILL_LIQUIDITY);
+    }
+
+    public TickFillModel(int queuePosition, int fillQuantity) {
+        if (queuePosition != QUEUE_FRONT && queuePosition != QUEUE_BACK) {
+            throw new IllegalArgumentException("Illegal queue position: " + queuePosition + ".");
+        }
+        if (fillQuantity != FILL_FULL && fillQuantity != FILL_LIQUIDITY) {
+            throw new IllegalArgumentException("Illegal fill quantity: " + fillQuantity + ".");
+        }
+        this.queuePosition = queuePosition;
+        this.fillQuantity = fillQuantity;
+    }
+
+    public int getFillQuantity() {
+        return fillQuantity;
+    }
+
+    public int getQueuePosition() {
+        return queuePosition;
+    }
+}
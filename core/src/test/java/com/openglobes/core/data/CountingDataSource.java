@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2021 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.data;
+
+import com.openglobes.core.dba.UnknownConnectionException;
+import com.openglobes.core.event.IEventHandler;
+import com.openglobes.core.event.IEventSource;
+import com.openglobes.core.event.InvalidSubscriptionException;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Data source counting connections it gives, commits and statements run on
+ * its connections. A statement is a call of a method declared by
+ * {@link ITraderDataConnection}, like adding, querying, updating or removing
+ * rows.
+ *
+ * @author Hongbao Chen
+ * @since 1.0
+ */
+public class CountingDataSource implements ITraderDataSource {
+
+    private final AtomicLong commits = new AtomicLong(0);
+    private final AtomicLong connections = new AtomicLong(0);
+    private final ITraderDataSource ds;
+    private final AtomicLong statements = new AtomicLong(0);
+
+    public CountingDataSource(ITraderDataSource ds) {
+        this.ds = Objects.requireNonNull(ds);
+    }
+
+    public long getCommits() {
+        return commits.get();
+    }
+
+    public long getConnections() {
+        return connections.get();
+    }
+
+    public long getStatements() {
+        return statements.get();
+    }
+
+    @Override
+    public ITraderDataConnection getConnection() throws SQLException, ClassNotFoundException {
+        var conn = ds.getConnection();
+        connections.incrementAndGet();
+        return (ITraderDataConnection) Proxy.newProxyInstance(ITraderDataConnection.class.getClassLoader(),
+                                                              new Class<?>[]{ITraderDataConnection.class},
+                                                              (proxy, method, args) -> {
+            var name = method.getName();
+            if (name.equals("commit")) {
+                commits.incrementAndGet();
+            } else if (method.getDeclaringClass() == ITraderDataConnection.class && !name.equals("close")) {
+                statements.incrementAndGet();
+            }
+            try {
+                return method.invoke(conn, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        ds.close();
+    }
+
+    @Override
+    public <T> void addListener(Class<T> clazz,
+                                IEventHandler<T> handler,
+                                DataChangeType type) throws UnknownDataChangeException,
+                                                            InvalidSubscriptionException {
+        ds.addListener(clazz, handler, type);
+    }
+
+    @Override
+    public IEventSource getEventSource(DataChangeType type) throws UnknownDataChangeException {
+        return ds.getEventSource(type);
+    }
+
+    @Override
+    public Connection getSqlConnection() throws SQLException, ClassNotFoundException {
+        return ds.getSqlConnection();
+    }
+
+    @Override
+    public void ungetSqlConnection(Connection connection) throws UnknownConnectionException {
+        ds.ungetSqlConnection(connection);
+    }
+
+    @Override
+    public Properties getConnectionProperties() {
+        return ds.getConnectionProperties();
+    }
+
+    @Override
+    public Properties getProperties() {
+        return ds.getProperties();
+    }
+
+    @Override
+    public void open(Properties properties) {
+        ds.open(properties);
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2021 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.data;
+
+import com.openglobes.core.trader.*;
+
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+
+/**
+ * Open in-memory H2 data source for tests.
+ *
+ * @author Hongbao Chen
+ * @since 1.0
+ */
+public class DataSources {
+
+    private static final Class<?>[] ALL = {Account.class, Commission.class, Contract.class,
+                                           Deposit.class, Instrument.class, Margin.class,
+                                           Request.class, Response.class, SettlementPrice.class,
+                                           Trade.class, TradingDay.class, Withdraw.class};
+
+    private static final Map<Class<?>, Query> TABLES = Map.of(Commission.class, ITraderDataConnection::getCommissions,
+                                                              Contract.class, ITraderDataConnection::getContracts,
+                                                              Deposit.class, ITraderDataConnection::getDeposits,
+                                                              Margin.class, ITraderDataConnection::getMargins,
+                                                              Request.class, ITraderDataConnection::getRequests,
+                                                              Response.class, ITraderDataConnection::getResponses,
+                                                              Trade.class, ITraderDataConnection::getTrades,
+                                                              Withdraw.class, ITraderDataConnection::getWithdraws);
+
+    private DataSources() {
+    }
+
+    /**
+     * Open named in-memory database that lives until JVM exits, and subscribe
+     * all changes of the specified classes. Data source fails publishing
+     * change without subscriber, so class not specified can't be written. If
+     * no class is specified, all classes are subscribed.
+     *
+     * @param name    database name, unique for each test.
+     * @param classes classes to subscribe.
+     *
+     * @return data source.
+     */
+    public static ITraderDataSource open(String name, Class<?>... classes) {
+        var props = new Properties();
+        props.put("DataSource.URL", "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        props.put("DataSource.DriverClass", "org.h2.Driver");
+        props.put("USER", "sa");
+        props.put("PASSWORD", "");
+        var ds = new DefaultTraderDataSource();
+        ds.open(props);
+        var subscribed = classes.length > 0 ? classes : ALL;
+        assertDoesNotThrow(() -> {
+            for (var t : DataChangeType.values()) {
+                for (var c : subscribed) {
+                    ds.addListener(c, event -> {
+                    }, t);
+                }
+            }
+            /*
+             * Create tables before connections race to create them.
+             */
+            try (var conn = ds.getConnection()) {
+                for (var c : subscribed) {
+                    var q = TABLES.get(c);
+                    if (q != null) {
+                        q.query(conn);
+                    }
+                }
+            }
+        });
+        return ds;
+    }
+
+    @FunctionalInterface
+    private interface Query {
+
+        void query(ITraderDataConnection conn) throws DataQueryException;
+    }
+}
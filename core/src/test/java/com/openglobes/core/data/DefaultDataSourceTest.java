@@ -18,9 +18,11 @@ package com.openglobes.core.data;
 
 import com.openglobes.core.event.IEvent;
 import com.openglobes.core.trader.Contract;
+import com.openglobes.core.trader.Margin;
 import org.junit.jupiter.api.*;
 
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -117,6 +119,33 @@ public class DefaultDataSourceTest extends DataSourceData {
         });
     }
 
+    @Test
+    @DisplayName("Test connection's query of margins by contract ID.")
+    public void testQueryMarginsByContractId() {
+        final var contractId = getNextId();
+        final var margins = new ArrayList<Margin>();
+        for (int i = 0; i < 2; ++i) {
+            var m = new Margin();
+            m.setMarginId(getNextId());
+            m.setContractId(i == 0 ? contractId : getNextId());
+            m.setMargin(100.0D);
+            margins.add(m);
+        }
+
+        assertDoesNotThrow(() -> {
+            var conn = dataSource().getConnection();
+            conn.addMargins(margins);
+            /*
+             * Only margin of the specified contract is returned.
+             */
+            var ms = conn.getMarginsByContractId(contractId);
+            assertEquals(1,
+                         ms.size());
+            assertEquals(margins.get(0).getMarginId(),
+                         ms.iterator().next().getMarginId());
+        });
+    }
+
     @Test
     @DisplayName("Test connection's update.")
     public void testUpdate() {
@@ -149,6 +178,48 @@ public class DefaultDataSourceTest extends DataSourceData {
         });
     }
 
+    @Test
+    @DisplayName("Test connection's batched insert, update and rollback.")
+    public void testBatch() {
+        final var contracts = new ArrayList<Contract>(8);
+        for (int i = 0; i < 8; ++i) {
+            var c = new Contract();
+            c.setContractId(getNextId());
+            c.setTimestamp(ZonedDateTime.now());
+            contracts.add(c);
+        }
+
+        assertDoesNotThrow(() -> {
+            var conn = dataSource().getConnection();
+            /*
+             * Batch with a duplicated key fails and the whole batch is rolled
+             * back.
+             */
+            var duplicated = new ArrayList<Contract>(contracts);
+            duplicated.add(contracts.get(0));
+            conn.transaction();
+            assertThrows(DataInsertionException.class,
+                         () -> conn.addContracts(duplicated));
+            conn.rollback();
+            conn.getContracts().forEach(c -> {
+                assertFalse(contracts.stream().anyMatch(x -> x.getContractId().equals(c.getContractId())));
+            });
+            /*
+             * Batched insert and update.
+             */
+            conn.transaction();
+            conn.addContracts(contracts);
+            contracts.forEach(c -> c.setTag("batched"));
+            conn.updateContracts(contracts);
+            conn.commit();
+            for (var c : contracts) {
+                assertEquals("batched",
+                             conn.getContractById(c.getContractId()).getTag());
+                conn.removeContract(c.getContractId());
+            }
+        });
+    }
+
     @Test
     @DisplayName("Test connection's remove.")
     public void testRemove() {
@@ -194,6 +265,10 @@ public class DefaultDataSourceTest extends DataSourceData {
                                          changeTypes.add(DataChangeType.DELETE);
                                      },
                                      DataChangeType.DELETE);
+            dataSource().addListener(Margin.class,
+                                     (IEvent<Margin> event) -> {
+                                     },
+                                     DataChangeType.CREATE);
         });
     }
 }
@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2021 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.data;
+
+import com.openglobes.core.trader.Contract;
+import com.openglobes.core.trader.ContractStatus;
+import com.openglobes.core.trader.Trade;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Hongbao Chen
+ * @since 1.0
+ */
+public class JournaledDataSourceTest {
+
+    private static final AtomicLong id = new AtomicLong(1000000);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("Test changes visible before flush and flushed to data source.")
+    public void testWriteBehind() {
+        var ds = DataSources.open("journal-db-1", Contract.class);
+        assertDoesNotThrow(() -> {
+            var journaled = new JournaledTraderDataSource(ds, dir.resolve("journal"));
+            var contract = newContract();
+            var conn = journaled.getConnection();
+            var other = journaled.getConnection();
+            conn.addContract(contract);
+            assertEquals(ContractStatus.OPENING,
+                         other.getContractById(contract.getContractId()).getStatus());
+            /*
+             * Uncommitted change is only visible to its connection.
+             */
+            conn.transaction();
+            contract.setStatus(ContractStatus.OPEN);
+            conn.updateContract(contract);
+            assertEquals(1, conn.getContractsByStatus(ContractStatus.OPEN).size());
+            assertEquals(0, other.getContractsByStatus(ContractStatus.OPEN).size());
+            conn.commit();
+            assertEquals(1, other.getContractsByStatus(ContractStatus.OPEN).size());
+            assertEquals(0, other.getContractsByStatus(ContractStatus.OPENING).size());
+            /*
+             * Flushed to wrapped data source.
+             */
+            journaled.flush();
+            try (var raw = ds.getConnection()) {
+                assertEquals(ContractStatus.OPEN,
+                             raw.getContractById(contract.getContractId()).getStatus());
+            }
+            conn.removeContract(contract.getContractId());
+            assertThrows(DataQueryException.class, () -> other.getContractById(contract.getContractId()));
+            assertTrue(other.getContracts().isEmpty());
+            journaled.flush();
+            try (var raw = ds.getConnection()) {
+                assertTrue(raw.getContracts().isEmpty());
+            }
+            conn.close();
+            other.close();
+            journaled.close();
+        });
+    }
+
+    @Test
+    @DisplayName("Test replaying unflushed changes on open.")
+    public void testReplay() {
+        var ds = DataSources.open("journal-db-2", Contract.class);
+        var path = dir.resolve("journal");
+        var flushed = newContract();
+        var unflushed = newContract();
+        assertDoesNotThrow(() -> {
+            try (var raw = ds.getConnection()) {
+                raw.addContract(flushed);
+            }
+            /*
+             * Changes are journaled but process stops before flush, and the
+             * last record is torn.
+             */
+            flushed.setStatus(ContractStatus.OPEN);
+            try (var journal = new WriteJournal(path)) {
+                var seq = journal.append(List.of(JournalOp.insert(Contract.class, flushed.getContractId(), flushed),
+                                                 JournalOp.insert(Contract.class, unflushed.getContractId(), unflushed)));
+                journal.sync(seq);
+            }
+            Files.write(path, new byte[]{0, 0, 1}, StandardOpenOption.APPEND);
+
+            var journaled = new JournaledTraderDataSource(ds, path);
+            try (var raw = ds.getConnection()) {
+                assertEquals(ContractStatus.OPEN,
+                             raw.getContractById(flushed.getContractId()).getStatus());
+                assertEquals(ContractStatus.OPENING,
+                             raw.getContractById(unflushed.getContractId()).getStatus());
+            }
+            assertEquals(0L, Files.size(path));
+            journaled.close();
+        });
+    }
+
+    @Test
+    @DisplayName("Test quarantining change failing to flush.")
+    public void testQuarantine() {
+        var ds = DataSources.open("journal-db-3", Contract.class);
+        var path = dir.resolve("journal");
+        assertDoesNotThrow(() -> {
+            var journaled = new JournaledTraderDataSource(ds, path);
+            var conn = journaled.getConnection();
+            /*
+             * Wrapped data source has no listener of trades, so inserting
+             * trade always fails.
+             */
+            var trade = new Trade();
+            trade.setTradeId(id.incrementAndGet());
+            conn.addTrade(trade);
+            var contract = newContract();
+            conn.addContract(contract);
+            /*
+             * Flush fails because the trade isn't in wrapped data source, but
+             * it stays visible to queries.
+             */
+            assertThrows(DataUpdateException.class, journaled::flush);
+            try (var raw = ds.getConnection()) {
+                assertEquals(ContractStatus.OPENING,
+                             raw.getContractById(contract.getContractId()).getStatus());
+            }
+            assertEquals(1L, journaled.getQuarantinedCount());
+            assertEquals(trade.getTradeId(), conn.getTradeById(trade.getTradeId()).getTradeId());
+            try (var quarantine = new WriteJournal(dir.resolve("journal.quarantine"))) {
+                var ops = quarantine.readUnflushed();
+                assertEquals(1, ops.size());
+                assertEquals(trade.getTradeId(),
+                             ops.values().iterator().next().get(0).getId());
+            }
+            conn.close();
+            journaled.close();
+        });
+    }
+
+    private Contract newContract() {
+        var c = new Contract();
+        c.setContractId(id.incrementAndGet());
+        c.setStatus(ContractStatus.OPENING);
+        c.setTimestamp(ZonedDateTime.now());
+        return c;
+    }
+}
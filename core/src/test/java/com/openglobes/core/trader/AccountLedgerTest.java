@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2021 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.trader;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccountLedgerTest {
+
+    @Test
+    @DisplayName("Freeze, deal and unfreeze keep available money.")
+    void transitions() {
+        var ledger = new AccountLedger();
+        ledger.reset(account(10000.0D));
+        assertEquals(10000.0D, ledger.getAvailable());
+
+        assertTrue(ledger.freeze(3000.0D, 30.0D));
+        assertEquals(6970.0D, ledger.getAvailable());
+        assertFalse(ledger.freeze(7000.0D, 0.0D));
+        assertEquals(6970.0D, ledger.getAvailable());
+
+        var change = new AccountLedger.Change();
+        change.dealOpen(2000.0D, 20.0D);
+        change.unfreeze(1000.0D, 10.0D);
+        ledger.apply(change);
+        assertEquals(7980.0D, ledger.getAvailable());
+
+        ledger.freezeCommission(20.0D);
+        change = new AccountLedger.Change();
+        change.dealClose(2000.0D, 20.0D, 500.0D);
+        ledger.apply(change);
+        assertEquals(10460.0D, ledger.getAvailable());
+    }
+
+    @Test
+    @DisplayName("Reconcile reports drift and resets ledger.")
+    void reconcile() {
+        var ledger = new AccountLedger();
+        assertFalse(ledger.isReady());
+        assertNull(ledger.reconcile(account(10000.0D), 1.0E-6));
+        assertTrue(ledger.isReady());
+
+        assertTrue(ledger.freeze(100.0D, 1.0D));
+        var drift = ledger.reconcile(account(10000.0D), 1.0E-6);
+        assertNotNull(drift);
+        assertTrue(drift.contains("frozenMargin"));
+        assertEquals(10000.0D, ledger.getAvailable());
+        assertNull(ledger.reconcile(account(10000.0D), 1.0E-6));
+    }
+
+    private Account account(double preBalance) {
+        var a = new Account();
+        a.setPreBalance(preBalance);
+        a.setDeposit(0.0D);
+        a.setWithdraw(0.0D);
+        a.setCloseProfit(0.0D);
+        a.setPositionProfit(0.0D);
+        a.setCommission(0.0D);
+        a.setFrozenCommission(0.0D);
+        a.setMargin(0.0D);
+        a.setFrozenMargin(0.0D);
+        return a;
+    }
+}
@@ -125,10 +125,18 @@ public class AlgorithmData {
         return requests;
     }
 
+    protected Collection<Response> responses() {
+        return responses;
+    }
+
     protected Map<String, SettlementPrice> settlements() {
         return settlements;
     }
 
+    protected Collection<Trade> trades() {
+        return trades;
+    }
+
     protected Collection<Withdraw> withdraws() {
         return withdraws;
     }
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2020 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.trader;
+
+import com.openglobes.core.data.DataSources;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CancelAllTest {
+
+    @Test
+    @DisplayName("Cancel live orders matching filter and skip completed orders.")
+    void cancelByFilter() {
+        var ds = DataSources.open("cancel-all-db-1", Request.class);
+        var engine = new TraderEngine(1);
+        engine.setDataSource(ds);
+        var g1 = new RecordingGateway();
+        var g2 = new RecordingGateway();
+        assertDoesNotThrow(() -> {
+            engine.registerTrader(1, g1);
+            engine.registerTrader(2, g2);
+            var c1 = engine.getTraderContext(1);
+            var c2 = engine.getTraderContext(2);
+            var d1 = live(c1, 100L, "c2109", Direction.BUY);
+            var d2 = live(c1, 200L, "c2109", Direction.SELL);
+            var d3 = live(c2, 300L, "c2109", Direction.BUY);
+            var d4 = live(c2, 400L, "c2201", Direction.BUY);
+            /*
+             * Fulfilled order is not live.
+             */
+            c1.countDown(live(c1, 500L, "c2109", Direction.BUY), 2L);
+
+            var f = new CancelFilter();
+            f.setInstrumentId("c2109");
+            f.setDirection(Direction.BUY);
+            assertEquals(2, engine.cancelAll(f));
+            assertEquals(List.of(d1), g1.orderIds());
+            assertEquals(List.of(d3), g2.orderIds());
+            assertEquals(ActionType.DELETE, g1.requests.get(0).getAction());
+
+            f = new CancelFilter();
+            f.setTraderId(1);
+            f.setOrderFilter(srcId -> srcId == 200L);
+            assertEquals(1, engine.cancelAll(f));
+            assertEquals(List.of(d1, d2), g1.orderIds());
+
+            assertEquals(4, engine.cancelAll(new CancelFilter()));
+            assertEquals(4, g1.requests.size());
+            assertTrue(g2.orderIds().subList(1, 3).containsAll(List.of(d3, d4)));
+            try (var conn = ds.getConnection()) {
+                var n = conn.getRequests().stream().filter(r -> r.getOrderId() == 300L).count();
+                assertEquals(2L, n);
+            }
+        });
+        ds.close();
+    }
+
+    @Test
+    @DisplayName("Cancel waits for shard holding its lock.")
+    void cancelUnderShardLocks() {
+        var ds = DataSources.open("cancel-all-db-2", Request.class);
+        var engine = new TraderEngine(2);
+        engine.setDataSource(ds);
+        var g = new RecordingGateway();
+        assertDoesNotThrow(() -> {
+            engine.registerTrader(1, g);
+            var ctx = engine.getTraderContext(1);
+            var d = live(ctx, 100L, "c2109", Direction.BUY);
+            var lock = engine.getShardLock("c2109");
+            lock.lock();
+            var count = new CompletableFuture<Integer>();
+            try {
+                new Thread(() -> count.complete(engine.cancelAll(new CancelFilter()))).start();
+                TimeUnit.MILLISECONDS.sleep(200);
+                assertFalse(count.isDone());
+                /*
+                 * Order fulfilled by the shard before it unlocks isn't
+                 * canceled.
+                 */
+                ctx.countDown(d, 2L);
+            } finally {
+                lock.unlock();
+            }
+            assertEquals(0, count.get(5, TimeUnit.SECONDS));
+            assertTrue(g.requests.isEmpty());
+        });
+        ds.close();
+    }
+
+    private long live(TraderContext ctx, long srcId, String instrumentId, int direction) {
+        var r = new Request();
+        r.setOrderId(ctx.getDestinatedId(srcId, 2L));
+        r.setInstrumentId(instrumentId);
+        r.setDirection(direction);
+        r.setOffset(Offset.OPEN);
+        r.setQuantity(2L);
+        r.setTraderId(ctx.getTraderId());
+        r.setAction(ActionType.NEW);
+        ctx.addLiveOrder(r);
+        return r.getOrderId();
+    }
+
+    private static class RecordingGateway implements ITraderGateway {
+
+        private final List<Request> requests = new ArrayList<>();
+
+        @Override
+        public void setHandler(ITraderGatewayHandler handler) {
+        }
+
+        @Override
+        public void insert(Request request) {
+            requests.add(request);
+        }
+
+        @Override
+        public TraderGatewayInfo getGatewayInfo() {
+            return new TraderGatewayInfo();
+        }
+
+        List<Long> orderIds() {
+            var r = new ArrayList<Long>();
+            requests.forEach(q -> r.add(q.getOrderId()));
+            return r;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2021 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.trader;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContractBookTest {
+
+    private final ZonedDateTime base = ZonedDateTime.now();
+    private long nextId = 0;
+
+    @Test
+    @DisplayName("Take earliest contracts across traders and trading days.")
+    void take() {
+        var book = new ContractBook();
+        var cs = new ArrayList<Contract>();
+        cs.add(contract(1, LocalDate.now(), Direction.BUY, 3));
+        cs.add(contract(2, LocalDate.now().minusDays(1), Direction.BUY, 1));
+        cs.add(contract(1, LocalDate.now().minusDays(1), Direction.BUY, 2));
+        cs.add(contract(2, LocalDate.now(), Direction.SELL, 0));
+        var closing = contract(1, LocalDate.now(), Direction.BUY, 4);
+        closing.setStatus(ContractStatus.CLOSING);
+        cs.add(closing);
+        book.load("c2109", cs);
+
+        assertEquals(3, book.count("c2109", Direction.BUY));
+        assertEquals(1, book.count("c2109", Direction.SELL));
+        assertNull(book.take("c2109", Direction.BUY, 4));
+
+        var r = book.take("c2109", Direction.BUY, 2);
+        assertEquals(2, r.size());
+        assertSame(cs.get(1), r.get(0));
+        assertSame(cs.get(2), r.get(1));
+        assertEquals(1, book.count("c2109", Direction.BUY));
+        /*
+         * Reopened contract is put back at its position.
+         */
+        book.add(r.get(1));
+        var r2 = book.take("c2109", Direction.BUY, 2);
+        assertSame(cs.get(2), r2.get(0));
+        assertSame(cs.get(0), r2.get(1));
+    }
+
+    @Test
+    @DisplayName("Ignore contracts of unloaded instrument.")
+    void unload() {
+        var book = new ContractBook();
+        book.add(contract(1, LocalDate.now(), Direction.BUY, 0));
+        assertFalse(book.isLoaded("c2109"));
+        book.load("c2109", new ArrayList<>());
+        book.add(contract(1, LocalDate.now(), Direction.BUY, 0));
+        assertEquals(1, book.count("c2109", Direction.BUY));
+        book.unload("c2109");
+        assertFalse(book.isLoaded("c2109"));
+        assertThrows(IllegalStateException.class,
+                     () -> book.take("c2109", Direction.BUY, 1));
+    }
+
+    private Contract contract(int traderId, LocalDate tradingDay, int direction, int seconds) {
+        var c = new Contract();
+        c.setContractId(++nextId);
+        c.setInstrumentId("c2109");
+        c.setTraderId(traderId);
+        c.setOpenTradingDay(tradingDay);
+        c.setDirection(direction);
+        c.setStatus(ContractStatus.OPEN);
+        c.setOpenTimestamp(base.plusSeconds(seconds));
+        return c;
+    }
+}
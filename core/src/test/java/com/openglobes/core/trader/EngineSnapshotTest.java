@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2021 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.trader;
+
+import com.openglobes.core.data.DataSources;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EngineSnapshotTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("Snapshot restores translations, down counts, order traders and instruments.")
+    void writeRead() {
+        var day = LocalDate.of(2021, 3, 1);
+        var path = dir.resolve("engine.snapshot");
+        var traders = Map.of(1, context(1), 2, context(2));
+        var orderTraders = Map.of(100L, 1, 200L, 2);
+        var instrument = new Instrument();
+        instrument.setInstrumentId("c2105");
+        instrument.setMultiple(10L);
+
+        var c1 = traders.get(1);
+        var d1 = c1.getDestinatedId(100L, 3L);
+        var d2 = c1.getDestinatedId(100L, 2L);
+        c1.countDown(d1, 1L);
+        var d3 = traders.get(2).getDestinatedId(200L, 5L);
+
+        assertDoesNotThrow(() -> {
+            EngineSnapshot.write(path, EngineSnapshot.encode(day,
+                                                             traders,
+                                                             orderTraders,
+                                                             Map.of("c2105", instrument),
+                                                             List.of(100L)));
+
+            var restored = Map.of(1, context(1), 2, context(2));
+            var ots = new HashMap<Long, Integer>();
+            var ins = new HashMap<String, Instrument>();
+            var frozen = new ArrayList<Long>();
+            EngineSnapshot.read(path, day, restored, ots, ins, frozen);
+
+            var r1 = restored.get(1);
+            assertEquals(100L, r1.findSourceId(d1));
+            assertEquals(2L, r1.findDownCount(d1));
+            assertEquals(3L, r1.findQuantity(d1));
+            assertEquals(2L, r1.findDownCount(d2));
+            assertEquals(c1.getDestinatedIds(100L), r1.getDestinatedIds(100L));
+            assertEquals(5L, restored.get(2).findDownCount(d3));
+            assertEquals(orderTraders, ots);
+            assertEquals(10L, ins.get("c2105").getMultiple());
+            assertEquals(List.of(100L), frozen);
+            /*
+             * New IDs don't collide with restored ones.
+             */
+            assertTrue(r1.getDestinatedId(300L, 1L) > Math.max(d1, d2));
+        });
+        assertThrows(java.io.IOException.class,
+                     () -> EngineSnapshot.read(path,
+                                               day.plusDays(1),
+                                               traders,
+                                               new HashMap<>(),
+                                               new HashMap<>(),
+                                               new ArrayList<>()));
+    }
+
+    @Test
+    @DisplayName("Restore skips destinated IDs taken by orders sent after the snapshot.")
+    void restoreSkipsUnsavedIds() {
+        var day = LocalDate.of(2021, 3, 1);
+        var ds = DataSources.open("engine-snapshot-db-1", Request.class);
+        var engine = new TraderEngine(1);
+        engine.setDataSource(ds);
+        engine.setAlgorithm(new DefaultTraderEngineAlgorithm());
+        engine.setSnapshotPath(dir.resolve("engine.snapshot"));
+        assertDoesNotThrow(() -> {
+            engine.registerTrader(1, new DayGateway(day));
+            var c = engine.getTraderContext(1);
+            var d1 = c.getDestinatedId(100L, 0L);
+            engine.snapshot();
+            /*
+             * Order sent after the snapshot.
+             */
+            var d2 = c.getDestinatedId(200L, 0L);
+            try (var conn = ds.getConnection()) {
+                conn.addRequest(request(100L));
+                conn.addRequest(request(200L));
+            }
+            engine.restore();
+            c = engine.getTraderContext(1);
+            assertEquals(100L, c.findSourceId(d1));
+            assertTrue(c.getDestinatedId(300L, 0L) > d2);
+        });
+        ds.close();
+    }
+
+    private Request request(long orderId) {
+        var r = new Request();
+        r.setRequestId(orderId);
+        r.setOrderId(orderId);
+        r.setInstrumentId("c2105");
+        r.setTraderId(1);
+        r.setAction(ActionType.NEW);
+        return r;
+    }
+
+    private TraderContext context(int traderId) {
+        var c = new TraderGatewayContext();
+        c.setTraderId(traderId);
+        return new TraderContext(c);
+    }
+
+    private static class DayGateway implements ITraderGateway {
+
+        private final TraderGatewayInfo info = new TraderGatewayInfo();
+
+        DayGateway(LocalDate day) {
+            info.setTradingDay(day);
+        }
+
+        @Override
+        public void setHandler(ITraderGatewayHandler handler) {
+        }
+
+        @Override
+        public void insert(Request request) {
+        }
+
+        @Override
+        public TraderGatewayInfo getGatewayInfo() {
+            return info;
+        }
+    }
+}
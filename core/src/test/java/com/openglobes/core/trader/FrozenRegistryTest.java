@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2021 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.trader;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrozenRegistryTest {
+
+    private long nextId = 0;
+
+    @Test
+    @DisplayName("Remove done bundles and keep the order loaded.")
+    void complete() {
+        var registry = new FrozenRegistry();
+        var bs = new ArrayList<FrozenBundle>();
+        for (int i = 0; i < 3; ++i) {
+            bs.add(bundle(1L));
+        }
+        assertFalse(registry.isLoaded(1L));
+        assertNull(registry.get(1L));
+        registry.load(1L, bs);
+
+        var live = new ArrayList<>(registry.get(1L));
+        assertEquals(bs, live);
+
+        registry.complete(1L, List.of(bs.get(0), bs.get(2)));
+        assertEquals(List.of(bs.get(1)), new ArrayList<>(registry.get(1L)));
+
+        registry.complete(1L, List.of(bs.get(1)));
+        assertTrue(registry.isLoaded(1L));
+        assertTrue(registry.get(1L).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Unloaded order is reloaded on next use.")
+    void unload() {
+        var registry = new FrozenRegistry();
+        registry.load(1L, List.of(bundle(1L)));
+        registry.load(2L, List.of(bundle(2L)));
+        registry.unload(1L);
+        assertFalse(registry.isLoaded(1L));
+        assertTrue(registry.isLoaded(2L));
+        /*
+         * Completing an unloaded order is ignored.
+         */
+        registry.complete(1L, List.of(bundle(1L)));
+        assertFalse(registry.isLoaded(1L));
+        registry.clear();
+        assertFalse(registry.isLoaded(2L));
+    }
+
+    private FrozenBundle bundle(Long orderId) {
+        var c = new Contract();
+        c.setContractId(++nextId);
+        c.setStatus(ContractStatus.OPENING);
+        var cm = new Commission();
+        cm.setCommissionId(++nextId);
+        cm.setContractId(c.getContractId());
+        cm.setOrderId(orderId);
+        cm.setStatus(FeeStatus.FORZEN);
+        var m = new Margin();
+        m.setMarginId(++nextId);
+        m.setContractId(c.getContractId());
+        m.setOrderId(orderId);
+        m.setStatus(FeeStatus.FORZEN);
+        return new FrozenBundle(cm, m, c);
+    }
+}
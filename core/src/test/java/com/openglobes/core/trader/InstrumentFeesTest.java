@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2020 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.trader;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InstrumentFeesTest {
+
+    @Test
+    @DisplayName("Calculate amount, margin and commission by money and by volumn.")
+    void calculate() {
+        var i = instrument();
+        var f = new InstrumentFees(i);
+        assertDoesNotThrow(() -> {
+            assertEquals(2500.0D * 10, f.getAmount(2500.0D));
+            assertEquals(2500.0D * 10 * .09, f.getMargin(2500.0D));
+            assertEquals(1.2D, f.getCommission(2500.0D, Offset.OPEN));
+            assertEquals(0.0D, f.getCommission(2500.0D, Offset.CLOSE_YD));
+
+            assertTrue(f.isOf(i));
+            assertTrue(f.isOf(i.copy()));
+
+            i.setCommissionType(RatioType.BY_MONEY);
+            i.setMarginType(RatioType.BY_VOLUMN);
+            var g = new InstrumentFees(i);
+            assertEquals(2500.0D * 10 * 1.2, g.getCommission(2500.0D, Offset.CLOSE_TODAY));
+            assertEquals(.09D, g.getMargin(2500.0D));
+            /*
+             * Calculator isn't changed by the instrument object it is built
+             * from.
+             */
+            assertEquals(1.2D, f.getCommission(2500.0D, Offset.CLOSE_TODAY));
+            assertFalse(f.isOf(i));
+            assertTrue(g.isOf(i));
+        });
+        assertThrows(InvalidRequestOffsetException.class, () -> f.getCommission(2500.0D, Offset.CLOSE_AUTO));
+    }
+
+    @Test
+    @DisplayName("Algorithm rebuilds calculator when fees of instrument change.")
+    void rebuildOnChange() {
+        var algo = new DefaultTraderEngineAlgorithm();
+        var i = instrument();
+        algo.loadInstrument(i);
+        assertEquals(2500.0D * 10 * .09, algo.getMargin(2500.0D, i));
+        assertEquals(2500.0D * 10 * .09, algo.getMargin(2500.0D, instrument()));
+
+        i.setMarginRatio(.12);
+        assertEquals(2500.0D * 10 * .12, algo.getMargin(2500.0D, i));
+        var j = instrument();
+        j.setMultiple(5L);
+        assertEquals(2500.0D * 5 * .09, algo.getMargin(2500.0D, j));
+    }
+
+    @Test
+    @DisplayName("Missing ratio fails only the calculation that needs it.")
+    void missingRatio() {
+        var i = instrument();
+        i.setCommissionCloseYdRatio(null);
+        var f = new InstrumentFees(i);
+        assertDoesNotThrow(() -> f.getCommission(2500.0D, Offset.OPEN));
+        assertThrows(NullPointerException.class, () -> f.getCommission(2500.0D, Offset.CLOSE_YD));
+    }
+
+    private Instrument instrument() {
+        var i = new Instrument();
+        i.setInstrumentId("c2109");
+        i.setCommissionType(RatioType.BY_VOLUMN);
+        i.setCommissionOpenRatio(1.2);
+        i.setCommissionCloseYdRatio(0.0);
+        i.setCommissionCloseTodayRatio(1.2);
+        i.setMarginType(RatioType.BY_MONEY);
+        i.setMarginRatio(.09);
+        i.setMultiple(10L);
+        return i;
+    }
+}
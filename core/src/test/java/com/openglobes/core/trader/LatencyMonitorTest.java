@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2021 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.trader;
+
+import com.openglobes.core.event.ResponseHandler;
+import com.openglobes.core.interceptor.InterceptorChain;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyMonitorTest {
+
+    @Test
+    @DisplayName("Percentiles are within bucket error and no larger than max.")
+    void histogram() {
+        var h = new LatencyHistogram();
+        for (long v = 1; v <= 100_000; ++v) {
+            h.record(v * 1000L);
+        }
+        assertEquals(100_000L, h.count());
+        assertEquals(100_000_000L, h.max());
+        assertNear(50_000_000L, h.quantile(0.5D));
+        assertNear(99_000_000L, h.quantile(0.99D));
+        assertNear(99_900_000L, h.quantile(0.999D));
+        assertEquals(h.max(), h.quantile(1.0D));
+
+        for (long v : new long[]{0L, 15L, 16L, 17L, 1023L, 1024L, Long.MAX_VALUE}) {
+            var i = LatencyHistogram.indexOf(v);
+            assertTrue(LatencyHistogram.upperOf(i) >= v);
+            assertTrue(i == 0 || LatencyHistogram.upperOf(i - 1) < v);
+        }
+
+        h.reset();
+        assertEquals(0L, h.count());
+        assertEquals(0L, h.quantile(0.5D));
+    }
+
+    @Test
+    @DisplayName("Sample stage intervals for all gateways and the bound gateway.")
+    void stages() {
+        var m = new LatencyMonitor(16);
+        m.mark(LatencyStage.SESSION_REQUEST, 1L);
+        assertTrue(m.getSnapshots().isEmpty());
+
+        m.setEnabled(true);
+        m.mark(LatencyStage.SESSION_REQUEST, 1L);
+        m.mark(LatencyStage.ENGINE_DISPATCH, 1L);
+        m.bind(1L, 3);
+        m.mark(LatencyStage.GATEWAY_INSERT, 1L);
+        m.mark(LatencyStage.GATEWAY_RESPONSE, 1L);
+        m.mark(LatencyStage.GATEWAY_RESPONSE, 1L);
+        m.mark(LatencyStage.RESPONSE_EVENT, 1L);
+        m.mark(LatencyStage.CONNECTOR_WRITE, 1L);
+
+        assertEquals(0L, m.getSnapshot(LatencyStage.SESSION_REQUEST).getCount());
+        assertEquals(0L, m.getSnapshot(LatencyStage.CHAIN_REQUEST).getCount());
+        assertEquals(1L, m.getSnapshot(LatencyStage.ENGINE_DISPATCH).getCount());
+        assertEquals(1L, m.getSnapshot(LatencyStage.GATEWAY_RESPONSE).getCount());
+        assertEquals(1L, m.getSnapshot(LatencyStage.RESPONSE_EVENT).getCount());
+        assertEquals(1L, m.getSnapshot(LatencyStage.CONNECTOR_WRITE).getCount());
+        assertEquals(1L, m.getSnapshot(LatencyStage.END_TO_END).getCount());
+        assertEquals(0L, m.getSnapshot(LatencyStage.ENGINE_DISPATCH, 3).getCount());
+        assertEquals(1L, m.getSnapshot(LatencyStage.GATEWAY_INSERT, 3).getCount());
+        assertEquals(1L, m.getSnapshot(LatencyStage.END_TO_END, 3).getCount());
+        assertEquals(0L, m.getSnapshot(LatencyStage.GATEWAY_INSERT, 4).getCount());
+
+        var e2e = m.getSnapshot(LatencyStage.END_TO_END);
+        assertTrue(e2e.getMax() >= m.getSnapshot(LatencyStage.GATEWAY_RESPONSE).getMax());
+
+        /*
+         * Order 17 takes the slot of order 1.
+         */
+        m.mark(LatencyStage.SESSION_REQUEST, 17L);
+        m.mark(LatencyStage.CONNECTOR_WRITE, 1L);
+        assertEquals(1L, m.getSnapshot(LatencyStage.END_TO_END).getCount());
+
+        m.reset();
+        assertTrue(m.getSnapshots().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Stages marked from different threads are all sampled.")
+    void concurrentStages() throws InterruptedException {
+        var m = new LatencyMonitor(1 << 12);
+        m.setEnabled(true);
+        var orders = 1000;
+        /*
+         * Each stage is marked by its own thread, like session, shard,
+         * gateway and response threads, for orders in flight at once.
+         */
+        var stages = new int[]{LatencyStage.SESSION_REQUEST, LatencyStage.ENGINE_DISPATCH,
+                               LatencyStage.GATEWAY_INSERT, LatencyStage.GATEWAY_RESPONSE,
+                               LatencyStage.RESPONSE_EVENT, LatencyStage.CONNECTOR_WRITE};
+        var marked = new AtomicLongArray(orders);
+        var threads = new ArrayList<Thread>(stages.length);
+        for (int s = 0; s < stages.length; ++s) {
+            var stage = stages[s];
+            var index = s;
+            var t = new Thread(() -> {
+                for (int i = 0; i < orders; ++i) {
+                    while (marked.get(i) != index) {
+                        Thread.onSpinWait();
+                    }
+                    if (stage == LatencyStage.GATEWAY_INSERT) {
+                        m.bind(i, 3);
+                    }
+                    m.mark(stage, i);
+                    marked.incrementAndGet(i);
+                }
+            });
+            t.start();
+            threads.add(t);
+        }
+        for (var t : threads) {
+            t.join();
+        }
+        for (int s = 1; s < stages.length; ++s) {
+            assertEquals(orders, m.getSnapshot(stages[s]).getCount());
+        }
+        assertEquals(orders, m.getSnapshot(LatencyStage.END_TO_END).getCount());
+        assertEquals(orders, m.getSnapshot(LatencyStage.END_TO_END, 3).getCount());
+    }
+
+    @Test
+    @DisplayName("Responses published by engine are sampled by response handler.")
+    void responseEvent() throws Exception {
+        var engine = new TraderEngine(1);
+        var m = engine.getLatencyMonitor();
+        m.setEnabled(true);
+        engine.getEventSource().subscribe(Response.class, new ResponseHandler(new InterceptorChain(), m));
+        m.mark(LatencyStage.SESSION_REQUEST, 5L);
+        m.mark(LatencyStage.GATEWAY_RESPONSE, 5L);
+
+        var r = new Response();
+        r.setOrderId(5L);
+        engine.getEventSource().publish(Response.class, r);
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (m.getSnapshot(LatencyStage.RESPONSE_EVENT).getCount() == 0L) {
+            assertTrue(System.nanoTime() < deadline, "Response event not sampled.");
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        m.mark(LatencyStage.CONNECTOR_WRITE, 5L);
+        assertEquals(1L, m.getSnapshot(LatencyStage.CONNECTOR_WRITE).getCount());
+        assertEquals(1L, m.getSnapshot(LatencyStage.END_TO_END).getCount());
+    }
+
+    private void assertNear(long expected, long actual) {
+        assertTrue(Math.abs(actual - expected) <= expected / 16,
+                   "Expected " + expected + " but " + actual + ".");
+    }
+}
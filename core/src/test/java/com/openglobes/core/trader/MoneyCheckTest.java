@@ -0,0 +1,322 @@
+/*
+ * Copyright (C) 2020 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.trader;
+
+import com.openglobes.core.data.DataSources;
+import com.openglobes.core.data.ITraderDataSource;
+import com.openglobes.core.utils.Loggers;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyCheckTest {
+
+    private static final LocalDate DAY = LocalDate.of(2021, 3, 2);
+    private static final int ROUNDS = 20;
+    private long nextId = 0;
+
+    @Test
+    @DisplayName("Opens of two shards don't freeze more than available money with ledger.")
+    void noOverCommitWithLedger() throws Exception {
+        assertNoOverCommit("money-check-db-1", true);
+    }
+
+    @Test
+    @DisplayName("Opens of two shards don't freeze more than available money without ledger.")
+    void noOverCommitWithoutLedger() throws Exception {
+        assertNoOverCommit("money-check-db-2", false);
+    }
+
+    private void assertNoOverCommit(String name, boolean ledger) throws Exception {
+        var ids = instrumentIds();
+        var ds = openDataSource(name, ids);
+        var gateway = new CountingGateway();
+        var rejects = new RejectCounter();
+        Loggers.addLogHandler(rejects);
+        try {
+            run(ds, ids, gateway, rejects, ledger);
+        } finally {
+            Loggers.removeLogHandler(rejects);
+        }
+        try (var conn = ds.getConnection()) {
+            double frozen = 0.0D;
+            for (var m : conn.getMargins()) {
+                frozen += m.getMargin();
+            }
+            for (var c : conn.getCommissions()) {
+                frozen += c.getCommission();
+            }
+            assertTrue(frozen <= ROUNDS * 100.0D);
+        }
+        ds.close();
+    }
+
+    private void run(ITraderDataSource ds,
+                     List<String> ids,
+                     CountingGateway gateway,
+                     RejectCounter rejects,
+                     boolean ledger) throws Exception {
+        var engine = new TraderEngine(2);
+        engine.setDataSource(ds);
+        engine.setAlgorithm(new DefaultTraderEngineAlgorithm());
+        engine.registerTrader(1, gateway);
+        engine.enableTrader(1, true);
+        if (ledger) {
+            engine.setReconcilePeriod(Duration.ofMillis(50));
+        }
+        engine.renew();
+        var orderIds = new ArrayList<Long>(2 * ROUNDS);
+        for (int i = 0; i < ROUNDS; ++i) {
+            /*
+             * Money affords one more order, and both shards try to take it.
+             */
+            deposit(ds);
+            if (ledger) {
+                awaitLedger(engine);
+            } else {
+                engine.getLedger().invalidate();
+            }
+            var start = new CountDownLatch(1);
+            var threads = new ArrayList<Thread>(2);
+            var errors = new ConcurrentLinkedQueue<Throwable>();
+            for (var id : ids) {
+                var r = request(id);
+                orderIds.add(r.getOrderId());
+                var t = new Thread(() -> {
+                    try {
+                        start.await();
+                        engine.request(r, instrument(id), new Properties());
+                    } catch (Throwable th) {
+                        errors.add(th);
+                    }
+                });
+                t.start();
+                threads.add(t);
+            }
+            start.countDown();
+            for (var t : threads) {
+                t.join();
+            }
+            assertTrue(errors.isEmpty(), () -> errors.peek().getMessage());
+            /*
+             * Requests are handled on shard threads, so wait until both are
+             * sent or rejected.
+             */
+            awaitHandled(gateway, rejects, 2 * (i + 1));
+            assertEquals(i + 1, gateway.count());
+            assertEquals(i + 1, rejects.count());
+        }
+        /*
+         * Rejected orders don't keep their traders.
+         */
+        var known = 0;
+        for (var orderId : orderIds) {
+            try {
+                engine.findTraderIdByOrderId(orderId);
+                ++known;
+            } catch (UnknownOrderIdException ignored) {
+            }
+        }
+        assertEquals(ROUNDS, known);
+    }
+
+    private void awaitHandled(CountingGateway gateway, RejectCounter rejects, int n) throws InterruptedException {
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (gateway.count() + rejects.count() < n) {
+            if (System.nanoTime() > deadline) {
+                fail("Only " + gateway.count() + " requests sent and " + rejects.count() + " rejected.");
+            }
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+    }
+
+    private void awaitLedger(TraderEngine engine) throws InterruptedException {
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (engine.getLedger().getAvailable() < 100.0D) {
+            if (System.nanoTime() > deadline) {
+                fail("Ledger not reset.");
+            }
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+    }
+
+    private void deposit(ITraderDataSource ds) throws Exception {
+        /*
+         * Renewing engine clears deposits of the last day.
+         */
+        try (var conn = ds.getConnection()) {
+            var d = new Deposit();
+            d.setDepositId(++nextId);
+            d.setAmount(100.0D);
+            d.setTradingDay(DAY);
+            d.setTimestamp(ZonedDateTime.now());
+            conn.addDeposit(d);
+        }
+    }
+
+    private List<String> instrumentIds() {
+        /*
+         * Pick instruments on different shards of two.
+         */
+        var r = new ArrayList<String>(2);
+        var shard = -1;
+        for (int i = 2101; r.size() < 2; ++i) {
+            var id = "c" + i;
+            var h = id.hashCode();
+            var s = ((h ^ (h >>> 16)) & 0x7FFFFFFF) % 2;
+            if (s != shard) {
+                r.add(id);
+                shard = s;
+            }
+        }
+        return r;
+    }
+
+    private Instrument instrument(String instrumentId) {
+        var i = new Instrument();
+        i.setInstrumentId(instrumentId);
+        i.setExchangeId("DCE");
+        i.setCommissionType(RatioType.BY_VOLUMN);
+        i.setCommissionOpenRatio(10.0D);
+        i.setCommissionCloseTodayRatio(10.0D);
+        i.setCommissionCloseYdRatio(0.0D);
+        i.setMarginType(RatioType.BY_MONEY);
+        i.setMarginRatio(0.09D);
+        i.setMultiple(10L);
+        i.setPriceTick(1.0D);
+        return i;
+    }
+
+    private Request request(String instrumentId) {
+        /*
+         * Freeze 90 margin and 10 commission.
+         */
+        var r = new Request();
+        r.setAction(ActionType.NEW);
+        r.setDirection(Direction.BUY);
+        r.setExchangeId("DCE");
+        r.setInstrumentId(instrumentId);
+        r.setOffset(Offset.OPEN);
+        r.setOrderId(++nextId);
+        r.setRequestId(nextId);
+        r.setPrice(100.0D);
+        r.setQuantity(1L);
+        r.setTraderId(1);
+        return r;
+    }
+
+    private ITraderDataSource openDataSource(String name, List<String> instrumentIds) throws Exception {
+        var ds = DataSources.open(name);
+        try (var conn = ds.getConnection()) {
+            var a = new Account();
+            a.setAccountId(1L);
+            a.setBalance(0.0D);
+            a.setPreBalance(0.0D);
+            a.setDeposit(0.0D);
+            a.setPreDeposit(0.0D);
+            a.setWithdraw(0.0D);
+            a.setPreWithdraw(0.0D);
+            a.setMargin(0.0D);
+            a.setPreMargin(0.0D);
+            a.setCloseProfit(0.0D);
+            a.setCommission(0.0D);
+            a.setFrozenCommission(0.0D);
+            a.setFrozenMargin(0.0D);
+            a.setPositionProfit(0.0D);
+            a.setTradingDay(DAY);
+            a.setTimestamp(ZonedDateTime.now());
+            conn.addAccount(a);
+            for (var id : instrumentIds) {
+                conn.addInstrument(instrument(id));
+                var p = new SettlementPrice();
+                p.setSettlementPriceId(++nextId);
+                p.setInstrumentId(id);
+                p.setSettlementPrice(100.0D);
+                p.setTradingDay(DAY);
+                p.setTimestamp(ZonedDateTime.now());
+                conn.addSettlementPrice(p);
+            }
+        }
+        return ds;
+    }
+
+    private static class RejectCounter extends Handler {
+
+        private final AtomicInteger count = new AtomicInteger(0);
+
+        int count() {
+            return count.get();
+        }
+
+        @Override
+        public void publish(LogRecord record) {
+            if (record.getThrown() instanceof MoneyOverflowException) {
+                count.incrementAndGet();
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static class CountingGateway implements ITraderGateway {
+
+        private final TraderGatewayInfo info = new TraderGatewayInfo();
+        private int count = 0;
+
+        CountingGateway() {
+            info.setTradingDay(DAY);
+        }
+
+        synchronized int count() {
+            return count;
+        }
+
+        @Override
+        public void setHandler(ITraderGatewayHandler handler) {
+        }
+
+        @Override
+        public synchronized void insert(Request request) {
+            ++count;
+        }
+
+        @Override
+        public TraderGatewayInfo getGatewayInfo() {
+            return info;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2020 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.trader;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelPositionsTest {
+
+    private final List<Commission> commissions = new ArrayList<>();
+    private final List<Contract> contracts = new ArrayList<>();
+    private final Map<String, Instrument> instruments = new HashMap<>();
+    private final List<Margin> margins = new ArrayList<>();
+    private final Map<String, SettlementPrice> prices = new HashMap<>();
+    private final LocalDate tradingDay = LocalDate.of(2021, 3, 2);
+
+    @Test
+    @DisplayName("Parallel positions are bit-identical to serial positions.")
+    void parallelEqualsSerial() {
+        setData(20000);
+        var serial = positions(Integer.MAX_VALUE);
+        var parallel = positions(1);
+        assertEquals(serial.size(), parallel.size());
+        for (var e : serial.entrySet()) {
+            var s = e.getValue();
+            var p = parallel.get(e.getKey());
+            assertNotNull(p);
+            assertEquals(s.getAmount(), p.getAmount());
+            assertEquals(s.getCloseProfit(), p.getCloseProfit());
+            assertEquals(s.getCommission(), p.getCommission());
+            assertEquals(s.getFrozenCommission(), p.getFrozenCommission());
+            assertEquals(s.getFrozenMargin(), p.getFrozenMargin());
+            assertEquals(s.getMargin(), p.getMargin());
+            assertEquals(s.getPositionProfit(), p.getPositionProfit());
+            assertEquals(s.getPreAmount(), p.getPreAmount());
+            assertEquals(s.getPreMargin(), p.getPreMargin());
+            assertEquals(s.getTodayAmount(), p.getTodayAmount());
+            assertEquals(s.getTodayMargin(), p.getTodayMargin());
+            assertEquals(s.getTodayOpenAmount(), p.getTodayOpenAmount());
+            assertEquals(s.getTodayOpenMargin(), p.getTodayOpenMargin());
+            assertEquals(s.getVolumn(), p.getVolumn());
+            assertEquals(s.getPreVolumn(), p.getPreVolumn());
+            assertEquals(s.getTodayVolumn(), p.getTodayVolumn());
+            assertEquals(s.getTodayOpenVolumn(), p.getTodayOpenVolumn());
+            assertEquals(s.getFrozenOpenVolumn(), p.getFrozenOpenVolumn());
+            assertEquals(s.getFrozenCloseVolumn(), p.getFrozenCloseVolumn());
+        }
+    }
+
+    @Test
+    @DisplayName("Parallel path throws the exception of the serial path.")
+    void parallelThrows() {
+        setData(100);
+        margins.remove(margins.size() / 2);
+        var algo = algorithm(1);
+        assertThrows(MarginNotFoundException.class,
+                     () -> algo.getPositions(contracts, commissions, margins, prices, instruments, tradingDay));
+    }
+
+    private DefaultTraderEngineAlgorithm algorithm(int threshold) {
+        var algo = new DefaultTraderEngineAlgorithm();
+        var props = new Properties();
+        props.put(DefaultTraderEngineAlgorithm.PARALLEL_THRESHOLD_KEY, Integer.toString(threshold));
+        algo.setProperties(props);
+        return algo;
+    }
+
+    private Map<String, Position> positions(int threshold) {
+        var r = new HashMap<String, Position>();
+        assertDoesNotThrow(() -> {
+            for (var p : algorithm(threshold).getPositions(contracts,
+                                                           commissions,
+                                                           margins,
+                                                           prices,
+                                                           instruments,
+                                                           tradingDay)) {
+                r.put(p.getInstrumentId() + "-" + p.getDirection(), p);
+            }
+        });
+        return r;
+    }
+
+    private void setData(int count) {
+        var rand = new Random(7);
+        var statuses = new int[]{ContractStatus.OPEN,
+                                 ContractStatus.CLOSED,
+                                 ContractStatus.CLOSING,
+                                 ContractStatus.OPENING};
+        for (int i = 0; i < 8; ++i) {
+            var id = "c21" + i;
+            var instrument = new Instrument();
+            instrument.setInstrumentId(id);
+            instrument.setMultiple(10L);
+            instruments.put(id, instrument);
+            var price = new SettlementPrice();
+            price.setInstrumentId(id);
+            price.setSettlementPrice(2000.0D + rand.nextDouble() * 100);
+            prices.put(id, price);
+        }
+        for (long i = 1; i <= count; ++i) {
+            var c = new Contract();
+            c.setContractId(i);
+            c.setInstrumentId("c21" + rand.nextInt(8));
+            c.setDirection(rand.nextBoolean() ? Direction.BUY : Direction.SELL);
+            var status = statuses[rand.nextInt(statuses.length)];
+            c.setStatus(status);
+            var today = status == ContractStatus.OPENING || rand.nextBoolean();
+            c.setOpenTradingDay(today ? tradingDay : tradingDay.minusDays(1));
+            c.setOpenAmount(20000.0D + rand.nextDouble() * 1000);
+            c.setCloseAmount(20000.0D + rand.nextDouble() * 1000);
+            contracts.add(c);
+
+            var dealed = status == ContractStatus.OPENING ? FeeStatus.FORZEN : FeeStatus.DEALED;
+            var m = new Margin();
+            m.setMarginId(i);
+            m.setContractId(i);
+            m.setMargin(rand.nextDouble() * 2000);
+            m.setStatus(dealed);
+            margins.add(m);
+            var cm = new Commission();
+            cm.setCommissionId(i);
+            cm.setContractId(i);
+            cm.setCommission(rand.nextDouble() * 3);
+            cm.setStatus(dealed);
+            commissions.add(cm);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2021 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.trader;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestThrottleTest {
+
+    private final List<Request> dropped = new ArrayList<>();
+    private final List<Request> sent = new ArrayList<>();
+    private long nextId = 0;
+
+    @Test
+    @DisplayName("Send at most burst at once, queue the rest and reject on full queue.")
+    void burstAndReject() throws InterruptedException {
+        var ctx = context(new ThrottleSetting(100.0D, 2, 100.0D, 1, 2));
+        var throttle = new RequestThrottle(ctx, sink());
+
+        assertTrue(throttle.offer(request(ActionType.NEW)));
+        assertTrue(throttle.offer(request(ActionType.NEW)));
+        assertTrue(throttle.offer(request(ActionType.NEW)));
+        assertTrue(throttle.offer(request(ActionType.NEW)));
+        assertFalse(throttle.offer(request(ActionType.NEW)));
+
+        var stat = ctx.getStatistics();
+        synchronized (this) {
+            assertEquals(2, sent.size());
+        }
+        assertEquals(2L, stat.getQueueDepth());
+        assertEquals(1L, stat.getThrottleRejectCount());
+
+        waitSent(4);
+        assertEquals(0L, stat.getQueueDepth());
+        assertEquals(2L, stat.getQueuedCount());
+        assertTrue(stat.getMaxQueueWait() > 0L);
+    }
+
+    @Test
+    @DisplayName("Send queued cancels before queued inserts.")
+    void cancelFirst() throws InterruptedException {
+        var ctx = context(new ThrottleSetting(50.0D, 1, 50.0D, 1, 16));
+        var throttle = new RequestThrottle(ctx, sink());
+
+        throttle.offer(request(ActionType.NEW));
+        throttle.offer(request(ActionType.DELETE));
+        throttle.offer(request(ActionType.NEW));
+        throttle.offer(request(ActionType.DELETE));
+
+        waitSent(4);
+        synchronized (this) {
+            assertEquals(ActionType.NEW, sent.get(0).getAction());
+            assertEquals(ActionType.DELETE, sent.get(1).getAction());
+            assertEquals(ActionType.DELETE, sent.get(2).getAction());
+            assertEquals(ActionType.NEW, sent.get(3).getAction());
+        }
+    }
+
+    @Test
+    @DisplayName("Cancel of a queued insert removes the insert.")
+    void cancelQueued() {
+        var ctx = context(new ThrottleSetting(1.0D, 1, 1.0D, 1, 16));
+        var throttle = new RequestThrottle(ctx, sink());
+
+        throttle.offer(request(ActionType.NEW));
+        var insert = request(ActionType.NEW);
+        throttle.offer(insert);
+
+        var cancel = request(ActionType.DELETE);
+        cancel.setOrderId(insert.getOrderId());
+        assertTrue(throttle.offer(cancel));
+
+        synchronized (this) {
+            assertEquals(1, sent.size());
+            assertEquals(List.of(insert), dropped);
+        }
+        assertEquals(0L, ctx.getStatistics().getQueueDepth());
+    }
+
+    @Test
+    @DisplayName("Clear drops queued inserts and discards queued cancels.")
+    void clearQueued() throws InterruptedException {
+        var ctx = context(new ThrottleSetting(1.0D, 1, 1.0D, 1, 16));
+        var throttle = new RequestThrottle(ctx, sink());
+
+        throttle.offer(request(ActionType.NEW));
+        throttle.offer(request(ActionType.DELETE));
+        var insert = request(ActionType.NEW);
+        throttle.offer(insert);
+        throttle.offer(request(ActionType.DELETE));
+
+        throttle.clear();
+        synchronized (this) {
+            assertEquals(2, sent.size());
+            assertEquals(List.of(insert), dropped);
+        }
+        assertEquals(0L, ctx.getStatistics().getQueueDepth());
+
+        TimeUnit.MILLISECONDS.sleep(1200);
+        synchronized (this) {
+            assertEquals(2, sent.size());
+        }
+    }
+
+    private TraderGatewayContext context(ThrottleSetting setting) {
+        var ctx = new TraderGatewayContext();
+        ctx.setTraderId(1);
+        ctx.setThrottle(setting);
+        return ctx;
+    }
+
+    private Request request(int action) {
+        var r = new Request();
+        r.setAction(action);
+        r.setOrderId(++nextId);
+        r.setInstrumentId("c2101");
+        return r;
+    }
+
+    private RequestThrottle.Sink sink() {
+        return new RequestThrottle.Sink() {
+            @Override
+            public void drop(Request request) {
+                synchronized (RequestThrottleTest.this) {
+                    dropped.add(request);
+                }
+            }
+
+            @Override
+            public void send(List<Request> requests) {
+                synchronized (RequestThrottleTest.this) {
+                    sent.addAll(requests);
+                    RequestThrottleTest.this.notifyAll();
+                }
+            }
+        };
+    }
+
+    private synchronized void waitSent(int n) throws InterruptedException {
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (sent.size() < n) {
+            var left = deadline - System.nanoTime();
+            if (left <= 0) {
+                fail("Only " + sent.size() + " requests sent.");
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, left);
+        }
+    }
+}
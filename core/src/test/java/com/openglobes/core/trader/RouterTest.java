@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2021 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.trader;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouterTest {
+
+    @Test
+    @DisplayName("Weighted round-robin skips disabled gateways and follows weights.")
+    void weightedRoundRobin() {
+        var gateways = List.of(gateway(1, true), gateway(2, true), gateway(3, false));
+        var router = new WeightedRoundRobinRouter();
+        router.setWeight(1, 3);
+        var counts = new HashMap<Integer, Integer>();
+        for (int i = 0; i < 400; ++i) {
+            var g = router.route(null, gateways);
+            counts.merge(g.getTraderId(), 1, Integer::sum);
+        }
+        assertEquals(300, counts.get(1));
+        assertEquals(100, counts.get(2));
+        assertFalse(counts.containsKey(3));
+        assertNull(router.route(null, List.of(gateway(4, false))));
+    }
+
+    @Test
+    @DisplayName("Least-latency prefers unsampled, then fast and idle gateways.")
+    void leastLatency() {
+        var g1 = gateway(1, true);
+        var g2 = gateway(2, true);
+        var g3 = gateway(3, false);
+        var gateways = List.of(g1, g2, g3);
+        var router = new LeastLatencyRouter();
+
+        g1.getStatistics().onAck(1000L);
+        assertSame(g2, router.route(null, gateways));
+
+        g2.getStatistics().onAck(3000L);
+        assertSame(g1, router.route(null, gateways));
+
+        g1.getStatistics().onInsert();
+        g1.getStatistics().onInsert();
+        g1.getStatistics().onInsert();
+        assertSame(g2, router.route(null, gateways));
+
+        g2.getStatistics().onReject();
+        g2.getStatistics().onAck(3000L);
+        assertEquals(0.5D, g2.getStatistics().getRejectRate());
+        assertSame(g1, router.route(null, gateways));
+    }
+
+    private TraderGatewayContext gateway(int traderId, boolean enabled) {
+        var c = new TraderGatewayContext();
+        c.setTraderId(traderId);
+        c.setEnabled(enabled);
+        return c;
+    }
+}
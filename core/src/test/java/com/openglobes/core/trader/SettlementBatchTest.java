@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2021 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.trader;
+
+import com.openglobes.core.data.DataSources;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("SettlementBatch Tests")
+class SettlementBatchTest extends AlgorithmData {
+
+    @Test
+    @DisplayName("Bulk orders equal orders computed request by request.")
+    void serialOrders() {
+        assertOrders(requests().values());
+    }
+
+    @Test
+    @DisplayName("Parallel bulk orders equal orders computed request by request.")
+    void parallelOrders() {
+        var rs = new ArrayList<Request>(256);
+        for (int i = 0; i < 32; ++i) {
+            rs.addAll(requests().values());
+        }
+        assertOrders(rs);
+    }
+
+    @Test
+    @DisplayName("Settle each order of the day once with a pending cancel.")
+    void pendingDelete() {
+        var day = LocalDate.of(2021, 3, 1);
+        var ds = DataSources.open("settlement-batch-db-1", Request.class);
+        assertDoesNotThrow(() -> {
+            try (var conn = ds.getConnection()) {
+                conn.addRequest(request(1L, 100L, ActionType.NEW, day));
+                conn.addRequest(request(2L, 100L, ActionType.DELETE, day));
+                conn.addRequest(request(3L, 200L, ActionType.NEW, day.minusDays(1)));
+
+                var rs = SettlementBatch.load(conn, day).getRequests();
+                assertEquals(1, rs.size());
+                assertEquals(1L, rs.get(0).getRequestId());
+                /*
+                 * Cancel at settlement finds the order's NEW request.
+                 */
+                assertEquals(ActionType.NEW, conn.getRequestByOrderId(100L).getAction());
+            }
+        });
+        ds.close();
+    }
+
+    private Request request(long requestId, long orderId, int action, LocalDate day) {
+        var r = new Request();
+        r.setRequestId(requestId);
+        r.setOrderId(orderId);
+        r.setInstrumentId("c2105");
+        r.setTraderId(1);
+        r.setOffset(Offset.OPEN);
+        r.setAction(action);
+        r.setTradingDay(day);
+        return r;
+    }
+
+    private void assertOrders(Collection<Request> requests) {
+        var batch = new SettlementBatch(requests, trades(), contracts(), responses());
+        assertDoesNotThrow(() -> {
+            var orders = batch.getOrders(algorithm(), instruments());
+            var rs = batch.getRequests();
+            assertEquals(rs.size(), orders.size());
+            for (int i = 0; i < rs.size(); ++i) {
+                var r = rs.get(i);
+                var trades = getTradesByOrderId(r.getOrderId());
+                var expected = algorithm().getOrder(r,
+                                                    getContractsByTrades(trades),
+                                                    trades,
+                                                    getResponsesByOrderId(r.getOrderId()),
+                                                    instruments());
+                var o = orders.get(i);
+                assertEquals(expected.getOrderId(), o.getOrderId());
+                assertEquals(expected.getStatus(), o.getStatus());
+                assertEquals(expected.getTradedVolumn(), o.getTradedVolumn());
+                assertEquals(expected.getAmount(), o.getAmount());
+                assertEquals(expected.getDeleteTimestamp(), o.getDeleteTimestamp());
+                assertEquals(expected.getUpdateTimestamp(), o.getUpdateTimestamp());
+            }
+        });
+    }
+}
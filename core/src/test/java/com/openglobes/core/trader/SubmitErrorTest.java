@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2020 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.trader;
+
+import com.openglobes.core.GatewayRuntimeException;
+import com.openglobes.core.ServiceRuntimeStatus;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SubmitErrorTest {
+
+    @Test
+    @DisplayName("Reject inserts of a failed batch and leave cancels to error.")
+    void rejectFailedInserts() {
+        var engine = new TraderEngine(1);
+        var handler = new RecordingHandler();
+        assertDoesNotThrow(() -> {
+            engine.registerTrader(1, new FailingGateway());
+            var c = engine.getTraderContext(1);
+            c.setHandler(handler);
+
+            var insert = request(c.getDestinatedId(100L, 1L), ActionType.NEW);
+            var cancel = request(c.getDestinatedId(200L, 1L), ActionType.DELETE);
+            c.insertAll(List.of(insert, cancel));
+        });
+        assertEquals(1, handler.responses.size());
+        var r = handler.responses.get(0);
+        assertEquals(OrderStatus.REJECTED, r.getStatus());
+        assertEquals(ActionType.NEW, r.getAction());
+        assertEquals(1, handler.errors.size());
+    }
+
+    @Test
+    @DisplayName("Re-read in-flight limit after gateway changes status.")
+    void refreshInFlightLimit() {
+        var engine = new TraderEngine(1);
+        var gateway = new BatchingGateway();
+        assertDoesNotThrow(() -> {
+            engine.registerTrader(1, gateway);
+            var c = engine.getTraderContext(1);
+
+            c.insertAll(requests(c, 100L, 10));
+            assertEquals(List.of(4, 4, 2), gateway.batches);
+
+            gateway.batches.clear();
+            gateway.limit = 8;
+            gateway.handler.onStatusChange(new ServiceRuntimeStatus(0, "Reconnected."));
+            c.insertAll(requests(c, 200L, 10));
+            assertEquals(List.of(8, 2), gateway.batches);
+        });
+    }
+
+    private List<Request> requests(TraderContext c, long firstId, int n) {
+        var rs = new ArrayList<Request>(n);
+        for (long i = firstId; i < firstId + n; ++i) {
+            rs.add(request(c.getDestinatedId(i, 1L), ActionType.NEW));
+        }
+        return rs;
+    }
+
+    private Request request(long orderId, int action) {
+        var r = new Request();
+        r.setOrderId(orderId);
+        r.setInstrumentId("c2109");
+        r.setDirection(Direction.BUY);
+        r.setOffset(Offset.OPEN);
+        r.setQuantity(1L);
+        r.setTraderId(1);
+        r.setAction(action);
+        return r;
+    }
+
+    private static class RecordingHandler implements ITraderGatewayHandler {
+
+        private final List<Response> responses = new ArrayList<>();
+        private final List<GatewayRuntimeException> errors = new ArrayList<>();
+
+        @Override
+        public void onTrade(Trade trade) {
+        }
+
+        @Override
+        public void onResponse(Response response) {
+            responses.add(response);
+        }
+
+        @Override
+        public void onError(GatewayRuntimeException exception) {
+            errors.add(exception);
+        }
+
+        @Override
+        public void onStatusChange(ServiceRuntimeStatus status) {
+        }
+    }
+
+    private static class BatchingGateway implements IAsyncTraderGateway {
+
+        private final List<Integer> batches = new ArrayList<>();
+        private ITraderGatewayHandler handler;
+        private int limit = 4;
+
+        @Override
+        public void setHandler(ITraderGatewayHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void insert(Request request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public TraderGatewayInfo getGatewayInfo() {
+            return new TraderGatewayInfo();
+        }
+
+        @Override
+        public int getInFlightLimit() {
+            return limit;
+        }
+
+        @Override
+        public void insertAll(Collection<Request> requests) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<Void> submit(Request request) {
+            return submitAll(List.of(request));
+        }
+
+        @Override
+        public CompletableFuture<Void> submitAll(Collection<Request> requests) {
+            batches.add(requests.size());
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    private static class FailingGateway implements IAsyncTraderGateway {
+
+        @Override
+        public void setHandler(ITraderGatewayHandler handler) {
+        }
+
+        @Override
+        public void insert(Request request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public TraderGatewayInfo getGatewayInfo() {
+            return new TraderGatewayInfo();
+        }
+
+        @Override
+        public int getInFlightLimit() {
+            return 16;
+        }
+
+        @Override
+        public void insertAll(Collection<Request> requests) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<Void> submit(Request request) {
+            return submitAll(List.of(request));
+        }
+
+        @Override
+        public CompletableFuture<Void> submitAll(Collection<Request> requests) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Disconnected."));
+        }
+    }
+}
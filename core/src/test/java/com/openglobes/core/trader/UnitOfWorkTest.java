@@ -0,0 +1,308 @@
+/*
+ * Copyright (C) 2021 Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.trader;
+
+import com.openglobes.core.data.CountingDataSource;
+import com.openglobes.core.data.DataSources;
+import com.openglobes.core.data.ITraderDataSource;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UnitOfWorkTest {
+
+    private static final LocalDate DAY = LocalDate.of(2021, 3, 2);
+    private static final String INSTRUMENT_ID = "c2109";
+    /*
+     * Fill adds trade and batches commission, margin and contract updates.
+     * Cancel adds response, queries the order and removes the frozen rows.
+     */
+    private static final long CANCEL_STATEMENTS = 5L;
+    private static final long FILL_STATEMENTS = 4L;
+    private long nextId = 0;
+
+    @Test
+    @DisplayName("Batched changes are written at commit, and rolled back on close without commit.")
+    void commitAndRollback() {
+        var ds = DataSources.open("unit-of-work-db-1", Contract.class, Commission.class, Margin.class);
+        var engine = new TraderEngine(1);
+        engine.setDataSource(ds);
+        var b = bundle(100L);
+        assertDoesNotThrow(() -> {
+            try (var conn = ds.getConnection()) {
+                conn.addContract(b.getContract());
+                conn.addCommission(b.getCommission());
+                conn.addMargin(b.getMargin());
+            }
+            var registry = engine.getFrozenRegistry();
+            registry.load(100L, List.of(b));
+            /*
+             * Close without commit.
+             */
+            try (var work = UnitOfWork.begin(ds, engine.getFacilities(), "c2109", 100L)) {
+                deal(b);
+                work.update(b);
+            }
+            assertFalse(registry.isLoaded(100L));
+            try (var conn = ds.getConnection()) {
+                assertEquals(ContractStatus.OPENING,
+                             conn.getContractById(b.getContract().getContractId()).getStatus());
+            }
+            /*
+             * Reloaded bundle is dealed and committed.
+             */
+            var r = bundle(100L);
+            r.getContract().setContractId(b.getContract().getContractId());
+            registry.load(100L, List.of(r));
+            try (var work = UnitOfWork.begin(ds, engine.getFacilities(), "c2109", 100L)) {
+                deal(r);
+                work.update(r);
+                work.commit();
+            }
+            assertTrue(registry.isLoaded(100L));
+            assertTrue(registry.get(100L).isEmpty());
+            try (var conn = ds.getConnection()) {
+                assertEquals(ContractStatus.OPEN,
+                             conn.getContractById(b.getContract().getContractId()).getStatus());
+                assertEquals(FeeStatus.DEALED,
+                             conn.getCommissionsByOrderId(100L).iterator().next().getStatus());
+                assertEquals(FeeStatus.DEALED,
+                             conn.getMarginsByOrderId(100L).iterator().next().getStatus());
+            }
+        });
+        ds.close();
+    }
+
+    @Test
+    @DisplayName("Fill and cancel callbacks take one connection and commit once.")
+    void callbackCounts() throws Exception {
+        var ds = new CountingDataSource(DataSources.open("unit-of-work-db-2"));
+        setupData(ds);
+        var gateway = new RecordingGateway();
+        var engine = new TraderEngine(1);
+        engine.setDataSource(ds);
+        engine.setAlgorithm(new DefaultTraderEngineAlgorithm());
+        engine.registerTrader(1, gateway);
+        engine.enableTrader(1, true);
+        engine.renew();
+        deposit(ds);
+        engine.request(request(), instrument(), new Properties());
+        engine.request(request(), instrument(), new Properties());
+        var sent = gateway.await(2);
+        /*
+         * Fill the first order.
+         */
+        var connections = ds.getConnections();
+        var commits = ds.getCommits();
+        var statements = ds.getStatements();
+        gateway.handler.onTrade(trade(sent.get(0)));
+        assertEquals(1L, ds.getConnections() - connections);
+        assertEquals(1L, ds.getCommits() - commits);
+        assertEquals(FILL_STATEMENTS, ds.getStatements() - statements);
+        /*
+         * Cancel the second order.
+         */
+        connections = ds.getConnections();
+        commits = ds.getCommits();
+        statements = ds.getStatements();
+        gateway.handler.onResponse(deleted(sent.get(1)));
+        assertEquals(1L, ds.getConnections() - connections);
+        assertEquals(1L, ds.getCommits() - commits);
+        assertEquals(CANCEL_STATEMENTS, ds.getStatements() - statements);
+        try (var conn = ds.getConnection()) {
+            var contracts = conn.getContracts();
+            assertEquals(1, contracts.size());
+            assertEquals(ContractStatus.OPEN, contracts.iterator().next().getStatus());
+        }
+        ds.close();
+    }
+
+    private void deal(FrozenBundle b) {
+        b.getContract().setStatus(ContractStatus.OPEN);
+        b.getCommission().setStatus(FeeStatus.DEALED);
+        b.getMargin().setStatus(FeeStatus.DEALED);
+    }
+
+    private FrozenBundle bundle(Long orderId) {
+        var c = new Contract();
+        c.setContractId(1L);
+        c.setInstrumentId("c2109");
+        c.setStatus(ContractStatus.OPENING);
+        var cm = new Commission();
+        cm.setCommissionId(2L);
+        cm.setContractId(c.getContractId());
+        cm.setOrderId(orderId);
+        cm.setStatus(FeeStatus.FORZEN);
+        var m = new Margin();
+        m.setMarginId(3L);
+        m.setContractId(c.getContractId());
+        m.setOrderId(orderId);
+        m.setStatus(FeeStatus.FORZEN);
+        return new FrozenBundle(cm, m, c);
+    }
+
+    private void deposit(ITraderDataSource ds) throws Exception {
+        /*
+         * Renewing engine clears deposits of the last day.
+         */
+        try (var conn = ds.getConnection()) {
+            var d = new Deposit();
+            d.setDepositId(++nextId);
+            d.setAmount(1.0E6D);
+            d.setTradingDay(DAY);
+            d.setTimestamp(ZonedDateTime.now());
+            conn.addDeposit(d);
+        }
+    }
+
+    private Response deleted(Request request) {
+        var r = new Response();
+        r.setResponseId(++nextId);
+        r.setOrderId(request.getOrderId());
+        r.setInstrumentId(INSTRUMENT_ID);
+        r.setAction(ActionType.DELETE);
+        r.setStatus(OrderStatus.DELETED);
+        r.setTradingDay(DAY);
+        r.setTimestamp(ZonedDateTime.now());
+        return r;
+    }
+
+    private Instrument instrument() {
+        var i = new Instrument();
+        i.setInstrumentId(INSTRUMENT_ID);
+        i.setExchangeId("DCE");
+        i.setCommissionType(RatioType.BY_VOLUMN);
+        i.setCommissionOpenRatio(1.2D);
+        i.setCommissionCloseTodayRatio(1.2D);
+        i.setCommissionCloseYdRatio(0.0D);
+        i.setMarginType(RatioType.BY_MONEY);
+        i.setMarginRatio(0.09D);
+        i.setMultiple(10L);
+        i.setPriceTick(1.0D);
+        return i;
+    }
+
+    private Request request() {
+        var r = new Request();
+        r.setAction(ActionType.NEW);
+        r.setDirection(Direction.BUY);
+        r.setExchangeId("DCE");
+        r.setInstrumentId(INSTRUMENT_ID);
+        r.setOffset(Offset.OPEN);
+        r.setOrderId(++nextId);
+        r.setRequestId(nextId);
+        r.setPrice(100.0D);
+        r.setQuantity(1L);
+        r.setTraderId(1);
+        return r;
+    }
+
+    private void setupData(ITraderDataSource ds) throws Exception {
+        try (var conn = ds.getConnection()) {
+            var a = new Account();
+            a.setAccountId(1L);
+            a.setBalance(0.0D);
+            a.setPreBalance(0.0D);
+            a.setDeposit(0.0D);
+            a.setPreDeposit(0.0D);
+            a.setWithdraw(0.0D);
+            a.setPreWithdraw(0.0D);
+            a.setMargin(0.0D);
+            a.setPreMargin(0.0D);
+            a.setCloseProfit(0.0D);
+            a.setCommission(0.0D);
+            a.setFrozenCommission(0.0D);
+            a.setFrozenMargin(0.0D);
+            a.setPositionProfit(0.0D);
+            a.setTradingDay(DAY);
+            a.setTimestamp(ZonedDateTime.now());
+            conn.addAccount(a);
+            conn.addInstrument(instrument());
+            var p = new SettlementPrice();
+            p.setSettlementPriceId(++nextId);
+            p.setInstrumentId(INSTRUMENT_ID);
+            p.setSettlementPrice(100.0D);
+            p.setTradingDay(DAY);
+            p.setTimestamp(ZonedDateTime.now());
+            conn.addSettlementPrice(p);
+        }
+    }
+
+    private Trade trade(Request request) {
+        var t = new Trade();
+        t.setTradeId(++nextId);
+        t.setOrderId(request.getOrderId());
+        t.setInstrumentId(INSTRUMENT_ID);
+        t.setAction(ActionType.NEW);
+        t.setDirection(Direction.BUY);
+        t.setOffset(Offset.OPEN);
+        t.setPrice(100.0D);
+        t.setQuantity(1L);
+        t.setTradingDay(DAY);
+        t.setTimestamp(ZonedDateTime.now());
+        return t;
+    }
+
+    private static class RecordingGateway implements ITraderGateway {
+
+        private final TraderGatewayInfo info = new TraderGatewayInfo();
+        private final List<Request> requests = new ArrayList<>();
+        private ITraderGatewayHandler handler;
+
+        RecordingGateway() {
+            info.setTradingDay(DAY);
+        }
+
+        List<Request> await(int n) throws InterruptedException {
+            var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (true) {
+                synchronized (this) {
+                    if (requests.size() >= n) {
+                        return new ArrayList<>(requests);
+                    }
+                }
+                if (System.nanoTime() > deadline) {
+                    fail("Requests not sent.");
+                }
+                TimeUnit.MILLISECONDS.sleep(10);
+            }
+        }
+
+        @Override
+        public void setHandler(ITraderGatewayHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public synchronized void insert(Request request) {
+            requests.add(request);
+        }
+
+        @Override
+        public TraderGatewayInfo getGatewayInfo() {
+            return info;
+        }
+    }
+}
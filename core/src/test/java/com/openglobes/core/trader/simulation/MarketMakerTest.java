@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2020-2021. Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.trader.simulation;
+
+import com.openglobes.core.trader.*;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MarketMakerTest {
+
+    private final MarketMaker maker = new MarketMaker();
+    private final List<Response> responses = new ArrayList<>();
+    private final List<Trade> trades = new ArrayList<>();
+
+    @Test
+    @DisplayName("Fill levels from the best price and orders of a level in FIFO order.")
+    void priceTimePriority() {
+        insert(1L, 2691.0D, 2L, Direction.SELL);
+        insert(2L, 2690.0D, 1L, Direction.SELL);
+        insert(3L, 2690.0D, 3L, Direction.SELL);
+        insert(4L, 2692.0D, 5L, Direction.SELL);
+        insert(5L, 2691.0D, 5L, Direction.BUY);
+        /*
+         * Buy fills 2690 level first, order 2 before order 3, then order 1
+         * at 2691. Trades of ask side come before bid side.
+         */
+        assertEquals(List.of(2L, 3L, 1L, 5L, 5L), tradeOrderIds());
+        assertEquals(2690.0D, trades.get(1).getPrice());
+        assertEquals(2691.0D, trades.get(2).getPrice());
+        assertEquals(4L, trades.get(3).getQuantity());
+        assertEquals(OrderStatus.ALL_TRADED, lastStatus(5L));
+        assertEquals(OrderStatus.QUEUED, lastStatus(1L));
+        trades.clear();
+        /*
+         * Rest of order 1 is still the best ask.
+         */
+        insert(6L, 2692.0D, 2L, Direction.BUY);
+        assertEquals(List.of(1L, 4L, 6L, 6L), tradeOrderIds());
+        assertEquals(OrderStatus.ALL_TRADED, lastStatus(1L));
+        assertEquals(OrderStatus.QUEUED, lastStatus(4L));
+        assertEquals(2692.0D, trades.get(3).getPrice());
+    }
+
+    @Test
+    @DisplayName("Cancel order in the middle of a level, and reject cancel of unknown or completed order.")
+    void cancel() {
+        insert(1L, 2690.0D, 1L, Direction.BUY);
+        insert(2L, 2690.0D, 2L, Direction.BUY);
+        insert(3L, 2690.0D, 3L, Direction.BUY);
+        delete(2L, Direction.BUY);
+        assertEquals(OrderStatus.DELETED, lastStatus(2L));
+
+        insert(4L, 2690.0D, 2L, Direction.SELL);
+        assertEquals(List.of(4L, 1L, 3L), tradeOrderIds());
+        assertEquals(OrderStatus.ALL_TRADED, lastStatus(1L));
+        assertEquals(OrderStatus.QUEUED, lastStatus(3L));
+
+        delete(1L, Direction.BUY);
+        assertEquals(OrderStatus.REJECTED, lastStatus(1L));
+        delete(3L, Direction.BUY);
+        assertEquals(OrderStatus.DELETED, lastStatus(3L));
+        delete(3L, Direction.BUY);
+        assertEquals(OrderStatus.REJECTED, lastStatus(3L));
+    }
+
+    @Test
+    @DisplayName("Amend keeps queue priority on quantity decrease and loses it on price change.")
+    void amend() {
+        insert(1L, 2690.0D, 3L, Direction.BUY);
+        insert(2L, 2690.0D, 3L, Direction.BUY);
+        insert(3L, 2689.0D, 3L, Direction.BUY);
+        amend(1L, null, 2L, Direction.BUY);
+        assertEquals(OrderStatus.ACCEPTED, lastStatus(1L));
+        assertEquals(ActionType.AMEND, last(1L).getAction());
+        /*
+         * Order 3 moves to the tail of 2690 level.
+         */
+        amend(3L, 2690.0D, 3L, Direction.BUY);
+
+        insert(4L, 2690.0D, 4L, Direction.SELL);
+        assertEquals(List.of(4L, 1L, 2L), tradeOrderIds());
+        assertEquals(2L, trades.get(1).getQuantity());
+        assertEquals(2L, trades.get(2).getQuantity());
+        trades.clear();
+        /*
+         * Order 2 increases quantity, so it moves behind order 3. Quantity
+         * can't go below traded volumn.
+         */
+        amend(2L, null, 4L, Direction.BUY);
+        amend(2L, null, 2L, Direction.BUY);
+        assertEquals(OrderStatus.REJECTED, lastStatus(2L));
+        assertEquals(104, last(2L).getStatusCode());
+
+        insert(5L, 2690.0D, 5L, Direction.SELL);
+        assertEquals(List.of(5L, 3L, 2L), tradeOrderIds());
+        assertEquals(3L, trades.get(1).getQuantity());
+        assertEquals(OrderStatus.ALL_TRADED, lastStatus(2L));
+    }
+
+    private void amend(long orderId, Double price, long quantity, int direction) {
+        var r = SimGatewayUtils.createDeleteRequest(orderId, orderId, "c2109", direction);
+        r.setAction(ActionType.AMEND);
+        r.setPrice(price);
+        r.setQuantity(quantity);
+        maker.enqueueRequest(r);
+        maker.matchTrade(r);
+        collect();
+    }
+
+    private void delete(long orderId, int direction) {
+        maker.enqueueRequest(SimGatewayUtils.createDeleteRequest(orderId, orderId, "c2109", direction));
+        collect();
+    }
+
+    private void insert(long orderId, double price, long quantity, int direction) {
+        var r = SimGatewayUtils.createNewRequest(orderId,
+                                                 orderId,
+                                                 "c2109",
+                                                 price,
+                                                 quantity,
+                                                 direction,
+                                                 Offset.OPEN);
+        maker.enqueueRequest(r);
+        maker.matchTrade(r);
+        collect();
+    }
+
+    private void collect() {
+        trades.addAll(maker.getTradeUpdates());
+        responses.addAll(maker.getResponseUpdates());
+    }
+
+    private Response last(long orderId) {
+        Response s = null;
+        for (var r : responses) {
+            if (r.getOrderId() == orderId) {
+                s = r;
+            }
+        }
+        assertNotNull(s);
+        return s;
+    }
+
+    private int lastStatus(long orderId) {
+        return last(orderId).getStatus();
+    }
+
+    private List<Long> tradeOrderIds() {
+        var r = new ArrayList<Long>();
+        trades.forEach(t -> r.add(t.getOrderId()));
+        return r;
+    }
+}
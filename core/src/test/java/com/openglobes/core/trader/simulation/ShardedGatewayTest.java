@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2020-2021. Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.trader.simulation;
+
+import com.openglobes.core.GatewayRuntimeException;
+import com.openglobes.core.ServiceRuntimeStatus;
+import com.openglobes.core.trader.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedGatewayTest {
+
+    private final SimulatedTraderGateway gateway = new SimulatedTraderGateway(4);
+    private final Map<String, List<Response>> responses = new ConcurrentHashMap<>();
+    private final Map<String, List<Trade>> trades = new ConcurrentHashMap<>();
+    private final Queue<Throwable> errors = new ConcurrentLinkedQueue<>();
+
+    @BeforeEach
+    public void setup() {
+        gateway.setHandler(new ITraderGatewayHandler() {
+            @Override
+            public void onTrade(Trade trade) {
+                trades.computeIfAbsent(trade.getInstrumentId(), k -> new ArrayList<>())
+                      .add(trade);
+            }
+
+            @Override
+            public void onResponse(Response response) {
+                responses.computeIfAbsent(response.getInstrumentId(), k -> new ArrayList<>())
+                         .add(response);
+            }
+
+            @Override
+            public void onError(GatewayRuntimeException exception) {
+                errors.add(exception);
+            }
+
+            @Override
+            public void onStatusChange(ServiceRuntimeStatus status) {
+            }
+        });
+    }
+
+    @Test
+    @DisplayName("Match instruments on shards and keep per-instrument order.")
+    void perInstrumentOrder() throws Exception {
+        var requests = new LinkedList<Request>();
+        var count = 100;
+        for (int i = 0; i < count; ++i) {
+            for (int k = 0; k < 8; ++k) {
+                /*
+                 * Sell and buy take turns, so each buy fills the sell before it.
+                 */
+                var orderId = k * 1000L + i;
+                requests.add(SimGatewayUtils.createNewRequest(orderId,
+                                                              orderId,
+                                                              "c" + k,
+                                                              2690.0D,
+                                                              1L,
+                                                              i % 2 == 0 ? Direction.SELL : Direction.BUY,
+                                                              Offset.OPEN));
+            }
+        }
+        gateway.submitAll(requests).get(10, TimeUnit.SECONDS);
+        assertTrue(errors.isEmpty());
+        assertEquals(8, responses.size());
+        for (int k = 0; k < 8; ++k) {
+            var instrumentId = "c" + k;
+            var ts = trades.get(instrumentId);
+            assertEquals(count, ts.size());
+            /*
+             * Orders are accepted in the order they are submitted.
+             */
+            var accepted = new ArrayList<Long>();
+            for (var r : responses.get(instrumentId)) {
+                if (r.getStatus() == OrderStatus.ACCEPTED) {
+                    accepted.add(r.getOrderId());
+                }
+            }
+            assertEquals(count, accepted.size());
+            for (int i = 0; i < count; ++i) {
+                assertEquals(k * 1000L + i, accepted.get(i));
+            }
+            /*
+             * Pairs of sell and buy trade in order.
+             */
+            for (int i = 0; i < count; i += 2) {
+                assertEquals(k * 1000L + i, ts.get(i).getOrderId());
+                assertEquals(k * 1000L + i + 1, ts.get(i + 1).getOrderId());
+            }
+            assertNotNull(gateway.getMarketer(instrumentId));
+        }
+    }
+
+    @Test
+    @DisplayName("Reject duplicated order ID across shards.")
+    void duplicatedOrderId() throws Exception {
+        var requests = new LinkedList<Request>();
+        for (int k = 0; k < 8; ++k) {
+            requests.add(SimGatewayUtils.createNewRequest(1L,
+                                                          (long) k,
+                                                          "c" + k,
+                                                          2690.0D,
+                                                          1L,
+                                                          Direction.BUY,
+                                                          Offset.OPEN));
+        }
+        gateway.submitAll(requests).get(10, TimeUnit.SECONDS);
+        var rejected = 0;
+        var accepted = 0;
+        for (var rs : responses.values()) {
+            for (var r : rs) {
+                if (r.getStatus() == OrderStatus.REJECTED) {
+                    assertEquals(102, r.getStatusCode());
+                    ++rejected;
+                } else if (r.getStatus() == OrderStatus.ACCEPTED) {
+                    ++accepted;
+                }
+            }
+        }
+        assertEquals(1, accepted);
+        assertEquals(7, rejected);
+    }
+
+    @Test
+    @DisplayName("Reject non-positive shard count.")
+    void badShardCount() {
+        assertThrows(IllegalArgumentException.class, () -> new SimulatedTraderGateway(0));
+    }
+}
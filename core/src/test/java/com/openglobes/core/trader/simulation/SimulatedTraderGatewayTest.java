@@ -25,8 +25,10 @@ import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.fail;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 class SimulatedTraderGatewayTest extends SimTestSupporter {
 
@@ -93,6 +95,34 @@ class SimulatedTraderGatewayTest extends SimTestSupporter {
         gateway.insert(mine);
     }
 
+    @Test
+    @DisplayName("Submit requests asynchronously.")
+    public void testSubmitAll() {
+        var async = (IAsyncTraderGateway) gateway;
+        assertTrue(async.getInFlightLimit() > 0);
+        var r = SimGatewayUtils.createNewRequest(31L,
+                                                 301L,
+                                                 "c2109",
+                                                 2680.0D,
+                                                 1L,
+                                                 Direction.BUY,
+                                                 Offset.OPEN);
+        var dup = SimGatewayUtils.createNewRequest(31L,
+                                                   302L,
+                                                   "c2109",
+                                                   2680.0D,
+                                                   1L,
+                                                   Direction.BUY,
+                                                   Offset.OPEN);
+        assertDoesNotThrow(() -> async.submitAll(List.of(r, dup)).get(1, TimeUnit.SECONDS));
+        /*
+         * Handler is called before submission completes.
+         */
+        assertEquals(OrderStatus.ACCEPTED, goodResponses(31L).get(0).getStatus());
+        assertEquals(1, badResponses(31L).size());
+        assertEquals(102, badResponses(31L).get(0).getStatusCode());
+    }
+
     @Test
     @DisplayName("Good request.")
     public void testGoodRequest() {
@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2020-2021. Hongbao Chen <chenhongbao@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.openglobes.core.trader.simulation;
+
+import com.openglobes.core.GatewayRuntimeException;
+import com.openglobes.core.ServiceRuntimeStatus;
+import com.openglobes.core.market.Tick;
+import com.openglobes.core.trader.*;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TickFillTest {
+
+    private static final ZonedDateTime START = ZonedDateTime.of(2021, 3, 1, 9, 0, 0, 0, ZoneId.of("Asia/Shanghai"));
+    private final List<Response> responses = new ArrayList<>();
+    private final List<Trade> trades = new ArrayList<>();
+    private MarketMaker maker;
+    private long tickId = 0;
+
+    @Test
+    @DisplayName("Wait behind shown volumn, then fill by volumn traded, crossed or traded through.")
+    void queueBackByLiquidity() {
+        maker = new MarketMaker(new TickFillModel(TickFillModel.QUEUE_BACK, TickFillModel.FILL_LIQUIDITY));
+        tick(2690.0D, 10L, 2691.0D, 5L, 2690.0D, 1L);
+        insert(1L, 2690.0D, 4L, Direction.BUY);
+        assertEquals(OrderStatus.ACCEPTED, lastStatus(1L));
+        /*
+         * Ten lots are ahead, and six of them trade.
+         */
+        tick(2690.0D, 10L, 2691.0D, 5L, 2690.0D, 6L);
+        assertTrue(trades.isEmpty());
+        /*
+         * Four lots left ahead, so two of six fill the order.
+         */
+        tick(2690.0D, 10L, 2691.0D, 5L, 2690.0D, 6L);
+        assertEquals(1, trades.size());
+        assertEquals(2L, trades.get(0).getQuantity());
+        assertEquals(OrderStatus.QUEUED, lastStatus(1L));
+        /*
+         * Ask comes down to the order with one lot.
+         */
+        tick(2689.0D, 10L, 2690.0D, 1L, 2690.0D, 0L);
+        assertEquals(2, trades.size());
+        assertEquals(1L, trades.get(1).getQuantity());
+        /*
+         * Market trades through the order.
+         */
+        tick(2688.0D, 10L, 2689.0D, 1L, 2689.0D, 100L);
+        assertEquals(3, trades.size());
+        assertEquals(1L, trades.get(2).getQuantity());
+        assertEquals(OrderStatus.ALL_TRADED, lastStatus(1L));
+        trades.forEach(t -> assertEquals(2690.0D, t.getPrice()));
+        /*
+         * Updates carry time of the tick, not wall clock.
+         */
+        assertEquals(START.plusSeconds(tickId), trades.get(2).getTimestamp());
+        assertEquals(START.plusSeconds(tickId), last(1L).getTimestamp());
+    }
+
+    @Test
+    @DisplayName("Fill in full at front of queue, and don't match own orders.")
+    void queueFrontInFull() {
+        maker = new MarketMaker(new TickFillModel(TickFillModel.QUEUE_FRONT, TickFillModel.FILL_FULL));
+        tick(2690.0D, 10L, 2692.0D, 5L, 2691.0D, 1L);
+        insert(1L, 2692.0D, 5L, Direction.SELL);
+        insert(2L, 2692.0D, 5L, Direction.BUY);
+        assertTrue(trades.isEmpty());
+        /*
+         * Buy crosses the ask and fills in full though the ask shows one lot.
+         */
+        tick(2690.0D, 10L, 2692.0D, 1L, 2691.0D, 1L);
+        assertEquals(List.of(2L), tradeOrderIds());
+        assertEquals(5L, trades.get(0).getQuantity());
+        /*
+         * One lot trades at sell price, and sell at front fills in full.
+         */
+        tick(2691.0D, 10L, 2693.0D, 1L, 2692.0D, 1L);
+        assertEquals(List.of(2L, 1L), tradeOrderIds());
+        assertEquals(OrderStatus.ALL_TRADED, lastStatus(1L));
+        assertEquals(OrderStatus.ALL_TRADED, lastStatus(2L));
+    }
+
+    @Test
+    @DisplayName("Order behind the quote waits until its level is shown.")
+    void behindQuote() {
+        maker = new MarketMaker(new TickFillModel());
+        tick(2690.0D, 10L, 2691.0D, 5L, 2690.0D, 1L);
+        insert(1L, 2688.0D, 3L, Direction.BUY);
+        tick(2689.0D, 10L, 2690.0D, 5L, 2688.0D, 3L);
+        assertTrue(trades.isEmpty());
+        /*
+         * Level shows two lots, so one of three lots traded fills the order.
+         */
+        tick(2688.0D, 2L, 2689.0D, 5L, 2688.0D, 3L);
+        assertEquals(1, trades.size());
+        assertEquals(1L, trades.get(0).getQuantity());
+    }
+
+    @Test
+    @DisplayName("Backtest on gateway gives same trades and responses on every run.")
+    void deterministicGateway() throws Exception {
+        var first = replay();
+        var second = replay();
+        assertTrue(first.stream().anyMatch(f -> f.startsWith("Trade")));
+        assertEquals(first, second);
+        var t = createTick(2690.0D, 1L, 2691.0D, 1L, 2690.0D, 1L);
+        t.setInstrumentId("c2109");
+        assertThrows(IllegalStateException.class, () -> new SimulatedTraderGateway().insertTick(t));
+    }
+
+    private List<String> replay() throws Exception {
+        var fills = new ArrayList<String>();
+        var gateway = new SimulatedTraderGateway(2, new TickFillModel());
+        gateway.setHandler(new ITraderGatewayHandler() {
+            @Override
+            public void onTrade(Trade trade) {
+                synchronized (fills) {
+                    fills.add(fieldsOf(trade));
+                }
+            }
+
+            @Override
+            public void onResponse(Response response) {
+                synchronized (fills) {
+                    fills.add(fieldsOf(response));
+                }
+            }
+
+            @Override
+            public void onError(GatewayRuntimeException exception) {
+                fail(exception.getMessage());
+            }
+
+            @Override
+            public void onStatusChange(ServiceRuntimeStatus status) {
+            }
+        });
+        tickId = 0;
+        for (int k = 0; k < 4; ++k) {
+            var instrumentId = "c" + k;
+            var t = createTick(2690.0D, 10L, 2691.0D, 5L, 2690.0D, 1L);
+            t.setInstrumentId(instrumentId);
+            gateway.insertTick(t);
+            gateway.insert(SimGatewayUtils.createNewRequest(k + 1L,
+                                                            k + 1L,
+                                                            instrumentId,
+                                                            2690.0D,
+                                                            8L,
+                                                            Direction.BUY,
+                                                            Offset.OPEN));
+            for (int i = 0; i < 5; ++i) {
+                t = createTick(2690.0D, 10L, 2691.0D, 5L, 2690.0D, 4L + k);
+                t.setInstrumentId(instrumentId);
+                gateway.insertTick(t);
+            }
+        }
+        var t = createTick(2690.0D, 10L, 2691.0D, 5L, 2690.0D, 0L);
+        t.setInstrumentId("c0");
+        gateway.submitTick(t).get(10, TimeUnit.SECONDS);
+        for (int k = 1; k < 4; ++k) {
+            t.setInstrumentId("c" + k);
+            gateway.submitTick(t).get(10, TimeUnit.SECONDS);
+        }
+        synchronized (fills) {
+            fills.sort(String::compareTo);
+            return new ArrayList<>(fills);
+        }
+    }
+
+    /*
+     * Values of all getters, so updates compare by all their fields.
+     */
+    private static String fieldsOf(Object object) {
+        var methods = new TreeMap<String, Method>();
+        for (var m : object.getClass().getMethods()) {
+            if (m.getName().startsWith("get") && m.getParameterCount() == 0 && m.getDeclaringClass() != Object.class) {
+                methods.put(m.getName(), m);
+            }
+        }
+        var r = new StringBuilder(object.getClass().getSimpleName());
+        for (var e : methods.entrySet()) {
+            try {
+                r.append('/').append(e.getKey()).append('=').append(e.getValue().invoke(object));
+            } catch (ReflectiveOperationException ex) {
+                throw new IllegalStateException(ex.getMessage(), ex);
+            }
+        }
+        return r.toString();
+    }
+
+    private void tick(double bid, long bidVolumn, double ask, long askVolumn, double last, long quantity) {
+        var t = createTick(bid, bidVolumn, ask, askVolumn, last, quantity);
+        t.setInstrumentId("c2109");
+        maker.matchTick(t);
+        collect();
+    }
+
+    private Tick createTick(double bid, long bidVolumn, double ask, long askVolumn, double last, long quantity) {
+        var t = new Tick();
+        t.setTickId(++tickId);
+        t.setBidPrice(bid);
+        t.setBidVolumn(bidVolumn);
+        t.setAskPrice(ask);
+        t.setAskVolumn(askVolumn);
+        t.setPrice(last);
+        t.setQuantity(quantity);
+        t.setTimestamp(START.plusSeconds(tickId));
+        t.setTradingDay(LocalDate.of(2021, 3, 1));
+        return t;
+    }
+
+    private void insert(long orderId, double price, long quantity, int direction) {
+        var r = SimGatewayUtils.createNewRequest(orderId,
+                                                 orderId,
+                                                 "c2109",
+                                                 price,
+                                                 quantity,
+                                                 direction,
+                                                 Offset.OPEN);
+        maker.enqueueRequest(r);
+        maker.matchTrade(r);
+        collect();
+    }
+
+    private void collect() {
+        trades.addAll(maker.getTradeUpdates());
+        responses.addAll(maker.getResponseUpdates());
+    }
+
+    private Response last(long orderId) {
+        Response s = null;
+        for (var r : responses) {
+            if (r.getOrderId() == orderId) {
+                s = r;
+            }
+        }
+        assertNotNull(s);
+        return s;
+    }
+
+    private int lastStatus(long orderId) {
+        return last(orderId).getStatus();
+    }
+
+    private List<Long> tradeOrderIds() {
+        var r = new ArrayList<Long>();
+        trades.forEach(t -> r.add(t.getOrderId()));
+        return r;
+    }
+}
@@ -23,6 +23,8 @@ import com.openglobes.core.market.InstrumentMinuteNotice;
 import com.openglobes.core.market.InstrumentNotice;
 import com.openglobes.core.market.InstrumentTime;
 import com.openglobes.core.market.Notices;
+import com.openglobes.core.utils.Clocks;
+import com.openglobes.core.utils.IClock;
 import com.openglobes.core.utils.Loggers;
 import com.openglobes.core.utils.MinuteNotice;
 import com.openglobes.core.utils.Utils;
@@ -44,13 +46,15 @@ public class InstrumentNotifier implements IEventHandler<MinuteNotice>,
 
     private final Cleaner.Cleanable cleanable;
     private final Cleaner cleaner = Cleaner.create();
+    private final IClock clock;
     private final IMarketDataSource ds;
     private final IEventSource evt;
     private final Map<String, AtomicInteger> minCounters;
     private final Map<String, Integer> preTypes;
     private final Map<TimeKeeper, Set<String>> times;
 
-    private InstrumentNotifier(IMarketDataSource source) throws DataException {
+    private InstrumentNotifier(IMarketDataSource source, IClock clock) throws DataException {
+        this.clock = clock;
         ds = source;
         evt = new EventSource();
         times = new HashMap<>(512);
@@ -62,7 +66,11 @@ public class InstrumentNotifier implements IEventHandler<MinuteNotice>,
     }
 
     public static InstrumentNotifier create(IMarketDataSource source) throws DataException {
-        return new InstrumentNotifier(source);
+        return create(source, Clocks.getDefault());
+    }
+
+    public static InstrumentNotifier create(IMarketDataSource source, IClock clock) throws DataException {
+        return new InstrumentNotifier(source, clock);
     }
 
     private void setup() throws DataException {
@@ -208,7 +216,7 @@ public class InstrumentNotifier implements IEventHandler<MinuteNotice>,
                                                    getMinutes(),
                                                    getMinuteOfTradingDay(instrumentId),
                                                    min.getAlignTime(),
-                                                   ZonedDateTime.now(),
+                                                   clock.now(),
                                                    tradingDay));
         } catch (NoSubscribedClassException ex) {
             ex.printStackTrace();
@@ -237,7 +245,7 @@ public class InstrumentNotifier implements IEventHandler<MinuteNotice>,
                                              instrumentId,
                                              type,
                                              notice.getAlignTime(),
-                                             ZonedDateTime.now(),
+                                             clock.now(),
                                              tradingDay));
         } catch (NoSubscribedClassException ex) {
             ex.printStackTrace();
@@ -22,6 +22,8 @@ import com.openglobes.core.event.IEventSource;
 import com.openglobes.core.event.InvalidSubscriptionException;
 import com.openglobes.core.market.InstrumentMinuteNotice;
 import com.openglobes.core.market.InstrumentNotice;
+import com.openglobes.core.utils.Clocks;
+import com.openglobes.core.utils.IClock;
 import com.openglobes.core.utils.IMinuteNotifier;
 import com.openglobes.core.utils.Loggers;
 import com.openglobes.core.utils.MinuteNotice;
@@ -39,6 +41,7 @@ import java.util.logging.Level;
 public class MarketEngine implements IMarketEngine {
 
     private final Map<Integer, MarketGatewayContext> gates;
+    private final IClock clock;
     private final IMinuteNotifier minNotifier;
     private IMarketDataSource ds;
     private IStickEngine eg;
@@ -46,8 +49,19 @@ public class MarketEngine implements IMarketEngine {
     private InstrumentNotifier instNotifier;
 
     public MarketEngine() {
+        this(Clocks.getDefault());
+    }
+
+    /**
+     * Create market engine that stamps notices and numbers sticks by the
+     * clock.
+     *
+     * @param clock clock.
+     */
+    public MarketEngine(IClock clock) {
+        this.clock = Objects.requireNonNull(clock);
         gates = new ConcurrentHashMap<>(16);
-        minNotifier = new MinuteNotifier();
+        minNotifier = new MinuteNotifier(clock, true);
     }
 
     @Override
@@ -85,12 +99,12 @@ public class MarketEngine implements IMarketEngine {
             /*
              * Connect stick engine to ticks.
              */
-            eg = StickEngine.create(ds);
+            eg = StickEngine.create(ds, clock);
             gateHandler = new TickHandler(eg);
             /*
              * Connect stick engine to notices.
              */
-            instNotifier = InstrumentNotifier.create(ds);
+            instNotifier = InstrumentNotifier.create(ds, clock);
             instNotifier.getEventSource().subscribe(InstrumentNotice.class,
                                                     new InstrumentNoticeHandler(eg));
             instNotifier.getEventSource().subscribe(InstrumentMinuteNotice.class,
@@ -22,6 +22,8 @@ import com.openglobes.core.event.EventSource;
 import com.openglobes.core.event.IEventSource;
 import com.openglobes.core.event.NoSubscribedClassException;
 import com.openglobes.core.market.*;
+import com.openglobes.core.utils.Clocks;
+import com.openglobes.core.utils.IClock;
 
 import java.lang.ref.Cleaner;
 import java.time.ZonedDateTime;
@@ -39,12 +41,14 @@ public class StickEngine implements IStickEngine, AutoCloseable {
     private final Map<String, IStickBuilder> builders;
     private final Cleaner.Cleanable cleanable;
     private final Cleaner cleaner = Cleaner.create();
+    private final IClock clock;
     private final IEventSource evt;
     private final AtomicLong sid;
     private final IMarketDataSource src;
 
-    private StickEngine(IMarketDataSource source) throws StickException,
-                                                         DataException {
+    private StickEngine(IMarketDataSource source, IClock clock) throws StickException,
+                                                                       DataException {
+        this.clock = clock;
         evt = new EventSource();
         src = source;
         builders = new ConcurrentHashMap<>(512);
@@ -56,7 +60,21 @@ public class StickEngine implements IStickEngine, AutoCloseable {
 
     public static IStickEngine create(IMarketDataSource source) throws StickException,
                                                                        DataException {
-        return new StickEngine(source);
+        return create(source, Clocks.getDefault());
+    }
+
+    /**
+     * Create stick engine that numbers sticks from the day of the specified
+     * clock.
+     *
+     * @param source market data source.
+     * @param clock  clock.
+     *
+     * @return stick engine.
+     */
+    public static IStickEngine create(IMarketDataSource source, IClock clock) throws StickException,
+                                                                                     DataException {
+        return new StickEngine(source, clock);
     }
 
     @Override
@@ -158,7 +176,7 @@ public class StickEngine implements IStickEngine, AutoCloseable {
     }
 
     private long getInitStickId() {
-        var c = ZonedDateTime.now();
+        var c = clock.now();
         return (c.getYear() * 10000 + c.getMonthValue() * 100 + c.getDayOfMonth()) * 1000000;
     }
 
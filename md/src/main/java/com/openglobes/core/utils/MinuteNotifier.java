@@ -22,12 +22,16 @@ import com.openglobes.core.event.NoSubscribedClassException;
 
 import java.lang.ref.Cleaner;
 import java.time.Duration;
-import java.time.ZonedDateTime;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
+ * Publish minute notice every minute, stamped by the clock.
+ * <p>
+ * Notifier without schedule publishes only when {@link #run()} is called, so
+ * replay on virtual clock drives notices from its own time.
+ *
  * @author Hongbao Chen
  * @since 1.0
  */
@@ -36,15 +40,26 @@ public class MinuteNotifier extends TimerTask implements IMinuteNotifier,
 
     private final Cleaner.Cleanable cleanable;
     private final Cleaner cleaner = Cleaner.create();
+    private final IClock clock;
     private final IEventSource evt;
     private final AtomicLong nid;
     private final Timer tm;
 
     public MinuteNotifier() {
+        this(Clocks.getDefault(), true);
+    }
+
+    /**
+     * Create minute notifier stamping notices by the clock.
+     *
+     * @param clock     clock.
+     * @param scheduled {@code true} to publish every minute of wall clock.
+     */
+    public MinuteNotifier(IClock clock, boolean scheduled) {
+        this.clock = clock;
         evt = new EventSource();
         nid = new AtomicLong(0);
-        tm = Utils.schedulePerDuration(this,
-                                       Duration.ofMinutes(1));
+        tm = scheduled ? Utils.schedulePerDuration(this, Duration.ofMinutes(1)) : null;
         cleanable = cleaner.register(this,
                                      new CleanAction(evt, tm));
     }
@@ -62,10 +77,11 @@ public class MinuteNotifier extends TimerTask implements IMinuteNotifier,
     @Override
     public void run() {
         try {
+            var now = clock.now();
             evt.publish(MinuteNotice.class,
                         new MinuteNotice(nid.incrementAndGet(),
-                                         Utils.getRoundedTimeByMinute(),
-                                         ZonedDateTime.now()));
+                                         Utils.getRoundedTimeByMinute(now),
+                                         now));
         } catch (NoSubscribedClassException ex) {
             ex.printStackTrace();
         }
@@ -84,8 +100,10 @@ public class MinuteNotifier extends TimerTask implements IMinuteNotifier,
         @Override
         public void run() {
             src.close();
-            tm.cancel();
-            tm.purge();
+            if (tm != null) {
+                tm.cancel();
+                tm.purge();
+            }
         }
     }
 }